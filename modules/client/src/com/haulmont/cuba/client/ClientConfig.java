@@ -436,4 +436,20 @@ public interface ClientConfig extends Config {
     @Source(type = SourceType.DATABASE)
     @DefaultBoolean(true)
     boolean getReloadUnfetchedAttributesFromLookupScreens();
+
+    /**
+     * @return number of rows loaded from the database by one query when a table is exported by
+     * {@code ExcelExporter} in the streaming mode
+     */
+    @Property("cuba.gui.excelExporter.streamingPageSize")
+    @DefaultInt(1000)
+    int getExcelExporterStreamingPageSize();
+
+    /**
+     * @return number of XLSX rows kept in memory by {@code ExcelExporter} in the streaming mode, other rows
+     * are flushed to a temporary file
+     */
+    @Property("cuba.gui.excelExporter.streamingRowAccessWindowSize")
+    @DefaultInt(100)
+    int getExcelExporterStreamingRowAccessWindowSize();
 }
\ No newline at end of file
@@ -55,4 +55,24 @@ public interface CachingStrategy {
      */
     default void clearCache() {
     }
+
+    /**
+     * Indicate whether {@link ClientCacheManager} should keep returning the current object when it needs to be
+     * refreshed, and refresh it in background.
+     * <p>
+     * In this mode {@link #loadObject()} is invoked in a background thread without holding the {@link #lock()},
+     * so the implementation must publish the new object atomically, e.g. by assigning a volatile field.
+     * The object is loaded synchronously if {@link #getObject()} returns null.
+     */
+    default boolean isRefreshAhead() {
+        return false;
+    }
+
+    /**
+     * Return max time in milliseconds for which a stale object can be returned in the refresh-ahead mode.
+     * If the background refresh takes longer, the object is loaded synchronously. 0 means no limit.
+     */
+    default long getMaxStalenessMs() {
+        return 0;
+    }
 }
\ No newline at end of file
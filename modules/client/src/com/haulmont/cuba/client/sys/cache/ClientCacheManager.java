@@ -18,8 +18,12 @@
 package com.haulmont.cuba.client.sys.cache;
 
 import com.haulmont.cuba.core.global.Events;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
 import com.haulmont.cuba.core.sys.events.AppContextInitializedEvent;
 import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
+import com.haulmont.cuba.security.global.NoUserSessionException;
+import com.haulmont.cuba.security.global.UserSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
@@ -29,15 +33,19 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
 
 /**
- * Provides ability to cache any abstract object in client application
+ * Provides ability to cache any abstract object in client application.
+ * <p>
+ * If a {@link CachingStrategy} supports the {@link CachingStrategy#isRefreshAhead() refresh-ahead} mode, a stale
+ * object is returned while a single background task reloads it, so callers are not blocked by the remote call.
  */
 @Component(ClientCacheManager.NAME)
 public class ClientCacheManager {
@@ -47,6 +55,11 @@ public class ClientCacheManager {
     private static final Logger log = LoggerFactory.getLogger(ClientCacheManager.class);
 
     protected ConcurrentHashMap<String, CachingStrategy> cache = new ConcurrentHashMap<>();
+    protected ConcurrentHashMap<String, CacheState> states = new ConcurrentHashMap<>();
+
+    @Inject
+    protected CacheUserSessionProvider cacheUserSessionProvider;
+
     protected ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1, new ThreadFactory() {
         final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
 
@@ -88,6 +101,13 @@ public class ClientCacheManager {
     public <T> T getCached(String name) {
         CachingStrategy cachingStrategy = cache.get(name);
         if (cachingStrategy != null) {
+            if (cachingStrategy.isRefreshAhead()) {
+                Object object = getCachedRefreshAhead(name, cachingStrategy);
+                if (object != null) {
+                    return (T) object;
+                }
+            }
+
             Lock readLock = cachingStrategy.lock().readLock();
             Lock writeLock = cachingStrategy.lock().writeLock();
             try {
@@ -99,7 +119,7 @@ public class ClientCacheManager {
                         readLock.unlock();
                         writeLock.lock();
                         if (cachingStrategy.needToReload()) {//re-check condition
-                            return (T) cachingStrategy.loadObject();
+                            return (T) loadObject(name, cachingStrategy);
                         } else {
                             return (T) cachingStrategy.getObject();
                         }
@@ -122,13 +142,130 @@ public class ClientCacheManager {
             Lock writeLock = cachingStrategy.lock().writeLock();
             try {
                 writeLock.lock();
-                cachingStrategy.loadObject();
+                loadObject(name, cachingStrategy);
             } finally {
                 writeLock.unlock();
             }
         }
     }
 
+    /**
+     * Returns the current object, starting its background reload if it is stale.
+     *
+     * @return null if the object has to be loaded synchronously
+     */
+    @Nullable
+    protected Object getCachedRefreshAhead(String name, CachingStrategy cachingStrategy) {
+        Lock readLock = cachingStrategy.lock().readLock();
+        readLock.lock();
+        try {
+            Object object = cachingStrategy.getObject();
+            if (object == null || !cachingStrategy.needToReload()) {
+                return object;
+            }
+
+            CacheState state = getState(name);
+            long now = System.currentTimeMillis();
+            if (state.staleSinceTs == 0) {
+                state.staleSinceTs = now;
+            }
+            long maxStalenessMs = cachingStrategy.getMaxStalenessMs();
+            if (maxStalenessMs > 0 && now - state.staleSinceTs > maxStalenessMs) {
+                return null;
+            }
+
+            state.staleServed.increment();
+            reloadInBackground(name, cachingStrategy, state);
+            return object;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    protected void reloadInBackground(String name, CachingStrategy cachingStrategy, CacheState state) {
+        if (!state.reloading.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executorService.submit(() -> {
+                UserSession userSession = cacheUserSessionProvider.getUserSession();
+                if (userSession == null) {
+                    // cache user session unavailable
+                    state.reloading.set(false);
+                    return;
+                }
+
+                try {
+                    AppContext.setSecurityContext(new SecurityContext(userSession));
+
+                    loadObject(name, cachingStrategy);
+                } catch (NoUserSessionException e) {
+                    log.warn("Cache user session expired", e);
+                    state.failures.increment();
+                } catch (Exception e) {
+                    log.error("Unable to reload cached object {}", name, e);
+                    state.failures.increment();
+                } finally {
+                    AppContext.setSecurityContext(null);
+
+                    state.reloading.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            state.reloading.set(false);
+        }
+    }
+
+    protected Object loadObject(String name, CachingStrategy cachingStrategy) {
+        CacheState state = getState(name);
+        long start = System.nanoTime();
+        Object object = cachingStrategy.loadObject();
+        long time = System.nanoTime() - start;
+
+        state.loads.increment();
+        state.loadTimeNanos.add(time);
+        state.lastLoadTimeNanos = time;
+        state.staleSinceTs = 0;
+        return object;
+    }
+
+    protected CacheState getState(String name) {
+        return states.computeIfAbsent(name, k -> new CacheState());
+    }
+
+    /**
+     * @return reload counts and latencies, and numbers of stale objects returned by cache name
+     */
+    public String printStatistics() {
+        if (states.isEmpty()) {
+            return "No cached objects loaded";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, CacheState> entry : new TreeMap<>(states).entrySet()) {
+            CacheState state = entry.getValue();
+            long loads = state.loads.sum();
+            sb.append(entry.getKey())
+                    .append(": loads=").append(loads)
+                    .append(", avgLoadTimeMs=").append(loads == 0 ? 0 :
+                            TimeUnit.NANOSECONDS.toMillis(state.loadTimeNanos.sum() / loads))
+                    .append(", lastLoadTimeMs=").append(TimeUnit.NANOSECONDS.toMillis(state.lastLoadTimeNanos))
+                    .append(", staleServed=").append(state.staleServed.sum())
+                    .append(", backgroundFailures=").append(state.failures.sum())
+                    .append("\n");
+        }
+        return sb.toString();
+    }
+
+    public void resetStatistics() {
+        for (CacheState state : states.values()) {
+            state.loads.reset();
+            state.loadTimeNanos.reset();
+            state.lastLoadTimeNanos = 0;
+            state.staleServed.reset();
+            state.failures.reset();
+        }
+    }
+
     public void clearCache() {
         for (CachingStrategy cachingStrategy : cache.values()) {
             cachingStrategy.clearCache();
@@ -153,4 +290,14 @@ public class ClientCacheManager {
     public ScheduledExecutorService getExecutorService() {
         return executorService;
     }
+
+    protected static class CacheState {
+        protected final AtomicBoolean reloading = new AtomicBoolean();
+        protected volatile long staleSinceTs;
+        protected volatile long lastLoadTimeNanos;
+        protected final LongAdder loads = new LongAdder();
+        protected final LongAdder loadTimeNanos = new LongAdder();
+        protected final LongAdder staleServed = new LongAdder();
+        protected final LongAdder failures = new LongAdder();
+    }
 }
\ No newline at end of file
@@ -17,10 +17,6 @@
 package com.haulmont.cuba.client.sys.cache;
 
 import com.haulmont.cuba.core.app.ConfigStorageService;
-import com.haulmont.cuba.core.sys.AppContext;
-import com.haulmont.cuba.core.sys.SecurityContext;
-import com.haulmont.cuba.security.global.NoUserSessionException;
-import com.haulmont.cuba.security.global.UserSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -33,6 +29,9 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Caching strategy for config values stored with {@link com.haulmont.cuba.core.config.SourceType#DATABASE}.
+ * <p>
+ * Unless {@code updateSynchronously} is set, expired values are reloaded in the refresh-ahead mode of
+ * {@link ClientCacheManager}: previously loaded values are used until the reload completes.
  */
 @Component(ConfigCacheStrategy.NAME)
 public class ConfigCacheStrategy implements CachingStrategy {
@@ -44,17 +43,13 @@ public class ConfigCacheStrategy implements CachingStrategy {
 
     @Inject
     protected ConfigStorageService configStorageService;
-    @Inject
-    protected ClientCacheManager clientCacheManager;
-    @Inject
-    protected CacheUserSessionProvider cacheUserSessionProvider;
 
     protected volatile long updateIntervalMs = 60 * 1000;
     protected volatile boolean updateSynchronously = false;
+    protected volatile long maxStalenessMs = 0;
 
     protected volatile long lastUsedTs = 0;
 
-    protected volatile boolean backgroundUpdateTriggered = false;
     protected volatile  boolean cacheCleared = false;
 
     protected ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
@@ -66,55 +61,13 @@ public class ConfigCacheStrategy implements CachingStrategy {
 
     @Override
     public Object loadObject() {
-        if (cachedProperties == null || updateSynchronously) {
-            Map<String, String> cachedPropertiesFromServer = Collections.unmodifiableMap(configStorageService.getDbProperties());
-
-            cachedProperties = cachedPropertiesFromServer;
-            lastUsedTs = System.currentTimeMillis();
-            cacheCleared = false;
+        Map<String, String> cachedPropertiesFromServer = Collections.unmodifiableMap(configStorageService.getDbProperties());
 
-            cachedProperties = cachedPropertiesFromServer;
-        } else {
-            if (!backgroundUpdateTriggered) {
-                clientCacheManager.getExecutorService().submit(this::updateCacheInBackground);
+        cachedProperties = cachedPropertiesFromServer;
+        lastUsedTs = System.currentTimeMillis();
+        cacheCleared = false;
 
-                backgroundUpdateTriggered = true;
-            }
-        }
-
-        return cachedProperties;
-    }
-
-    protected void updateCacheInBackground() {
-        UserSession userSession = cacheUserSessionProvider.getUserSession();
-        if (userSession == null) {
-            // cache user session unavailable
-            return;
-        }
-
-        try {
-            AppContext.setSecurityContext(new SecurityContext(userSession));
-
-            Map<String, String> cachedPropertiesFromServer =
-                    Collections.unmodifiableMap(configStorageService.getDbProperties());
-
-            readWriteLock.writeLock().lock();
-            try {
-                cachedProperties = cachedPropertiesFromServer;
-                lastUsedTs = System.currentTimeMillis();
-                cacheCleared = false;
-            } finally {
-                readWriteLock.writeLock().unlock();
-            }
-        } catch (NoUserSessionException e) {
-            log.warn("Cache user session expired", e);
-        } catch (Exception e) {
-            log.error("Unable to update config storage cache", e);
-        } finally {
-            AppContext.setSecurityContext(null);
-
-            backgroundUpdateTriggered = false;
-        }
+        return cachedPropertiesFromServer;
     }
 
     @Override
@@ -135,6 +88,24 @@ public class ConfigCacheStrategy implements CachingStrategy {
         this.updateIntervalMs = updateIntervalMs;
     }
 
+    @Override
+    public boolean isRefreshAhead() {
+        return !updateSynchronously;
+    }
+
+    @Override
+    public long getMaxStalenessMs() {
+        return maxStalenessMs;
+    }
+
+    /**
+     * @param maxStalenessMs how long expired values may be used while they are reloaded in background,
+     *                       0 means no limit
+     */
+    public void setMaxStalenessMs(long maxStalenessMs) {
+        this.maxStalenessMs = maxStalenessMs;
+    }
+
     public boolean isUpdateSynchronously() {
         return updateSynchronously;
     }
@@ -18,6 +18,7 @@ package com.haulmont.cuba.client.sys.config;
 
 import com.haulmont.cuba.core.app.ConfigStorageService;
 import com.haulmont.cuba.core.config.ConfigPersister;
+import com.haulmont.cuba.core.config.ConfigValueCache;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.sys.AppContext;
 import org.apache.commons.lang3.StringUtils;
@@ -100,12 +101,22 @@ public class ConfigPersisterClientImpl implements ConfigPersister {
                     cache.remove(name);
                 }
                 getConfigStorage().setDbProperty(name, value);
+                ConfigValueCache.invalidate();
                 break;
             default:
                 throw new UnsupportedOperationException("Unsupported config source type: " + sourceType);
         }
     }
 
+    /**
+     * DB-stored values are cacheable only if this persister caches them itself. Otherwise they are obtained
+     * from {@link com.haulmont.cuba.client.sys.cache.ConfigCacheStrategy} which is refreshed on access.
+     */
+    @Override
+    public boolean isCacheable(SourceType sourceType) {
+        return sourceType == SourceType.APP || sourceType == SourceType.DATABASE && caching;
+    }
+
     protected ConfigStorageService getConfigStorage() {
         return configStorageService;
     }
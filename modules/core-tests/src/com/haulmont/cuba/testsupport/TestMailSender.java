@@ -24,6 +24,7 @@ import org.springframework.mail.MailSendException;
 
 import javax.mail.internet.MimeMessage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -36,8 +37,11 @@ public class TestMailSender extends CubaMailSender {
 
     private boolean mustFail;
 
+    private int batchCount;
+
     public void clearBuffer() {
         myMessages.clear();
+        batchCount = 0;
     }
 
     public int getBufferSize() {
@@ -57,6 +61,22 @@ public class TestMailSender extends CubaMailSender {
         myMessages.add(mimeMessage);
     }
 
+    @Override
+    public void send(MimeMessage... mimeMessages) throws MailException {
+        if (mustFail) {
+            throw new MailSendException("Smtp server not available");
+        }
+        batchCount++;
+        myMessages.addAll(Arrays.asList(mimeMessages));
+    }
+
+    /**
+     * @return number of invocations of {@link #send(MimeMessage...)} since the last {@link #clearBuffer()}
+     */
+    public int getBatchCount() {
+        return batchCount;
+    }
+
     public boolean isEmpty() {
         return myMessages.isEmpty();
     }
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.testsupport;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Used by functional tests.
+ * Minimal in-process SMTP server listening on a random port of the loopback interface. Accepts any sender and
+ * recipient and stores the data of received messages.
+ */
+public class TestSmtpServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+
+    private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private final List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+
+    public TestSmtpServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptThread = new Thread(this::acceptConnections, "TestSmtpServer");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return number of connections accepted since the server start
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    public List<String> getMessages() {
+        synchronized (messages) {
+            return new ArrayList<>(messages);
+        }
+    }
+
+    /**
+     * Drops all open connections without the SMTP goodbye, as a server does on idle timeout.
+     */
+    public void dropConnections() {
+        synchronized (sockets) {
+            for (Socket socket : sockets) {
+                closeQuietly(socket);
+            }
+            sockets.clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        closeQuietly(serverSocket);
+        dropConnections();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connectionCount.incrementAndGet();
+                sockets.add(socket);
+                Thread thread = new Thread(() -> handleConnection(socket), "TestSmtpServer-connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (SocketException e) {
+                return;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private void handleConnection(Socket socket) {
+        try {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.ISO_8859_1);
+
+            reply(writer, "220 localhost ESMTP test");
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String command = line.length() > 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO":
+                    case "HELO":
+                        reply(writer, "250 localhost");
+                        break;
+                    case "DATA":
+                        reply(writer, "354 End data with <CR><LF>.<CR><LF>");
+                        messages.add(readData(reader));
+                        reply(writer, "250 OK");
+                        break;
+                    case "QUIT":
+                        reply(writer, "221 Bye");
+                        closeQuietly(socket);
+                        return;
+                    case "MAIL":
+                    case "RCPT":
+                    case "RSET":
+                    case "NOOP":
+                        reply(writer, "250 OK");
+                        break;
+                    default:
+                        reply(writer, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            // connection dropped
+        } finally {
+            closeQuietly(socket);
+            sockets.remove(socket);
+        }
+    }
+
+    private String readData(BufferedReader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null && !line.equals(".")) {
+            sb.append(line.startsWith(".") ? line.substring(1) : line).append("\r\n");
+        }
+        return sb.toString();
+    }
+
+    private void reply(Writer writer, String response) throws IOException {
+        writer.write(response);
+        writer.write("\r\n");
+        writer.flush();
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+}
@@ -146,6 +146,18 @@ create index IDX_SYS_SCHEDULED_EXECUTION_TASK_FINISH_TIME on SYS_SCHEDULED_EXECU
 
 create clustered index IDX_SYS_SCHEDULED_EXECUTION_CREATE_TS on SYS_SCHEDULED_EXECUTION (CREATE_TS)^
 
+create table SYS_SCHEDULED_TASK_LEASE (
+    TASK_ID uniqueidentifier not null,
+    --
+    SERVER varchar(512),
+    EXPIRATION_TS datetime,
+    LAST_FINISH_TS datetime,
+    --
+    primary key (TASK_ID)
+)^
+
+create index IDX_SYS_SCHEDULED_TASK_LEASE_SERVER on SYS_SCHEDULED_TASK_LEASE (SERVER)^
+
 ------------------------------------------------------------------------------------------------------------
 
 create table SEC_ROLE (
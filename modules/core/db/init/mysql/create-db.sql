@@ -143,6 +143,18 @@ create table SYS_SCHEDULED_EXECUTION (
 create index IDX_SYS_SCHEDULED_EXECUTION_TASK_START_TIME  on SYS_SCHEDULED_EXECUTION (TASK_ID, START_TIME)^
 create index IDX_SYS_SCHEDULED_EXECUTION_TASK_FINISH_TIME on SYS_SCHEDULED_EXECUTION (TASK_ID, FINISH_TIME)^
 
+create table SYS_SCHEDULED_TASK_LEASE (
+    TASK_ID varchar(32),
+    --
+    SERVER varchar(512),
+    EXPIRATION_TS datetime(3),
+    LAST_FINISH_TS datetime(3),
+    --
+    primary key (TASK_ID)
+)^
+
+create index IDX_SYS_SCHEDULED_TASK_LEASE_SERVER on SYS_SCHEDULED_TASK_LEASE (SERVER)^
+
 /**********************************************************************************************/
 
 create table SEC_ROLE (
@@ -280,6 +280,16 @@ create table SYS_SCHEDULED_EXECUTION (
 create index IDX_SYS_SCH_EXE_TAS_STA_TIM on SYS_SCHEDULED_EXECUTION(TASK_ID, START_TIME)^
 create index IDX_SYS_SCH_EXE_TAS_FI_TIM on SYS_SCHEDULED_EXECUTION(TASK_ID, FINISH_TIME)^
 
+create table SYS_SCHEDULED_TASK_LEASE (
+    TASK_ID varchar2(32) not null,
+    SERVER varchar2(512 char),
+    EXPIRATION_TS timestamp,
+    LAST_FINISH_TS timestamp,
+    primary key(TASK_ID)
+)^
+
+create index IDX_SYS_SCH_TASK_LEASE_SERVER on SYS_SCHEDULED_TASK_LEASE(SERVER)^
+
 create table SYS_SCHEDULED_TASK (
     ID varchar2(32) not null,
     CREATE_TS timestamp,
@@ -0,0 +1,11 @@
+create table SYS_SCHEDULED_TASK_LEASE (
+    TASK_ID varchar(36) not null,
+    --
+    SERVER varchar(512),
+    EXPIRATION_TS timestamp,
+    LAST_FINISH_TS timestamp,
+    --
+    primary key (TASK_ID)
+)^
+
+create index IDX_SYS_SCHEDULED_TASK_LEASE_SERVER on SYS_SCHEDULED_TASK_LEASE (SERVER)^
@@ -0,0 +1,11 @@
+create table SYS_SCHEDULED_TASK_LEASE (
+    TASK_ID uniqueidentifier not null,
+    --
+    SERVER varchar(512),
+    EXPIRATION_TS datetime,
+    LAST_FINISH_TS datetime,
+    --
+    primary key (TASK_ID)
+)^
+
+create index IDX_SYS_SCHEDULED_TASK_LEASE_SERVER on SYS_SCHEDULED_TASK_LEASE (SERVER)^
@@ -0,0 +1,11 @@
+create table SYS_SCHEDULED_TASK_LEASE (
+    TASK_ID varchar(32),
+    --
+    SERVER varchar(512),
+    EXPIRATION_TS datetime(3),
+    LAST_FINISH_TS datetime(3),
+    --
+    primary key (TASK_ID)
+)^
+
+create index IDX_SYS_SCHEDULED_TASK_LEASE_SERVER on SYS_SCHEDULED_TASK_LEASE (SERVER)^
@@ -0,0 +1,9 @@
+create table SYS_SCHEDULED_TASK_LEASE (
+    TASK_ID varchar2(32) not null,
+    SERVER varchar2(512 char),
+    EXPIRATION_TS timestamp,
+    LAST_FINISH_TS timestamp,
+    primary key(TASK_ID)
+)^
+
+create index IDX_SYS_SCH_TASK_LEASE_SERVER on SYS_SCHEDULED_TASK_LEASE(SERVER)^
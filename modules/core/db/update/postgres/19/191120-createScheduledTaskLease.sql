@@ -0,0 +1,11 @@
+create table SYS_SCHEDULED_TASK_LEASE (
+    TASK_ID uuid not null,
+    --
+    SERVER varchar(512),
+    EXPIRATION_TS timestamp with time zone,
+    LAST_FINISH_TS timestamp with time zone,
+    --
+    primary key (TASK_ID)
+)^
+
+create index IDX_SYS_SCHEDULED_TASK_LEASE_SERVER on SYS_SCHEDULED_TASK_LEASE (SERVER)^
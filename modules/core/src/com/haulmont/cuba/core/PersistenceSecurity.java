@@ -147,4 +147,10 @@ public interface PersistenceSecurity extends Security {
      * Validate groovy access constraint script
      */
     ConstraintValidationResult validateConstraintScript(String entityType, String groovyScript);
+
+    /**
+     * Discards Groovy constraints compiled to closures, so they are compiled again on next evaluation.
+     */
+    default void clearCompiledConstraints() {
+    }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Keeps results of app folder quantity scripts shared between all user sessions for the time configured by
+ * {@link ServerConfig#getAppFolderQuantityCacheTtlSec()}. Concurrent requests for the same folder and scope wait
+ * for a single evaluation of the script.
+ * <p>
+ * By default a result is shared only between sessions of the same user. Results of the folders listed in
+ * {@link ServerConfig#getAppFolderQuantitySharedByGroup()} are shared by all users of the same access group, so
+ * the scripts of these folders must not depend on the current user.
+ */
+@Component(AppFolderQuantityCache.NAME)
+public class AppFolderQuantityCache {
+
+    public static final String NAME = "cuba_AppFolderQuantityCache";
+
+    protected static final int MAX_SIZE = 10000;
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    protected volatile QuantityCache quantityCache;
+
+    protected final LongAdder hits = new LongAdder();
+    protected final LongAdder misses = new LongAdder();
+    protected final LongAdder failures = new LongAdder();
+
+    /**
+     * Returns the cached quantity or evaluates it using the loader.
+     *
+     * @param key    folder, script and binding scope
+     * @param loader evaluates the quantity script, must throw an exception if the script fails
+     * @return quantity, never null
+     * @throws RuntimeException if the loader fails, failures are not cached
+     */
+    public Quantity get(Key key, Supplier<Quantity> loader) {
+        QuantityCache cache = getQuantityCache();
+        if (cache == null) {
+            misses.increment();
+            return load(loader);
+        }
+
+        boolean[] loaded = new boolean[1];
+        try {
+            Quantity quantity = cache.quantities.get(key, () -> {
+                loaded[0] = true;
+                return load(loader);
+            });
+            if (loaded[0]) {
+                misses.increment();
+            } else {
+                hits.increment();
+            }
+            return quantity;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Unable to evaluate app folder quantity", e.getCause());
+        }
+    }
+
+    public String printStatistics() {
+        QuantityCache cache = quantityCache;
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        return "size=" + (cache == null ? 0 : cache.quantities.size()) +
+                ", hits=" + hitCount +
+                ", misses=" + missCount +
+                ", hitRatio=" + (requests == 0 ? 0 : Math.round(hitCount * 100.0 / requests)) + "%" +
+                ", failures=" + failures.sum();
+    }
+
+    public synchronized void clear() {
+        quantityCache = null;
+        hits.reset();
+        misses.reset();
+        failures.reset();
+    }
+
+    protected Quantity load(Supplier<Quantity> loader) {
+        try {
+            return loader.get();
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+    }
+
+    /**
+     * @return cache created for the current TTL or null if the cache is disabled
+     */
+    @Nullable
+    protected QuantityCache getQuantityCache() {
+        int ttlSec = serverConfig.getAppFolderQuantityCacheTtlSec();
+        if (ttlSec <= 0) {
+            return null;
+        }
+        QuantityCache cache = quantityCache;
+        if (cache == null || cache.ttlSec != ttlSec) {
+            synchronized (this) {
+                cache = quantityCache;
+                if (cache == null || cache.ttlSec != ttlSec) {
+                    cache = new QuantityCache(ttlSec);
+                    quantityCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Result of a quantity script.
+     */
+    public static class Quantity {
+        protected final Integer value;
+        protected final String style;
+
+        public Quantity(@Nullable Integer value, @Nullable String style) {
+            this.value = value;
+            this.style = style;
+        }
+
+        @Nullable
+        public Integer getValue() {
+            return value;
+        }
+
+        @Nullable
+        public String getStyle() {
+            return style;
+        }
+    }
+
+    /**
+     * Identifies a quantity script evaluation. Sessions producing equal scopes share the result.
+     */
+    public static class Key {
+        protected final Object folderId;
+        protected final String script;
+        protected final String scope;
+
+        public Key(Object folderId, String script, String scope) {
+            this.folderId = folderId;
+            this.script = script;
+            this.scope = scope;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return folderId.equals(key.folderId) && script.equals(key.script) && scope.equals(key.scope);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(folderId, script, scope);
+        }
+
+        @Override
+        public String toString() {
+            return folderId + "@" + scope;
+        }
+    }
+
+    protected static class QuantityCache {
+        protected final int ttlSec;
+        protected final Cache<Key, Quantity> quantities;
+
+        public QuantityCache(int ttlSec) {
+            this.ttlSec = ttlSec;
+            this.quantities = CacheBuilder.newBuilder()
+                    .expireAfterWrite(ttlSec, TimeUnit.SECONDS)
+                    .maximumSize(MAX_SIZE)
+                    .build();
+        }
+    }
+}
@@ -66,4 +66,34 @@ public interface ClusterConfig extends Config {
     @Property("cuba.cluster.messageSendingQueueCapacity")
     @DefaultInt(Integer.MAX_VALUE)
     int getClusterMessageSendingQueueCapacity();
+
+    /**
+     * @return whether asynchronously sent messages are collected into batches and sent as a single cluster message.
+     * Must be set to the same value on all nodes of the cluster.
+     */
+    @Property("cuba.cluster.messageBatchingEnabled")
+    @DefaultBoolean(false)
+    boolean getMessageBatchingEnabled();
+
+    /**
+     * @return time window in milliseconds during which asynchronously sent messages are collected into one batch
+     */
+    @Property("cuba.cluster.messageBatchWindow")
+    @DefaultLong(10)
+    long getMessageBatchWindow();
+
+    /**
+     * @return maximum number of messages collected into one batch
+     */
+    @Property("cuba.cluster.messageBatchMaxCount")
+    @DefaultInt(500)
+    int getMessageBatchMaxCount();
+
+    /**
+     * @return maximum size of serialized messages in one batch, in bytes. A batch exceeding this size is split
+     * into several cluster messages
+     */
+    @Property("cuba.cluster.messageBatchMaxBytes")
+    @DefaultInt(60000)
+    int getMessageBatchMaxBytes();
 }
@@ -43,6 +43,7 @@ import javax.inject.Inject;
 import javax.management.MBeanServer;
 import java.io.*;
 import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -65,6 +66,10 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected ThreadPoolExecutor executor;
 
+    protected BlockingQueue<PendingMessage> outboundQueue;
+
+    protected Thread batchSender;
+
     @Inject
     protected Resources resources;
 
@@ -77,6 +82,8 @@ public class ClusterManager implements ClusterManagerAPI {
 
     protected Map<String, MessageStat> messagesStat = new ConcurrentHashMap<>();
 
+    protected BatchStat batchStat = new BatchStat();
+
     protected static final String STATE_MAGIC = "CUBA_STATE";
 
     public JChannel getChannel() {
@@ -93,6 +100,16 @@ public class ClusterManager implements ClusterManagerAPI {
                     SendMessageRunnable sendMessageRunnable = (SendMessageRunnable) r;
                     log.info("Queue capacity is exceeded. Message: {}: {}", sendMessageRunnable.message.getClass(), sendMessageRunnable.message);
                 });
+
+        if (clusterConfig.getMessageBatchingEnabled()) {
+            outboundQueue = new LinkedBlockingQueue<>(clusterConfig.getClusterMessageSendingQueueCapacity());
+            batchSender = new ThreadFactoryBuilder()
+                    .setNameFormat("ClusterManagerBatchSender-%d")
+                    .setDaemon(true)
+                    .build()
+                    .newThread(this::sendBatches);
+            batchSender.start();
+        }
     }
 
     @EventListener(AppContextInitializedEvent.class)
@@ -106,6 +123,9 @@ public class ClusterManager implements ClusterManagerAPI {
     @EventListener(AppContextStoppedEvent.class)
     protected void applicationStopped() {
         executor.shutdown();
+        if (batchSender != null) {
+            batchSender.interrupt();
+        }
         stop();
     }
 
@@ -117,6 +137,11 @@ public class ClusterManager implements ClusterManagerAPI {
         Boolean sync = forceSyncSending.get();
         if (sync != null && sync) {
             internalSend(message, true);
+        } else if (outboundQueue != null) {
+            log.trace("Submitting message: {}: {} to send in batch", message.getClass(), message);
+            if (!outboundQueue.offer(new PendingMessage(message))) {
+                log.info("Queue capacity is exceeded. Message: {}: {}", message.getClass(), message);
+            }
         } else {
             log.trace("Submitting message: {}: {} to send asynchronously", message.getClass(), message);
             executor.execute(new SendMessageRunnable(message));
@@ -146,19 +171,167 @@ public class ClusterManager implements ClusterManagerAPI {
             if (stat != null) {
                 stat.updateSent(bytes.length);
             }
-            Message msg = new Message()
-                    .setBuffer(bytes);
-            if (sync) {
-                msg.setFlag(Message.Flag.RSVP);
+            sendBytes(bytes, sync);
+        } finally {
+            sw.stop();
+        }
+    }
+
+    protected void sendBytes(byte[] bytes, boolean sync) {
+        JChannel channel = this.channel;
+        if (channel == null)
+            return;
+
+        Message msg = new Message()
+                .setBuffer(bytes);
+        if (sync) {
+            msg.setFlag(Message.Flag.RSVP);
+        }
+        try {
+            channel.send(msg);
+        } catch (Exception e) {
+            log.error("Error sending message", e);
+        }
+    }
+
+    /**
+     * Main loop of the batch sender thread.
+     */
+    protected void sendBatches() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<PendingMessage> batch;
+            try {
+                batch = collectBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             }
             try {
-                channel.send(msg);
+                internalSendBatch(batch);
             } catch (Exception e) {
-                log.error("Error sending message", e);
+                log.error("Error sending batch of cluster messages", e);
+            }
+        }
+    }
+
+    /**
+     * Waits for the first queued message and then collects subsequent messages until the batch window expires
+     * or the maximum batch size is reached.
+     */
+    protected List<PendingMessage> collectBatch() throws InterruptedException {
+        List<PendingMessage> batch = new ArrayList<>();
+        batch.add(outboundQueue.take());
+
+        int maxCount = clusterConfig.getMessageBatchMaxCount();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(clusterConfig.getMessageBatchWindow());
+        while (batch.size() < maxCount) {
+            if (outboundQueue.drainTo(batch, maxCount - batch.size()) > 0) {
+                continue;
+            }
+            long timeout = deadline - System.nanoTime();
+            if (timeout <= 0) {
+                break;
+            }
+            PendingMessage next = outboundQueue.poll(timeout, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    protected void internalSendBatch(List<PendingMessage> batch) {
+        List<Serializable> messages = new ArrayList<>(batch.size());
+        for (PendingMessage pendingMessage : batch) {
+            messages.add(pendingMessage.message);
+        }
+        messages = coalesce(messages);
+
+        StopWatch sw = new Slf4JStopWatch("sendClusterMessageBatch");
+        try {
+            int maxBytes = clusterConfig.getMessageBatchMaxBytes();
+            List<byte[]> envelope = new ArrayList<>();
+            int envelopeBytes = 0;
+            for (Serializable message : messages) {
+                byte[] bytes;
+                try {
+                    bytes = SerializationSupport.serialize(message);
+                } catch (Exception e) {
+                    log.error("Cluster message serialization error. Message: {}: {}", message.getClass(), message, e);
+                    continue;
+                }
+                log.debug("Sending message in batch: {}: {} ({} bytes)", message.getClass(), message, bytes.length);
+                MessageStat stat = messagesStat.get(message.getClass().getName());
+                if (stat != null) {
+                    stat.updateSent(bytes.length);
+                }
+                if (!envelope.isEmpty() && envelopeBytes + bytes.length > maxBytes) {
+                    sendEnvelope(envelope);
+                    envelope = new ArrayList<>();
+                    envelopeBytes = 0;
+                }
+                envelope.add(bytes);
+                envelopeBytes += bytes.length;
+            }
+            if (!envelope.isEmpty()) {
+                sendEnvelope(envelope);
             }
         } finally {
             sw.stop();
         }
+
+        batchStat.updateSent(batch.size(), messages.size());
+        long sentTime = System.nanoTime();
+        for (PendingMessage pendingMessage : batch) {
+            batchStat.updateLatency(sentTime - pendingMessage.submitTime);
+        }
+    }
+
+    /**
+     * Sends serialized messages as one cluster message. A single message is sent as is, so it can be received
+     * by nodes with disabled batching.
+     */
+    protected void sendEnvelope(List<byte[]> envelope) {
+        byte[] bytes;
+        if (envelope.size() == 1) {
+            bytes = envelope.get(0);
+        } else {
+            try {
+                bytes = SerializationSupport.serialize(new MessageBatch(envelope.toArray(new byte[0][])));
+            } catch (Exception e) {
+                log.error("Cluster message batch serialization error", e);
+                return;
+            }
+            log.debug("Sending batch of {} messages ({} bytes)", envelope.size(), bytes.length);
+        }
+        batchStat.updateEnvelopeSent();
+        sendBytes(bytes, false);
+    }
+
+    /**
+     * Merges adjacent messages of the same class implementing {@link CoalescingClusterMessage}.
+     *
+     * @param messages messages in the order of sending
+     * @return new list of messages in the same order
+     */
+    protected static List<Serializable> coalesce(List<Serializable> messages) {
+        List<Serializable> result = new ArrayList<>(messages.size());
+        for (Serializable message : messages) {
+            if (!result.isEmpty() && message instanceof CoalescingClusterMessage) {
+                Serializable last = result.get(result.size() - 1);
+                if (last.getClass() == message.getClass()) {
+                    CoalescingClusterMessage merged =
+                            ((CoalescingClusterMessage) last).coalesce((CoalescingClusterMessage) message);
+                    if (merged != null) {
+                        result.set(result.size() - 1, merged);
+                        continue;
+                    }
+                }
+            }
+            result.add(message);
+        }
+        return result;
     }
 
     @Override
@@ -275,7 +448,11 @@ public class ClusterManager implements ClusterManagerAPI {
 
     @Override
     public int getMessagesCount() {
-        return executor.getQueue().size();
+        int count = executor.getQueue().size();
+        if (outboundQueue != null) {
+            count += outboundQueue.size();
+        }
+        return count;
     }
 
     @Override
@@ -350,6 +527,19 @@ public class ClusterManager implements ClusterManagerAPI {
         return messagesStats.toString();
     }
 
+    @Override
+    public String printBatchingStat() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Batching enabled: %s; queue depth: %s\n",
+                outboundQueue != null, outboundQueue != null ? outboundQueue.size() : 0));
+        sb.append(String.format("Batches: %s; messages: %s; after coalescing: %s; cluster messages sent: %s; batches received: %s\n",
+                batchStat.getBatches(), batchStat.getMessages(), batchStat.getCoalescedMessages(),
+                batchStat.getEnvelopes(), batchStat.getReceivedBatches()));
+        sb.append("Batch size: ").append(batchStat.batchSizeHistogram.print()).append("\n");
+        sb.append("Latency, ms: ").append(batchStat.latencyHistogram.print()).append("\n");
+        return sb.toString();
+    }
+
     @Override
     public long getSentMessages(String className) {
         Preconditions.checkNotNullArgument(className, "Message class is null");
@@ -399,6 +589,10 @@ public class ClusterManager implements ClusterManagerAPI {
                 log.debug("Null buffer received");
                 return;
             }
+            receiveBytes(bytes);
+        }
+
+        protected void receiveBytes(byte[] bytes) {
             StopWatch sw = new Slf4JStopWatch();
             String simpleClassName = null;
             try {
@@ -409,6 +603,16 @@ public class ClusterManager implements ClusterManagerAPI {
                     log.error("Cluster message deserialization error", e);
                     throw new RuntimeException("Cluster message deserialization error", e);
                 }
+                if (data instanceof MessageBatch) {
+                    simpleClassName = MessageBatch.class.getSimpleName();
+                    byte[][] messages = ((MessageBatch) data).messages;
+                    log.debug("Received batch of {} messages ({} bytes)", messages.length, bytes.length);
+                    batchStat.updateReceived();
+                    for (byte[] messageBytes : messages) {
+                        receiveBytes(messageBytes);
+                    }
+                    return;
+                }
                 String className = data.getClass().getName();
                 simpleClassName = data.getClass().getSimpleName();
                 log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, bytes.length);
@@ -532,6 +736,110 @@ public class ClusterManager implements ClusterManagerAPI {
         }
     }
 
+    protected static class PendingMessage {
+        protected final Serializable message;
+        protected final long submitTime = System.nanoTime();
+
+        public PendingMessage(Serializable message) {
+            this.message = message;
+        }
+    }
+
+    /**
+     * Envelope for several serialized messages sent as one cluster message.
+     */
+    protected static class MessageBatch implements Serializable {
+        private static final long serialVersionUID = 2911364212817419365L;
+
+        protected byte[][] messages;
+
+        public MessageBatch(byte[][] messages) {
+            this.messages = messages;
+        }
+    }
+
+    protected static class BatchStat {
+        protected LongAdder batches = new LongAdder();
+        protected LongAdder messages = new LongAdder();
+        protected LongAdder coalescedMessages = new LongAdder();
+        protected LongAdder envelopes = new LongAdder();
+        protected LongAdder receivedBatches = new LongAdder();
+        protected Histogram batchSizeHistogram = new Histogram(1, 2, 5, 10, 50, 100, 500, 1000);
+        protected Histogram latencyHistogram = new Histogram(1, 5, 10, 50, 100, 500, 1000, 5000);
+
+        public void updateSent(int messagesCount, int coalescedMessagesCount) {
+            batches.increment();
+            messages.add(messagesCount);
+            coalescedMessages.add(coalescedMessagesCount);
+            batchSizeHistogram.update(messagesCount);
+        }
+
+        public void updateEnvelopeSent() {
+            envelopes.increment();
+        }
+
+        public void updateLatency(long nanos) {
+            latencyHistogram.update(TimeUnit.NANOSECONDS.toMillis(nanos));
+        }
+
+        public void updateReceived() {
+            receivedBatches.increment();
+        }
+
+        public long getBatches() {
+            return batches.longValue();
+        }
+
+        public long getMessages() {
+            return messages.longValue();
+        }
+
+        public long getCoalescedMessages() {
+            return coalescedMessages.longValue();
+        }
+
+        public long getEnvelopes() {
+            return envelopes.longValue();
+        }
+
+        public long getReceivedBatches() {
+            return receivedBatches.longValue();
+        }
+    }
+
+    /**
+     * Counts values falling into buckets with the given inclusive upper bounds.
+     */
+    protected static class Histogram {
+        protected final long[] bounds;
+        protected final LongAdder[] counts;
+
+        public Histogram(long... bounds) {
+            this.bounds = bounds;
+            this.counts = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        public void update(long value) {
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) {
+                i++;
+            }
+            counts[i].increment();
+        }
+
+        public String print() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < bounds.length; i++) {
+                sb.append("<=").append(bounds[i]).append(": ").append(counts[i].longValue()).append(", ");
+            }
+            sb.append(">").append(bounds[bounds.length - 1]).append(": ").append(counts[bounds.length].longValue());
+            return sb.toString();
+        }
+    }
+
     protected static class MessageStat {
         protected LongAdder sentBytes = new LongAdder();
         protected LongAdder receivedBytes = new LongAdder();
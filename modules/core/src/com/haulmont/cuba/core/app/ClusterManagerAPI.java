@@ -124,6 +124,14 @@ public interface ClusterManagerAPI {
      */
     String printMessagesStat();
 
+    /**
+     * Batched sending statistics: queue depth, batch sizes and latency between submitting and sending messages
+     *
+     * @return statistics
+     * @see ClusterConfig#getMessageBatchingEnabled()
+     */
+    String printBatchingStat();
+
     /**
      * Get sent messages count for specified {@code className}
      *
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.app;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+
+/**
+ * Interface to be implemented by cluster messages that can be merged with subsequent messages of the same class
+ * when outgoing messages are sent in batches (see {@link ClusterConfig#getMessageBatchingEnabled()}).
+ * <p>
+ * Only adjacent messages of a batch are coalesced, so the order of messages of different classes is preserved.
+ *
+ */
+public interface CoalescingClusterMessage extends Serializable {
+
+    /**
+     * Merge this message with the next message of the same class.
+     * <p>
+     * Implementations must not modify this or the next message, because their state can be shared with the code
+     * that has sent them.
+     *
+     * @param next message sent right after this one
+     * @return message having the same effect on receivers as both messages, or null if they cannot be merged
+     */
+    @Nullable
+    CoalescingClusterMessage coalesce(CoalescingClusterMessage next);
+}
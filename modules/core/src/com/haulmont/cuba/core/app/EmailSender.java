@@ -28,6 +28,8 @@ import org.perf4j.StopWatch;
 import org.perf4j.slf4j.Slf4JStopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Component;
 
@@ -42,6 +44,7 @@ import javax.mail.internet.*;
 import java.io.*;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.*;
 
 @Component(EmailSenderAPI.NAME)
 public class EmailSender implements EmailSenderAPI {
@@ -72,6 +75,51 @@ public class EmailSender implements EmailSenderAPI {
         log.info("Email '{}' to '{}' has been sent successfully", msg.getSubject(), sendingMessage.getAddress());
     }
 
+    @Override
+    public Map<SendingMessage, Exception> sendEmails(List<SendingMessage> sendingMessages) {
+        Map<SendingMessage, Exception> failures = new LinkedHashMap<>();
+        List<MimeMessage> mimeMessages = new ArrayList<>(sendingMessages.size());
+        Map<MimeMessage, SendingMessage> messagesByMime = new IdentityHashMap<>();
+        for (SendingMessage sendingMessage : sendingMessages) {
+            try {
+                MimeMessage msg = createMimeMessage(sendingMessage);
+                mimeMessages.add(msg);
+                messagesByMime.put(msg, sendingMessage);
+            } catch (Exception e) {
+                failures.put(sendingMessage, e);
+            }
+        }
+        if (mimeMessages.isEmpty()) {
+            return failures;
+        }
+
+        StopWatch sw = new Slf4JStopWatch("EmailSender.sendBatch");
+        try {
+            mailSender.send(mimeMessages.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            if (failedMessages.isEmpty()) {
+                mimeMessages.forEach(msg -> failures.put(messagesByMime.get(msg), e));
+            } else {
+                // wrap in the same way as sending of a single message does
+                failedMessages.forEach((msg, ex) -> failures.put(messagesByMime.get(msg),
+                        new MailSendException(Collections.singletonMap(msg, ex))));
+            }
+        } catch (MailException e) {
+            mimeMessages.forEach(msg -> failures.put(messagesByMime.get(msg), e));
+        } finally {
+            sw.stop();
+        }
+
+        for (MimeMessage msg : mimeMessages) {
+            SendingMessage sendingMessage = messagesByMime.get(msg);
+            if (!failures.containsKey(sendingMessage)) {
+                log.info("Email '{}' to '{}' has been sent successfully", sendingMessage.getCaption(), sendingMessage.getAddress());
+            }
+        }
+        return failures;
+    }
+
     @Override
     public void updateSession() {
         if (mailSender instanceof CubaMailSender)
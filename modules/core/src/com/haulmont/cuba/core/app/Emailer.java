@@ -17,8 +17,10 @@
 package com.haulmont.cuba.core.app;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.entity.FileDescriptor;
@@ -26,6 +28,7 @@ import com.haulmont.cuba.core.entity.SendingAttachment;
 import com.haulmont.cuba.core.entity.SendingMessage;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.AuditInfoProvider;
 import com.haulmont.cuba.security.app.Authentication;
 import com.sun.mail.smtp.SMTPAddressFailedException;
 import org.apache.commons.io.FilenameUtils;
@@ -52,6 +55,8 @@ public class Emailer implements EmailerAPI {
 
     protected static final String BODY_FILE_EXTENSION = "txt";
 
+    protected static final int STATUS_UPDATE_BATCH = 500;
+
     private static final Logger log = LoggerFactory.getLogger(Emailer.class);
 
     protected EmailerConfig config;
@@ -85,6 +90,9 @@ public class Emailer implements EmailerAPI {
     @Inject
     protected FileStorageAPI fileStorage;
 
+    @Inject
+    protected AuditInfoProvider auditInfoProvider;
+
     @Inject
     public void setConfig(Configuration configuration) {
         this.config = configuration.getConfig(EmailerConfig.class);
@@ -195,25 +203,6 @@ public class Emailer implements EmailerAPI {
         return sendingMessageList;
     }
 
-    protected void sendSendingMessage(SendingMessage sendingMessage) {
-        Objects.requireNonNull(sendingMessage, "sendingMessage is null");
-        Objects.requireNonNull(sendingMessage.getAddress(), "sendingMessage.address is null");
-        Objects.requireNonNull(sendingMessage.getCaption(), "sendingMessage.caption is null");
-        Objects.requireNonNull(sendingMessage.getContentText(), "sendingMessage.contentText is null");
-        Objects.requireNonNull(sendingMessage.getFrom(), "sendingMessage.from is null");
-        try {
-            emailSender.sendEmail(sendingMessage);
-            markAsSent(sendingMessage);
-        } catch (Exception e) {
-            log.warn("Unable to send email to '" + sendingMessage.getAddress() + "'", e);
-            if (isNeedToRetry(e)) {
-                returnToQueue(sendingMessage);
-            } else {
-                markAsNonSent(sendingMessage);
-            }
-        }
-    }
-
     protected void persistAndSendEmail(EmailInfo emailInfo) throws EmailException {
         Objects.requireNonNull(emailInfo.getAddresses(), "addresses are null");
         Objects.requireNonNull(emailInfo.getCaption(), "caption is null");
@@ -313,8 +302,9 @@ public class Emailer implements EmailerAPI {
     protected String sendQueuedEmails() {
         List<SendingMessage> messagesToSend = loadEmailsToSend();
 
-        for (SendingMessage msg : messagesToSend) {
-            submitExecutorTask(msg);
+        int batchSize = Math.max(config.getSendingBatchSize(), 1);
+        for (List<SendingMessage> batch : Lists.partition(messagesToSend, batchSize)) {
+            submitExecutorTask(new ArrayList<>(batch));
         }
 
         if (messagesToSend.isEmpty()) {
@@ -338,112 +328,172 @@ public class Emailer implements EmailerAPI {
         return res;
     }
 
+    /**
+     * @deprecated queued messages are sent in batches, use {@link #submitExecutorTask(List)}
+     */
+    @Deprecated
     protected void submitExecutorTask(SendingMessage msg) {
+        submitExecutorTask(Collections.singletonList(msg));
+    }
+
+    protected void submitExecutorTask(List<SendingMessage> messages) {
         try {
-            Runnable mailSendTask = new EmailSendTask(msg);
+            Runnable mailSendTask = new EmailBatchSendTask(messages);
             mailSendTaskExecutor.execute(mailSendTask);
         } catch (RejectedExecutionException e) {
-            returnToQueue(msg);
+            updateSendingStatus(messages, SendingStatus.QUEUE);
         } catch (Exception e) {
-            log.error("Exception while sending email: ", e);
-            if (isNeedToRetry(e)) {
-                returnToQueue(msg);
-            } else {
-                markAsNonSent(msg);
-            }
+            log.error("Exception while sending emails: ", e);
+            updateSendingStatus(messages, isNeedToRetry(e) ? SendingStatus.QUEUE : SendingStatus.NOTSENT);
         }
     }
 
-    protected List<SendingMessage> loadEmailsToSend() {
-        Date sendTimeoutTime = DateUtils.addSeconds(timeSource.currentTimestamp(), -config.getSendingTimeoutSec());
+    /**
+     * @deprecated queued messages are sent in batches, use {@link #sendSendingMessages(List)}
+     */
+    @Deprecated
+    protected void sendSendingMessage(SendingMessage sendingMessage) {
+        sendSendingMessages(Collections.singletonList(sendingMessage));
+    }
 
-        List<SendingMessage> emailsToSend = new ArrayList<>();
+    /**
+     * Sends the messages over one SMTP connection and updates their statuses by bulk updates.
+     */
+    protected void sendSendingMessages(List<SendingMessage> messages) {
+        loadBodiesAndAttachments(messages);
+
+        List<SendingMessage> validMessages = new ArrayList<>(messages.size());
+        List<SendingMessage> toQueue = new ArrayList<>();
+        List<SendingMessage> notSent = new ArrayList<>();
+        for (SendingMessage msg : messages) {
+            if (msg.getAddress() == null || msg.getCaption() == null
+                    || msg.getContentText() == null || msg.getFrom() == null) {
+                log.warn("Unable to send email {}: address, caption, body or from address is null", msg.getId());
+                toQueue.add(msg);
+            } else {
+                validMessages.add(msg);
+            }
+        }
 
-        try (Transaction tx = persistence.createTransaction()) {
-            EntityManager em = persistence.getEntityManager();
-            TypedQuery<SendingMessage> query = em.createQuery(
-                    "select sm from sys$SendingMessage sm" +
-                            " where sm.status = :statusQueue or (sm.status = :statusSending and sm.updateTs < :time)" +
-                            " order by sm.createTs",
-                    SendingMessage.class
-            );
-            query.setParameter("statusQueue", SendingStatus.QUEUE.getId());
-            query.setParameter("time", sendTimeoutTime);
-            query.setParameter("statusSending", SendingStatus.SENDING.getId());
-
-            View view = metadata.getViewRepository().getView(SendingMessage.class, "sendingMessage.loadFromQueue");
-            view.setLoadPartialEntities(true); // because SendingAttachment.content has FetchType.LAZY
-            query.setView(view);
-
-            query.setMaxResults(config.getMessageQueueCapacity());
-
-            List<SendingMessage> resList = query.getResultList();
-
-            for (SendingMessage msg : resList) {
-                if (shouldMarkNotSent(msg)) {
-                    msg.setStatus(SendingStatus.NOTSENT);
+        Map<SendingMessage, Exception> failures = emailSender.sendEmails(validMessages);
+
+        List<SendingMessage> sent = new ArrayList<>(validMessages.size());
+        for (SendingMessage msg : validMessages) {
+            Exception e = failures.get(msg);
+            if (e == null) {
+                sent.add(msg);
+            } else {
+                log.warn("Unable to send email to '" + msg.getAddress() + "'", e);
+                if (isNeedToRetry(e)) {
+                    toQueue.add(msg);
                 } else {
-                    msg.setStatus(SendingStatus.SENDING);
-                    emailsToSend.add(msg);
+                    notSent.add(msg);
                 }
             }
-            tx.commit();
         }
 
-        for (SendingMessage message : emailsToSend) {
-            loadBodyAndAttachments(message);
-        }
-        return emailsToSend;
+        updateSendingStatus(sent, SendingStatus.SENT);
+        updateSendingStatus(toQueue, SendingStatus.QUEUE);
+        updateSendingStatus(notSent, SendingStatus.NOTSENT);
     }
 
-    @Override
-    public String loadContentText(SendingMessage sendingMessage) {
-        SendingMessage msg;
+    /**
+     * Sets the status of the messages and increments their attempts counter by bulk update statements.
+     * If the bulk update fails, the messages are updated one by one, so a single failure does not leave
+     * the whole batch in the {@code SENDING} status to be resent after {@code cuba.email.sendingTimeoutSec}.
+     */
+    protected void updateSendingStatus(List<SendingMessage> messages, SendingStatus status) {
+        if (messages.isEmpty()) {
+            return;
+        }
         try (Transaction tx = persistence.createTransaction()) {
             EntityManager em = persistence.getEntityManager();
-            msg = em.reload(sendingMessage, "sendingMessage.loadContentText");
+            Date now = timeSource.currentTimestamp();
+            String login = auditInfoProvider.getCurrentUserLogin();
+            for (List<SendingMessage> part : Lists.partition(messages, STATUS_UPDATE_BATCH)) {
+                List<UUID> ids = new ArrayList<>(part.size());
+                for (SendingMessage msg : part) {
+                    ids.add(msg.getId());
+                }
+
+                Query query = em.createQuery("update sys$SendingMessage sm set sm.status = :status," +
+                        " sm.attemptsMade = sm.attemptsMade + 1, sm.version = sm.version + 1," +
+                        " sm.updateTs = :updateTs, sm.updatedBy = :updatedBy" +
+                        (status == SendingStatus.SENT ? ", sm.dateSent = :updateTs" : "") +
+                        " where sm.id in :ids");
+                query.setParameter("status", status.getId());
+                query.setParameter("updateTs", now);
+                query.setParameter("updatedBy", login);
+                query.setParameter("ids", ids);
+                query.executeUpdate();
+            }
             tx.commit();
+        } catch (Exception e) {
+            log.warn("Error setting status {} to {} messages by bulk update, updating them one by one",
+                    status, messages.size(), e);
+            for (SendingMessage message : messages) {
+                updateSendingStatus(message, status);
+            }
         }
-        Objects.requireNonNull(msg, "Sending message not found: " + sendingMessage.getId());
-        if (msg.getContentTextFile() != null) {
-            byte[] bodyContent;
-            try {
-                bodyContent = fileStorage.loadFile(msg.getContentTextFile());
-            } catch (FileStorageException e) {
-                throw new RuntimeFileStorageException("Unable to load file from file storage", e);
+    }
+
+    protected void updateSendingStatus(SendingMessage sendingMessage, SendingStatus status) {
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            SendingMessage msg = em.merge(sendingMessage);
+
+            msg.setStatus(status);
+            msg.setAttemptsMade(msg.getAttemptsMade() + 1);
+            if (status == SendingStatus.SENT) {
+                msg.setDateSent(timeSource.currentTimestamp());
             }
-            //noinspection UnnecessaryLocalVariable
-            String res = bodyTextFromByteArray(bodyContent);
-            return res;
-        } else {
-            return msg.getContentText();
+            if (config.isFileStorageUsed()) {
+                msg.setContentText(null);
+            }
+
+            tx.commit();
+        } catch (Exception e) {
+            log.error("Error setting status {} to message to '{}'", status, sendingMessage.getAddress(), e);
         }
     }
 
-    @Override
     public void updateSession() {
         emailSender.updateSession();
     }
 
-    protected void loadBodyAndAttachments(SendingMessage message) {
-        try {
-            if (message.getContentTextFile() != null) {
-                byte[] bodyContent = fileStorage.loadFile(message.getContentTextFile());
-                String body = bodyTextFromByteArray(bodyContent);
-                message.setContentText(body);
-            }
+    /**
+     * Loads bodies and attachments of the messages from file storage. A file referenced by several messages
+     * is loaded once.
+     */
+    protected void loadBodiesAndAttachments(List<SendingMessage> messages) {
+        Map<UUID, byte[]> contents = new HashMap<>();
+        for (SendingMessage message : messages) {
+            try {
+                if (message.getContentTextFile() != null) {
+                    byte[] bodyContent = loadFileContent(message.getContentTextFile(), contents);
+                    message.setContentText(bodyTextFromByteArray(bodyContent));
+                }
 
-            for (SendingAttachment attachment : message.getAttachments()) {
-                if (attachment.getContentFile() != null) {
-                    byte[] content = fileStorage.loadFile(attachment.getContentFile());
-                    attachment.setContent(content);
+                for (SendingAttachment attachment : message.getAttachments()) {
+                    if (attachment.getContentFile() != null) {
+                        attachment.setContent(loadFileContent(attachment.getContentFile(), contents));
+                    }
                 }
+            } catch (FileStorageException e) {
+                log.error("Failed to load body or attachments for " + message);
             }
-        } catch (FileStorageException e) {
-            log.error("Failed to load body or attachments for " + message);
         }
     }
 
+    protected byte[] loadFileContent(FileDescriptor file, Map<UUID, byte[]> contents) throws FileStorageException {
+        byte[] content = contents.get(file.getId());
+        if (content == null) {
+            content = fileStorage.loadFile(file);
+            contents.put(file.getId(), content);
+        }
+        return content;
+    }
+
     protected void persistMessages(List<SendingMessage> sendingMessageList, SendingStatus status) {
         MessagePersistingContext context = new MessagePersistingContext();
 
@@ -529,21 +579,12 @@ public class Emailer implements EmailerAPI {
         return contentTextFile;
     }
 
+    /**
+     * @deprecated use {@link #updateSendingStatus(List, SendingStatus)}
+     */
+    @Deprecated
     protected void returnToQueue(SendingMessage sendingMessage) {
-        try (Transaction tx = persistence.createTransaction()) {
-            EntityManager em = persistence.getEntityManager();
-            SendingMessage msg = em.merge(sendingMessage);
-
-            msg.setAttemptsMade(msg.getAttemptsMade() + 1);
-            msg.setStatus(SendingStatus.QUEUE);
-            if (config.isFileStorageUsed()) {
-                msg.setContentText(null);
-            }
-
-            tx.commit();
-        } catch (Exception e) {
-            log.error("Error returning message to '{}' to the queue", sendingMessage.getAddress(), e);
-        }
+        updateSendingStatus(Collections.singletonList(sendingMessage), SendingStatus.QUEUE);
     }
 
     protected void markAsSent(SendingMessage sendingMessage) {
@@ -744,13 +785,24 @@ public class Emailer implements EmailerAPI {
         attachment.setContent(null);
     }
 
-    protected static class EmailSendTask implements Runnable {
-
-        private SendingMessage sendingMessage;
-        private static final Logger log = LoggerFactory.getLogger(EmailSendTask.class);
+    /**
+     * @deprecated queued messages are sent by {@link EmailBatchSendTask}
+     */
+    @Deprecated
+    protected static class EmailSendTask extends EmailBatchSendTask {
 
         public EmailSendTask(SendingMessage message) {
-            sendingMessage = message;
+            super(Collections.singletonList(message));
+        }
+    }
+
+    protected static class EmailBatchSendTask implements Runnable {
+
+        private List<SendingMessage> sendingMessages;
+        private static final Logger log = LoggerFactory.getLogger(EmailBatchSendTask.class);
+
+        public EmailBatchSendTask(List<SendingMessage> messages) {
+            sendingMessages = messages;
         }
 
         @Override
@@ -761,12 +813,12 @@ public class Emailer implements EmailerAPI {
 
                 authentication.begin(emailer.getEmailerLogin());
                 try {
-                    emailer.sendSendingMessage(sendingMessage);
+                    emailer.sendSendingMessages(sendingMessages);
                 } finally {
                     authentication.end();
                 }
             } catch (Exception e) {
-                log.error("Exception while sending email: ", e);
+                log.error("Exception while sending emails: ", e);
             }
         }
     }
@@ -153,6 +153,26 @@ public interface EmailerConfig extends Config {
     @DefaultInt(10)
     int getDefaultSendingAttemptsCount();
 
+    /**
+     * Number of queued messages sent by one task of the mail send executor over a single SMTP connection.
+     * Statuses of the messages are updated once the whole batch is sent.
+     */
+    @Property("cuba.email.sendingBatchSize")
+    @DefaultInt(10)
+    int getSendingBatchSize();
+
+    void setSendingBatchSize(int sendingBatchSize);
+
+    /**
+     * Max number of idle SMTP connections kept open for reuse by subsequent sending. 0 disables pooling,
+     * i.e. a new connection is opened for each send operation.
+     */
+    @Property("cuba.email.smtpConnectionPoolSize")
+    @DefaultInt(5)
+    int getSmtpConnectionPoolSize();
+
+    void setSmtpConnectionPoolSize(int smtpConnectionPoolSize);
+
     /**
      * Timeout in seconds for message in {@link com.haulmont.cuba.core.global.SendingStatus#SENDING} status
      * to be successfully sent or failed. After this time passes, emailer will try to resend email again.
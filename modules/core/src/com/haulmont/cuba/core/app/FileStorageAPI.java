@@ -19,6 +19,8 @@ package com.haulmont.cuba.core.app;
 import com.haulmont.cuba.core.entity.FileDescriptor;
 import com.haulmont.cuba.core.global.FileStorageException;
 
+import javax.annotation.Nullable;
+import java.io.File;
 import java.io.InputStream;
 
 /**
@@ -79,4 +81,15 @@ public interface FileStorageAPI {
      * @throws IllegalArgumentException if arguments are incorrect
      */
     boolean fileExists(FileDescriptor fileDescr) throws FileStorageException;
+
+    /**
+     * Returns the file of the descriptor if the storage keeps it in the local file system, so it can be served
+     * without copying through an input stream.
+     * @param fileDescr file descriptor
+     * @return          local file or null if the file does not exist or the storage is not file system based
+     */
+    @Nullable
+    default File getLocalFile(FileDescriptor fileDescr) {
+        return null;
+    }
 }
\ No newline at end of file
@@ -86,6 +86,12 @@ public class FoldersServiceBean implements FoldersService {
     @Inject
     protected DataManager dataManager;
 
+    @Inject
+    protected AppFolderQuantityCache appFolderQuantityCache;
+
+    @Inject
+    protected ServerConfig serverConfig;
+
     @Override
     public List<AppFolder> loadAppFolders() {
         log.debug("Loading AppFolders");
@@ -117,31 +123,30 @@ public class FoldersServiceBean implements FoldersService {
             Iterator<AppFolder> iterator = resultList.iterator();
             while (iterator.hasNext()) {
                 AppFolder folder = iterator.next();
+                if (StringUtils.isBlank(folder.getVisibilityScript())) {
+                    continue;
+                }
                 try (Transaction tx = persistence.createTransaction()) {
-                    boolean evaluatedVisibilityScript = true;
                     try {
-                        if (!StringUtils.isBlank(folder.getVisibilityScript())) {
-                            binding.setVariable("folder", folder);
-                            Boolean visible = runScript(folder.getVisibilityScript(), binding);
-                            if (BooleanUtils.isFalse(visible)) {
-                                iterator.remove();
-                                continue;
-                            }
+                        binding.setVariable("folder", folder);
+                        Boolean visible = runScript(folder.getVisibilityScript(), binding);
+                        if (BooleanUtils.isFalse(visible)) {
+                            iterator.remove();
+                            continue;
                         }
+                        tx.commit();
                     } catch (Exception e) {
+                        // transaction is not committed because EclipseLink Query marks it as rollback-only
+                        // on JPQL syntax errors
                         log.warn("Unable to evaluate AppFolder visibility script for folder: id: {}  name: {}",
                                 folder.getId(), folder.getName(), e);
-                        // because EclipseLink Query marks transaction as rollback-only on JPQL syntax errors
-                        evaluatedVisibilityScript = false;
-                    }
-
-                    boolean evaluatedQuantityScript = loadFolderQuantity(binding, folder);
-
-                    if (evaluatedVisibilityScript && evaluatedQuantityScript) {
-                        tx.commit();
                     }
                 }
             }
+
+            for (AppFolder folder : resultList) {
+                loadFolderQuantity(binding, folder);
+            }
         }
 
         return resultList;
@@ -172,14 +177,7 @@ public class FoldersServiceBean implements FoldersService {
                 binding.setProperty("userSession", userSessionSource.getUserSession());
 
                 for (AppFolder folder : folders) {
-                    Transaction tx = persistence.createTransaction();
-                    try {
-                        if (loadFolderQuantity(binding, folder)) {
-                            tx.commit();
-                        }
-                    } finally {
-                        tx.end();
-                    }
+                    loadFolderQuantity(binding, folder);
                 }
             }
 
@@ -189,17 +187,24 @@ public class FoldersServiceBean implements FoldersService {
         }
     }
 
+    /**
+     * Sets quantity and style of the folder. Results of the quantity script are shared between sessions having the
+     * same {@link #getQuantityScope(AppFolder, UserSession) scope} for the time configured by
+     * {@link ServerConfig#getAppFolderQuantityCacheTtlSec()}.
+     *
+     * @return false if the quantity script fails
+     */
     protected boolean loadFolderQuantity(Binding binding, AppFolder folder) {
         if (!StringUtils.isBlank(folder.getQuantityScript())) {
-            binding.setVariable("folder", folder);
-
-            String styleVariable = "style";
-            binding.setVariable(styleVariable, null);
-
+            String script = StringUtils.trim(folder.getQuantityScript());
+            UserSession userSession = (UserSession) binding.getVariable("userSession");
+            AppFolderQuantityCache.Key key = new AppFolderQuantityCache.Key(folder.getId(), script,
+                    getQuantityScope(folder, userSession));
             try {
-                Number qty = runScript(folder.getQuantityScript(), binding);
-                folder.setItemStyle((String) binding.getVariable(styleVariable));
-                folder.setQuantity(qty == null ? null : qty.intValue());
+                AppFolderQuantityCache.Quantity quantity = appFolderQuantityCache.get(key,
+                        () -> evaluateFolderQuantity(binding, folder));
+                folder.setItemStyle(quantity.getStyle());
+                folder.setQuantity(quantity.getValue());
             } catch (Exception e) {
                 log.warn("Unable to evaluate AppFolder quantity script for folder: id: {} , name: {}",
                         folder.getId(), folder.getName(), e);
@@ -210,6 +215,44 @@ public class FoldersServiceBean implements FoldersService {
         return true;
     }
 
+    protected AppFolderQuantityCache.Quantity evaluateFolderQuantity(Binding binding, AppFolder folder) {
+        try (Transaction tx = persistence.createTransaction()) {
+            binding.setVariable("folder", folder);
+
+            String styleVariable = "style";
+            binding.setVariable(styleVariable, null);
+
+            Number qty = runScript(folder.getQuantityScript(), binding);
+            // not committed if the script fails because EclipseLink Query marks transaction as rollback-only
+            // on JPQL syntax errors
+            tx.commit();
+
+            return new AppFolderQuantityCache.Quantity(qty == null ? null : qty.intValue(),
+                    (String) binding.getVariable(styleVariable));
+        }
+    }
+
+    /**
+     * Returns the scope in which the result of the quantity script can be shared. The result is shared by all
+     * users of the access group only if the folder is explicitly listed in
+     * {@link ServerConfig#getAppFolderQuantitySharedByGroup()}, otherwise it is evaluated once per user.
+     */
+    protected String getQuantityScope(AppFolder folder, UserSession userSession) {
+        User user = userSession.getCurrentOrSubstitutedUser();
+        if (user.getGroup() != null && isQuantitySharedByGroup(folder)) {
+            return "group:" + user.getGroup().getId();
+        }
+        return "user:" + user.getId();
+    }
+
+    /**
+     * @return true if the folder is listed in {@link ServerConfig#getAppFolderQuantitySharedByGroup()}
+     */
+    protected boolean isQuantitySharedByGroup(AppFolder folder) {
+        List<String> sharedFolders = serverConfig.getAppFolderQuantitySharedByGroup();
+        return sharedFolders != null && sharedFolders.contains(folder.getName());
+    }
+
     @Override
     public List<SearchFolder> loadSearchFolders() {
         log.debug("Loading SearchFolders");
@@ -33,11 +33,11 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.*;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component(LockManagerAPI.NAME)
 public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
@@ -73,11 +73,113 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
         }
     }
 
+    /**
+     * Lock held in a {@link LockTable}. The expiry index compares entries by value: by lock time and then by
+     * a sequence number unique for each entry, so a lock replaced by a newer one for the same key is never
+     * removed instead of it.
+     */
+    private static class LockEntry {
+
+        private final LockKey key;
+        private final LockInfo lockInfo;
+        private final long since;
+        private final long seq;
+
+        private LockEntry(LockKey key, LockInfo lockInfo, long seq) {
+            this.key = key;
+            this.lockInfo = lockInfo;
+            this.since = lockInfo.getSince().getTime();
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * Locks of a single entity. All locks of an entity share the same timeout, so the locks ordered by the time
+     * they were acquired are also ordered by expiration time.
+     */
+    private static class LockTable {
+
+        private final ConcurrentMap<LockKey, LockEntry> locks = new ConcurrentHashMap<>();
+
+        private final ConcurrentSkipListSet<LockEntry> expiryIndex = new ConcurrentSkipListSet<>(
+                Comparator.<LockEntry>comparingLong(entry -> entry.since).thenComparingLong(entry -> entry.seq));
+
+        @Nullable
+        private LockEntry putIfAbsent(LockEntry entry) {
+            LockEntry existing = locks.putIfAbsent(entry.key, entry);
+            if (existing == null) {
+                expiryIndex.add(entry);
+            }
+            return existing;
+        }
+
+        private void putIfNewer(LockEntry entry) {
+            locks.compute(entry.key, (key, existing) -> {
+                if (existing != null) {
+                    if (existing.since >= entry.since) {
+                        return existing;
+                    }
+                    expiryIndex.remove(existing);
+                }
+                expiryIndex.add(entry);
+                return entry;
+            });
+        }
+
+        @Nullable
+        private LockEntry get(LockKey key) {
+            return locks.get(key);
+        }
+
+        @Nullable
+        private LockEntry remove(LockKey key) {
+            LockEntry entry = locks.remove(key);
+            if (entry != null) {
+                expiryIndex.remove(entry);
+            }
+            return entry;
+        }
+
+        /**
+         * Removes locks acquired before the given time. Only expired locks are visited.
+         */
+        private void expire(long threshold) {
+            for (Iterator<LockEntry> it = expiryIndex.iterator(); it.hasNext(); ) {
+                LockEntry entry = it.next();
+                if (entry.since >= threshold) {
+                    break;
+                }
+                it.remove();
+                if (locks.remove(entry.key, entry)) {
+                    log.debug("Lock " + entry.key.name + "/" + entry.key.id + " expired");
+                }
+            }
+        }
+
+        private void clear() {
+            for (LockEntry entry : locks.values()) {
+                remove(entry.key);
+            }
+        }
+
+        private int size() {
+            return locks.size();
+        }
+
+        private void collect(List<LockInfo> list) {
+            for (LockEntry entry : locks.values()) {
+                list.add(entry.lockInfo);
+            }
+        }
+    }
+
     private static final Logger log = LoggerFactory.getLogger(LockManager.class);
 
     private volatile Map<String, LockDescriptor> config;
 
-    private Map<LockKey, LockInfo> locks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LockTable> lockTables = new ConcurrentHashMap<>();
+
+    private final AtomicLong lockSeq = new AtomicLong();
 
     @Inject
     private Persistence persistence;
@@ -88,6 +190,9 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
     @Inject
     private UserSessionSource userSessionSource;
 
+    @Inject
+    private TimeSource timeSource;
+
     private ClusterManagerAPI clusterManager;
 
     @Inject
@@ -122,14 +227,23 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
         return config;
     }
 
+    private LockTable getLockTable(String name) {
+        return lockTables.computeIfAbsent(name, k -> new LockTable());
+    }
+
+    private LockEntry createEntry(LockKey key, LockInfo lockInfo) {
+        return new LockEntry(key, lockInfo, lockSeq.incrementAndGet());
+    }
+
     @Override
     public LockInfo lock(String name, String id) {
         LockKey key = new LockKey(name, id);
 
-        LockInfo lockInfo = locks.get(key);
-        if (lockInfo != null) {
-            log.debug("Already locked: " + lockInfo);
-            return lockInfo;
+        LockTable table = lockTables.get(name);
+        LockEntry entry = table != null ? table.get(key) : null;
+        if (entry != null) {
+            log.debug("Already locked: " + entry.lockInfo);
+            return entry.lockInfo;
         }
 
         LockDescriptor ld = getConfig().get(name);
@@ -137,8 +251,12 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
             return new LockNotSupported();
         }
 
-        lockInfo = new LockInfo(userSessionSource.getUserSession().getCurrentOrSubstitutedUser(), name, id);
-        locks.put(key, lockInfo);
+        LockInfo lockInfo = new LockInfo(userSessionSource.getUserSession().getCurrentOrSubstitutedUser(), name, id);
+        entry = getLockTable(name).putIfAbsent(createEntry(key, lockInfo));
+        if (entry != null) {
+            log.debug("Already locked: " + entry.lockInfo);
+            return entry.lockInfo;
+        }
         log.debug("Locked " + name + "/" + id);
 
         clusterManager.send(lockInfo);
@@ -159,8 +277,9 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
 
     @Override
     public void unlock(String name, String id) {
-        LockInfo lockInfo = locks.remove(new LockKey(name, id));
-        if (lockInfo != null) {
+        LockTable table = lockTables.get(name);
+        LockEntry entry = table != null ? table.remove(new LockKey(name, id)) : null;
+        if (entry != null) {
             log.debug("Unlocked " + name + "/" + id);
 
             clusterManager.send(new LockInfo(null, name, id));
@@ -184,34 +303,57 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
             return new LockNotSupported();
         }
 
-        return locks.get(new LockKey(name, id));
+        LockTable table = lockTables.get(name);
+        LockEntry entry = table != null ? table.get(new LockKey(name, id)) : null;
+        return entry != null ? entry.lockInfo : null;
     }
 
     @Override
     public List<LockInfo> getCurrentLocks() {
-        return new ArrayList<>(locks.values());
+        List<LockInfo> list = new ArrayList<>();
+        for (LockTable table : lockTables.values()) {
+            table.collect(list);
+        }
+        return list;
+    }
+
+    @Override
+    public List<LockInfo> getCurrentLocks(String name) {
+        LockTable table = lockTables.get(name);
+        if (table == null) {
+            return Collections.emptyList();
+        }
+        List<LockInfo> list = new ArrayList<>(table.size());
+        table.collect(list);
+        return list;
+    }
+
+    @Override
+    public int getLockCount() {
+        int count = 0;
+        for (LockTable table : lockTables.values()) {
+            count += table.size();
+        }
+        return count;
     }
 
     @Override
     public void expireLocks() {
         log.debug("Expiring locks");
-        ArrayList<LockKey> list = new ArrayList<>(locks.keySet());
-        for (LockKey key : list) {
-            LockInfo lockInfo = locks.get(key);
-            if (lockInfo != null) {
-                LockDescriptor ld = getConfig().get(key.name);
-                if (ld == null) {
-                    log.debug("Lock " + key.name + "/" + key.id + " configuration not found, remove it");
-                    locks.remove(key);
-                } else {
-                    Integer timeoutSec = ld.getTimeoutSec();
-                    if (timeoutSec != null && timeoutSec > 0) {
-                        Date since = lockInfo.getSince();
-                        if (since.getTime() + timeoutSec * 1000 < AppBeans.get(TimeSource.class).currentTimestamp().getTime()) {
-                            log.debug("Lock " + key.name + "/" + key.id + " expired");
-                            locks.remove(key);
-                        }
-                    }
+        long now = timeSource.currentTimestamp().getTime();
+        for (Map.Entry<String, LockTable> tableEntry : lockTables.entrySet()) {
+            String name = tableEntry.getKey();
+            LockTable table = tableEntry.getValue();
+            LockDescriptor ld = getConfig().get(name);
+            if (ld == null) {
+                if (table.size() > 0) {
+                    log.debug("Lock " + name + " configuration not found, remove its locks");
+                    table.clear();
+                }
+            } else {
+                Integer timeoutSec = ld.getTimeoutSec();
+                if (timeoutSec != null && timeoutSec > 0) {
+                    table.expire(now - timeoutSec * 1000L);
                 }
             }
         }
@@ -224,20 +366,21 @@ public class LockManager implements LockManagerAPI, ClusterListener<LockInfo> {
 
     @Override
     public void receive(LockInfo message) {
-        LockKey key = new LockKey(message.getEntityName(), message.getEntityId());
+        String name = message.getEntityName();
+        LockKey key = new LockKey(name, message.getEntityId());
         if (message.getUser() != null) {
-            LockInfo lockInfo = locks.get(key);
-            if (lockInfo == null || lockInfo.getSince().before(message.getSince())) {
-                locks.put(key, message);
-            }
+            getLockTable(name).putIfNewer(createEntry(key, message));
         } else {
-            locks.remove(key);
+            LockTable table = lockTables.get(name);
+            if (table != null) {
+                table.remove(key);
+            }
         }
     }
 
     @Override
     public byte[] getState() {
-        List<LockInfo> list = new ArrayList<>(locks.values());
+        List<LockInfo> list = getCurrentLocks();
 
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
@@ -79,6 +79,17 @@ public interface LockManagerAPI {
      */
     List<LockInfo> getCurrentLocks();
 
+    /**
+     * List of current locks of a particular object type
+     * @param name locking object name, e.g. entity name
+     */
+    List<LockInfo> getCurrentLocks(String name);
+
+    /**
+     * @return number of current locks
+     */
+    int getLockCount();
+
     /**
      * Process locks expiring. All expired locks will be removed.
      */
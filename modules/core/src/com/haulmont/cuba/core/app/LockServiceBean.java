@@ -61,6 +61,11 @@ public class LockServiceBean implements LockService {
         return lockManager.getCurrentLocks();
     }
 
+    @Override
+    public List<LockInfo> getCurrentLocks(String name) {
+        return lockManager.getCurrentLocks(name);
+    }
+
     @Override
     public void reloadConfiguration(){
         lockManager.reloadConfiguration();
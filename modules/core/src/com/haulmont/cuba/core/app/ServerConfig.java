@@ -16,13 +16,18 @@
  */
 package com.haulmont.cuba.core.app;
 
+import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManager;
 import com.haulmont.cuba.core.config.Config;
 import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.*;
+import com.haulmont.cuba.core.config.type.CommaSeparatedStringListTypeFactory;
+import com.haulmont.cuba.core.config.type.Factory;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 
+import java.util.List;
+
 /**
  * Configuration parameters interface used by the CORE layer.
  */
@@ -102,6 +107,27 @@ public interface ServerConfig extends Config {
     @DefaultInt(1)
     int getUserSessionTouchTimeoutSec();
 
+    /**
+     * If true, last used timestamps of sessions refreshed by {@link UserSessionsAPI#getAndRefresh(java.util.UUID, boolean)}
+     * are collected and sent to the cluster in batches by {@link UserSessionsAPI#sendTouches()}, instead of sending
+     * the whole session on each refresh.
+     * <p>
+     * Nodes of previous versions ignore batched touches, so their sessions would expire while still in use on other
+     * nodes. Enable this property on all nodes only after every node of the cluster is upgraded, e.g. by adding
+     * {@code cuba.userSessionTouchesBatchingEnabled = true} to {@code app.properties} of the middleware block
+     * and restarting the nodes.
+     */
+    @Property("cuba.userSessionTouchesBatchingEnabled")
+    @DefaultBoolean(false)
+    boolean getUserSessionTouchesBatchingEnabled();
+
+    /**
+     * Maximum number of user sessions in one chunk of the cluster state and in one batch of touches.
+     */
+    @Property("cuba.userSessionStateChunkSize")
+    @DefaultInt(1000)
+    int getUserSessionStateChunkSize();
+
     /**
      * @return DB scripts directory.
      * Does not end with "/"
@@ -131,6 +157,29 @@ public interface ServerConfig extends Config {
     @DefaultBoolean(true)
     boolean getImmutableFileStorage();
 
+    /**
+     * @return maximum number of threads copying files to secondary {@link FileStorageAPI} storage directories
+     */
+    @Property("cuba.fileStorageReplicationThreadPoolSize")
+    @DefaultInt(5)
+    int getFileStorageReplicationThreadPoolSize();
+
+    /**
+     * @return maximum number of files waiting to be copied to secondary storage directories. Files exceeding
+     * the capacity are copied later by the repair task.
+     */
+    @Property("cuba.fileStorageReplicationQueueCapacity")
+    @DefaultInt(1000)
+    int getFileStorageReplicationQueueCapacity();
+
+    /**
+     * @return interval in milliseconds between attempts to copy files which failed to be copied to secondary
+     * storage directories
+     */
+    @Property("cuba.fileStorageRepairInterval")
+    @DefaultLong(60000)
+    long getFileStorageRepairInterval();
+
     /**
      * @return Scheduled tasks execution control.
      */
@@ -157,6 +206,15 @@ public interface ServerConfig extends Config {
     int getSchedulingThreadPoolSize();
     void setSchedulingThreadPoolSize(int value);
 
+    /**
+     * @return Time in milliseconds after which a scheduled task lease which is not renewed by its server expires.
+     * Used by {@link com.haulmont.cuba.core.app.scheduling.LeaseBasedCoordinator}.
+     */
+    @Property("cuba.schedulingLeaseTimeout")
+    @DefaultLong(60000)
+    long getSchedulingLeaseTimeout();
+    void setSchedulingLeaseTimeout(long value);
+
     /**
      * @return Tells DataService to ensure distinct results by processing them in memory, instead of issue
      * 'select distinct' to the database.
@@ -324,4 +382,37 @@ public interface ServerConfig extends Config {
      */
     @Property("cuba.disableEntityEnhancementCheck")
     boolean getDisableEntityEnhancementCheck();
+
+    /**
+     * @return maximum number of fetch group plans kept in the cache of {@code FetchGroupManager}.
+     * Zero disables the cache.
+     */
+    @Property("cuba.fetchGroupPlanCacheSize")
+    @DefaultInt(1000)
+    int getFetchGroupPlanCacheSize();
+
+    /**
+     * @return time in seconds during which results of app folder quantity scripts are shared between user sessions.
+     * Zero disables sharing, so the scripts are evaluated on every request of each user.
+     */
+    @Property("cuba.appFolderQuantityCacheTtlSec")
+    @DefaultInt(60)
+    int getAppFolderQuantityCacheTtlSec();
+
+    /**
+     * @return names of app folders whose quantity scripts do not depend on the current user, so their results are
+     * shared by all users of the same access group. Results of other folders are shared only between sessions
+     * of the same user.
+     */
+    @Property("cuba.appFolderQuantitySharedByGroup")
+    @Factory(factory = CommaSeparatedStringListTypeFactory.class)
+    List<String> getAppFolderQuantitySharedByGroup();
+
+    /**
+     * @return maximum number of entity ids in one query loading values of dynamic attributes. The value is
+     * additionally limited by the maximum number of ids in a query supported by the DBMS.
+     */
+    @Property("cuba.dynamicAttributes.valuesBatchSize")
+    @DefaultInt(DynamicAttributesManager.MAX_ENTITIES_FOR_ATTRIBUTE_VALUES_BATCH)
+    int getDynamicAttributesValuesBatchSize();
 }
\ No newline at end of file
@@ -18,17 +18,22 @@
 package com.haulmont.cuba.core.app.dynamicattributes;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.CoalescingClusterMessage;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import com.haulmont.cuba.security.entity.EntityOp;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.BooleanUtils;
@@ -39,17 +44,33 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
-import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 
 @Component(DynamicAttributesManagerAPI.NAME)
 public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
+    /**
+     * Default maximum number of entity ids in one query loading attribute values, see
+     * {@link ServerConfig#getDynamicAttributesValuesBatchSize()}.
+     */
     public static final int MAX_ENTITIES_FOR_ATTRIBUTE_VALUES_BATCH = 100;
 
+    /**
+     * Columns of attribute values in the order they are read by {@link #createAttributeValue(Object[], CategoryAttribute)}.
+     */
+    protected static final String ATTRIBUTE_VALUE_COLUMNS = "cav.id, cav.version, cav.createTs, cav.createdBy, " +
+            "cav.updateTs, cav.updatedBy, cav.categoryAttribute.id, cav.code, cav.stringValue, cav.intValue, " +
+            "cav.doubleValue, cav.decimalValue, cav.booleanValue, cav.dateValue, cav.dateWithoutTimeValue, " +
+            "cav.entity.entityId, cav.entity.stringEntityId, cav.entity.intEntityId, cav.entity.longEntityId, " +
+            "cav.entityValue.entityId, cav.entityValue.stringEntityId, cav.entityValue.intEntityId, " +
+            "cav.entityValue.longEntityId";
+
     private static final Logger log = LoggerFactory.getLogger(DynamicAttributesManager.class);
 
     @Inject
@@ -73,6 +94,12 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
     @Inject
     protected Security security;
 
+    @Inject
+    protected EntityStates entityStates;
+
+    @Inject
+    protected ServerConfig serverConfig;
+
     protected ClusterManagerAPI clusterManager;
 
     protected ReentrantLock loadCacheLock = new ReentrantLock();
@@ -363,15 +390,9 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
 
         Multimap<Object, CategoryAttributeValue> allAttributeValues = HashMultimap.create();
 
-        List<Object> currentIds = new ArrayList<>();
-        for (Object id : ids) {
-            currentIds.add(id);
-            if (currentIds.size() >= MAX_ENTITIES_FOR_ATTRIBUTE_VALUES_BATCH) {
-                handleAttributeValuesForIds(metaClass, currentIds, allAttributeValues);
-                currentIds = new ArrayList<>();
-            }
+        for (List<Object> currentIds : Lists.partition(ids, getAttributeValuesBatchSize())) {
+            handleAttributeValuesForIds(metaClass, currentIds, allAttributeValues);
         }
-        handleAttributeValuesForIds(metaClass, currentIds, allAttributeValues);
 
         for (BaseGenericIdEntity entity : entities) {
             Collection<CategoryAttributeValue> entityAttributeValues = allAttributeValues.get(referenceToEntitySupport.getReferenceId(entity));
@@ -388,6 +409,26 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
         }
     }
 
+    /**
+     * Returns the number of entity ids in one query loading attribute values: the configured batch size limited by
+     * the maximum number of ids supported by the DBMS.
+     * <p>
+     * Ids are always passed as an {@code IN} list parameter. Temporary tables and array parameters are not used
+     * because JPQL has no portable form of them and {@link com.haulmont.cuba.core.sys.persistence.DbmsFeatures}
+     * does not define such capabilities.
+     */
+    protected int getAttributeValuesBatchSize() {
+        int batchSize = serverConfig.getDynamicAttributesValuesBatchSize();
+        if (batchSize <= 0) {
+            batchSize = MAX_ENTITIES_FOR_ATTRIBUTE_VALUES_BATCH;
+        }
+        Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures().getMaxIdsBatchSize();
+        if (maxIdsBatchSize != null && maxIdsBatchSize > 0) {
+            batchSize = Math.min(batchSize, maxIdsBatchSize);
+        }
+        return batchSize;
+    }
+
     protected void handleAttributeValuesForIds(MetaClass metaClass, List<Object> currentIds, Multimap<Object, CategoryAttributeValue> attributeValuesForEntity) {
         if (CollectionUtils.isNotEmpty(currentIds)) {
             for (CategoryAttributeValue attributeValue : loadAttributeValues(metaClass, currentIds)) {
@@ -396,44 +437,58 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
         }
     }
 
+    /**
+     * Loads values of dynamic attributes of the given entities.
+     * <p>
+     * Values are selected as rows of columns and returned as detached instances referencing attributes from the
+     * cache, so they are not registered in the persistence context. Values of collection attributes are reloaded
+     * together with their child values.
+     */
+    @SuppressWarnings("unchecked")
     protected List<CategoryAttributeValue> loadAttributeValues(MetaClass metaClass, List<Object> entityIds) {
+        Map<UUID, CategoryAttribute> attributes = getAttributesForMetaClass(metaClass).stream()
+                .collect(Collectors.toMap(BaseUuidEntity::getId, Function.identity(), (a1, a2) -> a1));
+
         List<CategoryAttributeValue> attributeValues = new ArrayList<>();
         try (Transaction tx = persistence.getTransaction()) {
             EntityManager em = persistence.getEntityManager();
 
-            View view = new View(viewRepository.getView(CategoryAttributeValue.class, View.LOCAL), null, false)
-                    .addProperty("categoryAttribute", new View(viewRepository.getView(CategoryAttribute.class, View.LOCAL), null, false)
-                            .addProperty("category")
-                            .addProperty("defaultEntity", viewRepository.getView(ReferenceToEntity.class, View.LOCAL)));
-
-            TypedQuery<CategoryAttributeValue> query;
+            Query query;
             if (HasUuid.class.isAssignableFrom(metaClass.getJavaClass())) {
-                query = em.createQuery(format("select cav from sys$CategoryAttributeValue cav where cav.entity.%s in :ids and cav.parent is null",
-                        referenceToEntitySupport.getReferenceIdPropertyName(metaClass)),
-                        CategoryAttributeValue.class);
+                query = em.createQuery(format("select %s from sys$CategoryAttributeValue cav where cav.entity.%s in :ids " +
+                                "and cav.parent is null and cav.deleteTs is null",
+                        ATTRIBUTE_VALUE_COLUMNS, referenceToEntitySupport.getReferenceIdPropertyName(metaClass)));
             } else {
-                query = em.createQuery(format("select cav from sys$CategoryAttributeValue cav where cav.entity.%s in :ids " +
-                                "and cav.categoryAttribute.categoryEntityType = :entityType and cav.parent is null",
-                        referenceToEntitySupport.getReferenceIdPropertyName(metaClass)),
-                        CategoryAttributeValue.class);
+                query = em.createQuery(format("select %s from sys$CategoryAttributeValue cav where cav.entity.%s in :ids " +
+                                "and cav.categoryAttribute.categoryEntityType = :entityType and cav.parent is null " +
+                                "and cav.deleteTs is null",
+                        ATTRIBUTE_VALUE_COLUMNS, referenceToEntitySupport.getReferenceIdPropertyName(metaClass)));
                 query.setParameter("entityType", metaClass.getName());
             }
             query.setParameter("ids", entityIds);
-            query.setView(view);
-            List<CategoryAttributeValue> resultList = query.getResultList();
 
-            List<CategoryAttributeValue> cavsOfEntityType = resultList.stream()
-                    .filter(cav -> cav.getObjectEntityValueId() != null)
-                    .collect(Collectors.toList());
+            List<CategoryAttributeValue> cavsOfEntityType = new ArrayList<>();
+            List<CategoryAttributeValue> cavsOfCollectionType = new ArrayList<>();
 
-            List<CategoryAttributeValue> cavsOfCollectionType = resultList.stream()
-                    .filter(cav -> BooleanUtils.isTrue(cav.getCategoryAttribute().getIsCollection()))
-                    .collect(Collectors.toList());
+            for (Object[] row : (List<Object[]>) query.getResultList()) {
+                CategoryAttribute attribute = attributes.get((UUID) row[6]);
+                if (attribute == null) {
+                    // the attribute has been removed or does not belong to the entity type
+                    continue;
+                }
 
-            if (cavsOfCollectionType.isEmpty()) {
-                loadEntityValues(cavsOfEntityType);
-                attributeValues.addAll(resultList);
-            } else {
+                CategoryAttributeValue cav = createAttributeValue(row, attribute);
+                if (BooleanUtils.isTrue(attribute.getIsCollection())) {
+                    cavsOfCollectionType.add(cav);
+                } else {
+                    if (cav.getObjectEntityValueId() != null) {
+                        cavsOfEntityType.add(cav);
+                    }
+                    attributeValues.add(cav);
+                }
+            }
+
+            if (!cavsOfCollectionType.isEmpty()) {
                 List<CategoryAttributeValue> cavsOfCollectionTypeWithChildren = reloadCategoryAttributeValuesWithChildren(cavsOfCollectionType);
 
                 //add nested collection values to the cavsOfEntityType collection, because this collection will later be
@@ -442,8 +497,6 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                         .filter(cav -> cav.getCategoryAttribute().getDataType() == PropertyType.ENTITY && cav.getChildValues() != null)
                         .forEach(cav -> cavsOfEntityType.addAll(cav.getChildValues()));
 
-                loadEntityValues(cavsOfEntityType);
-
                 cavsOfCollectionTypeWithChildren.stream()
                         .filter(cav -> cav.getChildValues() != null)
                         .forEach(cav -> {
@@ -454,21 +507,53 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                             cav.setTransientCollectionValue(value);
                         });
 
-                attributeValues.addAll(resultList.stream()
-                        .filter(cav -> !cavsOfCollectionTypeWithChildren.contains(cav))
-                        .collect(Collectors.toList()));
-
                 attributeValues.addAll(cavsOfCollectionTypeWithChildren);
             }
 
+            loadEntityValues(cavsOfEntityType);
+
             tx.commit();
         }
-        attributeValues = attributeValues.stream()
-                .filter(attr -> attr.getDeleteTs() == null)
-                .collect(Collectors.toList());
         return attributeValues;
     }
 
+    /**
+     * Creates a detached attribute value from a row of {@link #ATTRIBUTE_VALUE_COLUMNS}.
+     */
+    protected CategoryAttributeValue createAttributeValue(Object[] row, CategoryAttribute attribute) {
+        CategoryAttributeValue cav = metadata.create(CategoryAttributeValue.class);
+        cav.setId((UUID) row[0]);
+        cav.setVersion((Integer) row[1]);
+        cav.setCreateTs((Date) row[2]);
+        cav.setCreatedBy((String) row[3]);
+        cav.setUpdateTs((Date) row[4]);
+        cav.setUpdatedBy((String) row[5]);
+        cav.setCategoryAttribute(attribute);
+        cav.setCode((String) row[7]);
+        cav.setStringValue((String) row[8]);
+        cav.setIntValue((Integer) row[9]);
+        cav.setDoubleValue((Double) row[10]);
+        cav.setDecimalValue((BigDecimal) row[11]);
+        cav.setBooleanValue((Boolean) row[12]);
+        cav.setDateValue((Date) row[13]);
+        cav.setDateWithoutTimeValue((LocalDate) row[14]);
+
+        ReferenceToEntity entity = cav.getEntity();
+        entity.setEntityId((UUID) row[15]);
+        entity.setStringEntityId((String) row[16]);
+        entity.setIntEntityId((Integer) row[17]);
+        entity.setLongEntityId((Long) row[18]);
+
+        ReferenceToEntity entityValue = cav.getEntityValue();
+        entityValue.setEntityId((UUID) row[19]);
+        entityValue.setStringEntityId((String) row[20]);
+        entityValue.setIntEntityId((Integer) row[21]);
+        entityValue.setLongEntityId((Long) row[22]);
+
+        entityStates.makeDetached(cav);
+        return cav;
+    }
+
     /**
      * Method loads entity values for CategoryAttributeValues of entity type and sets entity values to the corresponding
      * property of the {@code CategoryAttributeValue} entity.
@@ -537,7 +622,12 @@ public class DynamicAttributesManager implements DynamicAttributesManagerAPI {
                 .getResultList();
     }
 
-    private static class ReloadCacheMsg implements Serializable {
+    private static class ReloadCacheMsg implements CoalescingClusterMessage {
         private static final long serialVersionUID = -3116358584797500962L;
+
+        @Override
+        public CoalescingClusterMessage coalesce(CoalescingClusterMessage next) {
+            return this;
+        }
     }
 }
\ No newline at end of file
@@ -27,21 +27,26 @@ import com.haulmont.cuba.security.global.UserSession;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.FastDateFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Nullable;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
 
@@ -50,6 +55,12 @@ public class FileStorage implements FileStorageAPI {
 
     private static final Logger log = LoggerFactory.getLogger(FileStorage.class);
 
+    protected static final String LOG_FILE_NAME = "storage.log";
+
+    protected static final FastDateFormat LOG_DATE_FORMAT = FastDateFormat.getInstance("yyyy-MM-dd HH:mm:ss.SSS");
+
+    protected static final int BUFFER_SIZE = 64 * 1024;
+
     @Inject
     protected UserSessionSource userSessionSource;
 
@@ -61,14 +72,35 @@ public class FileStorage implements FileStorageAPI {
 
     protected boolean isImmutableFileStorage;
 
-    protected ExecutorService writeExecutor = Executors.newFixedThreadPool(5,
-            new ThreadFactoryBuilder().setNameFormat("FileStorageWriter-%d").build());
+    protected ThreadPoolExecutor writeExecutor;
+
+    protected ScheduledExecutorService repairExecutor;
 
     protected volatile File[] storageRoots;
 
+    protected ConcurrentMap<File, FileChannel> logChannels = new ConcurrentHashMap<>();
+
+    protected Set<Replica> pendingReplicas = ConcurrentHashMap.newKeySet();
+
     @PostConstruct
     public void init() {
-        this.isImmutableFileStorage = configuration.getConfig(ServerConfig.class).getImmutableFileStorage();
+        ServerConfig serverConfig = configuration.getConfig(ServerConfig.class);
+        this.isImmutableFileStorage = serverConfig.getImmutableFileStorage();
+
+        int nThreads = serverConfig.getFileStorageReplicationThreadPoolSize();
+        writeExecutor = new ThreadPoolExecutor(nThreads, nThreads,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(serverConfig.getFileStorageReplicationQueueCapacity()),
+                new ThreadFactoryBuilder().setNameFormat("FileStorageWriter-%d").build(),
+                (r, executor) -> {
+                    Replica replica = ((ReplicationTask) r).replica;
+                    log.warn("Replication queue capacity is exceeded, {} will be copied later", replica.target);
+                    pendingReplicas.add(replica);
+                });
+
+        long repairInterval = serverConfig.getFileStorageRepairInterval();
+        repairExecutor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("FileStorageRepair-%d").setDaemon(true).build());
+        repairExecutor.scheduleWithFixedDelay(this::repairReplicas, repairInterval, repairInterval, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -117,24 +149,30 @@ public class FileStorage implements FileStorageAPI {
         checkFileExists(file);
 
         long size = 0;
-        OutputStream os = null;
-        try {
-            os = FileUtils.openOutputStream(file);
-            size = IOUtils.copyLarge(inputStream, os);
-            os.flush();
-            writeLog(file, false);
+        CRC32 checksum = new CRC32();
+        try (FileChannel out = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // the input stream is closed by the caller
+            ReadableByteChannel in = Channels.newChannel(inputStream);
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                checksum.update(buffer.array(), 0, buffer.limit());
+                while (buffer.hasRemaining()) {
+                    size += out.write(buffer);
+                }
+                buffer.clear();
+            }
         } catch (IOException e) {
-            IOUtils.closeQuietly(os);
             FileUtils.deleteQuietly(file);
 
             throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, file.getAbsolutePath(), e);
-        } finally {
-            IOUtils.closeQuietly(os);
         }
+        writeLog(file, false);
 
         // Copy file to secondary storages asynchronously
 
-        final SecurityContext securityContext = AppContext.getSecurityContext();
+        SecurityContext securityContext = AppContext.getSecurityContext();
         for (int i = 1; i < roots.length; i++) {
             if (!roots[i].exists()) {
                 log.error("Error saving {} into {} : directory doesn't exist", fileDescr, roots[i]);
@@ -142,25 +180,169 @@ public class FileStorage implements FileStorageAPI {
             }
 
             File copyDir = getStorageDir(roots[i], fileDescr);
-            final File fileCopy = new File(copyDir, getFileName(fileDescr));
-
-            writeExecutor.submit(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        AppContext.setSecurityContext(securityContext);
-                        FileUtils.copyFile(file, fileCopy, true);
-                        writeLog(fileCopy, false);
-                    } catch (Exception e) {
-                        log.error("Error saving {} into {} : {}", fileDescr, fileCopy.getAbsolutePath(), e.getMessage());
-                    } finally {
-                        AppContext.setSecurityContext(null);
+            File fileCopy = new File(copyDir, getFileName(fileDescr));
+
+            writeExecutor.execute(new ReplicationTask(new Replica(file, fileCopy), checksum.getValue(), securityContext));
+        }
+
+        return size;
+    }
+
+    /**
+     * Copies the source file of the replica to a temporary file in the target directory, verifies its checksum
+     * and renames it to the target file.
+     *
+     * @param replica          replica to write
+     * @param expectedChecksum CRC32 of the source file content or null to calculate it from the source file
+     */
+    protected void replicate(Replica replica, @Nullable Long expectedChecksum) throws IOException {
+        File target = replica.target;
+        File dir = target.getParentFile();
+        FileUtils.forceMkdir(dir);
+
+        File tempFile = new File(dir, target.getName() + ".tmp");
+        try {
+            try (FileChannel in = FileChannel.open(replica.source.toPath(), StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tempFile.toPath(),
+                         StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    long transferred = in.transferTo(position, size - position, out);
+                    if (transferred <= 0) {
+                        break;
                     }
+                    position += transferred;
                 }
-            });
+            }
+
+            long sourceChecksum = expectedChecksum != null ? expectedChecksum : checksum(replica.source);
+            long targetChecksum = checksum(tempFile);
+            if (sourceChecksum != targetChecksum) {
+                throw new IOException(String.format("Checksum mismatch: %s has %x, %s has %x",
+                        replica.source, sourceChecksum, target, targetChecksum));
+            }
+
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.setLastModified(replica.source.lastModified());
+            try {
+                Files.move(tempFile.toPath(), target.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            FileUtils.deleteQuietly(tempFile);
         }
+        writeLog(target, false);
+    }
 
-        return size;
+    /**
+     * @return CRC32 of the file content
+     */
+    protected long checksum(File file) throws IOException {
+        CRC32 checksum = new CRC32();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                checksum.update(buffer.array(), 0, buffer.limit());
+                buffer.clear();
+            }
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * Copies files to secondary storage directories where previous attempts have failed or which have been
+     * found missing or corrupt by {@link #checkReplicas()}. Invoked periodically, see
+     * {@link ServerConfig#getFileStorageRepairInterval()}.
+     * <p>
+     * INTERNAL. Don't use in application code.
+     */
+    public void repairReplicas() {
+        if (pendingReplicas.isEmpty())
+            return;
+
+        for (Replica replica : new ArrayList<>(pendingReplicas)) {
+            pendingReplicas.remove(replica);
+            if (!replica.source.exists()) {
+                log.debug("Skip repairing {}: source file {} doesn't exist", replica.target, replica.source);
+                continue;
+            }
+            File targetRoot = getRootDir(replica.target);
+            if (targetRoot == null || !targetRoot.exists()) {
+                pendingReplicas.add(replica);
+                continue;
+            }
+            try {
+                replicate(replica, null);
+                log.info("Repaired {}", replica.target);
+            } catch (Exception e) {
+                log.error("Error repairing {} : {}", replica.target.getAbsolutePath(), e.getMessage());
+                pendingReplicas.add(replica);
+            }
+        }
+    }
+
+    /**
+     * Compares all files of the primary storage directory with their copies in secondary directories by size
+     * and checksum. Missing and corrupt copies are scheduled for {@link #repairReplicas() repair}.
+     * <p>
+     * INTERNAL. Don't use in application code.
+     *
+     * @return verification summary
+     */
+    public String checkReplicas() {
+        File[] roots = getStorageRoots();
+        if (roots.length < 2)
+            return "No secondary storage directories defined";
+        if (!roots[0].exists())
+            return "Primary storage directory " + roots[0] + " doesn't exist";
+
+        Path primaryRoot = roots[0].toPath();
+        int checked = 0;
+        int scheduled = 0;
+        try (Stream<Path> paths = Files.walk(primaryRoot)) {
+            Iterator<Path> iterator = paths
+                    .filter(path -> primaryRoot.relativize(path).getNameCount() == 4 && Files.isRegularFile(path))
+                    .iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                Path relativePath = primaryRoot.relativize(path);
+                Long sourceChecksum = null;
+                checked++;
+                for (int i = 1; i < roots.length; i++) {
+                    if (!roots[i].exists())
+                        continue;
+
+                    File target = roots[i].toPath().resolve(relativePath).toFile();
+                    boolean valid = target.exists() && target.length() == path.toFile().length();
+                    if (valid) {
+                        if (sourceChecksum == null) {
+                            sourceChecksum = checksum(path.toFile());
+                        }
+                        valid = sourceChecksum == checksum(target);
+                    }
+                    if (!valid) {
+                        log.info("Replica {} is missing or corrupt", target);
+                        pendingReplicas.add(new Replica(path.toFile(), target));
+                        scheduled++;
+                    }
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error checking replicas", e);
+            return "Error checking replicas: " + e.getMessage();
+        }
+        return String.format("Checked %d files, scheduled %d replicas for repair", checked, scheduled);
+    }
+
+    /**
+     * @return number of copies waiting for {@link #repairReplicas() repair}
+     */
+    public int getPendingReplicasCount() {
+        return pendingReplicas.size();
     }
 
     protected void checkFileExists(File file) throws FileStorageException {
@@ -193,38 +375,74 @@ public class FileStorage implements FileStorageAPI {
         saveStream(fileDescr, new ByteArrayInputStream(data));
     }
 
-    protected synchronized void writeLog(File file, boolean remove) {
-        File rootDir;
-        try {
-            rootDir = file.getParentFile().getParentFile().getParentFile().getParentFile();
-        } catch (NullPointerException e) {
-            log.error("Unable to write log: invalid file storage structure", e);
+    /**
+     * Appends a record to the log of the storage root directory containing the file. Records are written
+     * with a single append to a channel kept open for each root directory, so concurrent writes don't block
+     * each other for longer than the write itself.
+     */
+    protected void writeLog(File file, boolean remove) {
+        File rootDir = getRootDir(file);
+        if (rootDir == null) {
+            log.error("Unable to write log: invalid file storage structure for {}", file);
             return;
         }
 
-        SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-
-        UserSession userSession = userSessionSource.getUserSession();
-        String userLogin = userSession.getUser().getLogin();
-        String userId = userSession.getUser().getId().toString();
-
         StringBuilder sb = new StringBuilder();
-        sb.append(df.format(timeSource.currentTimestamp())).append(" ");
-
-        sb.append("[").append(userLogin).append("--").append(userId).append("] ");
+        sb.append(LOG_DATE_FORMAT.format(timeSource.currentTimestamp())).append(" ");
+
+        if (userSessionSource.checkCurrentUserSession()) {
+            UserSession userSession = userSessionSource.getUserSession();
+            sb.append("[").append(userSession.getUser().getLogin())
+                    .append("--").append(userSession.getUser().getId()).append("] ");
+        } else {
+            sb.append("[system] ");
+        }
         sb.append(remove ? "REMOVE" : "CREATE").append(" ");
         sb.append("\"").append(file.getAbsolutePath()).append("\"\n");
 
-        File logFile = new File(rootDir, "storage.log");
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
         try {
-            try (FileOutputStream fos = new FileOutputStream(logFile, true)) {
-                IOUtils.write(sb.toString(), fos, StandardCharsets.UTF_8);
+            FileChannel channel = getLogChannel(rootDir);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
             }
         } catch (IOException e) {
             log.error("Unable to write log", e);
         }
     }
 
+    protected FileChannel getLogChannel(File rootDir) throws IOException {
+        FileChannel channel = logChannels.get(rootDir);
+        if (channel != null && !channel.isOpen()) {
+            // closed by an interrupt of a writing thread
+            logChannels.remove(rootDir, channel);
+            channel = null;
+        }
+        if (channel == null) {
+            FileChannel newChannel = FileChannel.open(new File(rootDir, LOG_FILE_NAME).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            channel = logChannels.putIfAbsent(rootDir, newChannel);
+            if (channel == null) {
+                channel = newChannel;
+            } else {
+                IOUtils.closeQuietly(newChannel);
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * @return storage root directory of the file located in {@code root/year/month/day} directory
+     */
+    @Nullable
+    protected File getRootDir(File file) {
+        File dir = file;
+        for (int i = 0; i < 4 && dir != null; i++) {
+            dir = dir.getParentFile();
+        }
+        return dir;
+    }
+
     @Override
     public void removeFile(FileDescriptor fileDescr) throws FileStorageException {
         checkFileDescriptor(fileDescr);
@@ -314,6 +532,20 @@ public class FileStorage implements FileStorageAPI {
         return false;
     }
 
+    @Nullable
+    @Override
+    public File getLocalFile(FileDescriptor fileDescr) {
+        checkFileDescriptor(fileDescr);
+
+        for (File root : getStorageRoots()) {
+            File file = new File(getStorageDir(root, fileDescr), getFileName(fileDescr));
+            if (file.exists()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
     /**
      * INTERNAL. Don't use in application code.
      */
@@ -339,5 +571,58 @@ public class FileStorage implements FileStorageAPI {
     @PreDestroy
     protected void stopWriteExecutor() {
         writeExecutor.shutdown();
+        repairExecutor.shutdownNow();
+        for (FileChannel channel : logChannels.values()) {
+            IOUtils.closeQuietly(channel);
+        }
+        logChannels.clear();
+    }
+
+    protected static class Replica {
+        protected final File source;
+        protected final File target;
+
+        public Replica(File source, File target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Replica replica = (Replica) o;
+            return source.equals(replica.source) && target.equals(replica.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, target);
+        }
+    }
+
+    protected class ReplicationTask implements Runnable {
+        protected final Replica replica;
+        protected final long checksum;
+        protected final SecurityContext securityContext;
+
+        public ReplicationTask(Replica replica, long checksum, SecurityContext securityContext) {
+            this.replica = replica;
+            this.checksum = checksum;
+            this.securityContext = securityContext;
+        }
+
+        @Override
+        public void run() {
+            try {
+                AppContext.setSecurityContext(securityContext);
+                replicate(replica, checksum);
+            } catch (Exception e) {
+                log.error("Error saving {} into {} : {}", replica.source.getName(), replica.target.getAbsolutePath(), e.getMessage());
+                pendingReplicas.add(replica);
+            } finally {
+                AppContext.setSecurityContext(null);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -43,4 +43,18 @@ public interface Coordinator {
     boolean isLastExecutionFinished(ScheduledTask task, long now);
 
     long getLastFinished(ScheduledTask task);
+
+    /**
+     * Invoked when an execution of the task is finished on this server.
+     */
+    default void setFinished(ScheduledTask task, long finishTime) {
+    }
+
+    /**
+     * @return true if the coordinator itself guarantees that a singleton task is processed by one server at a time,
+     * so singleton tasks without permitted servers can be processed not only on the cluster master
+     */
+    default boolean isSingletonTasksDistributed() {
+        return false;
+    }
 }
@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.app.scheduling;
+
+import com.google.common.hash.Hashing;
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.app.ServerInfoAPI;
+import com.haulmont.cuba.core.entity.ScheduledTask;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.core.global.UuidProvider;
+import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implementation of {@link Coordinator} interface which distributes singleton tasks between servers using leases
+ * stored in the {@code SYS_SCHEDULED_TASK_LEASE} table instead of locking all tasks on each scheduling tick.
+ * <p>
+ * A server processes only the singleton tasks leased to it, so a tick reads and renews the leases of the current
+ * server and loads its own tasks without any locks. Leases are renewed on every tick and expire if not renewed
+ * during {@link ServerConfig#getSchedulingLeaseTimeout()}. Each server also keeps a heartbeat row in the lease table.
+ * Twice in the lease timeout the server balances leases: every active singleton task is assigned to one of the
+ * permitted servers having a live heartbeat by rendezvous hashing, so the tasks are spread between servers and
+ * move only when servers join or leave. The lease also stores the time of the last finished execution of the task,
+ * which is used instead of querying {@code SYS_SCHEDULED_EXECUTION}.
+ * <p>
+ * Singleton tasks without permitted servers may be processed on any server, not only on the cluster master.
+ * <p>To use the coordinator, register it in the {@code spring.xml} of the core module:</p>
+ * <pre>
+ * &lt;bean id="cuba_SchedulingCoordinator" class="com.haulmont.cuba.core.app.scheduling.LeaseBasedCoordinator"/&gt;
+ * </pre>
+ */
+public class LeaseBasedCoordinator implements Coordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaseBasedCoordinator.class);
+
+    protected static class ContextImpl implements Context {
+
+        protected List<ScheduledTask> tasks;
+        protected Map<UUID, Date> lastStartTimes;
+
+        protected ContextImpl(List<ScheduledTask> tasks) {
+            this.tasks = tasks;
+            this.lastStartTimes = new HashMap<>();
+            for (ScheduledTask task : tasks) {
+                if (BooleanUtils.isTrue(task.getSingleton())) {
+                    lastStartTimes.put(task.getId(), task.getLastStartTime());
+                }
+            }
+        }
+
+        @Override
+        public List<ScheduledTask> getTasks() {
+            return tasks;
+        }
+    }
+
+    protected static class Lease {
+
+        protected String server;
+        protected long expirationTime;
+
+        protected Lease(@Nullable String server, long expirationTime) {
+            this.server = server;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    @Inject
+    protected Persistence persistence;
+
+    @Inject
+    protected ServerInfoAPI serverInfo;
+
+    @Inject
+    protected TimeSource timeSource;
+
+    @Inject
+    protected Configuration configuration;
+
+    // last finish times of the tasks leased to this server
+    protected volatile Map<UUID, Long> lastFinishTimes = new ConcurrentHashMap<>();
+
+    protected volatile long nextBalancingTime;
+
+    @Override
+    public synchronized Context begin() {
+        long now = currentTimeMillis();
+        String server = getServerId();
+        try {
+            if (now >= nextBalancingTime) {
+                balanceLeases(server, now);
+                nextBalancingTime = now + getLeaseTimeout() / 2;
+            }
+            Map<UUID, Long> leasedTasks = renewLeases(server, now);
+            lastFinishTimes = new ConcurrentHashMap<>(leasedTasks);
+            return new ContextImpl(loadTasks(leasedTasks.keySet()));
+        } catch (SQLException e) {
+            throw new RuntimeException("Error reading scheduled task leases", e);
+        }
+    }
+
+    @Override
+    public void end(Context context) {
+        Map<UUID, Date> lastStartTimes = ((ContextImpl) context).lastStartTimes;
+        List<ScheduledTask> startedTasks = new ArrayList<>();
+        for (ScheduledTask task : context.getTasks()) {
+            if (lastStartTimes.containsKey(task.getId())
+                    && !Objects.equals(lastStartTimes.get(task.getId()), task.getLastStartTime())) {
+                startedTasks.add(task);
+            }
+        }
+        if (startedTasks.isEmpty()) {
+            return;
+        }
+
+        log.trace("Saving last start of {} tasks", startedTasks.size());
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            for (ScheduledTask task : startedTasks) {
+                em.createQuery("update sys$ScheduledTask t set t.lastStartTime = :lastStartTime, " +
+                        "t.lastStartServer = :lastStartServer where t.id = :id")
+                        .setParameter("lastStartTime", task.getLastStartTime())
+                        .setParameter("lastStartServer", task.getLastStartServer())
+                        .setParameter("id", task.getId())
+                        .executeUpdate();
+            }
+            tx.commit();
+        }
+    }
+
+    @Override
+    public boolean isLastExecutionFinished(ScheduledTask task, long now) {
+        Long lastFinish = lastFinishTimes.get(task.getId());
+        if (lastFinish != null && lastFinish >= task.getLastStart()) {
+            log.trace("{} : finished at {}", task, lastFinish);
+            return true;
+        }
+        // Execution finish was not registered for some reason, so using timeout value or just return false
+        boolean result = task.getTimeout() != null
+                && (task.getLastStart() + task.getTimeout() * 1000) <= now;
+        if (result)
+            log.trace(task + ": considered finished because of timeout");
+        else
+            log.trace(task + ": not finished and not timed out");
+        return result;
+    }
+
+    @Override
+    public long getLastFinished(ScheduledTask task) {
+        return lastFinishTimes.getOrDefault(task.getId(), 0L);
+    }
+
+    @Override
+    public void setFinished(ScheduledTask task, long finishTime) {
+        if (!BooleanUtils.isTrue(task.getSingleton())) {
+            return;
+        }
+        lastFinishTimes.put(task.getId(), finishTime);
+
+        DbTypeConverter types = persistence.getDbTypeConverter();
+        try {
+            createQueryRunner().update("update SYS_SCHEDULED_TASK_LEASE set LAST_FINISH_TS = ? where TASK_ID = ?",
+                    new Object[]{types.getSqlObject(new Date(finishTime)), types.getSqlObject(task.getId())},
+                    new int[]{types.getSqlType(Date.class), types.getSqlType(UUID.class)});
+        } catch (SQLException e) {
+            log.error("Unable to register finish of {}", task, e);
+        }
+    }
+
+    @Override
+    public boolean isSingletonTasksDistributed() {
+        return true;
+    }
+
+    /**
+     * Prolongs all leases of the server including its heartbeat.
+     *
+     * @return last finish times of the tasks leased to the server
+     */
+    protected Map<UUID, Long> renewLeases(String server, long now) throws SQLException {
+        DbTypeConverter types = persistence.getDbTypeConverter();
+        QueryRunner runner = createQueryRunner();
+
+        runner.update("update SYS_SCHEDULED_TASK_LEASE set EXPIRATION_TS = ? where SERVER = ?",
+                new Object[]{types.getSqlObject(new Date(now + getLeaseTimeout())), server},
+                new int[]{types.getSqlType(Date.class), Types.VARCHAR});
+
+        UUID heartbeatId = getHeartbeatId(server);
+        return runner.query("select TASK_ID, LAST_FINISH_TS from SYS_SCHEDULED_TASK_LEASE where SERVER = ?",
+                new Object[]{server}, new int[]{Types.VARCHAR},
+                rs -> {
+                    Map<UUID, Long> result = new HashMap<>();
+                    while (rs.next()) {
+                        UUID taskId = toUuid(rs.getObject(1));
+                        if (!taskId.equals(heartbeatId)) {
+                            Timestamp lastFinish = rs.getTimestamp(2);
+                            result.put(taskId, lastFinish == null ? 0L : lastFinish.getTime());
+                        }
+                    }
+                    return result;
+                });
+    }
+
+    protected List<ScheduledTask> loadTasks(Collection<UUID> leasedTaskIds) {
+        log.trace("Read non-singleton tasks and {} leased singleton tasks", leasedTaskIds.size());
+        try (Transaction tx = persistence.createTransaction()) {
+            EntityManager em = persistence.getEntityManager();
+            List<ScheduledTask> tasks = new ArrayList<>(em.createQuery(
+                    "select t from sys$ScheduledTask t where t.active = true and (t.singleton = false or t.singleton is null)",
+                    ScheduledTask.class)
+                    .getResultList());
+            if (!leasedTaskIds.isEmpty()) {
+                tasks.addAll(em.createQuery(
+                        "select t from sys$ScheduledTask t where t.active = true and t.singleton = true and t.id in :ids",
+                        ScheduledTask.class)
+                        .setParameter("ids", leasedTaskIds)
+                        .getResultList());
+            }
+            tx.commit();
+            return tasks;
+        }
+    }
+
+    /**
+     * Releases the leases of tasks which should be processed by other servers and acquires free or expired leases
+     * of tasks which should be processed by this server.
+     */
+    protected void balanceLeases(String server, long now) throws SQLException {
+        Map<UUID, Lease> leases = loadLeases();
+
+        UUID heartbeatId = getHeartbeatId(server);
+        if (!leases.containsKey(heartbeatId)) {
+            insertLease(heartbeatId, server, now);
+        }
+
+        Set<String> servers = new TreeSet<>();
+        servers.add(server);
+        for (Lease lease : leases.values()) {
+            if (lease.server != null && lease.expirationTime > now) {
+                servers.add(lease.server);
+            }
+        }
+
+        Map<UUID, String> tasks = loadSingletonTasks();
+        int acquired = 0, released = 0;
+        for (Map.Entry<UUID, String> entry : tasks.entrySet()) {
+            UUID taskId = entry.getKey();
+            Lease lease = leases.get(taskId);
+            boolean leasedToMe = lease != null && server.equals(lease.server);
+
+            List<String> candidates = getPermittedServers(entry.getValue(), servers);
+            String preferredServer = candidates.contains(server) ? getPreferredServer(taskId, candidates) : null;
+
+            if (leasedToMe && !server.equals(preferredServer)) {
+                if (releaseLease(taskId, server))
+                    released++;
+            } else if (!leasedToMe && server.equals(preferredServer)) {
+                if (lease == null) {
+                    if (insertLease(taskId, server, now))
+                        acquired++;
+                } else if (lease.server == null || lease.expirationTime <= now) {
+                    if (acquireLease(taskId, server, now))
+                        acquired++;
+                }
+            }
+        }
+
+        for (Map.Entry<UUID, Lease> entry : leases.entrySet()) {
+            // leases of tasks which are deactivated or are not singletons anymore
+            if (server.equals(entry.getValue().server) && !entry.getKey().equals(heartbeatId)
+                    && !tasks.containsKey(entry.getKey())) {
+                releaseLease(entry.getKey(), server);
+            }
+        }
+
+        log.debug("Balanced scheduled task leases between {}: acquired {}, released {}", servers, acquired, released);
+    }
+
+    protected Map<UUID, Lease> loadLeases() throws SQLException {
+        return createQueryRunner().query("select TASK_ID, SERVER, EXPIRATION_TS from SYS_SCHEDULED_TASK_LEASE",
+                rs -> {
+                    Map<UUID, Lease> result = new HashMap<>();
+                    while (rs.next()) {
+                        Timestamp expiration = rs.getTimestamp(3);
+                        result.put(toUuid(rs.getObject(1)),
+                                new Lease(rs.getString(2), expiration == null ? 0L : expiration.getTime()));
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * @return identifiers and permitted servers of active singleton tasks
+     */
+    protected Map<UUID, String> loadSingletonTasks() {
+        try (Transaction tx = persistence.createTransaction()) {
+            List<Object[]> rows = persistence.getEntityManager().createQuery(
+                    "select t.id, t.permittedServers from sys$ScheduledTask t where t.active = true and t.singleton = true",
+                    Object[].class)
+                    .getResultList();
+            tx.commit();
+
+            Map<UUID, String> result = new HashMap<>();
+            for (Object[] row : rows) {
+                result.put((UUID) row[0], (String) row[1]);
+            }
+            return result;
+        }
+    }
+
+    protected boolean insertLease(UUID taskId, String server, long now) {
+        DbTypeConverter types = persistence.getDbTypeConverter();
+        try {
+            createQueryRunner().update("insert into SYS_SCHEDULED_TASK_LEASE (TASK_ID, SERVER, EXPIRATION_TS) values (?, ?, ?)",
+                    new Object[]{types.getSqlObject(taskId), server, types.getSqlObject(new Date(now + getLeaseTimeout()))},
+                    new int[]{types.getSqlType(UUID.class), Types.VARCHAR, types.getSqlType(Date.class)});
+            return true;
+        } catch (SQLException e) {
+            // the lease has been inserted concurrently by another server
+            log.debug("Unable to insert lease {}: {}", taskId, e.toString());
+            return false;
+        }
+    }
+
+    protected boolean acquireLease(UUID taskId, String server, long now) throws SQLException {
+        DbTypeConverter types = persistence.getDbTypeConverter();
+        int timestampType = types.getSqlType(Date.class);
+        int updated = createQueryRunner().update("update SYS_SCHEDULED_TASK_LEASE set SERVER = ?, EXPIRATION_TS = ? " +
+                        "where TASK_ID = ? and (SERVER is null or EXPIRATION_TS <= ?)",
+                new Object[]{server, types.getSqlObject(new Date(now + getLeaseTimeout())),
+                        types.getSqlObject(taskId), types.getSqlObject(new Date(now))},
+                new int[]{Types.VARCHAR, timestampType, types.getSqlType(UUID.class), timestampType});
+        return updated > 0;
+    }
+
+    protected boolean releaseLease(UUID taskId, String server) throws SQLException {
+        DbTypeConverter types = persistence.getDbTypeConverter();
+        int updated = createQueryRunner().update("update SYS_SCHEDULED_TASK_LEASE set SERVER = null, EXPIRATION_TS = null " +
+                        "where TASK_ID = ? and SERVER = ?",
+                new Object[]{types.getSqlObject(taskId), server},
+                new int[]{types.getSqlType(UUID.class), Types.VARCHAR});
+        return updated > 0;
+    }
+
+    protected List<String> getPermittedServers(@Nullable String permittedServers, Collection<String> servers) {
+        if (StringUtils.isBlank(permittedServers)) {
+            return new ArrayList<>(servers);
+        }
+        List<String> result = new ArrayList<>();
+        for (String part : permittedServers.trim().split("[,;]")) {
+            if (servers.contains(part.trim())) {
+                result.add(part.trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Selects the server with the highest hash of the task and server pair, so each task is assigned to the same
+     * server on all servers, and only tasks of a leaving or joining server are reassigned.
+     */
+    protected String getPreferredServer(UUID taskId, List<String> servers) {
+        String preferredServer = null;
+        long maxWeight = 0;
+        for (String server : servers) {
+            long weight = Hashing.murmur3_128().newHasher()
+                    .putLong(taskId.getMostSignificantBits())
+                    .putLong(taskId.getLeastSignificantBits())
+                    .putString(server, StandardCharsets.UTF_8)
+                    .hash()
+                    .asLong();
+            if (preferredServer == null || weight > maxWeight) {
+                preferredServer = server;
+                maxWeight = weight;
+            }
+        }
+        return preferredServer;
+    }
+
+    protected UUID getHeartbeatId(String server) {
+        return UUID.nameUUIDFromBytes(("heartbeat:" + server).getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected UUID toUuid(Object value) {
+        return value instanceof UUID ? (UUID) value : UuidProvider.fromString(value.toString());
+    }
+
+    protected QueryRunner createQueryRunner() {
+        return new QueryRunner(persistence.getDataSource());
+    }
+
+    protected String getServerId() {
+        return serverInfo.getServerId();
+    }
+
+    protected long currentTimeMillis() {
+        return timeSource.currentTimeMillis();
+    }
+
+    protected long getLeaseTimeout() {
+        return configuration.getConfig(ServerConfig.class).getSchedulingLeaseTimeout();
+    }
+}
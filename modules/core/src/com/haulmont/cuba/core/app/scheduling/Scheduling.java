@@ -146,7 +146,9 @@ public class Scheduling implements SchedulingAPI {
 
     @Override
     public void setFinished(ScheduledTask task) {
-        lastFinishCache.put(task, timeSource.currentTimeMillis());
+        long now = timeSource.currentTimeMillis();
+        lastFinishCache.put(task, now);
+        coordinator.setFinished(task, now);
     }
 
     @Override
@@ -384,7 +386,8 @@ public class Scheduling implements SchedulingAPI {
         String permittedServers = task.getPermittedServers();
 
         if (StringUtils.isBlank(permittedServers)) {
-            if (BooleanUtils.isTrue(task.getSingleton()) && !clusterManager.isMaster())
+            if (BooleanUtils.isTrue(task.getSingleton())
+                    && !coordinator.isSingletonTasksDistributed() && !clusterManager.isMaster())
                 return null;
             else
                 return 0;
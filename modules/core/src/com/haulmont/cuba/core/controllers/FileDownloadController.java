@@ -25,9 +25,9 @@ import com.haulmont.cuba.core.global.FileTypesHelper;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.core.sys.servlet.FileDownloadSupport;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 import com.haulmont.cuba.security.global.UserSession;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,13 +35,20 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -54,6 +61,11 @@ public class FileDownloadController {
 
     private static final Logger log = LoggerFactory.getLogger(FileDownloadController.class);
 
+    protected static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    protected static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    protected static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    protected static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     @Inject
     private UserSessionsAPI userSessions;
 
@@ -80,15 +92,39 @@ public class FileDownloadController {
             if (fd == null && file == null)
                 return;
 
-            response.setHeader("Cache-Control", "no-cache");
-            response.setHeader("Pragma", "no-cache");
-            response.setIntHeader("Expires", -1);
+            response.setHeader("Cache-Control", "private, no-cache");
             response.setHeader("Content-Type", FileTypesHelper.DEFAULT_MIME_TYPE);
 
+            String eTag;
+            long lastModified;
+            if (fd != null) {
+                eTag = FileDownloadSupport.getETag(fd);
+                lastModified = fd.getCreateDate() != null ? fd.getCreateDate().getTime() : -1;
+            } else {
+                if (!file.isFile()) {
+                    log.error("Unable to download file: {} not found", file);
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    return;
+                }
+                lastModified = file.lastModified();
+                eTag = FileDownloadSupport.getETag(Integer.toHexString(file.getPath().hashCode()) + "-" + file.length(),
+                        lastModified);
+            }
+            if (FileDownloadSupport.checkNotModified(request, response, eTag, lastModified))
+                return;
+
             InputStream is = null;
             ServletOutputStream os = null;
             try {
-                is = fd != null ? fileStorage.openStream(fd) : FileUtils.openInputStream(file);
+                File localFile = fd != null ? fileStorage.getLocalFile(fd) : file;
+                if (localFile != null) {
+                    List<FileDownloadSupport.Range> ranges = FileDownloadSupport.getRanges(request, response,
+                            eTag, lastModified, localFile.length());
+                    writeLocalFile(request, response, localFile, ranges);
+                    return;
+                }
+
+                is = fileStorage.openStream(fd);
                 os = response.getOutputStream();
                 IOUtils.copy(is, os);
                 os.flush();
@@ -107,6 +143,41 @@ public class FileDownloadController {
         }
     }
 
+    /**
+     * Writes the whole file or the requested ranges. Uses sendfile if it is supported by the servlet container,
+     * otherwise transfers bytes from the file channel to the response.
+     */
+    protected void writeLocalFile(HttpServletRequest request, HttpServletResponse response, File file,
+                                  @Nullable List<FileDownloadSupport.Range> ranges) throws IOException {
+        long length = file.length();
+        boolean sendfile = Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))
+                && (ranges == null || ranges.size() <= 1);
+        if (sendfile) {
+            String path = file.getCanonicalPath();
+            FileDownloadSupport.writeRanges(response, ranges, length, FileTypesHelper.DEFAULT_MIME_TYPE, (start, count) -> {
+                request.setAttribute(SENDFILE_FILENAME_ATTR, path);
+                request.setAttribute(SENDFILE_START_ATTR, start);
+                request.setAttribute(SENDFILE_END_ATTR, start + count);
+            });
+        } else {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+                FileDownloadSupport.writeRanges(response, ranges, length, FileTypesHelper.DEFAULT_MIME_TYPE, (start, count) -> {
+                    long position = start;
+                    long end = start + count;
+                    while (position < end) {
+                        long transferred = channel.transferTo(position, end - position, target);
+                        if (transferred <= 0) {
+                            throw new EOFException("Unexpected end of file " + file);
+                        }
+                        position += transferred;
+                    }
+                });
+                response.flushBuffer();
+            }
+        }
+    }
+
     protected UserSession getSession(HttpServletRequest request, HttpServletResponse response) throws IOException {
         UUID sessionId;
         try {
@@ -16,13 +16,17 @@
  */
 package com.haulmont.cuba.core.jmx;
 
+import com.haulmont.cuba.core.PersistenceSecurity;
+import com.haulmont.cuba.core.app.AppFolderQuantityCache;
 import com.haulmont.cuba.core.app.ConfigStorageAPI;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesManagerAPI;
 import com.haulmont.cuba.core.global.Messages;
+import com.haulmont.cuba.core.global.QueryTransformerFactory;
 import com.haulmont.cuba.core.global.Scripting;
 import com.haulmont.cuba.core.global.ViewRepository;
 import com.haulmont.cuba.core.sys.AbstractViewRepository;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.FetchGroupManager;
 import com.haulmont.cuba.security.app.EntityLogAPI;
 
 import org.springframework.stereotype.Component;
@@ -49,6 +53,18 @@ public class CachingFacade implements CachingFacadeMBean {
     @Inject
     protected DynamicAttributesManagerAPI dynamicAttributesManagerAPI;
 
+    @Inject
+    protected QueryTransformerFactory queryTransformerFactory;
+
+    @Inject
+    protected FetchGroupManager fetchGroupManager;
+
+    @Inject
+    protected AppFolderQuantityCache appFolderQuantityCache;
+
+    @Inject
+    protected PersistenceSecurity persistenceSecurity;
+
     @Override
     public int getMessagesCacheSize() {
         return messages.getCacheSize();
@@ -57,6 +73,7 @@ public class CachingFacade implements CachingFacadeMBean {
     @Override
     public void clearGroovyCache() {
         scripting.clearCache();
+        persistenceSecurity.clearCompiledConstraints();
     }
 
     @Override
@@ -88,4 +105,34 @@ public class CachingFacade implements CachingFacadeMBean {
     public void clearViewRepositoryCache() {
         ((AbstractViewRepository) viewRepository).reset();
     }
+
+    @Override
+    public String printQueryTreeCacheStatistics() {
+        return queryTransformerFactory.getQueryTreeCache().toString();
+    }
+
+    @Override
+    public void clearQueryTreeCache() {
+        queryTransformerFactory.reset();
+    }
+
+    @Override
+    public String printFetchGroupPlanCacheStatistics() {
+        return fetchGroupManager.printPlanCacheStatistics();
+    }
+
+    @Override
+    public void clearFetchGroupPlanCache() {
+        fetchGroupManager.clearPlanCache();
+    }
+
+    @Override
+    public String printAppFolderQuantityCacheStatistics() {
+        return appFolderQuantityCache.printStatistics();
+    }
+
+    @Override
+    public void clearAppFolderQuantityCache() {
+        appFolderQuantityCache.clear();
+    }
 }
\ No newline at end of file
@@ -16,6 +16,8 @@
  */
 package com.haulmont.cuba.core.jmx;
 
+import org.springframework.jmx.export.annotation.ManagedOperation;
+
 public interface CachingFacadeMBean {
 
     int getMessagesCacheSize();
@@ -33,4 +35,22 @@ public interface CachingFacadeMBean {
     void clearDynamicAttributesCache();
 
     void clearSystemPropertiesCache();
+
+    @ManagedOperation(description = "Prints size and hit/miss statistics of the parsed JPQL query cache")
+    String printQueryTreeCacheStatistics();
+
+    @ManagedOperation(description = "Clears parsed JPQL query cache and rebuilds the JPQL domain model")
+    void clearQueryTreeCache();
+
+    @ManagedOperation(description = "Prints size and hit/miss statistics of the fetch group plan cache")
+    String printFetchGroupPlanCacheStatistics();
+
+    @ManagedOperation(description = "Clears fetch group plan cache and its statistics")
+    void clearFetchGroupPlanCache();
+
+    @ManagedOperation(description = "Prints size and hit/miss statistics of the app folder quantity cache")
+    String printAppFolderQuantityCacheStatistics();
+
+    @ManagedOperation(description = "Clears app folder quantity cache and its statistics")
+    void clearAppFolderQuantityCache();
 }
\ No newline at end of file
@@ -92,6 +92,11 @@ public class ClusterManager implements ClusterManagerMBean {
         return clusterManager.printMessagesStat();
     }
 
+    @Override
+    public String printBatchingStat() {
+        return clusterManager.printBatchingStat();
+    }
+
     @Override
     public long getSentMessages(String className) {
         return className == null ? -1 : clusterManager.getSentMessages(className);
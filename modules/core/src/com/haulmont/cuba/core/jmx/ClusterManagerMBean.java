@@ -67,6 +67,9 @@ public interface ClusterManagerMBean {
     @ManagedOperation(description = "Sent/received messages statistics")
     String printMessagesStat();
 
+    @ManagedOperation(description = "Batched messages sending statistics")
+    String printBatchingStat();
+
     @ManagedOperation(description = "Get sent messages count for specified class")
     long getSentMessages(String className);
 
@@ -53,6 +53,26 @@ public class FileStorage implements FileStorageMBean {
         }
     }
 
+    @Override
+    public int getPendingReplicasCount() {
+        FileStorageAPI fileStorageAPI = AppBeans.get(FileStorageAPI.class);
+        if (fileStorageAPI instanceof com.haulmont.cuba.core.app.filestorage.FileStorage) {
+            return ((com.haulmont.cuba.core.app.filestorage.FileStorage) fileStorageAPI).getPendingReplicasCount();
+        } else {
+            return 0;
+        }
+    }
+
+    @Override
+    public String checkReplicas() {
+        FileStorageAPI fileStorageAPI = AppBeans.get(FileStorageAPI.class);
+        if (fileStorageAPI instanceof com.haulmont.cuba.core.app.filestorage.FileStorage) {
+            return ((com.haulmont.cuba.core.app.filestorage.FileStorage) fileStorageAPI).checkReplicas();
+        } else {
+            return "<not supported>";
+        }
+    }
+
     @Override
     public String findOrphanDescriptors() {
         com.haulmont.cuba.core.app.filestorage.FileStorage fileStorage;
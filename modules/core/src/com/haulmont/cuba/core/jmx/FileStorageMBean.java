@@ -38,4 +38,16 @@ public interface FileStorageMBean {
      * @return the list of files in the storage which have no corresponding descriptors in the database
      */
     String findOrphanFiles();
+
+    /**
+     * @return the number of copies in secondary storages waiting to be repaired
+     */
+    int getPendingReplicasCount();
+
+    /**
+     * Compares files of the primary storage with their copies in secondary storages and schedules missing or
+     * corrupt copies for repair.
+     * @return verification summary
+     */
+    String checkReplicas();
 }
@@ -31,7 +31,7 @@ public class LockManager implements LockManagerMBean {
 
     @Override
     public int getLockCount() {
-        return lockManager.getCurrentLocks().size();
+        return lockManager.getLockCount();
     }
 
 
@@ -45,6 +45,47 @@ public class QueryCacheSupport implements QueryCacheSupportMBean {
         return queryCache.size();
     }
 
+    @Override
+    public long getHitCount() {
+        return queryCacheMgr.getStatistics().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return queryCacheMgr.getStatistics().getMissCount();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return queryCache.getEvictionCount();
+    }
+
+    @Override
+    public long getMaterializedCount() {
+        return queryCacheMgr.getStatistics().getMaterializedCount();
+    }
+
+    @Override
+    public long getMaterializationQueryCount() {
+        return queryCacheMgr.getStatistics().getMaterializationQueryCount();
+    }
+
+    @Override
+    public long getMaterializationTime() {
+        return queryCacheMgr.getStatistics().getMaterializationTime();
+    }
+
+    @Override
+    public String printStatistics() {
+        return queryCacheMgr.getStatistics() + ", evictions=" + queryCache.getEvictionCount();
+    }
+
+    @Override
+    public String resetStatistics() {
+        queryCacheMgr.getStatistics().reset();
+        return "Done";
+    }
+
     @Override
     public String evictAll() {
         queryCacheMgr.invalidateAll(true);
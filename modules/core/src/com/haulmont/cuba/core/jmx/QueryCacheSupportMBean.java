@@ -27,6 +27,30 @@ public interface QueryCacheSupportMBean {
     @ManagedAttribute(description = "Current number of cached queries")
     long getSize();
 
+    @ManagedAttribute(description = "Number of lookups that found query results in the cache")
+    long getHitCount();
+
+    @ManagedAttribute(description = "Number of lookups that did not find query results in the cache")
+    long getMissCount();
+
+    @ManagedAttribute(description = "Number of queries evicted from the cache because of the size limit")
+    long getEvictionCount();
+
+    @ManagedAttribute(description = "Number of entity instances loaded for cached query results")
+    long getMaterializedCount();
+
+    @ManagedAttribute(description = "Number of database queries executed to load instances for cached query results")
+    long getMaterializationQueryCount();
+
+    @ManagedAttribute(description = "Total time in milliseconds spent on loading instances for cached query results")
+    long getMaterializationTime();
+
+    @ManagedOperation(description = "Print query cache usage statistics")
+    String printStatistics();
+
+    @ManagedOperation(description = "Reset query cache usage statistics")
+    String resetStatistics();
+
     @ManagedOperation(description = "Discard all query results in the cache")
     String evictAll();
 
@@ -18,6 +18,7 @@ package com.haulmont.cuba.core.jmx;
 
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.ConstraintStatistics;
 import com.haulmont.cuba.security.app.Authenticated;
 import groovy.lang.Binding;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -47,6 +48,9 @@ public class ScriptingManager implements ScriptingManagerMBean {
     @Inject
     protected DataManager dataManager;
 
+    @Inject
+    protected ConstraintStatistics constraintStatistics;
+
     @Override
     public String getRootPath() {
         return configuration.getConfig(GlobalConfig.class).getConfDir();
@@ -68,4 +72,14 @@ public class ScriptingManager implements ScriptingManagerMBean {
             return ExceptionUtils.getStackTrace(e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public String printConstraintStatistics() {
+        return constraintStatistics.print();
+    }
+
+    @Override
+    public void resetConstraintStatistics() {
+        constraintStatistics.reset();
+    }
+}
@@ -35,4 +35,10 @@ public interface ScriptingManagerMBean {
             {@ManagedOperationParameter(name = "scriptName",
                     description = "path to the script relative to conf dir or to the classpath root")})
     String runGroovyScript(String scriptName);
+
+    @ManagedOperation(description = "Print number and time of in-memory constraint evaluations by entity")
+    String printConstraintStatistics();
+
+    @ManagedOperation(description = "Reset statistics of in-memory constraint evaluations")
+    void resetConstraintStatistics();
 }
@@ -23,6 +23,7 @@ import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.connectionpoolinfo.CommonsConnectionPoolInfo;
 import com.haulmont.cuba.core.sys.connectionpoolinfo.ConnectionPoolInfo;
 import com.haulmont.cuba.core.sys.connectionpoolinfo.HikariConnectionPoolInfo;
+import com.haulmont.cuba.core.sys.remoting.RemotingStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -207,4 +208,14 @@ public class StatisticsCounter implements StatisticsCounterMBean {
     public double getAvgThreadCount() {
         return accumulator.getAvgThreadCount();
     }
-}
\ No newline at end of file
+
+    @Override
+    public String printRemotingStatistics() {
+        return RemotingStatistics.getInstance().print();
+    }
+
+    @Override
+    public void resetRemotingStatistics() {
+        RemotingStatistics.getInstance().reset();
+    }
+}
@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.jmx;
 
+import org.springframework.jmx.export.annotation.ManagedOperation;
 import org.springframework.jmx.export.annotation.ManagedResource;
 
 @ManagedResource(description = "Provides various information about middleware performance statistics")
@@ -74,4 +75,10 @@ public interface StatisticsCounterMBean {
     double getAvgProcessCpuLoad();
 
     double getAvgThreadCount();
-}
\ No newline at end of file
+
+    @ManagedOperation(description = "Print HTTP service invocation counters by service")
+    String printRemotingStatistics();
+
+    @ManagedOperation(description = "Reset HTTP service invocation counters")
+    void resetRemotingStatistics();
+}
@@ -76,6 +76,11 @@ public class ConfigPersisterImpl implements ConfigPersister {
         }
     }
 
+    @Override
+    public boolean isCacheable(SourceType sourceType) {
+        return sourceType == SourceType.APP || sourceType == SourceType.DATABASE;
+    }
+
     protected ConfigStorageAPI getConfigStorageAPI() {
         return (ConfigStorageAPI) applicationContext.getBean(ConfigStorageAPI.NAME);
     }
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of in-memory constraint evaluations grouped by entity name. Collected by {@link PersistenceSecurityImpl}.
+ */
+@Component(ConstraintStatistics.NAME)
+public class ConstraintStatistics {
+
+    public static final String NAME = "cuba_ConstraintStatistics";
+
+    protected final ConcurrentMap<String, EntityStat> stats = new ConcurrentHashMap<>();
+
+    public void record(String entityName, long timeNanos) {
+        EntityStat stat = stats.computeIfAbsent(entityName, s -> new EntityStat());
+        stat.evaluations.increment();
+        stat.timeNanos.add(timeNanos);
+    }
+
+    public String print() {
+        if (stats.isEmpty()) {
+            return "No evaluations";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, EntityStat> entry : new TreeMap<>(stats).entrySet()) {
+            EntityStat stat = entry.getValue();
+            long evaluations = stat.evaluations.sum();
+            long timeNanos = stat.timeNanos.sum();
+            sb.append(entry.getKey())
+                    .append(": evaluations=").append(evaluations)
+                    .append(", totalTimeMs=").append(TimeUnit.NANOSECONDS.toMillis(timeNanos))
+                    .append(", avgTimeUs=").append(evaluations == 0 ? 0 :
+                            TimeUnit.NANOSECONDS.toMicros(timeNanos / evaluations))
+                    .append("\n");
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    protected static class EntityStat {
+        protected final LongAdder evaluations = new LongAdder();
+        protected final LongAdder timeNanos = new LongAdder();
+    }
+}
@@ -20,22 +20,43 @@ package com.haulmont.cuba.core.sys;
 import com.haulmont.cuba.core.app.EmailerConfig;
 import com.haulmont.cuba.core.global.Configuration;
 import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
 import org.springframework.stereotype.Component;
+import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import javax.mail.Address;
+import javax.mail.AuthenticationFailedException;
+import javax.mail.MessagingException;
 import javax.mail.Session;
-import java.util.HashSet;
-import java.util.Properties;
-import java.util.Set;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import java.util.*;
 
+/**
+ * Mail sender configured by {@code cuba.email.*} properties.
+ * <p>
+ * Keeps up to {@link EmailerConfig#getSmtpConnectionPoolSize()} SMTP connections open after sending, so subsequent
+ * invocations of {@code send()} reuse them instead of connecting and authenticating again. A pooled connection is
+ * checked by {@link Transport#isConnected()} before reuse and replaced if the server has closed it.
+ */
 @Component(CubaMailSender.NAME)
 public class CubaMailSender extends JavaMailSenderImpl {
 
     public static final String NAME = "cuba_MailSender";
 
+    private static final Logger log = LoggerFactory.getLogger(CubaMailSender.class);
+
     protected EmailerConfig config;
 
+    protected final Deque<Transport> idleTransports = new ArrayDeque<>();
+
     private boolean propertiesInitialized;
 
     @Inject
@@ -97,6 +118,117 @@ public class CubaMailSender extends JavaMailSenderImpl {
 
     public synchronized void updateSession(){
         propertiesInitialized = false;
+        closeIdleTransports();
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        if (config.getSmtpConnectionPoolSize() <= 0) {
+            super.doSend(mimeMessages, originalMessages);
+            return;
+        }
+
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        Transport transport = null;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                if (transport == null || !transport.isConnected()) {
+                    closeTransport(transport);
+                    transport = null;
+                    try {
+                        transport = borrowTransport();
+                    } catch (AuthenticationFailedException e) {
+                        throw new MailAuthenticationException(e);
+                    } catch (Exception e) {
+                        for (int j = i; j < mimeMessages.length; j++) {
+                            failedMessages.put(originalMessages != null ? originalMessages[j] : mimeMessages[j], e);
+                        }
+                        throw new MailSendException("Mail server connection failed", e, failedMessages);
+                    }
+                }
+
+                MimeMessage mimeMessage = mimeMessages[i];
+                try {
+                    if (mimeMessage.getSentDate() == null) {
+                        mimeMessage.setSentDate(new Date());
+                    }
+                    String messageId = mimeMessage.getMessageID();
+                    mimeMessage.saveChanges();
+                    if (messageId != null) {
+                        // preserve explicitly specified message id, as it may be overwritten by saveChanges
+                        mimeMessage.setHeader("Message-ID", messageId);
+                    }
+                    Address[] addresses = mimeMessage.getAllRecipients();
+                    transport.sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+                } catch (Exception e) {
+                    failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessage, e);
+                }
+            }
+        } finally {
+            if (transport != null) {
+                releaseTransport(transport);
+            }
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    /**
+     * Returns a connected transport from the pool or connects a new one.
+     */
+    protected Transport borrowTransport() throws MessagingException {
+        Transport transport;
+        while ((transport = pollIdleTransport()) != null) {
+            if (transport.isConnected()) {
+                return transport;
+            }
+            closeTransport(transport);
+        }
+        return connectTransport();
+    }
+
+    /**
+     * Returns the transport to the pool, or closes it if the pool is full.
+     */
+    protected void releaseTransport(Transport transport) {
+        synchronized (idleTransports) {
+            if (idleTransports.size() < config.getSmtpConnectionPoolSize()) {
+                idleTransports.push(transport);
+                return;
+            }
+        }
+        closeTransport(transport);
+    }
+
+    @Nullable
+    protected Transport pollIdleTransport() {
+        synchronized (idleTransports) {
+            return idleTransports.poll();
+        }
+    }
+
+    @PreDestroy
+    public void closeIdleTransports() {
+        List<Transport> transports;
+        synchronized (idleTransports) {
+            transports = new ArrayList<>(idleTransports);
+            idleTransports.clear();
+        }
+        for (Transport transport : transports) {
+            closeTransport(transport);
+        }
+    }
+
+    protected void closeTransport(@Nullable Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (Exception e) {
+                log.debug("Error closing SMTP connection: {}", e.toString());
+            }
+        }
     }
 
     protected Properties createJavaMailProperties() {
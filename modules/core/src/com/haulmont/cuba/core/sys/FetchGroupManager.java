@@ -17,11 +17,14 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.chile.core.model.Range;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.BaseUuidEntity;
 import com.haulmont.cuba.core.entity.EmbeddableEntity;
 import com.haulmont.cuba.core.entity.Entity;
@@ -42,6 +45,7 @@ import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 @Component(FetchGroupManager.NAME)
@@ -60,6 +64,15 @@ public class FetchGroupManager {
     @Inject
     private ViewRepository viewRepository;
 
+    @Inject
+    private ServerConfig serverConfig;
+
+    private volatile PlanCache planCache;
+
+    private final LongAdder planCacheHits = new LongAdder();
+    private final LongAdder planCacheMisses = new LongAdder();
+    private final LongAdder planCacheInvalidations = new LongAdder();
+
     public void setView(JpaQuery query, String queryString, @Nullable View view, boolean singleResultExpected) {
         Preconditions.checkNotNullArgument(query, "query is null");
         if (view != null) {
@@ -128,10 +141,105 @@ public class FetchGroupManager {
         }
     }
 
+    /**
+     * Calculates fetch group attributes and query hints for the given query and view.
+     * <p>
+     * Results are cached by query text, view structure and flags until views are reset or redeployed,
+     * so the returned description is shared and must not be modified.
+     */
     public FetchGroupDescription calculateFetchGroup(String queryString,
                                                      View view,
                                                      boolean singleResultExpected,
                                                      boolean useFetchGroup) {
+        PlanCache cache = getPlanCache();
+        if (cache == null) {
+            planCacheMisses.increment();
+            return buildFetchGroup(queryString, view, singleResultExpected, useFetchGroup);
+        }
+
+        PlanKey key = new PlanKey(queryString, getViewSignature(view), singleResultExpected, useFetchGroup);
+        FetchGroupDescription description = cache.plans.getIfPresent(key);
+        if (description != null) {
+            planCacheHits.increment();
+            return description;
+        }
+
+        planCacheMisses.increment();
+        description = buildFetchGroup(queryString, view, singleResultExpected, useFetchGroup);
+        cache.plans.put(key, description);
+        return description;
+    }
+
+    public String printPlanCacheStatistics() {
+        PlanCache cache = planCache;
+        long hits = planCacheHits.sum();
+        long misses = planCacheMisses.sum();
+        long requests = hits + misses;
+        return "size=" + (cache == null ? 0 : cache.plans.size()) +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", hitRatio=" + (requests == 0 ? 0 : Math.round(hits * 100.0 / requests)) + "%" +
+                ", invalidations=" + planCacheInvalidations.sum();
+    }
+
+    public synchronized void clearPlanCache() {
+        planCache = null;
+        planCacheHits.reset();
+        planCacheMisses.reset();
+        planCacheInvalidations.reset();
+    }
+
+    /**
+     * @return cache of the current views version or null if the calculated plan must not be cached, because
+     * views have been changed concurrently
+     */
+    @Nullable
+    private PlanCache getPlanCache() {
+        long viewsVersion = viewRepository instanceof AbstractViewRepository ?
+                ((AbstractViewRepository) viewRepository).getVersion() : 0;
+
+        PlanCache cache = planCache;
+        if (cache == null || cache.viewsVersion < viewsVersion) {
+            synchronized (this) {
+                cache = planCache;
+                if (cache == null || cache.viewsVersion < viewsVersion) {
+                    if (cache != null) {
+                        planCacheInvalidations.increment();
+                        log.debug("Views have been changed, invalidating fetch group plans");
+                    }
+                    cache = new PlanCache(viewsVersion, serverConfig.getFetchGroupPlanCacheSize());
+                    planCache = cache;
+                }
+            }
+        }
+        return cache.viewsVersion == viewsVersion ? cache : null;
+    }
+
+    private String getViewSignature(View view) {
+        StringBuilder sb = new StringBuilder();
+        appendViewSignature(view, sb);
+        return sb.toString();
+    }
+
+    private void appendViewSignature(View view, StringBuilder sb) {
+        sb.append(view.getEntityClass().getName()).append('[');
+        for (ViewProperty property : view.getProperties()) {
+            sb.append(property.getName());
+            if (property.getFetchMode() != FetchMode.AUTO) {
+                sb.append('@').append(property.getFetchMode());
+            }
+            if (property.getView() != null) {
+                appendViewSignature(property.getView(), sb);
+            }
+            sb.append(',');
+        }
+        sb.append(']');
+    }
+
+    private FetchGroupDescription buildFetchGroup(String queryString,
+                                                  View view,
+                                                  boolean singleResultExpected,
+                                                  boolean useFetchGroup) {
         Set<FetchGroupField> fetchGroupFields = new LinkedHashSet<>();
         processView(view, null, fetchGroupFields, useFetchGroup);
 
@@ -455,6 +563,54 @@ public class FetchGroupManager {
         return metadataTools.isCacheable(metaClass) ? FetchMode.UNDEFINED : fetchMode;
     }
 
+    protected static class PlanCache {
+        private final long viewsVersion;
+        private final Cache<PlanKey, FetchGroupDescription> plans;
+
+        public PlanCache(long viewsVersion, int maxSize) {
+            this.viewsVersion = viewsVersion;
+            this.plans = CacheBuilder.newBuilder()
+                    .maximumSize(Math.max(maxSize, 0))
+                    .build();
+        }
+    }
+
+    protected static class PlanKey {
+        private final String queryString;
+        private final String viewSignature;
+        private final boolean singleResultExpected;
+        private final boolean useFetchGroup;
+
+        public PlanKey(String queryString, String viewSignature, boolean singleResultExpected, boolean useFetchGroup) {
+            this.queryString = queryString;
+            this.viewSignature = viewSignature;
+            this.singleResultExpected = singleResultExpected;
+            this.useFetchGroup = useFetchGroup;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            PlanKey that = (PlanKey) o;
+
+            return singleResultExpected == that.singleResultExpected
+                    && useFetchGroup == that.useFetchGroup
+                    && queryString.equals(that.queryString)
+                    && viewSignature.equals(that.viewSignature);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = queryString.hashCode();
+            result = 31 * result + viewSignature.hashCode();
+            result = 31 * result + (singleResultExpected ? 1 : 0);
+            result = 31 * result + (useFetchGroup ? 1 : 0);
+            return result;
+        }
+    }
+
     protected static class FetchGroupField {
         private final MetaClass metaClass;
         private FetchMode fetchMode;
@@ -17,6 +17,8 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Multimap;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
@@ -31,11 +33,16 @@ import com.haulmont.cuba.core.app.AttributeSecuritySupport;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.jpql.JpqlSyntaxException;
+import com.haulmont.cuba.security.app.group.GroovyConstraintPredicate;
 import com.haulmont.cuba.security.entity.ConstraintOperationType;
 import com.haulmont.cuba.security.entity.EntityOp;
 import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.security.group.AccessConstraint;
 import com.haulmont.cuba.security.group.ConstraintValidationResult;
 import com.haulmont.cuba.security.group.JpqlAccessConstraint;
+import groovy.lang.Binding;
+import groovy.lang.Closure;
+import groovy.lang.Script;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -76,6 +83,18 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
     @Inject
     protected EntityStates entityStates;
 
+    @Inject
+    protected ConstraintStatistics constraintStatistics;
+
+    protected static final int COMPILED_CONSTRAINTS_CACHE_SIZE = 1000;
+
+    /**
+     * Groovy constraints compiled to closures by script text. Empty if a script cannot be compiled to a closure.
+     */
+    protected final Cache<String, Optional<Closure>> compiledConstraints = CacheBuilder.newBuilder()
+            .maximumSize(COMPILED_CONSTRAINTS_CACHE_SIZE)
+            .build();
+
     @Override
     public boolean applyConstraints(Query query) {
         QueryParser parser = QueryTransformerFactory.createParser(query.getQueryString());
@@ -136,10 +155,11 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public boolean filterByConstraints(Collection<Entity> entities) {
+        ConstraintEvaluator evaluator = new ConstraintEvaluator();
         boolean filtered = false;
         for (Iterator<Entity> iterator = entities.iterator(); iterator.hasNext(); ) {
             Entity entity = iterator.next();
-            if (isNotPermittedInMemory(entity)) {
+            if (!evaluator.isPermitted(entity, EntityOp.READ)) {
                 //we ignore situations when the collection is immutable
                 iterator.remove();
                 filtered = true;
@@ -388,9 +408,7 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public boolean isPermitted(Entity entity, EntityOp operation) {
-        return getConstraints(entity.getMetaClass())
-                .filter(c -> c.isInMemory() && c.getOperation() == operation)
-                .allMatch(c -> ((Predicate<Entity>) c.getPredicate()).test(entity));
+        return new ConstraintEvaluator().isPermitted(entity, operation);
     }
 
     @Override
@@ -405,23 +423,21 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
 
     @Override
     public boolean isPermitted(Entity entity, String customCode) {
-        //noinspection unchecked
-        return getConstraints(entity.getMetaClass())
-                .filter(c -> c.isInMemory() && Objects.equals(c.getCode(), customCode))
-                .allMatch(c -> ((Predicate<Entity>) c.getPredicate()).test(entity));
+        return new ConstraintEvaluator().isPermitted(entity, customCode);
     }
 
     protected boolean isNotPermittedInMemory(Entity entity) {
-        //noinspection unchecked
-        return !getConstraints(entity.getMetaClass())
-                .filter(c -> c.isInMemory() && c.getOperation() == EntityOp.READ)
-                .allMatch(c -> ((Predicate<Entity>) c.getPredicate()).test(entity));
+        return !new ConstraintEvaluator().isPermitted(entity, EntityOp.READ);
     }
 
     @Override
     public Object evaluateConstraintScript(Entity entity, String groovyScript) {
         String metaClassName = entity.getMetaClass().getName();
         if (StringUtils.isNotBlank(groovyScript)) {
+            Closure compiled = getCompiledConstraint(groovyScript);
+            if (compiled != null) {
+                return evaluateConstraintClosure(entity, bindConstraint(compiled, createConstraintBinding()));
+            }
             try {
                 Object result = runGroovyScript(entity, groovyScript);
                 if (Boolean.FALSE.equals(result)) {
@@ -462,6 +478,66 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
         return scripting.evaluateGroovy(groovyScript.replace("{E}", "__entity__"), context);
     }
 
+    /**
+     * Returns the constraint script compiled to a closure taking the entity as a parameter. The closure is not bound
+     * to any context, see {@link #bindConstraint(Closure, Binding)}.
+     *
+     * @return null if the script cannot be represented by a closure, e.g. it contains import statements
+     */
+    protected Closure getCompiledConstraint(String groovyScript) {
+        Optional<Closure> compiled = compiledConstraints.getIfPresent(groovyScript);
+        if (compiled == null) {
+            String text = "return { __entity__ ->\n" + groovyScript.replace("{E}", "__entity__") + "\n}";
+            try {
+                Closure closure = scripting.evaluateGroovy(text, new Binding());
+                compiled = Optional.of(closure.dehydrate());
+            } catch (Exception e) {
+                log.debug("Constraint script cannot be compiled to a closure, it will be evaluated for each entity: {}",
+                        groovyScript, e);
+                compiled = Optional.empty();
+            }
+            compiledConstraints.put(groovyScript, compiled);
+        }
+        return compiled.orElse(null);
+    }
+
+    @Override
+    public void clearCompiledConstraints() {
+        compiledConstraints.invalidateAll();
+    }
+
+    /**
+     * Binds a compiled constraint to the variables that are available in constraint scripts.
+     */
+    protected Closure bindConstraint(Closure compiled, Binding binding) {
+        Script context = new ConstraintScriptContext(binding);
+        return compiled.rehydrate(context, context, context);
+    }
+
+    protected Binding createConstraintBinding() {
+        Map<String, Object> context = new HashMap<>();
+        context.put("parse", new MethodClosure(this, "parseValue"));
+        context.put("userSession", userSessionSource.getUserSession());
+        fillGroovyConstraintsContext(context);
+        return new Binding(context);
+    }
+
+    protected boolean evaluateConstraintClosure(Entity entity, Closure closure) {
+        try {
+            Object result = closure.call(entity);
+            if (Boolean.FALSE.equals(result)) {
+                log.trace("Entity does not match security constraint. Entity class [{}]. Entity [{}].",
+                        entity.getMetaClass().getName(), entity.getId());
+                return false;
+            }
+        } catch (Exception e) {
+            log.error("An error occurred while applying constraint's Groovy script. The entity has been filtered out." +
+                    "Entity class [{}]. Entity [{}].", entity.getMetaClass().getName(), entity.getId(), e);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Override if you need specific context variables in Groovy constraints.
      *
@@ -503,6 +579,91 @@ public class PersistenceSecurityImpl extends SecurityImpl implements Persistence
         }
     }
 
+    /**
+     * Evaluates in-memory constraints of the current user. Predicates are selected once for each entity type, and
+     * compiled Groovy constraints are bound to the user session once, so an instance should be used to check
+     * many entities within a single request.
+     */
+    protected class ConstraintEvaluator {
+
+        protected final Map<String, List<Predicate<Entity>>> predicates = new HashMap<>();
+
+        protected Binding binding;
+
+        public boolean isPermitted(Entity entity, EntityOp operation) {
+            MetaClass metaClass = entity.getMetaClass();
+            List<Predicate<Entity>> list = predicates.computeIfAbsent(metaClass.getName() + "/" + operation,
+                    key -> getPredicates(metaClass, c -> c.getOperation() == operation));
+            return test(entity, list);
+        }
+
+        public boolean isPermitted(Entity entity, String customCode) {
+            MetaClass metaClass = entity.getMetaClass();
+            List<Predicate<Entity>> list = predicates.computeIfAbsent(metaClass.getName() + "#" + customCode,
+                    key -> getPredicates(metaClass, c -> Objects.equals(c.getCode(), customCode)));
+            return test(entity, list);
+        }
+
+        protected boolean test(Entity entity, List<Predicate<Entity>> list) {
+            if (list.isEmpty()) {
+                return true;
+            }
+            long start = System.nanoTime();
+            try {
+                for (Predicate<Entity> predicate : list) {
+                    if (!predicate.test(entity)) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                constraintStatistics.record(entity.getMetaClass().getName(), System.nanoTime() - start);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        protected List<Predicate<Entity>> getPredicates(MetaClass metaClass, Predicate<AccessConstraint> filter) {
+            return getConstraints(metaClass)
+                    .filter(c -> c.isInMemory() && filter.test(c))
+                    .map(c -> bind((Predicate<Entity>) c.getPredicate()))
+                    .collect(Collectors.toList());
+        }
+
+        protected Predicate<Entity> bind(Predicate<Entity> predicate) {
+            if (predicate instanceof GroovyConstraintPredicate) {
+                String groovyScript = ((GroovyConstraintPredicate) predicate).getGroovyScript();
+                if (StringUtils.isBlank(groovyScript)) {
+                    return entity -> true;
+                }
+                Closure compiled = getCompiledConstraint(groovyScript);
+                if (compiled != null) {
+                    if (binding == null) {
+                        binding = createConstraintBinding();
+                    }
+                    Closure closure = bindConstraint(compiled, binding);
+                    return entity -> evaluateConstraintClosure(entity, closure);
+                }
+            }
+            return predicate;
+        }
+    }
+
+    /**
+     * Resolves variables and functions of compiled constraints in a binding, like a script that the constraint
+     * has been defined by.
+     */
+    protected static class ConstraintScriptContext extends Script {
+
+        public ConstraintScriptContext(Binding binding) {
+            super(binding);
+        }
+
+        @Override
+        public Object run() {
+            return null;
+        }
+    }
+
     protected static class EntityId {
         Object id;
         String metaClassName;
@@ -80,6 +80,13 @@ public interface QueryCache {
      */
     long getMaxSize();
 
+    /**
+     * Returns the number of entries evicted from this cache because of the size limit.
+     */
+    default long getEvictionCount() {
+        return 0;
+    }
+
     /**
      * Returns a view of the entries stored in this cache as a map. Modifications made to
      * the map doesn't affect the cache.
@@ -34,4 +34,12 @@ public interface QueryCacheConfig extends Config {
     @Property("cuba.queryCache.maxSize")
     @DefaultInt(100)
     int getQueryCacheMaxSize();
+
+    /**
+     * @return maximum number of identifiers passed to a single {@code IN} query when entity instances
+     * are loaded for cached query results
+     */
+    @Property("cuba.queryCache.materializationBatchSize")
+    @DefaultInt(100)
+    int getQueryCacheMaterializationBatchSize();
 }
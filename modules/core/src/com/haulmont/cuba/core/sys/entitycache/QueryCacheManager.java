@@ -17,25 +17,32 @@
 package com.haulmont.cuba.core.sys.entitycache;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetadataObject;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.CoalescingClusterMessage;
 import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import javax.persistence.Cache;
 import javax.persistence.MappedSuperclass;
 import javax.persistence.TypedQuery;
-import java.io.Serializable;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -55,6 +62,8 @@ public class QueryCacheManager {
     @Inject
     protected Metadata metadata;
 
+    protected QueryCacheStatistics statistics = new QueryCacheStatistics();
+
     protected static final Logger log = LoggerFactory.getLogger(QueryCacheManager.class);
 
     @PostConstruct
@@ -89,17 +98,16 @@ public class QueryCacheManager {
         List<T> resultList = null;
         QueryResult queryResult = queryCache.get(queryKey);
         if (queryResult != null) {
+            statistics.hit();
             MetaClass metaClass = metadata.getClassNN(queryResult.getType());
-            String storeName = metadata.getTools().getStoreName(metaClass);
-            EntityManager em = persistence.getEntityManager(storeName);
-            resultList = new ArrayList<>(queryResult.getResult().size());
             if (!metadata.getTools().isCacheable(metaClass)) {
                 log.warn("Using cacheable query without entity cache for {}", queryResult.getType());
             }
-            for (Object id : queryResult.getResult()) {
-                resultList.add(em.find(metaClass.getJavaClass(), id, views.toArray(new View[views.size()])));
-            }
+            long start = System.nanoTime();
+            resultList = materializeResultList(metaClass, queryResult.getResult(), views);
+            statistics.materialized(resultList.size(), System.nanoTime() - start);
         } else {
+            statistics.miss();
             log.debug("Query results are not found in cache: {}", queryKey.printDescription());
         }
         return resultList;
@@ -114,6 +122,7 @@ public class QueryCacheManager {
         log.debug("Looking for query in cache: {}", queryKey.printDescription());
         QueryResult queryResult = queryCache.get(queryKey);
         if (queryResult != null) {
+            statistics.hit();
             MetaClass metaClass = metadata.getClassNN(queryResult.getType());
             if (!metadata.getTools().isCacheable(metaClass)) {
                 log.warn("Using cacheable query without entity cache for {}", queryResult.getType());
@@ -127,8 +136,14 @@ public class QueryCacheManager {
             List ids = queryResult.getResult();
 
             if (!ids.isEmpty()) {
-                return (T) em.find(metaClass.getJavaClass(), ids.get(0), views.toArray(new View[0]));
+                long start = System.nanoTime();
+                statistics.materializationQueryExecuted();
+                T result = (T) em.find(metaClass.getJavaClass(), ids.get(0), views.toArray(new View[0]));
+                statistics.materialized(result != null ? 1 : 0, System.nanoTime() - start);
+                return result;
             }
+        } else {
+            statistics.miss();
         }
         log.debug("Query results are not found in cache: {}", queryKey.printDescription());
         return null;
@@ -257,6 +272,108 @@ public class QueryCacheManager {
         }
     }
 
+    /**
+     * @return statistics of query cache usage collected since the application start or the last
+     * {@link QueryCacheStatistics#reset()}
+     */
+    public QueryCacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Loads entities by identifiers stored in the query cache. Instances present in the entity cache are found
+     * by identifier, the rest are loaded by batches of {@link QueryCacheConfig#getQueryCacheMaterializationBatchSize()}
+     * identifiers using {@code IN} queries with the given views applied. The order of the cached identifiers
+     * is preserved; soft deleted and removed instances are skipped.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> List<T> materializeResultList(MetaClass metaClass, List ids, List<View> views) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        MetaClass effectiveMetaClass = metadata.getExtendedEntities().getEffectiveMetaClass(metaClass);
+        String storeName = metadata.getTools().getStoreName(effectiveMetaClass);
+        EntityManager em = persistence.getEntityManager(storeName);
+
+        MetaProperty pkProperty = metadata.getTools().getPrimaryKeyProperty(effectiveMetaClass);
+        if (pkProperty == null || pkProperty.getRange().isClass() || ids.size() == 1) {
+            return materializeResultListByIds(em, effectiveMetaClass, ids, views);
+        }
+
+        Cache entityCache = em.getDelegate().getEntityManagerFactory().getCache();
+        Class javaClass = effectiveMetaClass.getJavaClass();
+        View[] viewArray = views.toArray(new View[0]);
+
+        Map<Object, Entity> entitiesById = new HashMap<>(ids.size());
+        List<Object> realIds = new ArrayList<>(ids.size());
+        List<Object> idsToLoad = new ArrayList<>();
+        for (Object id : ids) {
+            Object realId = id instanceof IdProxy ? ((IdProxy) id).getNN() : id;
+            realIds.add(realId);
+            if (entityCache.contains(javaClass, realId)) {
+                Entity entity = em.find(javaClass, id, viewArray);
+                if (entity != null) {
+                    entitiesById.put(realId, entity);
+                }
+            } else {
+                idsToLoad.add(realId);
+            }
+        }
+
+        if (!idsToLoad.isEmpty()) {
+            int batchSize = queryCacheConfig.getQueryCacheMaterializationBatchSize();
+            Integer maxIdsBatchSize = DbmsSpecificFactory.getDbmsFeatures(storeName).getMaxIdsBatchSize();
+            if (maxIdsBatchSize != null && maxIdsBatchSize < batchSize) {
+                batchSize = maxIdsBatchSize;
+            }
+
+            String queryString = String.format("select e from %s e where e.%s in :ids",
+                    effectiveMetaClass.getName(), pkProperty.getName());
+
+            for (List<Object> partition : Lists.partition(idsToLoad, Math.max(batchSize, 1))) {
+                Query query = em.createQuery(queryString);
+                query.setParameter("ids", partition);
+                for (View view : views) {
+                    query.addView(view);
+                }
+                statistics.materializationQueryExecuted();
+                for (Object item : query.getResultList()) {
+                    Entity entity = (Entity) item;
+                    Object id = entity.getId();
+                    entitiesById.put(id instanceof IdProxy ? ((IdProxy) id).getNN() : id, entity);
+                }
+            }
+        }
+
+        List<T> resultList = new ArrayList<>(realIds.size());
+        for (Object id : realIds) {
+            Entity entity = entitiesById.get(id);
+            if (entity != null) {
+                resultList.add((T) entity);
+            }
+        }
+        return resultList;
+    }
+
+    /**
+     * Loads entities one by one. Used for single results and for entities with composite primary keys
+     * which cannot be loaded with an {@code IN} query.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> List<T> materializeResultListByIds(EntityManager em, MetaClass metaClass, List ids, List<View> views) {
+        List<T> resultList = new ArrayList<>(ids.size());
+        View[] viewArray = views.toArray(new View[0]);
+        for (Object id : ids) {
+            statistics.materializationQueryExecuted();
+            Object entity = em.find(metaClass.getJavaClass(), id, viewArray);
+            if (entity != null) {
+                resultList.add((T) entity);
+            }
+        }
+        return resultList;
+    }
+
     protected Set<String> getDescendants(Set<String> relatedTypes) {
         if (relatedTypes == null) return null;
         Set<String> newRelatedTypes = new HashSet<>();
@@ -273,7 +390,7 @@ public class QueryCacheManager {
         return newRelatedTypes;
     }
 
-    protected static class InvalidateQueryCacheMsg implements Serializable {
+    protected static class InvalidateQueryCacheMsg implements CoalescingClusterMessage {
         private static final long serialVersionUID = -9099037380378341477L;
 
         protected Set<String> typeNames;
@@ -291,5 +408,25 @@ public class QueryCacheManager {
         public InvalidateQueryCacheMsg(QueryKey queryKey) {
             this.queryKey = queryKey;
         }
+
+        @Override
+        public CoalescingClusterMessage coalesce(CoalescingClusterMessage next) {
+            InvalidateQueryCacheMsg nextMsg = (InvalidateQueryCacheMsg) next;
+            if (invalidateAll) {
+                return this;
+            }
+            if (nextMsg.invalidateAll) {
+                return nextMsg;
+            }
+            if (typeNames != null && nextMsg.typeNames != null) {
+                Set<String> mergedTypeNames = new HashSet<>(typeNames);
+                mergedTypeNames.addAll(nextMsg.typeNames);
+                return new InvalidateQueryCacheMsg(mergedTypeNames);
+            }
+            if (queryKey != null && queryKey.equals(nextMsg.queryKey)) {
+                return this;
+            }
+            return null;
+        }
     }
 }
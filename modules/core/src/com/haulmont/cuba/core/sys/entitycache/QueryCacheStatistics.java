@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the query cache usage: lookups and the cost of turning cached identifiers into entity instances.
+ */
+public class QueryCacheStatistics {
+
+    protected final AtomicLong hitCount = new AtomicLong();
+    protected final AtomicLong missCount = new AtomicLong();
+    protected final AtomicLong materializedCount = new AtomicLong();
+    protected final AtomicLong materializationQueryCount = new AtomicLong();
+    protected final AtomicLong materializationTime = new AtomicLong();
+
+    public void hit() {
+        hitCount.incrementAndGet();
+    }
+
+    public void miss() {
+        missCount.incrementAndGet();
+    }
+
+    public void materializationQueryExecuted() {
+        materializationQueryCount.incrementAndGet();
+    }
+
+    public void materialized(int instanceCount, long nanos) {
+        materializedCount.addAndGet(instanceCount);
+        materializationTime.addAndGet(nanos);
+    }
+
+    /**
+     * @return number of lookups that found query results in the cache
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of lookups that did not find query results in the cache
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return number of entity instances loaded for cached query results
+     */
+    public long getMaterializedCount() {
+        return materializedCount.get();
+    }
+
+    /**
+     * @return number of database queries executed to load entity instances for cached query results
+     */
+    public long getMaterializationQueryCount() {
+        return materializationQueryCount.get();
+    }
+
+    /**
+     * @return total time in milliseconds spent on loading entity instances for cached query results
+     */
+    public long getMaterializationTime() {
+        return TimeUnit.NANOSECONDS.toMillis(materializationTime.get());
+    }
+
+    public void reset() {
+        hitCount.set(0);
+        missCount.set(0);
+        materializedCount.set(0);
+        materializationQueryCount.set(0);
+        materializationTime.set(0);
+    }
+
+    @Override
+    public String toString() {
+        long hits = getHitCount();
+        long lookups = hits + getMissCount();
+        return "hits=" + hits +
+                ", misses=" + getMissCount() +
+                ", hitRatio=" + (lookups == 0 ? 0 : Math.round(hits * 100.0 / lookups)) + "%" +
+                ", materializedInstances=" + getMaterializedCount() +
+                ", materializationQueries=" + getMaterializationQueryCount() +
+                ", materializationTime=" + getMaterializationTime() + "ms";
+    }
+}
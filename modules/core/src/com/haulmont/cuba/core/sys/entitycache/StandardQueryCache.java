@@ -48,7 +48,10 @@ public class StandardQueryCache implements QueryCache {
 
     @PostConstruct
     protected void init() {
-        data = CacheBuilder.newBuilder().maximumSize(queryCacheConfig.getQueryCacheMaxSize()).build();
+        data = CacheBuilder.newBuilder()
+                .maximumSize(queryCacheConfig.getQueryCacheMaxSize())
+                .recordStats()
+                .build();
     }
 
     @Override
@@ -172,6 +175,11 @@ public class StandardQueryCache implements QueryCache {
         return queryCacheConfig.getQueryCacheMaxSize();
     }
 
+    @Override
+    public long getEvictionCount() {
+        return data.stats().evictionCount();
+    }
+
     @Override
     public Map<QueryKey, QueryResult> asMap() {
         return Maps.newHashMap(data.asMap());
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.RemotingContextHolder;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.remoting.support.RemoteInvocationResult;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Executes batched invocations through the {@link HttpServiceExporter}s of the target services, so each invocation
+ * is restricted to the exported service interface and runs in its own security context as a separate request.
+ */
+@Service(BatchInvocationService.NAME)
+public class BatchInvocationServiceBean implements BatchInvocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchInvocationServiceBean.class);
+
+    @Override
+    public List<RemoteInvocationResult> invoke(List<BatchedInvocation> invocations) {
+        ApplicationContext remotingContext = RemotingContextHolder.getRemotingApplicationContext();
+        if (remotingContext == null) {
+            throw new IllegalStateException("Remoting context is not initialized");
+        }
+
+        log.debug("Executing batch of {} invocations", invocations.size());
+
+        List<RemoteInvocationResult> results = new ArrayList<>(invocations.size());
+        SecurityContext securityContext = AppContext.getSecurityContext();
+        try {
+            for (BatchedInvocation invocation : invocations) {
+                results.add(invoke(remotingContext, invocation));
+            }
+        } finally {
+            // the invocation executor clears the security context after each invocation
+            AppContext.setSecurityContext(securityContext);
+        }
+        return results;
+    }
+
+    protected RemoteInvocationResult invoke(ApplicationContext remotingContext, BatchedInvocation invocation) {
+        String exporterName = "/" + invocation.getServiceName();
+        if (NAME.equals(invocation.getServiceName())
+                || !remotingContext.containsBean(exporterName)
+                || !remotingContext.isTypeMatch(exporterName, HttpServiceExporter.class)) {
+            return new RemoteInvocationResult(
+                    new IllegalArgumentException("Service " + invocation.getServiceName() + " is not exported"));
+        }
+        HttpServiceExporter exporter = remotingContext.getBean(exporterName, HttpServiceExporter.class);
+        return exporter.invokeBatched(invocation.getInvocation());
+    }
+}
@@ -18,6 +18,8 @@
 package com.haulmont.cuba.core.sys.remoting;
 
 import com.google.common.base.Joiner;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
 import com.haulmont.cuba.core.sys.serialization.SerializationException;
 import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
 import org.springframework.beans.factory.BeanNameAware;
@@ -29,16 +31,19 @@ import org.springframework.web.util.NestedServletException;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OptionalDataException;
+import java.io.*;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Exports a middleware service bean as an HTTP invoker service endpoint.
+ * <p>
+ * Invocations are read and results are written in the wire format negotiated with the client, see
+ * {@link RemotingWireFormat}.
  */
 public class HttpServiceExporter extends HttpInvokerServiceExporter implements BeanNameAware {
 
+    protected String beanName;
+
     public HttpServiceExporter() {
         super();
         setRegisterTraceInterceptor(false);
@@ -52,6 +57,8 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
 
     @Override
     public void setBeanName(String name) {
+        beanName = name.startsWith("/") ? name.substring(1) : name;
+
         Object service = getService();
         if (service == null)
             throw new IllegalStateException("Target service is null");
@@ -74,10 +81,23 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
             return;
         }
 
+        if (RemotingWireFormat.KRYO.equals(request.getHeader(RemotingWireFormat.FORMAT_HEADER))
+                && !RemotingWireFormat.isKryoEnabled()) {
+            logger.warn("Rejected Kryo request to " + beanName + " because 'cuba.remoting.kryoEnabled' is not set");
+            response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+            return;
+        }
+
+        // the client compresses requests only after a response from a server able to decompress them
+        response.setHeader(RemotingWireFormat.ACCEPT_ENCODING_HEADER, RemotingWireFormat.GZIP);
+
+        long startTime = System.nanoTime();
+        CountingInputStream requestInputStream = new CountingInputStream(request.getInputStream());
+
         RemoteInvocationResult result;
         RemoteInvocation invocation = null;
         try {
-            invocation = readRemoteInvocation(request);
+            invocation = readInvocation(request, requestInputStream);
             result = invokeAndCreateResult(invocation, getProxy());
         } catch (OptionalDataException | ClassCastException e) { // typical binary incompatibility exceptions
             logger.error("Failed to read remote invocation request", e);
@@ -85,8 +105,26 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
         } catch (ClassNotFoundException ex) {
             throw new NestedServletException("Class not found during deserialization", ex);
         }
+        String format;
+        long responseBytes;
         try {
-            writeRemoteInvocationResult(request, response, result);
+            if (RemotingWireFormat.isKryoEnabled()
+                    && RemotingWireFormat.contains(request.getHeader(RemotingWireFormat.ACCEPT_HEADER), RemotingWireFormat.KRYO)) {
+                byte[] kryoBytes = RemotingWireFormat.serializeWithKryo(result);
+                format = kryoBytes != null ? RemotingWireFormat.KRYO : RemotingWireFormat.JAVA;
+                responseBytes = writeResult(request, response, format,
+                        kryoBytes != null ? kryoBytes : serializeResult(request, response, result));
+            } else if (RemotingWireFormat.isCompressionEnabled()) {
+                format = RemotingWireFormat.JAVA;
+                responseBytes = writeResult(request, response, format, serializeResult(request, response, result));
+            } else {
+                // stream the result as before if neither Kryo nor compression are used
+                format = RemotingWireFormat.JAVA;
+                response.setContentType(getContentType());
+                CountingOutputStream responseOutputStream = new CountingOutputStream(response.getOutputStream());
+                writeRemoteInvocationResult(request, response, result, responseOutputStream);
+                responseBytes = responseOutputStream.getCount();
+            }
         } catch (SerializationException e) {
             String serviceName = null;
             if (getServiceInterface() != null) {
@@ -103,6 +141,54 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
             throw new NestedServletException(
                     String.format("Failed to write result for service [%s.%s(%s)]", serviceName, methodName, paramTypes), e);
         }
+
+        RemotingStatistics.getInstance().record(beanName, format,
+                requestInputStream.getCount(), responseBytes, System.nanoTime() - startTime);
+    }
+
+    /**
+     * Executes an invocation received in a batch, see {@link BatchInvocationServiceBean}.
+     */
+    public RemoteInvocationResult invokeBatched(RemoteInvocation invocation) {
+        return invokeAndCreateResult(invocation, getProxy());
+    }
+
+    protected RemoteInvocation readInvocation(HttpServletRequest request, InputStream inputStream)
+            throws IOException, ClassNotFoundException {
+        InputStream is = RemotingWireFormat.GZIP.equalsIgnoreCase(request.getHeader(RemotingWireFormat.CONTENT_ENCODING_HEADER))
+                ? new GZIPInputStream(inputStream) : inputStream;
+        if (RemotingWireFormat.KRYO.equals(request.getHeader(RemotingWireFormat.FORMAT_HEADER))) {
+            return (RemoteInvocation) RemotingWireFormat.deserializeWithKryo(is);
+        }
+        return readRemoteInvocation(request, is);
+    }
+
+    protected byte[] serializeResult(HttpServletRequest request, HttpServletResponse response,
+                                     RemoteInvocationResult result) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+        writeRemoteInvocationResult(request, response, result, baos);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Writes the serialized result compressing it if the client accepts gzip and the result is large enough.
+     *
+     * @return number of written bytes
+     */
+    protected long writeResult(HttpServletRequest request, HttpServletResponse response, String format,
+                               byte[] bytes) throws IOException {
+        if (RemotingWireFormat.isCompressionRequired(bytes.length)
+                && RemotingWireFormat.contains(request.getHeader(RemotingWireFormat.ACCEPT_ENCODING_HEADER), RemotingWireFormat.GZIP)) {
+            bytes = RemotingWireFormat.compress(bytes);
+            response.setHeader(RemotingWireFormat.CONTENT_ENCODING_HEADER, RemotingWireFormat.GZIP);
+        }
+        response.setContentType(getContentType());
+        response.setHeader(RemotingWireFormat.FORMAT_HEADER, format);
+        response.setContentLength(bytes.length);
+        try (OutputStream os = response.getOutputStream()) {
+            os.write(bytes);
+        }
+        return bytes.length;
     }
 
     @Override
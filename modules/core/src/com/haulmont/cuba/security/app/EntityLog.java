@@ -16,6 +16,8 @@
  */
 package com.haulmont.cuba.security.app;
 
+import com.google.common.collect.Lists;
+import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.impl.EnumClass;
@@ -30,6 +32,8 @@ import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.AuditInfoProvider;
 import com.haulmont.cuba.core.sys.EntityManagerContext;
+import com.haulmont.cuba.core.sys.events.AppContextStoppedEvent;
+import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
 import com.haulmont.cuba.security.entity.*;
 import org.apache.commons.lang3.BooleanUtils;
 import org.eclipse.persistence.descriptors.changetracking.ChangeTracker;
@@ -37,6 +41,7 @@ import org.eclipse.persistence.internal.descriptors.changetracking.AttributeChan
 import org.eclipse.persistence.internal.sessions.ObjectChangeSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.support.TransactionSynchronizationAdapter;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
@@ -46,8 +51,16 @@ import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
 import java.beans.PropertyChangeListener;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -90,6 +103,19 @@ public class EntityLog implements EntityLogAPI {
     protected ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
     protected ThreadLocal<Boolean> entityLogSwitchedOn = new ThreadLocal<>();
 
+    protected volatile BlockingQueue<EntityLogItem> asyncQueue;
+    protected volatile Thread asyncWriter;
+
+    protected static final int INSERT_BATCH_SIZE = 100;
+
+    protected static final String INSERT_SQL = "insert into SEC_ENTITY_LOG (ID, CREATE_TS, CREATED_BY, EVENT_TS, " +
+            "USER_ID, CHANGE_TYPE, ENTITY, ENTITY_INSTANCE_NAME, ENTITY_ID, STRING_ENTITY_ID, INT_ENTITY_ID, " +
+            "LONG_ENTITY_ID, CHANGES) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    protected static final int INSERT_CHANGES_INDEX = 12;
+
+    protected final AtomicLong droppedItems = new AtomicLong();
+
     @Inject
     public EntityLog(Configuration configuration) {
         config = configuration.getConfig(EntityLogConfig.class);
@@ -112,59 +138,75 @@ public class EntityLog implements EntityLogAPI {
         if (items == null || items.isEmpty())
             return;
 
-        Set<EntityLogItem> saved = new LinkedHashSet<>();
+        Map<Object, List<EntityLogItem>> itemsByEntity = new LinkedHashMap<>();
         for (EntityLogItem item : items) {
-            List<EntityLogItem> sameEntityList = items.stream()
-                    .filter(entityLogItem -> entityLogItem.getDbGeneratedIdEntity() != null ?
-                            entityLogItem.getDbGeneratedIdEntity().equals(item.getDbGeneratedIdEntity()) :
-                            entityLogItem.getObjectEntityId().equals(item.getObjectEntityId()))
-                    .collect(Collectors.toList());
+            Object key = item.getDbGeneratedIdEntity() != null ? item.getDbGeneratedIdEntity() : item.getObjectEntityId();
+            itemsByEntity.computeIfAbsent(key, k -> new ArrayList<>()).add(item);
+        }
+
+        List<EntityLogItem> itemsToSave = new ArrayList<>(itemsByEntity.size());
+        for (List<EntityLogItem> sameEntityList : itemsByEntity.values()) {
             EntityLogItem itemToSave = sameEntityList.get(0);
-            if (!saved.contains(itemToSave)) {
-                computeChanges(itemToSave, sameEntityList);
-                saved.add(itemToSave);
-                saveItem(itemToSave);
-            }
+            computeChanges(itemToSave, sameEntityList);
+            itemsToSave.add(itemToSave);
         }
+        saveItems(itemsToSave);
     }
 
     protected void computeChanges(EntityLogItem itemToSave, List<EntityLogItem> sameEntityList) {
-        Set<String> notDynamicAttributes = sameEntityList.stream()
-                .flatMap(entityLogItem -> entityLogItem.getAttributes().stream().map(EntityLogAttr::getName))
-                .filter(attr -> !DynamicAttributesUtils.isDynamicAttribute(attr))
-                .collect(Collectors.toSet());
-
-        List<EntityLogItem> dynamicAttributeChanges = sameEntityList.stream()
-                .filter(item -> item.getAttributes().stream()
-                        .allMatch(attr -> DynamicAttributesUtils.isDynamicAttribute(attr.getName())))
-                .collect(Collectors.toList());
+        Map<String, EntityLogAttr> attributesToSave = new HashMap<>();
+        for (EntityLogAttr attr : itemToSave.getAttributes()) {
+            attributesToSave.put(attr.getName(), attr);
+        }
 
-        sameEntityList.removeAll(dynamicAttributeChanges);
+        List<EntityLogItem> attributeChanges = new ArrayList<>(sameEntityList.size());
+        List<EntityLogItem> dynamicAttributeChanges = new ArrayList<>();
+        Set<String> notDynamicAttributes = new HashSet<>();
+        boolean created = false;
+        for (EntityLogItem item : sameEntityList) {
+            boolean allDynamic = true;
+            for (EntityLogAttr attr : item.getAttributes()) {
+                if (DynamicAttributesUtils.isDynamicAttribute(attr.getName())) {
+                    continue;
+                }
+                allDynamic = false;
+                notDynamicAttributes.add(attr.getName());
+            }
+            if (allDynamic) {
+                dynamicAttributeChanges.add(item);
+            } else {
+                attributeChanges.add(item);
+            }
+            if (item.getType() == EntityLogItem.Type.CREATE) {
+                created = true;
+            }
+        }
 
-        for (String attributeName : notDynamicAttributes) {
-            // old value from the first item
-            sameEntityList.get(0).getAttributes().stream()
-                    .filter(entityLogAttr -> entityLogAttr.getName().equals(attributeName))
-                    .findFirst()
-                    .ifPresent(entityLogAttr -> setAttributeOldValue(entityLogAttr, itemToSave));
-            // new value from the last item
-            sameEntityList.get(sameEntityList.size() - 1).getAttributes().stream()
-                    .filter(entityLogAttr -> entityLogAttr.getName().equals(attributeName))
-                    .findFirst()
-                    .ifPresent(entityLogAttr -> setAttributeNewValue(entityLogAttr, itemToSave));
+        if (!notDynamicAttributes.isEmpty()) {
+            // old values from the first item, new values from the last item
+            Map<String, EntityLogAttr> firstAttributes = attributesByName(attributeChanges.get(0));
+            Map<String, EntityLogAttr> lastAttributes = attributesByName(attributeChanges.get(attributeChanges.size() - 1));
+            for (String attributeName : notDynamicAttributes) {
+                EntityLogAttr oldAttr = firstAttributes.get(attributeName);
+                if (oldAttr != null) {
+                    setAttributeOldValue(oldAttr, itemToSave, attributesToSave);
+                }
+                EntityLogAttr newAttr = lastAttributes.get(attributeName);
+                if (newAttr != null) {
+                    setAttributeNewValue(newAttr, itemToSave, attributesToSave);
+                }
+            }
         }
 
         for (EntityLogItem dynamicAttributeLogItem : dynamicAttributeChanges) {
-            dynamicAttributeLogItem.getAttributes().stream()
-                    .findFirst()
-                    .ifPresent(attr -> {
-                        setAttributeOldValue(attr, itemToSave);
-                        setAttributeNewValue(attr, itemToSave);
-                    });
+            Iterator<EntityLogAttr> iterator = dynamicAttributeLogItem.getAttributes().iterator();
+            if (iterator.hasNext()) {
+                EntityLogAttr attr = iterator.next();
+                setAttributeOldValue(attr, itemToSave, attributesToSave);
+                setAttributeNewValue(attr, itemToSave, attributesToSave);
+            }
         }
 
-        sameEntityList.addAll(dynamicAttributeChanges);
-
         Properties properties = new Properties();
 
         for (EntityLogAttr attr : itemToSave.getAttributes()) {
@@ -183,63 +225,97 @@ public class EntityLog implements EntityLogAPI {
             }
         }
 
-        if (itemToSave.getType() == EntityLogItem.Type.MODIFY) {
-            sameEntityList.stream()
-                    .filter(entityLogItem -> entityLogItem.getType() == EntityLogItem.Type.CREATE)
-                    .findFirst()
-                    .ifPresent(entityLogItem -> itemToSave.setType(EntityLogItem.Type.CREATE));
+        if (itemToSave.getType() == EntityLogItem.Type.MODIFY && created) {
+            itemToSave.setType(EntityLogItem.Type.CREATE);
         }
         itemToSave.setChanges(getChanges(properties));
     }
 
-    protected void setAttributeOldValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave);
+    protected Map<String, EntityLogAttr> attributesByName(EntityLogItem item) {
+        Map<String, EntityLogAttr> attributes = new HashMap<>();
+        for (EntityLogAttr attr : item.getAttributes()) {
+            attributes.putIfAbsent(attr.getName(), attr);
+        }
+        return attributes;
+    }
+
+    protected void setAttributeOldValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave,
+                                        Map<String, EntityLogAttr> attributesToSave) {
+        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave, attributesToSave);
         attr.setOldValue(entityLogAttr.getOldValue());
         attr.setOldValueId(entityLogAttr.getOldValueId());
     }
 
-    protected void setAttributeNewValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave);
+    protected void setAttributeNewValue(EntityLogAttr entityLogAttr, EntityLogItem itemToSave,
+                                        Map<String, EntityLogAttr> attributesToSave) {
+        EntityLogAttr attr = getAttrToSave(entityLogAttr, itemToSave, attributesToSave);
         attr.setValue(entityLogAttr.getValue());
         attr.setValueId(entityLogAttr.getValueId());
     }
 
-    protected EntityLogAttr getAttrToSave(EntityLogAttr entityLogAttr, EntityLogItem itemToSave) {
-        EntityLogAttr attr = itemToSave.getAttributes().stream()
-                .filter(a -> a.getName().equals(entityLogAttr.getName()))
-                .findFirst()
-                .orElse(null);
+    protected EntityLogAttr getAttrToSave(EntityLogAttr entityLogAttr, EntityLogItem itemToSave,
+                                          Map<String, EntityLogAttr> attributesToSave) {
+        EntityLogAttr attr = attributesToSave.get(entityLogAttr.getName());
         if (attr == null) {
             attr = metadata.create(EntityLogAttr.class);
             attr.setName(entityLogAttr.getName());
             itemToSave.getAttributes().add(attr);
+            attributesToSave.put(attr.getName(), attr);
         }
         return attr;
     }
 
-    protected void saveItem(EntityLogItem item) {
-        String storeName = metadataTools.getStoreName(metadata.getClassNN(item.getEntity()));
-        if (item.getDbGeneratedIdEntity() == null) {
-            if (Stores.isMain(storeName)) {
-                EntityManager em = persistence.getEntityManager();
-                em.persist(item);
+    protected void saveItems(List<EntityLogItem> items) {
+        List<EntityLogItem> mainStoreItems = new ArrayList<>();
+        List<EntityLogItem> additionalStoreItems = new ArrayList<>();
+        List<EntityLogItem> dbGeneratedIdItems = new ArrayList<>();
+        for (EntityLogItem item : items) {
+            if (item.getDbGeneratedIdEntity() != null) {
+                dbGeneratedIdItems.add(item);
+            } else if (Stores.isMain(metadataTools.getStoreName(metadata.getClassNN(item.getEntity())))) {
+                mainStoreItems.add(item);
             } else {
-                // Create a new transaction in main DB if we are saving an entity from additional data store
-                try (Transaction tx = persistence.createTransaction()) {
-                    EntityManager em = persistence.getEntityManager();
-                    em.persist(item);
-                    tx.commit();
+                additionalStoreItems.add(item);
+            }
+        }
+
+        if (config.getAsyncWritingEnabled()) {
+            List<EntityLogItem> committedItems = new ArrayList<>(mainStoreItems);
+            committedItems.addAll(additionalStoreItems);
+            prepareAsyncItems(committedItems);
+            prepareAsyncItems(dbGeneratedIdItems);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    for (EntityLogItem item : dbGeneratedIdItems) {
+                        item.setObjectEntityId(item.getDbGeneratedIdEntity().getId().getNN());
+                    }
+                    committedItems.addAll(dbGeneratedIdItems);
+                    enqueueAsyncItems(committedItems);
                 }
+            });
+            return;
+        }
+
+        if (!mainStoreItems.isEmpty()) {
+            insertItems(mainStoreItems);
+        }
+        if (!additionalStoreItems.isEmpty()) {
+            // Create a new transaction in main DB if we are saving an entity from additional data store
+            try (Transaction tx = persistence.createTransaction()) {
+                insertItems(additionalStoreItems);
+                tx.commit();
             }
-        } else {
+        }
+        if (!dbGeneratedIdItems.isEmpty()) {
             TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
                 @Override
                 public void afterCommit() {
-                    Number id = item.getDbGeneratedIdEntity().getId().getNN();
-                    item.setObjectEntityId(id);
+                    for (EntityLogItem item : dbGeneratedIdItems) {
+                        item.setObjectEntityId(item.getDbGeneratedIdEntity().getId().getNN());
+                    }
                     try (Transaction tx = persistence.createTransaction()) {
-                        EntityManager em = persistence.getEntityManager();
-                        em.persist(item);
+                        insertItems(dbGeneratedIdItems);
                         tx.commit();
                     }
                 }
@@ -247,6 +323,223 @@ public class EntityLog implements EntityLogAPI {
         }
     }
 
+    protected void saveItem(EntityLogItem item) {
+        saveItems(Collections.singletonList(item));
+    }
+
+    /**
+     * Inserts the given items in the current transaction of the main data store using JDBC batches.
+     * If {@link EntityLogItem} is extended in the project, the items are persisted through the entity manager.
+     */
+    protected void insertItems(List<EntityLogItem> items) {
+        EntityManager em = persistence.getEntityManager();
+        if (metadata.getExtendedEntities().getExtendedClass(metadata.getClassNN(EntityLogItem.class)) != null) {
+            for (EntityLogItem item : items) {
+                em.persist(item);
+            }
+            return;
+        }
+
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        Date ts = timeSource.currentTimestamp();
+        String login = auditInfoProvider.getCurrentUserLogin();
+
+        int uuidType = converter.getSqlType(UUID.class);
+        int dateType = converter.getSqlType(Date.class);
+        int[] paramTypes = new int[]{
+                uuidType, dateType, Types.VARCHAR, dateType, uuidType, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+                uuidType, Types.VARCHAR, Types.INTEGER, Types.BIGINT, Types.VARCHAR
+        };
+
+        QueryRunner runner = new QueryRunner() {
+            @Override
+            protected void fillStatement(PreparedStatement stmt, Object[] params, int[] paramTypes) throws SQLException {
+                for (int i = 0; i < params.length; i++) {
+                    if (i == INSERT_CHANGES_INDEX) {
+                        setChangesParameter(stmt, i + 1, (String) params[i]);
+                    } else if (params[i] != null) {
+                        stmt.setObject(i + 1, params[i], paramTypes[i]);
+                    } else {
+                        stmt.setNull(i + 1, paramTypes[i]);
+                    }
+                }
+            }
+        };
+        try {
+            for (List<EntityLogItem> batch : Lists.partition(items, INSERT_BATCH_SIZE)) {
+                Object[][] params = new Object[batch.size()][];
+                for (int i = 0; i < batch.size(); i++) {
+                    EntityLogItem item = batch.get(i);
+                    if (item.getCreateTs() == null) {
+                        item.setCreateTs(ts);
+                    }
+                    if (item.getCreatedBy() == null) {
+                        item.setCreatedBy(login);
+                    }
+                    ReferenceToEntity entityRef = item.getEntityRef();
+                    params[i] = new Object[]{
+                            converter.getSqlObject(item.getId()),
+                            converter.getSqlObject(item.getCreateTs()),
+                            item.getCreatedBy(),
+                            converter.getSqlObject(item.getEventTs()),
+                            item.getUser() != null ? converter.getSqlObject(item.getUser().getId()) : null,
+                            item.getType() != null ? item.getType().getId() : null,
+                            item.getEntity(),
+                            item.getEntityInstanceName(),
+                            converter.getSqlObject(entityRef.getEntityId()),
+                            entityRef.getStringEntityId(),
+                            entityRef.getIntEntityId(),
+                            entityRef.getLongEntityId(),
+                            item.getChanges()
+                    };
+                }
+                runner.batch(em.getConnection(), INSERT_SQL, params, paramTypes);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error saving entity log items", e);
+        }
+    }
+
+    /**
+     * Binds the value of the CHANGES column. The column has a CLOB or unbounded text type in all supported databases,
+     * so the value is passed as a character stream instead of a VARCHAR which may be truncated or rejected.
+     */
+    protected void setChangesParameter(PreparedStatement stmt, int index, @Nullable String changes) throws SQLException {
+        if (changes == null) {
+            stmt.setNull(index, Types.VARCHAR);
+        } else {
+            stmt.setCharacterStream(index, new StringReader(changes), changes.length());
+        }
+    }
+
+    protected void prepareAsyncItems(List<EntityLogItem> items) {
+        Date ts = timeSource.currentTimestamp();
+        String login = auditInfoProvider.getCurrentUserLogin();
+        for (EntityLogItem item : items) {
+            item.setCreateTs(ts);
+            item.setCreatedBy(login);
+        }
+    }
+
+    /**
+     * Passes the items of a committed transaction to the background writer. If the queue is full,
+     * the items are saved synchronously in a new transaction.
+     */
+    protected void enqueueAsyncItems(List<EntityLogItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        BlockingQueue<EntityLogItem> queue = getAsyncQueue();
+        List<EntityLogItem> rejected = new ArrayList<>();
+        for (EntityLogItem item : items) {
+            if (!queue.offer(item)) {
+                rejected.add(item);
+            }
+        }
+        if (!rejected.isEmpty()) {
+            log.debug("Entity log queue is full, saving {} items synchronously", rejected.size());
+            writeItems(rejected);
+        }
+    }
+
+    protected BlockingQueue<EntityLogItem> getAsyncQueue() {
+        BlockingQueue<EntityLogItem> queue = asyncQueue;
+        if (queue == null) {
+            synchronized (this) {
+                queue = asyncQueue;
+                if (queue == null) {
+                    queue = new LinkedBlockingQueue<>(config.getAsyncQueueCapacity());
+                    asyncWriter = new Thread(this::runAsyncWriter, "EntityLogWriter");
+                    asyncWriter.setDaemon(true);
+                    asyncQueue = queue;
+                    asyncWriter.start();
+                }
+            }
+        }
+        return queue;
+    }
+
+    protected void runAsyncWriter() {
+        BlockingQueue<EntityLogItem> queue = asyncQueue;
+        List<EntityLogItem> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        while (true) {
+            try {
+                EntityLogItem item = queue.take();
+                batch.add(item);
+                queue.drainTo(batch, INSERT_BATCH_SIZE * 10 - 1);
+                writeItems(batch);
+            } catch (InterruptedException e) {
+                queue.drainTo(batch);
+                writeItems(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Saves the items in a new transaction. If the batch fails, the items are saved one by one, so a single
+     * broken record does not cause losing the whole batch. Records that cannot be saved are logged with ERROR level
+     * and counted, see {@link #getDroppedItemsCount()}.
+     */
+    protected void writeItems(List<EntityLogItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        try (Transaction tx = persistence.createTransaction()) {
+            insertItems(items);
+            tx.commit();
+            return;
+        } catch (Exception e) {
+            if (items.size() == 1) {
+                dropItem(items.get(0), e);
+                return;
+            }
+            log.warn("Unable to save {} entity log items in a batch, saving them one by one", items.size(), e);
+        }
+        for (EntityLogItem item : items) {
+            try (Transaction tx = persistence.createTransaction()) {
+                insertItems(Collections.singletonList(item));
+                tx.commit();
+            } catch (Exception e) {
+                dropItem(item, e);
+            }
+        }
+    }
+
+    protected void dropItem(EntityLogItem item, Exception e) {
+        droppedItems.incrementAndGet();
+        log.error("Unable to save entity log item: id={}, type={}, entity={}, entityId={}, eventTs={}, userId={}, changes={}",
+                item.getId(), item.getType(), item.getEntity(), item.getObjectEntityId(), item.getEventTs(),
+                item.getUser() != null ? item.getUser().getId() : null, item.getChanges(), e);
+    }
+
+    @EventListener(AppContextStoppedEvent.class)
+    protected void applicationStopped() {
+        Thread writer = asyncWriter;
+        if (writer != null) {
+            writer.interrupt();
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public int getAsyncQueueSize() {
+        BlockingQueue<EntityLogItem> queue = asyncQueue;
+        return queue == null ? 0 : queue.size();
+    }
+
+    @Override
+    public long getDroppedItemsCount() {
+        return droppedItems.get();
+    }
+
     @Override
     public synchronized boolean isEnabled() {
         return config.getEnabled() && isLoggingForCurrentThread();
@@ -100,4 +100,19 @@ public interface EntityLogAPI {
      * to the database.
      */
     void flush(String storeName);
+
+    /**
+     * @return number of records waiting to be saved by the background writer
+     * @see EntityLogConfig#getAsyncWritingEnabled()
+     */
+    default int getAsyncQueueSize() {
+        return 0;
+    }
+
+    /**
+     * @return number of records that could not be saved and were dropped since the application start
+     */
+    default long getDroppedItemsCount() {
+        return 0;
+    }
 }
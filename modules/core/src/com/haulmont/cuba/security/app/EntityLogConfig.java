@@ -21,6 +21,7 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
 
 /**
  * {@link com.haulmont.cuba.security.app.EntityLog} configuration parameters
@@ -35,4 +36,22 @@ public interface EntityLogConfig extends Config {
     @DefaultBoolean(true)
     boolean getEnabled();
     void setEnabled(boolean value);
+
+    /**
+     * @return Whether the log items are saved by a background writer after the business transaction is committed.
+     * If false, the items are saved in the business transaction.
+     */
+    @Property("cuba.entityLog.asyncWritingEnabled")
+    @Source(type = SourceType.APP)
+    @DefaultBoolean(false)
+    boolean getAsyncWritingEnabled();
+
+    /**
+     * @return Maximum number of log items waiting for the background writer. When the queue is full,
+     * the items are saved synchronously.
+     */
+    @Property("cuba.entityLog.asyncQueueCapacity")
+    @Source(type = SourceType.APP)
+    @DefaultInt(10000)
+    int getAsyncQueueCapacity();
 }
\ No newline at end of file
@@ -15,6 +15,7 @@
  */
 package com.haulmont.cuba.security.app;
 
+import com.google.common.collect.Lists;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.app.ClusterListener;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
@@ -37,8 +38,11 @@ import javax.inject.Inject;
 import java.io.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * User sessions distributed cache.
@@ -61,6 +65,13 @@ public class UserSessions implements UserSessionsAPI {
             this.lastSentTs = now;
         }
 
+        public UserSessionInfo(UserSession session, long since, long lastUsedTs) {
+            this.session = session;
+            this.since = since;
+            this.lastUsedTs = lastUsedTs;
+            this.lastSentTs = lastUsedTs;
+        }
+
         public UserSession getSession() {
             return session;
         }
@@ -84,8 +95,30 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    /**
+     * Last used timestamps of several sessions sent to the cluster by one message.
+     */
+    public static class UserSessionTouches implements Serializable {
+        private static final long serialVersionUID = 2591207524632317437L;
+
+        public final UUID[] sessionIds;
+        public final long[] lastUsedTs;
+
+        public UserSessionTouches(UUID[] sessionIds, long[] lastUsedTs) {
+            this.sessionIds = sessionIds;
+            this.lastUsedTs = lastUsedTs;
+        }
+
+        @Override
+        public String toString() {
+            return "UserSessionTouches{sessions=" + sessionIds.length + "}";
+        }
+    }
+
     private static final Logger log = LoggerFactory.getLogger(UserSessions.class);
 
+    protected static final int STATE_FORMAT_MAGIC = 0x55534331;
+
     protected Map<UUID, UserSessionInfo> cache = new ConcurrentHashMap<>();
 
     protected volatile int expirationTimeout = 1800;
@@ -98,6 +131,19 @@ public class UserSessions implements UserSessionsAPI {
 
     protected UserSession NO_USER_SESSION;
 
+    protected Map<UUID, Long> pendingTouches = new ConcurrentHashMap<>();
+
+    protected volatile long lastSentStateSessions;
+    protected volatile long lastSentStateBytes;
+    protected volatile long lastSentStateTime;
+    protected volatile long lastReceivedStateSessions;
+    protected volatile long lastReceivedStateBytes;
+    protected volatile long lastReceivedStateTime;
+
+    protected LongAdder sentTouches = new LongAdder();
+    protected LongAdder sentTouchMessages = new LongAdder();
+    protected LongAdder receivedTouches = new LongAdder();
+
     protected ServerConfig serverConfig;
 
     @Inject
@@ -153,6 +199,25 @@ public class UserSessions implements UserSessionsAPI {
                     }
                 }
         );
+        this.clusterManager.addListener(
+                UserSessionTouches.class,
+                new ClusterListener<UserSessionTouches>() {
+
+                    @Override
+                    public void receive(UserSessionTouches message) {
+                        receiveClusterTouches(message);
+                    }
+
+                    @Override
+                    public byte[] getState() {
+                        return null;
+                    }
+
+                    @Override
+                    public void setState(byte[] state) {
+                    }
+                }
+        );
     }
 
     protected void receiveClusterMessage(UserSessionInfo message) {
@@ -168,46 +233,115 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    protected void receiveClusterTouches(UserSessionTouches message) {
+        receivedTouches.add(message.sessionIds.length);
+        for (int i = 0; i < message.sessionIds.length; i++) {
+            UUID id = message.sessionIds[i];
+            UserSessionInfo usi = getSessionInfo(id);
+            if (usi != null && usi.lastUsedTs < message.lastUsedTs[i]) {
+                usi.lastUsedTs = message.lastUsedTs[i];
+                putSessionInfo(id, usi);
+            }
+        }
+    }
+
     protected void receiveClusterState(byte[] state) {
         if (state == null || state.length == 0) {
             log.debug("Received empty user sessions cache");
             return;
         }
 
-        ByteArrayInputStream bis = new ByteArrayInputStream(state);
+        long start = System.currentTimeMillis();
+        int size = 0;
         try {
-            ObjectInputStream ois = new ObjectInputStream(bis);
-            int size = ois.readInt();
-            for (int i = 0; i < size; i++) {
-                UserSessionInfo usi = (UserSessionInfo) ois.readObject();
-                receiveClusterMessage(usi);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(state));
+            if (in.readInt() == STATE_FORMAT_MAGIC) {
+                in = new DataInputStream(new InflaterInputStream(in));
+                int chunkSize;
+                while ((chunkSize = in.readInt()) > 0) {
+                    byte[] chunk = new byte[in.readInt()];
+                    in.readFully(chunk);
+                    receiveClusterStateChunk(chunk, chunkSize);
+                    size += chunkSize;
+                }
+            } else {
+                // state sent by a node of the previous version
+                ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(state));
+                size = ois.readInt();
+                for (int i = 0; i < size; i++) {
+                    UserSessionInfo usi = (UserSessionInfo) ois.readObject();
+                    receiveClusterMessage(usi);
+                }
             }
             log.debug("Received user sessions cache: {} sessions, {} bytes. Cache now contains {} sessions", size, state.length, cache.size());
         } catch (IOException | ClassNotFoundException e) {
             log.error("Error receiving state", e);
         }
+
+        lastReceivedStateSessions = size;
+        lastReceivedStateBytes = state.length;
+        lastReceivedStateTime = System.currentTimeMillis() - start;
     }
 
+    protected void receiveClusterStateChunk(byte[] chunk, int size) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(chunk));
+        for (int i = 0; i < size; i++) {
+            long since = ois.readLong();
+            long lastUsedTs = ois.readLong();
+            UserSession session = (UserSession) ois.readObject();
+            receiveClusterMessage(new UserSessionInfo(session, since, lastUsedTs));
+        }
+    }
+
+    /**
+     * Writes the state in the following format: magic number followed by the deflated sequence of chunks, each chunk
+     * contains up to {@link ServerConfig#getUserSessionStateChunkSize()} sessions serialized independently of
+     * other chunks. So the receiving node deserializes and applies the state chunk by chunk.
+     */
     protected byte[] sendClusterState() {
+        long start = System.currentTimeMillis();
+
         List<UserSessionInfo> infoList = getSessionInfoStream().collect(Collectors.toList());
         if (infoList.isEmpty())
             return new byte[0];
 
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
-            ObjectOutputStream oos = new ObjectOutputStream(bos);
-            oos.writeInt(infoList.size());
-            for (UserSessionInfo usi : infoList) {
-                oos.writeObject(usi);
+            new DataOutputStream(bos).writeInt(STATE_FORMAT_MAGIC);
+
+            DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bos));
+            for (List<UserSessionInfo> chunkList : Lists.partition(infoList, Math.max(serverConfig.getUserSessionStateChunkSize(), 1))) {
+                byte[] chunk = serializeClusterStateChunk(chunkList);
+                out.writeInt(chunkList.size());
+                out.writeInt(chunk.length);
+                out.write(chunk);
             }
+            out.writeInt(0);
+            out.close();
         } catch (IOException e) {
             throw new RuntimeException("Error sending state", e);
         }
         byte[] bytes = bos.toByteArray();
         log.debug("Sending user sessions cache to cluster: {} sessions, {} bytes", infoList.size(), bytes.length);
+
+        lastSentStateSessions = infoList.size();
+        lastSentStateBytes = bytes.length;
+        lastSentStateTime = System.currentTimeMillis() - start;
         return bytes;
     }
 
+    protected byte[] serializeClusterStateChunk(List<UserSessionInfo> infoList) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        for (UserSessionInfo usi : infoList) {
+            oos.writeLong(usi.since);
+            oos.writeLong(usi.lastUsedTs);
+            oos.writeObject(usi.session);
+        }
+        oos.close();
+        return bos.toByteArray();
+    }
+
     @Override
     public void add(UserSession session) {
         UserSessionInfo usi = new UserSessionInfo(session, timeSource.currentTimeMillis());
@@ -292,7 +426,11 @@ public class UserSessions implements UserSessionsAPI {
                 if (propagate && !usi.session.isSystem()) {
                     if (now > (usi.lastSentTs + toMillis(sendTimeout))) {
                         usi.lastSentTs = now;
-                        clusterManager.send(usi);
+                        if (serverConfig.getUserSessionTouchesBatchingEnabled()) {
+                            pendingTouches.put(id, usi.lastUsedTs);
+                        } else {
+                            clusterManager.send(usi);
+                        }
                     }
                 }
             }
@@ -313,6 +451,48 @@ public class UserSessions implements UserSessionsAPI {
         }
     }
 
+    @Override
+    public void sendTouches() {
+        if (pendingTouches.isEmpty())
+            return;
+
+        List<UUID> ids = new ArrayList<>(pendingTouches.size());
+        List<Long> timestamps = new ArrayList<>(pendingTouches.size());
+        for (Map.Entry<UUID, Long> entry : pendingTouches.entrySet()) {
+            // keep the entry if it has been updated concurrently, it will be sent next time
+            if (pendingTouches.remove(entry.getKey(), entry.getValue())) {
+                ids.add(entry.getKey());
+                timestamps.add(entry.getValue());
+            }
+        }
+
+        int chunkSize = Math.max(serverConfig.getUserSessionStateChunkSize(), 1);
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, ids.size());
+            UUID[] sessionIds = ids.subList(from, to).toArray(new UUID[0]);
+            long[] lastUsedTs = new long[to - from];
+            for (int i = from; i < to; i++) {
+                lastUsedTs[i - from] = timestamps.get(i);
+            }
+            clusterManager.send(new UserSessionTouches(sessionIds, lastUsedTs));
+
+            sentTouches.add(sessionIds.length);
+            sentTouchMessages.increment();
+        }
+    }
+
+    @Override
+    public String printClusterStatistics() {
+        return String.format("Last sent state: %d sessions, %d bytes, %d ms\n" +
+                        "Last received state: %d sessions, %d bytes, %d ms\n" +
+                        "Sent touches: %d in %d messages, pending: %d\n" +
+                        "Received touches: %d",
+                lastSentStateSessions, lastSentStateBytes, lastSentStateTime,
+                lastReceivedStateSessions, lastReceivedStateBytes, lastReceivedStateTime,
+                sentTouches.sum(), sentTouchMessages.sum(), pendingTouches.size(),
+                receivedTouches.sum());
+    }
+
     @Override
     public int getExpirationTimeoutSec() {
         return expirationTimeout;
@@ -421,6 +601,7 @@ public class UserSessions implements UserSessionsAPI {
 
     @Nullable
     protected UserSessionInfo removeSessionInfo(UUID id) {
+        pendingTouches.remove(id);
         return cache.remove(id);
     }
 
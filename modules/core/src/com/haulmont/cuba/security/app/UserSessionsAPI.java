@@ -184,4 +184,20 @@ public interface UserSessionsAPI extends UserSessionFinder {
      * Evict timed out sessions from the cache.
      */
     void processEviction();
+
+    /**
+     * INTERNAL.
+     *
+     * Sends last used timestamps of the sessions refreshed with propagation to the cluster.
+     * Invoked by a scheduler.
+     */
+    default void sendTouches() {
+    }
+
+    /**
+     * @return statistics of the user sessions state transfer and touches propagation in the cluster
+     */
+    default String printClusterStatistics() {
+        return "No statistics";
+    }
 }
\ No newline at end of file
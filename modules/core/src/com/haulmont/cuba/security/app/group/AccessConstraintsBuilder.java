@@ -180,7 +180,7 @@ public class AccessConstraintsBuilder {
         BasicAccessConstraint constraint = new BasicAccessConstraint();
         constraint.setEntityType(metaClass.getName());
         constraint.setOperation(operation);
-        constraint.setPredicate((Predicate<? extends Entity>) o -> (boolean) security.evaluateConstraintScript(o, groovyScript));
+        constraint.setPredicate(new GroovyConstraintPredicate(groovyScript, security));
 
         addConstraint(metaClass, constraint);
 
@@ -202,7 +202,7 @@ public class AccessConstraintsBuilder {
             BasicAccessConstraint constraint = new BasicAccessConstraint();
             constraint.setEntityType(metaClass.getName());
             constraint.setOperation(operation);
-            constraint.setPredicate((Predicate<? extends Entity>) o -> (boolean) security.evaluateConstraintScript(o, groovyScript));
+            constraint.setPredicate(new GroovyConstraintPredicate(groovyScript, security));
 
             addConstraint(metaClass, constraint);
         }
@@ -224,7 +224,7 @@ public class AccessConstraintsBuilder {
         BasicAccessConstraint constraint = new BasicAccessConstraint();
         constraint.setEntityType(metaClass.getName());
         constraint.setCode(constraintCode);
-        constraint.setPredicate((Predicate<? extends Entity>) o -> (boolean) security.evaluateConstraintScript(o, groovyScript));
+        constraint.setPredicate(new GroovyConstraintPredicate(groovyScript, security));
 
         addConstraint(metaClass, constraint);
 
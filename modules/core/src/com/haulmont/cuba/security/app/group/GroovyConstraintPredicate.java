@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security.app.group;
+
+import com.haulmont.cuba.core.PersistenceSecurity;
+import com.haulmont.cuba.core.entity.Entity;
+
+import java.util.function.Predicate;
+
+/**
+ * Predicate of an in-memory constraint defined by a Groovy script.
+ * <p>
+ * Tests a single entity using {@link PersistenceSecurity#evaluateConstraintScript(Entity, String)}. When a collection
+ * of entities is checked, {@code PersistenceSecurity} evaluates the script itself, binding the user session once for
+ * all entities.
+ */
+public class GroovyConstraintPredicate implements Predicate<Entity> {
+
+    protected final String groovyScript;
+    protected final PersistenceSecurity security;
+
+    public GroovyConstraintPredicate(String groovyScript, PersistenceSecurity security) {
+        this.groovyScript = groovyScript;
+        this.security = security;
+    }
+
+    public String getGroovyScript() {
+        return groovyScript;
+    }
+
+    @Override
+    public boolean test(Entity entity) {
+        return (boolean) security.evaluateConstraintScript(entity, groovyScript);
+    }
+}
@@ -44,4 +44,14 @@ public class EntityLog implements EntityLogMBean {
     public void invalidateCache() {
         entityLog.invalidateCache();
     }
+
+    @Override
+    public int getAsyncQueueSize() {
+        return entityLog.getAsyncQueueSize();
+    }
+
+    @Override
+    public long getDroppedItemsCount() {
+        return entityLog.getDroppedItemsCount();
+    }
 }
\ No newline at end of file
@@ -36,4 +36,14 @@ public interface EntityLogMBean {
      * The configuration will be recreated from the database on next lifecycle event.
      */
     void invalidateCache();
+
+    /**
+     * Number of records waiting to be saved by the background writer.
+     */
+    int getAsyncQueueSize();
+
+    /**
+     * Number of records that could not be saved and were dropped since the application start.
+     */
+    long getDroppedItemsCount();
 }
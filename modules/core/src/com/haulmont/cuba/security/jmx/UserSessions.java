@@ -68,6 +68,11 @@ public class UserSessions implements UserSessionsMBean {
         userSessions.processEviction();
     }
 
+    @Override
+    public String printClusterStatistics() {
+        return userSessions.printClusterStatistics();
+    }
+
     @Override
     public String killSession(String id) {
         UUID sessionId;
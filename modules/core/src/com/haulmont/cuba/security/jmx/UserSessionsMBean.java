@@ -56,6 +56,11 @@ public interface UserSessionsMBean {
 
     void processEviction();
 
+    /**
+     * @return statistics of the user sessions state transfer and touches propagation in the cluster
+     */
+    String printClusterStatistics();
+
     /**
      * Kill specified session
      *
@@ -16,6 +16,10 @@
  */
 package com.haulmont.cuba.core;
 
+import com.haulmont.cuba.core.app.ConfigStorageAPI;
+import com.haulmont.cuba.core.config.ConfigHandler;
+import com.haulmont.cuba.core.config.ConfigPersister;
+import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.TestBeanToInjectConfig;
 import com.haulmont.cuba.core.config.TestConfig;
 import com.haulmont.cuba.core.entity.Config;
@@ -30,12 +34,14 @@ import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -217,6 +223,56 @@ public class ConfigProviderTest {
         assertEquals("new_value", value);
     }
 
+    @Test
+    public void testCachedValues() {
+        AtomicInteger reads = new AtomicInteger();
+        ConfigPersister persister = new ConfigPersister() {
+            @Override
+            public String getProperty(SourceType sourceType, String name) {
+                reads.incrementAndGet();
+                return AppContext.getProperty(name);
+            }
+
+            @Override
+            public void setProperty(SourceType sourceType, String name, String value) {
+                AppContext.setProperty(name, value);
+            }
+
+            @Override
+            public boolean isCacheable(SourceType sourceType) {
+                return true;
+            }
+        };
+        TestConfig config = (TestConfig) Proxy.newProxyInstance(TestConfig.class.getClassLoader(),
+                new Class[]{TestConfig.class}, new ConfigHandler(persister, TestConfig.class));
+
+        String initialValue = config.getStringProp();
+        assertEquals(initialValue, config.getStringProp());
+        assertEquals(1, reads.get());
+
+        try {
+            // invalidated by setting an app property
+            config.setStringProp("cached_value");
+            assertEquals("cached_value", config.getStringProp());
+            assertEquals("cached_value", config.getStringProp());
+            assertEquals(2, reads.get());
+
+            // invalidated by DB-stored properties cache
+            AppBeans.<ConfigStorageAPI>get(ConfigStorageAPI.NAME).clearCache();
+            assertEquals("cached_value", config.getStringProp());
+            assertEquals(3, reads.get());
+
+            // mutable values and runtime defaults are not cached
+            config.getIntegerListProp();
+            config.getIntegerListProp();
+            config.getIntPropDefRuntime(1);
+            config.getIntPropDefRuntime(1);
+            assertEquals(7, reads.get());
+        } finally {
+            config.setStringProp(initialValue);
+        }
+    }
+
     @Test
     public void testNotFoundGetterForProperty() {
         try {
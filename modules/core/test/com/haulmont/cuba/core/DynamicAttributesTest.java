@@ -25,6 +25,7 @@ import com.haulmont.cuba.core.entity.CategoryAttribute;
 import com.haulmont.cuba.core.entity.CategoryAttributeConfiguration;
 import com.haulmont.cuba.core.entity.CategoryAttributeValue;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.security.entity.Group;
 import com.haulmont.cuba.security.entity.Role;
 import com.haulmont.cuba.security.entity.User;
@@ -405,6 +406,45 @@ public class DynamicAttributesTest {
         assertEquals(group, user2.getValue("+userGroupAttribute"));
     }
 
+    @Test
+    public void testAttributeValuesLoadedInBatches() {
+        AppContext.setProperty("cuba.dynamicAttributes.valuesBatchSize", "1");
+        try {
+            LoadContext<User> ctx = LoadContext.create(User.class).setLoadDynamicAttributes(true);
+            ctx.setQueryString("select u from sec$User u where u.login like 'user%' order by u.login");
+            List<User> users = dataManager.loadList(ctx);
+            assertEquals(2, users.size());
+            assertEquals("userName", users.get(0).getValue("+userAttribute"));
+            assertEquals("userName", users.get(1).getValue("+userAttribute"));
+            assertEquals(group, users.get(1).getValue("+userGroupAttribute"));
+        } finally {
+            AppContext.setProperty("cuba.dynamicAttributes.valuesBatchSize", null);
+        }
+    }
+
+    @Test
+    public void testAttributeValuesLoadedDetached() {
+        LoadContext<User> loadContext = LoadContext.create(User.class).setId(user.getId()).setLoadDynamicAttributes(true);
+        User loadedUser = dataManager.load(loadContext);
+
+        CategoryAttributeValue cav = loadedUser.getDynamicAttributes().get("userAttribute");
+        assertTrue(AppBeans.get(EntityStates.class).isDetached(cav));
+        assertNotNull(cav.getVersion());
+        assertNotNull(cav.getCreateTs());
+        assertEquals(user.getId(), cav.getObjectEntityId());
+        assertEquals(userAttribute.getId(), cav.getCategoryAttribute().getId());
+        assertEquals(userCategory, cav.getCategoryAttribute().getCategory());
+
+        loadedUser.setValue("+userAttribute", "userName1");
+        dataManager.commit(loadedUser);
+
+        loadedUser = dataManager.load(loadContext);
+        CategoryAttributeValue updatedCav = loadedUser.getDynamicAttributes().get("userAttribute");
+        assertEquals("userName1", updatedCav.getStringValue());
+        assertEquals(cav.getId(), updatedCav.getId());
+        assertEquals(cav.getCreateTs(), updatedCav.getCreateTs());
+    }
+
     @Test
     public void testCollectionOfEntitiesAttribute() {
         LoadContext<User> loadContext = LoadContext.create(User.class).setId(user.getId()).setLoadDynamicAttributes(true);
@@ -28,8 +28,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertNotNull;
-import static org.junit.jupiter.api.Assertions.assertNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class LockManagerTest {
 
@@ -73,5 +77,82 @@ public class LockManagerTest {
         lockInfo = lockManager.getLockInfo("sys$Server", entity.getId().toString());
         assertNull(lockInfo);
     }
-}
 
+    @Test
+    public void testCurrentLocksByName() throws Exception {
+        Server entity = new Server();
+
+        assertNull(lockManager.lock(entity));
+        try {
+            List<LockInfo> locks = lockManager.getCurrentLocks("sys$Server");
+            assertEquals(1, locks.size());
+            assertEquals(entity.getId().toString(), locks.get(0).getEntityId());
+
+            assertTrue(lockManager.getCurrentLocks("sys$User").isEmpty());
+        } finally {
+            lockManager.unlock(entity);
+        }
+        assertTrue(lockManager.getCurrentLocks("sys$Server").isEmpty());
+    }
+
+    @Test
+    public void testConcurrentLock() throws Exception {
+        String id = "concurrent";
+        int threads = 8;
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    if (lockManager.lock("sys$Server", id) == null) {
+                        acquired.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+            lockManager.unlock("sys$Server", id);
+        }
+        assertEquals(1, acquired.get());
+    }
+
+    @Test
+    public void testExpireLocks() throws Exception {
+        cont.persistence().runInTransaction(em -> {
+            LockDescriptor lockDescriptor = cont.metadata().create(LockDescriptor.class);
+            lockDescriptor.setName("test$Expiring");
+            lockDescriptor.setTimeoutSec(1);
+            em.persist(lockDescriptor);
+        });
+        lockManager.reloadConfiguration();
+
+        Server entity = new Server();
+        try {
+            assertNull(lockManager.lock(entity));
+            assertNull(lockManager.lock("test$Expiring", "1"));
+
+            Thread.sleep(1100);
+            lockManager.expireLocks();
+
+            assertNull(lockManager.getLockInfo("test$Expiring", "1"));
+            assertNotNull(lockManager.getLockInfo("sys$Server", entity.getId().toString()));
+        } finally {
+            lockManager.unlock(entity);
+            lockManager.unlock("test$Expiring", "1");
+            cont.persistence().runInTransaction(em -> {
+                em.createQuery("delete from sys$LockDescriptor d where d.name = :name")
+                        .setParameter("name", "test$Expiring")
+                        .executeUpdate();
+            });
+            lockManager.reloadConfiguration();
+        }
+    }
+}
@@ -206,6 +206,25 @@ public class MessagesTest {
         assertEquals(0, getSearchMessagesCount());
     }
 
+    @Test
+    public void testCacheClearedWithResolvedMessages() {
+        Messages messages = prepareCachingTest();
+        Locale locale = Locale.forLanguageTag("fr");
+
+        String msg = messages.getMessage(MpTestNestedObj.class, "key0", locale);
+        assertEquals("Message0 in French", msg);
+        assertSame(msg, messages.getMessage(MpTestNestedObj.class, "key0", locale));
+        assertNull(messages.findMessage("com.haulmont.cuba.core.mp_test.nested", "non-existing-message", locale));
+
+        messages.clearCache();
+        appender.getMessages().clear();
+
+        msg = messages.getMessage(MpTestNestedObj.class, "key0", locale);
+        assertEquals("Message0 in French", msg);
+        assertEquals(6, getSearchMessagesCount());
+        assertNull(messages.findMessage("com.haulmont.cuba.core.mp_test.nested", "non-existing-message", locale));
+    }
+
     @Test
     public void testFind() throws Exception {
         Messages messages = AppBeans.get(Messages.class);
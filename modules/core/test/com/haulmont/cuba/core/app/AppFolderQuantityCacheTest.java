@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.cuba.core.entity.AppFolder;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.core.global.UserSessionSource;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.security.entity.Group;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.testsupport.TestContainer;
+import com.haulmont.cuba.testsupport.TestUserSessionSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AppFolderQuantityCacheTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private FoldersService foldersService;
+    private AppFolderQuantityCache quantityCache;
+    private Metadata metadata;
+    private TestUserSessionSource userSessionSource;
+    private UserSession savedUserSession;
+
+    @BeforeEach
+    public void setUp() {
+        foldersService = AppBeans.get(FoldersService.NAME);
+        quantityCache = AppBeans.get(AppFolderQuantityCache.NAME);
+        quantityCache.clear();
+        metadata = AppBeans.get(Metadata.class);
+        userSessionSource = (TestUserSessionSource) AppBeans.get(UserSessionSource.class);
+        savedUserSession = userSessionSource.getUserSession();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userSessionSource.setUserSession(savedUserSession);
+        AppContext.setProperty("cuba.appFolderQuantitySharedByGroup", null);
+        quantityCache.clear();
+    }
+
+    @Test
+    public void testQuantitySharedBetweenUsersOfGroup() {
+        Group group = metadata.create(Group.class);
+        AppFolder folder = createFolder("style = 'highlighted'\n" +
+                "persistence.getEntityManager().createQuery('select count(u) from sec$User u').getSingleResult()");
+        AppContext.setProperty("cuba.appFolderQuantitySharedByGroup", "otherFolder, quantityTest");
+
+        setUser(createUser("quantity_test_user1", group));
+        foldersService.reloadAppFolders(Collections.singletonList(folder));
+        assertNotNull(folder.getQuantity());
+        assertEquals("highlighted", folder.getItemStyle());
+
+        AppFolder sameFolder = copyFolder(folder);
+        setUser(createUser("quantity_test_user2", group));
+        foldersService.reloadAppFolders(Collections.singletonList(sameFolder));
+
+        assertEquals(folder.getQuantity(), sameFolder.getQuantity());
+        assertEquals("highlighted", sameFolder.getItemStyle());
+        assertTrue(quantityCache.printStatistics().startsWith("size=1, hits=1, misses=1"));
+    }
+
+    @Test
+    public void testQuantityEvaluatedPerUserWhenScriptUsesSession() {
+        Group group = metadata.create(Group.class);
+        AppFolder folder = createFolder("userSession.user.login.length()");
+
+        setUser(createUser("quantity_test_user1", group));
+        foldersService.reloadAppFolders(Collections.singletonList(folder));
+        assertEquals("quantity_test_user1".length(), (int) folder.getQuantity());
+
+        AppFolder sameFolder = copyFolder(folder);
+        setUser(createUser("quantity_test_user22", group));
+        foldersService.reloadAppFolders(Collections.singletonList(sameFolder));
+
+        assertEquals("quantity_test_user22".length(), (int) sameFolder.getQuantity());
+        assertTrue(quantityCache.printStatistics().startsWith("size=2, hits=0, misses=2"));
+    }
+
+    @Test
+    public void testQuantityEvaluatedPerUserByDefault() {
+        Group group = metadata.create(Group.class);
+        AppFolder folder = createFolder(
+                "persistence.getEntityManager().createQuery('select count(u) from sec$User u').getSingleResult()");
+
+        setUser(createUser("quantity_test_user1", group));
+        foldersService.reloadAppFolders(Collections.singletonList(folder));
+
+        AppFolder sameFolder = copyFolder(folder);
+        setUser(createUser("quantity_test_user2", group));
+        foldersService.reloadAppFolders(Collections.singletonList(sameFolder));
+
+        assertEquals(folder.getQuantity(), sameFolder.getQuantity());
+        assertTrue(quantityCache.printStatistics().startsWith("size=2, hits=0, misses=2"));
+    }
+
+    @Test
+    public void testFailedQuantityNotCached() {
+        AppFolder folder = createFolder("persistence.getEntityManager().createQuery('select').getSingleResult()");
+
+        foldersService.reloadAppFolders(Collections.singletonList(folder));
+        foldersService.reloadAppFolders(Collections.singletonList(folder));
+
+        assertNull(folder.getQuantity());
+        assertEquals("size=0, hits=0, misses=2, hitRatio=0%, failures=2", quantityCache.printStatistics());
+    }
+
+    private AppFolder createFolder(String quantityScript) {
+        AppFolder folder = metadata.create(AppFolder.class);
+        folder.setName("quantityTest");
+        folder.setQuantityScript(quantityScript);
+        return folder;
+    }
+
+    private AppFolder copyFolder(AppFolder folder) {
+        AppFolder copy = metadata.create(AppFolder.class);
+        copy.setId(folder.getId());
+        copy.setName(folder.getName());
+        copy.setQuantityScript(folder.getQuantityScript());
+        return copy;
+    }
+
+    private User createUser(String login, Group group) {
+        User user = metadata.create(User.class);
+        user.setLogin(login);
+        user.setGroup(group);
+        return user;
+    }
+
+    private void setUser(User user) {
+        userSessionSource.setUserSession(new UserSession(UUID.randomUUID(), user, Collections.emptyList(),
+                Locale.ENGLISH, false));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterManagerBatchingTest {
+
+    @Test
+    public void testCoalesceAdjacentMessages() {
+        List<Serializable> messages = Arrays.asList(
+                new InvalidateMsg("a"),
+                new InvalidateMsg("b"),
+                "lock",
+                new InvalidateMsg("c"),
+                new InvalidateMsg("d"));
+
+        List<Serializable> result = ClusterManager.coalesce(messages);
+
+        assertEquals(3, result.size());
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), ((InvalidateMsg) result.get(0)).names);
+        assertEquals("lock", result.get(1));
+        assertEquals(new HashSet<>(Arrays.asList("c", "d")), ((InvalidateMsg) result.get(2)).names);
+
+        // original messages are not modified
+        assertEquals(Collections.singleton("a"), ((InvalidateMsg) messages.get(0)).names);
+    }
+
+    @Test
+    public void testMessagesNotMerged() {
+        List<Serializable> messages = Arrays.asList(
+                new InvalidateMsg("a"),
+                new InvalidateMsg((String) null),
+                "lock",
+                "lock");
+
+        List<Serializable> result = ClusterManager.coalesce(messages);
+
+        assertEquals(messages, result);
+    }
+
+    @Test
+    public void testHistogram() {
+        ClusterManager.Histogram histogram = new ClusterManager.Histogram(1, 10);
+        histogram.update(0);
+        histogram.update(1);
+        histogram.update(5);
+        histogram.update(100);
+
+        assertEquals("<=1: 2, <=10: 1, >10: 1", histogram.print());
+    }
+
+    private static class InvalidateMsg implements CoalescingClusterMessage {
+
+        private final Set<String> names;
+
+        private InvalidateMsg(String name) {
+            this.names = name != null ? Collections.singleton(name) : null;
+        }
+
+        private InvalidateMsg(Set<String> names) {
+            this.names = names;
+        }
+
+        @Override
+        public CoalescingClusterMessage coalesce(CoalescingClusterMessage next) {
+            InvalidateMsg nextMsg = (InvalidateMsg) next;
+            if (names == null || nextMsg.names == null) {
+                return null;
+            }
+            Set<String> merged = new HashSet<>(names);
+            merged.addAll(nextMsg.names);
+            return new InvalidateMsg(merged);
+        }
+    }
+}
@@ -378,6 +378,35 @@ public class EmailerTest {
         assertEquals(2, sendingMsg.getAttemptsCount().intValue());
     }
 
+    @Test
+    public void testAsynchronousBatches() throws Exception {
+        testMailSender.clearBuffer();
+        int batchSize = emailerConfig.getSendingBatchSize();
+        emailerConfig.setSendingBatchSize(2);
+        try {
+            EmailInfo myInfo = EmailInfoBuilder.create()
+                    .setAddresses("recipient1@example.com,recipient2@example.com,recipient3@example.com")
+                    .setCaption("Test")
+                    .setBody("Test Email Body")
+                    .build();
+            List<SendingMessage> messages = emailer.sendEmailAsync(myInfo, 2, getDeadlineWhichDoesntMatter());
+            assertEquals(3, messages.size());
+
+            emailer.processQueuedEmails();
+
+            assertEquals(3, testMailSender.getBufferSize());
+            assertEquals(2, testMailSender.getBatchCount());
+            for (SendingMessage message : messages) {
+                SendingMessage sendingMsg = reload(message);
+                assertEquals(SendingStatus.SENT, sendingMsg.getStatus());
+                assertEquals(1, sendingMsg.getAttemptsMade().intValue());
+                assertNotNull(sendingMsg.getDateSent());
+            }
+        } finally {
+            emailerConfig.setSendingBatchSize(batchSize);
+        }
+    }
+
     @Test
     public void testSentFromSecondAttempt() throws Exception {
         doTestSentFromSecondAttempt(false);
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app.filestorage;
+
+import com.haulmont.cuba.core.app.FileStorageAPI;
+import com.haulmont.cuba.core.entity.FileDescriptor;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileStorageReplicationTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private static final String CONTENT = "file storage replication test";
+
+    private FileStorage fileStorage;
+    private File[] savedStorageRoots;
+    private File primaryRoot;
+    private File secondaryRoot;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        fileStorage = (FileStorage) AppBeans.get(FileStorageAPI.NAME);
+
+        primaryRoot = Files.createTempDirectory("filestorage1").toFile();
+        secondaryRoot = Files.createTempDirectory("filestorage2").toFile();
+
+        savedStorageRoots = fileStorage.storageRoots;
+        fileStorage.storageRoots = new File[]{primaryRoot, secondaryRoot};
+        fileStorage.pendingReplicas.clear();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        fileStorage.storageRoots = savedStorageRoots;
+        fileStorage.pendingReplicas.clear();
+        for (File root : new File[]{primaryRoot, secondaryRoot}) {
+            FileChannel logChannel = fileStorage.logChannels.remove(root);
+            IOUtils.closeQuietly(logChannel);
+        }
+
+        FileUtils.deleteQuietly(primaryRoot);
+        FileUtils.deleteQuietly(secondaryRoot);
+    }
+
+    @Test
+    public void testFileReplicatedToAllRoots() throws Exception {
+        FileDescriptor fd = createFileDescriptor();
+        fileStorage.saveFile(fd, CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        File primary = getFile(primaryRoot, fd);
+        File replica = awaitReplica(fd);
+
+        assertEquals(CONTENT, FileUtils.readFileToString(primary, StandardCharsets.UTF_8));
+        assertTrue(FileUtils.contentEquals(primary, replica));
+        assertFalse(new File(replica.getParentFile(), replica.getName() + ".tmp").exists());
+
+        assertTrue(readLog(primaryRoot).contains("CREATE \"" + primary.getAbsolutePath() + "\""));
+        assertTrue(readLog(secondaryRoot).contains("CREATE \"" + replica.getAbsolutePath() + "\""));
+
+        assertEquals("Checked 1 files, scheduled 0 replicas for repair", fileStorage.checkReplicas());
+        assertEquals(0, fileStorage.getPendingReplicasCount());
+    }
+
+    @Test
+    public void testMissingReplicaRepaired() throws Exception {
+        FileDescriptor fd = createFileDescriptor();
+        fileStorage.saveFile(fd, CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        File replica = awaitReplica(fd);
+        assertTrue(replica.delete());
+
+        assertEquals("Checked 1 files, scheduled 1 replicas for repair", fileStorage.checkReplicas());
+        assertEquals(1, fileStorage.getPendingReplicasCount());
+
+        fileStorage.repairReplicas();
+
+        assertEquals(0, fileStorage.getPendingReplicasCount());
+        assertTrue(FileUtils.contentEquals(getFile(primaryRoot, fd), replica));
+    }
+
+    @Test
+    public void testCorruptReplicaRepaired() throws Exception {
+        FileDescriptor fd = createFileDescriptor();
+        fileStorage.saveFile(fd, CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        File replica = awaitReplica(fd);
+        // same size, so only the checksum differs
+        FileUtils.writeStringToFile(replica, CONTENT.toUpperCase(), StandardCharsets.UTF_8);
+
+        assertEquals("Checked 1 files, scheduled 1 replicas for repair", fileStorage.checkReplicas());
+
+        fileStorage.repairReplicas();
+
+        assertEquals(0, fileStorage.getPendingReplicasCount());
+        assertEquals(CONTENT, FileUtils.readFileToString(replica, StandardCharsets.UTF_8));
+        assertEquals("Checked 1 files, scheduled 0 replicas for repair", fileStorage.checkReplicas());
+    }
+
+    @Test
+    public void testFailedReplicationRetried() throws Exception {
+        FileDescriptor fd = createFileDescriptor();
+        File replica = getFile(secondaryRoot, fd);
+        // a regular file in place of the year directory makes the copy fail
+        File yearDir = replica.getParentFile().getParentFile().getParentFile();
+        FileUtils.writeStringToFile(yearDir, "", StandardCharsets.UTF_8);
+
+        fileStorage.saveFile(fd, CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        awaitPendingReplicas(1);
+        assertFalse(replica.exists());
+
+        assertTrue(yearDir.delete());
+        fileStorage.repairReplicas();
+
+        assertEquals(0, fileStorage.getPendingReplicasCount());
+        assertTrue(FileUtils.contentEquals(getFile(primaryRoot, fd), replica));
+    }
+
+    private FileDescriptor createFileDescriptor() {
+        FileDescriptor fd = cont.metadata().create(FileDescriptor.class);
+        fd.setName("replication.txt");
+        fd.setExtension("txt");
+        fd.setCreateDate(new Date());
+        return fd;
+    }
+
+    private File getFile(File root, FileDescriptor fd) {
+        return new File(fileStorage.getStorageDir(root, fd), FileStorage.getFileName(fd));
+    }
+
+    private File awaitReplica(FileDescriptor fd) throws Exception {
+        File replica = getFile(secondaryRoot, fd);
+        // the log record is written after the replica is renamed into place
+        String logRecord = "CREATE \"" + replica.getAbsolutePath() + "\"";
+        for (int i = 0; i < 100 && !readLog(secondaryRoot).contains(logRecord); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(replica.exists(), "Replica is not written: " + replica);
+        return replica;
+    }
+
+    private void awaitPendingReplicas(int count) throws InterruptedException {
+        for (int i = 0; i < 100 && fileStorage.getPendingReplicasCount() < count; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(count, fileStorage.getPendingReplicasCount());
+    }
+
+    private String readLog(File root) throws IOException {
+        File logFile = new File(root, FileStorage.LOG_FILE_NAME);
+        return logFile.exists() ? FileUtils.readFileToString(logFile, StandardCharsets.UTF_8) : "";
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.app.scheduling;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.app.ServerInfoAPI;
+import com.haulmont.cuba.core.entity.ScheduledTask;
+import com.haulmont.cuba.core.entity.ScheduledTaskDefinedBy;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.global.TimeSource;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LeaseBasedCoordinatorTest {
+
+    private static final long LEASE_TIMEOUT = 10000;
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private List<ScheduledTask> tasks = new ArrayList<>();
+
+    private long time;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        deleteLeases();
+        time = System.currentTimeMillis();
+
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            for (int i = 0; i < 16; i++) {
+                ScheduledTask task = cont.metadata().create(ScheduledTask.class);
+                task.setDefinedBy(ScheduledTaskDefinedBy.BEAN);
+                task.setBeanName("cuba_TestingService");
+                task.setMethodName("execute");
+                task.setSingleton(true);
+                task.setActive(true);
+                task.setPeriod(60);
+                cont.persistence().getEntityManager().persist(task);
+                tasks.add(task);
+            }
+            tx.commit();
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        deleteLeases();
+        cont.deleteRecord(tasks.toArray(new ScheduledTask[0]));
+        tasks.clear();
+    }
+
+    @Test
+    public void testTasksArePartitioned() {
+        TestCoordinator node1 = new TestCoordinator("node1");
+        TestCoordinator node2 = new TestCoordinator("node2");
+
+        // the first node acquires all tasks, the second one registers its heartbeat
+        assertEquals(getTaskIds(), tick(node1));
+        assertTrue(tick(node2).isEmpty());
+
+        // on the next balancing tasks are spread between nodes
+        time += LEASE_TIMEOUT / 2;
+        Set<UUID> tasks1 = tick(node1);
+        Set<UUID> tasks2 = tick(node2);
+
+        assertFalse(tasks1.isEmpty());
+        assertFalse(tasks2.isEmpty());
+        assertTrue(Collections.disjoint(tasks1, tasks2));
+
+        Set<UUID> allTasks = new HashSet<>(tasks1);
+        allTasks.addAll(tasks2);
+        assertEquals(getTaskIds(), allTasks);
+
+        // assignment is stable
+        time += LEASE_TIMEOUT / 2;
+        assertEquals(tasks1, tick(node1));
+        assertEquals(tasks2, tick(node2));
+    }
+
+    @Test
+    public void testExpiredLeasesAreTakenOver() {
+        TestCoordinator node1 = new TestCoordinator("node1");
+        TestCoordinator node2 = new TestCoordinator("node2");
+
+        assertEquals(getTaskIds(), tick(node1));
+        ScheduledTask task = tasks.get(0);
+        node1.setFinished(task, time);
+
+        // the first node stops renewing its leases
+        time += LEASE_TIMEOUT + 1;
+        assertEquals(getTaskIds(), tick(node2));
+
+        task.setLastStartTime(new Date(time - LEASE_TIMEOUT));
+        assertFalse(node2.isLastExecutionFinished(task, time));
+        assertEquals(time - LEASE_TIMEOUT - 1, node2.getLastFinished(task));
+
+        task.setLastStartTime(new Date(time - 2 * LEASE_TIMEOUT));
+        assertTrue(node2.isLastExecutionFinished(task, time));
+    }
+
+    @Test
+    public void testPermittedServers() {
+        TestCoordinator node1 = new TestCoordinator("node1");
+        TestCoordinator node2 = new TestCoordinator("node2");
+
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            for (ScheduledTask task : tasks) {
+                cont.persistence().getEntityManager().createQuery(
+                        "update sys$ScheduledTask t set t.permittedServers = 'node2' where t.id = :id")
+                        .setParameter("id", task.getId())
+                        .executeUpdate();
+            }
+            tx.commit();
+        }
+
+        assertTrue(tick(node1).isEmpty());
+        assertEquals(getTaskIds(), tick(node2));
+    }
+
+    private Set<UUID> tick(Coordinator coordinator) {
+        Coordinator.Context context = coordinator.begin();
+        coordinator.end(context);
+
+        Set<UUID> taskIds = getTaskIds();
+        return context.getTasks().stream()
+                .map(ScheduledTask::getId)
+                .filter(taskIds::contains)
+                .collect(Collectors.toSet());
+    }
+
+    private Set<UUID> getTaskIds() {
+        return tasks.stream().map(ScheduledTask::getId).collect(Collectors.toSet());
+    }
+
+    private void deleteLeases() throws Exception {
+        new QueryRunner(cont.persistence().getDataSource()).update("delete from SYS_SCHEDULED_TASK_LEASE");
+    }
+
+    private class TestCoordinator extends LeaseBasedCoordinator {
+
+        private final String serverId;
+
+        TestCoordinator(String serverId) {
+            this.serverId = serverId;
+            persistence = cont.persistence();
+            serverInfo = AppBeans.get(ServerInfoAPI.class);
+            timeSource = AppBeans.get(TimeSource.class);
+            configuration = AppBeans.get(Configuration.class);
+        }
+
+        @Override
+        protected String getServerId() {
+            return serverId;
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return time;
+        }
+
+        @Override
+        protected long getLeaseTimeout() {
+            return LEASE_TIMEOUT;
+        }
+    }
+}
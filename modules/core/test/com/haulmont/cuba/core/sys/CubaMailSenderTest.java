@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.cuba.core.app.EmailerConfig;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.testsupport.TestContainer;
+import com.haulmont.cuba.testsupport.TestSmtpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.mail.Message;
+import javax.mail.internet.MimeMessage;
+import java.net.InetAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CubaMailSenderTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private TestSmtpServer smtpServer;
+    private CubaMailSender mailSender;
+    private EmailerConfig emailerConfig;
+
+    private String smtpHost;
+    private int smtpPort;
+    private int poolSize;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        smtpServer = new TestSmtpServer();
+
+        Configuration configuration = AppBeans.get(Configuration.class);
+        emailerConfig = configuration.getConfig(EmailerConfig.class);
+        smtpHost = emailerConfig.getSmtpHost();
+        smtpPort = emailerConfig.getSmtpPort();
+        poolSize = emailerConfig.getSmtpConnectionPoolSize();
+
+        emailerConfig.setSmtpHost(InetAddress.getLoopbackAddress().getHostAddress());
+        emailerConfig.setSmtpPort(smtpServer.getPort());
+        emailerConfig.setSmtpConnectionPoolSize(2);
+
+        mailSender = new CubaMailSender();
+        mailSender.setConfiguration(configuration);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        mailSender.closeIdleTransports();
+        smtpServer.close();
+
+        emailerConfig.setSmtpHost(smtpHost);
+        emailerConfig.setSmtpPort(smtpPort);
+        emailerConfig.setSmtpConnectionPoolSize(poolSize);
+    }
+
+    @Test
+    public void testConnectionReused() throws Exception {
+        mailSender.send(createMessages(3));
+        mailSender.send(createMessages(2));
+        mailSender.send(createMessages(1)[0]);
+
+        assertEquals(6, smtpServer.getMessages().size());
+        assertTrue(smtpServer.getMessages().get(0).contains("Subject: Test 0"));
+        assertEquals(1, smtpServer.getConnectionCount());
+    }
+
+    @Test
+    public void testPoolingDisabled() throws Exception {
+        emailerConfig.setSmtpConnectionPoolSize(0);
+
+        mailSender.send(createMessages(2));
+        mailSender.send(createMessages(2));
+
+        assertEquals(4, smtpServer.getMessages().size());
+        assertEquals(2, smtpServer.getConnectionCount());
+    }
+
+    @Test
+    public void testClosedConnectionReplaced() throws Exception {
+        mailSender.send(createMessages(1));
+        smtpServer.dropConnections();
+        mailSender.send(createMessages(1));
+
+        assertEquals(2, smtpServer.getMessages().size());
+        assertEquals(2, smtpServer.getConnectionCount());
+    }
+
+    @Test
+    public void testUpdateSessionClosesConnections() throws Exception {
+        mailSender.send(createMessages(1));
+        mailSender.updateSession();
+        mailSender.send(createMessages(1));
+
+        assertEquals(2, smtpServer.getMessages().size());
+        assertEquals(2, smtpServer.getConnectionCount());
+    }
+
+    private MimeMessage[] createMessages(int count) throws Exception {
+        MimeMessage[] messages = new MimeMessage[count];
+        for (int i = 0; i < count; i++) {
+            MimeMessage msg = mailSender.createMimeMessage();
+            msg.setFrom("sender@example.com");
+            msg.setRecipients(Message.RecipientType.TO, "recipient" + i + "@example.com");
+            msg.setSubject("Test " + i);
+            msg.setText("Test Body");
+            messages[i] = msg;
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.FetchMode;
+import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.core.global.ViewRepository;
+import com.haulmont.cuba.security.entity.Group;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.entity.UserRole;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FetchGroupPlanCacheTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private static final String QUERY = "select u from sec$User u where u.group.name = :name";
+
+    private FetchGroupManager fetchGroupManager;
+
+    @BeforeEach
+    public void setUp() {
+        fetchGroupManager = AppBeans.get(FetchGroupManager.NAME);
+        fetchGroupManager.clearPlanCache();
+    }
+
+    @Test
+    public void testPlanReusedForEqualViews() {
+        FetchGroupDescription cold = fetchGroupManager.calculateFetchGroup(QUERY, createView(), false, true);
+        FetchGroupDescription warm = fetchGroupManager.calculateFetchGroup(QUERY, createView(), false, true);
+
+        assertSame(cold, warm);
+        assertTrue(warm.getAttributes().contains("group.name"));
+        assertTrue(warm.getHints().containsKey("u.userRoles"));
+
+        fetchGroupManager.calculateFetchGroup(QUERY, createView(), true, true);
+        fetchGroupManager.calculateFetchGroup(QUERY, createView(), false, false);
+        fetchGroupManager.calculateFetchGroup(QUERY, createView().addProperty("name"), false, true);
+        fetchGroupManager.calculateFetchGroup(QUERY + " and u.active = true", createView(), false, true);
+
+        assertTrue(fetchGroupManager.printPlanCacheStatistics().startsWith("size=5, hits=1, misses=5"));
+    }
+
+    @Test
+    public void testPlanEqualsCalculatedOne() {
+        View view = createView();
+        fetchGroupManager.calculateFetchGroup(QUERY, view, false, true);
+        FetchGroupDescription cached = fetchGroupManager.calculateFetchGroup(QUERY, view, false, true);
+
+        fetchGroupManager.clearPlanCache();
+        FetchGroupDescription calculated = fetchGroupManager.calculateFetchGroup(QUERY, view, false, true);
+
+        assertNotSame(cached, calculated);
+        assertEquals(calculated.getAttributes(), cached.getAttributes());
+        assertEquals(calculated.getHints(), cached.getHints());
+        assertEquals(calculated.hasBatches(), cached.hasBatches());
+    }
+
+    @Test
+    public void testPlansInvalidatedOnViewRepositoryReset() {
+        FetchGroupDescription description = fetchGroupManager.calculateFetchGroup(QUERY, createView(), false, true);
+
+        ((AbstractViewRepository) AppBeans.get(ViewRepository.class)).reset();
+
+        assertNotSame(description, fetchGroupManager.calculateFetchGroup(QUERY, createView(), false, true));
+        assertTrue(fetchGroupManager.printPlanCacheStatistics().endsWith("invalidations=1"));
+    }
+
+    private View createView() {
+        return new View(User.class)
+                .addProperty("login")
+                .addProperty("group", new View(Group.class).addProperty("name"))
+                .addProperty("userRoles", new View(UserRole.class).addProperty("roleName"), FetchMode.BATCH);
+    }
+}
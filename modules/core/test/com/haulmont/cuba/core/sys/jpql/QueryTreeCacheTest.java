@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.jpql;
+
+import com.haulmont.cuba.core.global.QueryParserAstBased;
+import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder;
+import com.haulmont.cuba.core.sys.jpql.model.JpqlEntityModel;
+import com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryTreeCacheTest {
+
+    private DomainModel model;
+
+    @BeforeEach
+    public void setUp() {
+        EntityBuilder builder = new EntityBuilder();
+        builder.startNewEntity("Team");
+        builder.addStringAttribute("name");
+        builder.addCollectionReferenceAttribute("players", "Player");
+        JpqlEntityModel teamEntity = builder.produce();
+
+        builder.startNewEntity("Player");
+        builder.addReferenceAttribute("team", "Team");
+        builder.addStringAttribute("name");
+        JpqlEntityModel playerEntity = builder.produce();
+        model = new DomainModel(playerEntity, teamEntity);
+    }
+
+    @Test
+    public void transformationsDoNotAffectCachedTree() {
+        QueryTreeCache cache = new QueryTreeCache(model, 10);
+        String query = "select p from Player p left join p.team t where t.name = 'KS FC'";
+
+        QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, query, cache);
+        transformer.addWhere("{E}.name = :name");
+        assertEquals("select p from Player p left join p.team t where (t.name = 'KS FC') and (p.name = :name)",
+                transformer.getResult());
+
+        transformer = new QueryTransformerAstBased(model, query, cache);
+        assertEquals("select p from Player p left join p.team t where t.name = 'KS FC'", transformer.getResult());
+
+        QueryParserAstBased parser = new QueryParserAstBased(model, query, cache);
+        assertEquals("Player", parser.getEntityName());
+        assertEquals("p", parser.getEntityAlias());
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getStats().missCount());
+        assertEquals(2, cache.getStats().hitCount());
+    }
+
+    @Test
+    public void copiesOfCachedUpdateTreeKeepSetClause() {
+        assertCachedTransformationsEqualUncached(
+                "update Player p set p.name = :name where p.name = :oldName", "p.team is null");
+
+        QueryTreeCache cache = new QueryTreeCache(model, 10);
+        String query = "update Player p set p.name = :name";
+        new QueryTransformerAstBased(model, query, cache).getResult();
+        assertEquals("update Player p set p.name=:name", new QueryTransformerAstBased(model, query, cache).getResult());
+    }
+
+    @Test
+    public void copiesOfCachedJoinTreeKeepJoins() {
+        assertCachedTransformationsEqualUncached(
+                "select p from Team t join t.players p left join p.team pt, in(t.players) p2 where p2.name = :name",
+                "t.name = :teamName");
+        assertCachedTransformationsEqualUncached(
+                "select p from Player p join Team t on t.name = p.name where t.name = :name",
+                "p.name = :playerName");
+    }
+
+    @Test
+    public void zeroSizeCacheParsesEveryTime() {
+        QueryTreeCache cache = new QueryTreeCache(model, 0);
+        String query = "select p from Player p";
+
+        assertEquals(query, new QueryTransformerAstBased(model, query, cache).getResult());
+        assertEquals(query, new QueryTransformerAstBased(model, query, cache).getResult());
+
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getStats().missCount());
+    }
+
+    private void assertCachedTransformationsEqualUncached(String query, String where) {
+        QueryTransformerAstBased uncached = new QueryTransformerAstBased(model, query);
+        uncached.addWhereAsIs(where);
+        String expected = uncached.getResult();
+
+        QueryTreeCache cache = new QueryTreeCache(model, 10);
+        for (int i = 0; i < 2; i++) {
+            QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, query, cache);
+            transformer.addWhereAsIs(where);
+            assertEquals(expected, transformer.getResult());
+        }
+        assertEquals(1, cache.getStats().hitCount());
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.RemotingContextHolder;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchInvocationServiceBeanTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private ApplicationContext savedRemotingContext;
+    private GenericApplicationContext remotingContext;
+
+    @BeforeEach
+    public void setUp() {
+        HttpServiceExporter exporter = new HttpServiceExporter();
+        exporter.setServiceInterface(BatchedService.class);
+        exporter.setService(new BatchedServiceBean());
+        exporter.setBeanName("/" + BatchedService.NAME);
+        exporter.afterPropertiesSet();
+
+        remotingContext = new GenericApplicationContext();
+        remotingContext.getBeanFactory().registerSingleton("/" + BatchedService.NAME, exporter);
+        remotingContext.refresh();
+
+        savedRemotingContext = RemotingContextHolder.getRemotingApplicationContext();
+        RemotingContextHolder.setRemotingApplicationContext(remotingContext);
+
+        // makes ServiceInvocationBatch send batch requests instead of invoking services one by one
+        AppContext.setProperty("cuba.connectionUrlList", "http://localhost:8080/cuba-core");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        AppContext.setProperty("cuba.connectionUrlList", null);
+        RemotingContextHolder.setRemotingApplicationContext(savedRemotingContext);
+        remotingContext.close();
+    }
+
+    @Test
+    public void testSecurityContextAppliedToEachCall() throws Exception {
+        UUID firstSessionId = UUID.randomUUID();
+        UUID secondSessionId = UUID.randomUUID();
+        SecurityContext securityContext = AppContext.getSecurityContext();
+
+        CompletableFuture<UUID> first;
+        CompletableFuture<UUID> second;
+        CompletableFuture<UUID> current;
+        try (ServiceInvocationBatch batch = new ServiceInvocationBatch()) {
+            AppContext.setSecurityContext(new SecurityContext(firstSessionId));
+            first = batch.submit(BatchedService.class, BatchedService::getSessionId);
+            AppContext.setSecurityContext(new SecurityContext(secondSessionId));
+            second = batch.submit(BatchedService.class, BatchedService::getSessionId);
+            AppContext.setSecurityContext(securityContext);
+            current = batch.submit(BatchedService.class, BatchedService::getSessionId);
+        }
+
+        assertEquals(firstSessionId, first.get());
+        assertEquals(secondSessionId, second.get());
+        assertEquals(securityContext.getSessionId(), current.get());
+        assertSame(securityContext, AppContext.getSecurityContext());
+    }
+
+    @Test
+    public void testNotExportedServiceRejected() throws Exception {
+        CompletableFuture<UUID> exported;
+        CompletableFuture<UUID> notExported;
+        CompletableFuture<List<RemoteInvocationResult>> batchService;
+        try (ServiceInvocationBatch batch = new ServiceInvocationBatch()) {
+            exported = batch.submit(BatchedService.class, BatchedService::getSessionId);
+            notExported = batch.submit("test_NotExportedService", BatchedService.class, BatchedService::getSessionId);
+            batchService = batch.submit(BatchInvocationService.class, service -> service.invoke(null));
+        }
+
+        assertNotNull(exported.get());
+
+        ExecutionException exception = assertThrows(ExecutionException.class, notExported::get);
+        assertTrue(exception.getCause() instanceof IllegalArgumentException);
+        assertTrue(exception.getCause().getMessage().contains("test_NotExportedService"));
+
+        exception = assertThrows(ExecutionException.class, batchService::get);
+        assertTrue(exception.getCause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void testExceptionReturnedForFailedCallOnly() throws Exception {
+        CompletableFuture<String> before;
+        CompletableFuture<String> failed;
+        CompletableFuture<String> after;
+        try (ServiceInvocationBatch batch = new ServiceInvocationBatch()) {
+            before = batch.submit(BatchedService.class, service -> service.echo("before"));
+            failed = batch.submit(BatchedService.class, service -> service.fail("failed"));
+            after = batch.submit(BatchedService.class, service -> service.echo("after"));
+        }
+
+        assertEquals("before", before.get());
+        assertEquals("after", after.get());
+
+        ExecutionException exception = assertThrows(ExecutionException.class, failed::get);
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        assertEquals("failed", exception.getCause().getMessage());
+    }
+
+    @Test
+    public void testResultsReturnedInOrderOfInvocations() {
+        CubaRemoteInvocation echo = new CubaRemoteInvocation("echo", new Class[]{String.class},
+                new Object[]{"value"}, null);
+        CubaRemoteInvocation fail = new CubaRemoteInvocation("fail", new Class[]{String.class},
+                new Object[]{"failed"}, null);
+
+        BatchInvocationService batchInvocationService = AppBeans.get(BatchInvocationService.NAME);
+        List<RemoteInvocationResult> results = batchInvocationService.invoke(Arrays.asList(
+                new BatchedInvocation(BatchedService.NAME, echo),
+                new BatchedInvocation("test_NotExportedService", echo),
+                new BatchedInvocation(BatchedService.NAME, fail)));
+
+        assertEquals(3, results.size());
+        assertEquals("value", results.get(0).getValue());
+        assertTrue(results.get(1).getException() instanceof IllegalArgumentException);
+        assertNotNull(results.get(2).getException());
+    }
+
+    public interface BatchedService {
+        String NAME = "test_BatchedService";
+
+        UUID getSessionId();
+
+        String echo(String value);
+
+        String fail(String message);
+    }
+
+    public static class BatchedServiceBean implements BatchedService {
+
+        @Override
+        public UUID getSessionId() {
+            return AppContext.getSecurityContextNN().getSessionId();
+        }
+
+        @Override
+        public String echo(String value) {
+            return value;
+        }
+
+        @Override
+        public String fail(String message) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
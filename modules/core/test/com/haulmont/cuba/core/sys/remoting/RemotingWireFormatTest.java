@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RemotingWireFormatTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    @Test
+    public void testKryoResultWithCompression() throws Exception {
+        List<String> value = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            value.add("item-" + i);
+        }
+
+        byte[] bytes = RemotingWireFormat.serializeWithKryo(new RemoteInvocationResult(value));
+        assertNotNull(bytes);
+
+        byte[] compressed = RemotingWireFormat.compress(bytes);
+        assertTrue(compressed.length < bytes.length);
+
+        RemoteInvocationResult result = (RemoteInvocationResult) RemotingWireFormat.deserializeWithKryo(
+                new GZIPInputStream(new ByteArrayInputStream(compressed)));
+        assertEquals(value, result.getValue());
+    }
+
+    @Test
+    public void testHeaderContains() {
+        assertTrue(RemotingWireFormat.contains("kryo, java", RemotingWireFormat.KRYO));
+        assertTrue(RemotingWireFormat.contains("gzip,deflate", RemotingWireFormat.GZIP));
+        assertFalse(RemotingWireFormat.contains("java", RemotingWireFormat.KRYO));
+        assertFalse(RemotingWireFormat.contains(null, RemotingWireFormat.KRYO));
+    }
+
+    @Test
+    public void testStatistics() {
+        RemotingStatistics statistics = new RemotingStatistics();
+        statistics.record("test_Service", RemotingWireFormat.KRYO, 100, 2000, 5_000_000);
+        statistics.record("test_Service", RemotingWireFormat.JAVA, 200, 3000, 15_000_000);
+
+        assertEquals("test_Service: invocations=2, kryo=1, requestBytes=300, responseBytes=5000, totalTimeMs=20, avgTimeMs=10\n",
+                statistics.print());
+
+        statistics.reset();
+        assertEquals("No invocations", statistics.print());
+    }
+}
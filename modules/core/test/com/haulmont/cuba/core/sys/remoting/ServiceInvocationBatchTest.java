@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.app.TestingService;
+import com.haulmont.cuba.core.global.RemoteException;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServiceInvocationBatchTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    @Test
+    public void testResultsAndExceptions() throws Exception {
+        CompletableFuture<Boolean> result;
+        CompletableFuture<String> failedResult;
+
+        try (ServiceInvocationBatch batch = new ServiceInvocationBatch()) {
+            result = batch.submit(TestingService.class, service -> service.primitiveParameters(true, 1, 2L, 3.0));
+            failedResult = batch.submit(TestingService.class, service -> {
+                try {
+                    return service.executeWithException();
+                } catch (TestingService.TestException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+
+            assertEquals(2, batch.size());
+            assertFalse(result.isDone());
+        }
+
+        assertTrue(result.get());
+
+        ExecutionException exception = assertThrows(ExecutionException.class, failedResult::get);
+        assertTrue(exception.getCause() instanceof RemoteException);
+        assertTrue(((RemoteException) exception.getCause()).getFirstCauseException() instanceof TestingService.TestException);
+    }
+
+    @Test
+    public void testInvalidInvocation() {
+        ServiceInvocationBatch batch = new ServiceInvocationBatch();
+
+        assertThrows(IllegalArgumentException.class, () -> batch.submit(TestingService.class, service -> null));
+        assertThrows(IllegalArgumentException.class, () -> batch.submit(TestingService.class, service -> {
+            service.execute();
+            return service.execute();
+        }));
+        assertEquals(0, batch.size());
+    }
+}
@@ -30,6 +30,8 @@ import com.haulmont.cuba.core.global.View;
 import com.haulmont.cuba.core.jmx.QueryCacheSupportMBean;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.entitycache.QueryCache;
+import com.haulmont.cuba.core.sys.entitycache.QueryCacheManager;
+import com.haulmont.cuba.core.sys.entitycache.QueryCacheStatistics;
 import com.haulmont.cuba.security.entity.*;
 import com.haulmont.cuba.testsupport.TestAppender;
 import com.haulmont.cuba.testsupport.TestContainer;
@@ -441,6 +443,48 @@ public class QueryCacheTestClass {
         appender.clearMessages();
     }
 
+    @Test
+    public void testQueryResultsWithColdEntityCache() throws Exception {
+        QueryCacheStatistics statistics = AppBeans.get(QueryCacheManager.class).getStatistics();
+        statistics.reset();
+        appender.clearMessages();
+        assertEquals(0, queryCache.size());
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            EntityManager em = cont.entityManager();
+            TypedQuery<User> query = em.createQuery("select u from sec$User u where u.login like 'ECTest-%' order by u.name desc", User.class);
+            query.setCacheable(true);
+            query.setViewName("user.browse");
+            List<User> result = query.getResultList();
+            assertEquals(result.size(), 2);
+            tx.commit();
+        }
+        assertEquals(2, appender.filterMessages(m -> m.contains("> SELECT")).count()); // User, Group
+        assertEquals(1, statistics.getMissCount());
+        appender.clearMessages();
+
+        cache.clear();
+
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            EntityManager em = cont.entityManager();
+            TypedQuery<User> query = em.createQuery("select u from sec$User u where u.login like 'ECTest-%' order by u.name desc", User.class);
+            query.setCacheable(true);
+            query.setViewName("user.browse");
+            List<User> result = query.getResultList();
+            assertEquals(result.size(), 2);
+            assertUserBrowseView(result.get(0));
+            assertEquals(this.user2.getLogin(), result.get(0).getLogin());
+            assertUserBrowseView(result.get(1));
+            assertEquals(this.user.getLogin(), result.get(1).getLogin());
+            tx.commit();
+        }
+        assertEquals(2, appender.filterMessages(m -> m.contains("> SELECT")).count()); // User by ids, Group
+        assertEquals(1, queryCache.size());
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(2, statistics.getMaterializedCount());
+        assertEquals(1, statistics.getMaterializationQueryCount());
+        appender.clearMessages();
+    }
+
     @Test
     public void testQueryPaging() throws Exception {
         appender.clearMessages();
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.security;
+
+import com.haulmont.cuba.core.PersistenceSecurity;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Metadata;
+import com.haulmont.cuba.core.global.UserSessionSource;
+import com.haulmont.cuba.core.sys.ConstraintStatistics;
+import com.haulmont.cuba.security.app.group.AccessConstraintsBuilder;
+import com.haulmont.cuba.security.entity.EntityOp;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.global.UserSession;
+import com.haulmont.cuba.security.group.SetOfAccessConstraints;
+import com.haulmont.cuba.testsupport.TestContainer;
+import com.haulmont.cuba.testsupport.TestUserSessionSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroovyConstraintEvaluationTest {
+
+    @RegisterExtension
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private PersistenceSecurity security;
+    private Metadata metadata;
+    private TestUserSessionSource userSessionSource;
+    private UserSession savedUserSession;
+
+    @BeforeEach
+    public void setUp() {
+        security = AppBeans.get(PersistenceSecurity.class);
+        metadata = AppBeans.get(Metadata.class);
+        userSessionSource = (TestUserSessionSource) AppBeans.get(UserSessionSource.class);
+        savedUserSession = userSessionSource.getUserSession();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        userSessionSource.setUserSession(savedUserSession);
+    }
+
+    @Test
+    public void testFilterByConstraints() {
+        setConstraints(AccessConstraintsBuilder.create()
+                .withGroovy(User.class, EntityOp.READ,
+                        "{E}.login.startsWith(userSession.user.login) && {E}.active == parse(Boolean, 'true')")
+                .build());
+
+        User user1 = createUser("test_admin1", true);
+        User user2 = createUser("test_admin2", false);
+        User user3 = createUser("other", true);
+
+        List<Entity> users = new ArrayList<>(Arrays.asList(user1, user2, user3));
+        assertTrue(security.filterByConstraints(users));
+        assertEquals(1, users.size());
+        assertEquals(user1, users.get(0));
+
+        assertTrue(security.isPermitted(user1, EntityOp.READ));
+        assertFalse(security.isPermitted(user3, EntityOp.READ));
+
+        String statistics = AppBeans.get(ConstraintStatistics.class).print();
+        assertTrue(statistics.contains("sec$User: evaluations="));
+    }
+
+    @Test
+    public void testConstraintsNotCompiledToClosure() {
+        setConstraints(AccessConstraintsBuilder.create()
+                .withGroovy(User.class, EntityOp.READ,
+                        "import org.apache.commons.lang3.StringUtils\n" +
+                                "StringUtils.startsWith({E}.login, 'test')")
+                .withCustomGroovy(User.class, "invalid", "{E}.login.")
+                .build());
+
+        User user1 = createUser("test_admin1", true);
+        User user2 = createUser("other", true);
+
+        List<Entity> users = new ArrayList<>(Arrays.asList(user1, user2));
+        assertTrue(security.filterByConstraints(users));
+        assertEquals(1, users.size());
+        assertEquals(user1, users.get(0));
+
+        assertFalse(security.isPermitted(user1, "invalid"));
+    }
+
+    @Test
+    public void testConstraintsBoundToCurrentSession() {
+        SetOfAccessConstraints constraints = AccessConstraintsBuilder.create()
+                .withGroovy(User.class, EntityOp.READ, "{E}.login == userSession.user.login")
+                .build();
+        setConstraints(constraints);
+
+        User user = createUser("test_admin", true);
+        assertTrue(security.isPermitted(user, EntityOp.READ));
+
+        User sessionUser = createUser("other", true);
+        UserSession session = new UserSession(UUID.randomUUID(), sessionUser, Collections.emptyList(),
+                Locale.ENGLISH, false);
+        session.setConstraints(constraints);
+        userSessionSource.setUserSession(session);
+
+        assertFalse(security.isPermitted(user, EntityOp.READ));
+        assertTrue(security.isPermitted(sessionUser, EntityOp.READ));
+    }
+
+    private void setConstraints(SetOfAccessConstraints constraints) {
+        UserSession session = new UserSession(savedUserSession);
+        session.setConstraints(constraints);
+        userSessionSource.setUserSession(session);
+    }
+
+    private User createUser(String login, boolean active) {
+        User user = metadata.create(User.class);
+        user.setLogin(login);
+        user.setActive(active);
+        return user;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.data_manager
+
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.DataManager
+import com.haulmont.cuba.core.global.LoadContext
+import com.haulmont.cuba.core.global.Sort
+import com.haulmont.cuba.testmodel.sales.Customer
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+import java.util.stream.Collectors
+
+class DataManagerLoadStreamTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private DataManager dataManager
+    private List<Customer> customers
+
+    void setup() {
+        dataManager = AppBeans.get(DataManager)
+
+        customers = (1..7).collect { i ->
+            Customer customer = cont.metadata().create(Customer)
+            customer.name = "stream-$i"
+            customer
+        }
+        dataManager.commit(customers as Customer[])
+    }
+
+    void cleanup() {
+        cont.deleteRecord(customers as Customer[])
+    }
+
+    def "stream loads all instances by chunks"() {
+
+        when:
+        List<Customer> loaded = dataManager.load(Customer)
+                .query('select c from test$Customer c where c.name like :name order by c.name desc')
+                .parameter('name', 'stream-%')
+                .stream(3)
+                .collect(Collectors.toList())
+
+        then:
+        loaded.size() == 7
+        loaded.collect { it.id } as Set == customers.collect { it.id } as Set
+    }
+
+    def "stream rejects offset and limit"() {
+
+        def context = LoadContext.create(Customer)
+                .setQuery(LoadContext.createQuery('select c from test$Customer c where c.name like :name')
+                    .setParameter('name', 'stream-%')
+                    .setFirstResult(2)
+                    .setMaxResults(2))
+
+        when:
+        dataManager.loadStream(context, 2)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "stream rejects sort"() {
+
+        def context = LoadContext.create(Customer)
+                .setQuery(LoadContext.createQuery('select c from test$Customer c where c.name like :name')
+                    .setParameter('name', 'stream-%')
+                    .setSort(Sort.by('name')))
+
+        when:
+        dataManager.loadStream(context, 2)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    def "stream is empty when nothing found"() {
+
+        when:
+        long count = dataManager.load(Customer)
+                .query('select c from test$Customer c where c.name = :name')
+                .parameter('name', 'nobody')
+                .stream(10)
+                .count()
+
+        then:
+        count == 0
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.entity_log
+
+import com.haulmont.cuba.core.EntityManager
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.security.entity.EntityLogItem
+import com.haulmont.cuba.security.entity.User
+
+class EntityLogAsyncWritingTest extends AbstractEntityLogTest {
+
+    private UUID userId
+
+    void setup() {
+        clearTables("SEC_LOGGED_ATTR", "SEC_LOGGED_ENTITY")
+
+        withTransaction { EntityManager em ->
+            clearTable(em, "SEC_ENTITY_LOG")
+            saveEntityLogAutoConfFor(em, 'sec$User', 'name', 'email')
+        }
+
+        initEntityLogAPI()
+
+        AppContext.setProperty('cuba.entityLog.asyncWritingEnabled', 'true')
+    }
+
+    void cleanup() {
+        AppContext.setProperty('cuba.entityLog.asyncWritingEnabled', null)
+
+        clearTables("SEC_LOGGED_ATTR", "SEC_LOGGED_ENTITY")
+
+        if (userId != null)
+            cont.deleteRecord("SEC_USER", userId)
+    }
+
+    def "several changes of an entity in one transaction are written as a single item by the async writer"() {
+
+        when:
+
+        withTransaction { EntityManager em ->
+            User user = cont.metadata().create(User)
+            user.setLogin('entityLogAsyncUser')
+            user.setName('name1')
+            user.setEmail('email1')
+            user.setGroup(findCompanyGroup())
+            em.persist(user)
+            userId = user.getId()
+        }
+
+        withTransaction { EntityManager em ->
+            User user = em.find(User, userId)
+            user.setName('name2')
+            em.flush()
+            user.setEmail('email2')
+        }
+
+        List<EntityLogItem> items = waitForEntityLogItems(2)
+
+        then:
+
+        items.size() == 2
+        items[0].type == EntityLogItem.Type.MODIFY
+        loggedValueMatches(items[0], 'name', 'name2')
+        loggedValueMatches(items[0], 'email', 'email2')
+        loggedOldValueMatches(items[0], 'name', 'name1')
+        loggedOldValueMatches(items[0], 'email', 'email1')
+        items[1].type == EntityLogItem.Type.CREATE
+    }
+
+    protected List<EntityLogItem> waitForEntityLogItems(int expectedCount) {
+        List<EntityLogItem> items = getEntityLogItems('sec$User', userId)
+        long deadline = System.currentTimeMillis() + 10000
+        while ((items.size() < expectedCount || entityLog.getAsyncQueueSize() > 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100)
+            items = getEntityLogItems('sec$User', userId)
+        }
+        return items
+    }
+}
@@ -5,9 +5,13 @@
 
 package spec.cuba.core.entity_serialization
 
+import com.google.gson.reflect.TypeToken
+import com.haulmont.cuba.core.app.serialization.EntitySerialization
 import com.haulmont.cuba.core.app.serialization.EntitySerializationAPI
 import com.haulmont.cuba.core.app.serialization.EntitySerializationOption
+import com.haulmont.cuba.core.entity.Entity
 import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.View
 import com.haulmont.cuba.testmodel.entity_serialization.Serialization_Order
 import com.haulmont.cuba.testmodel.entity_serialization.Serialization_OrderItem
 import com.haulmont.cuba.testsupport.TestContainer
@@ -94,4 +98,129 @@ class EntityJsonSerializationTest extends Specification {
         parsedObject.transientField == 'tf'
         parsedObject.valueFromMetaPropertyMethod == null
     }
+
+    def "collection streamed to writer is the same as serialized to string"() {
+        def orders = (1..3).collect { i ->
+            def order = cont.metadata().create(Serialization_Order.class)
+            order.number = "order-$i"
+
+            def orderItem = cont.metadata().create(Serialization_OrderItem.class)
+            orderItem.name = "item-$i"
+            orderItem.order = order
+            order.items = [orderItem]
+            order
+        }
+        def view = new View(Serialization_Order.class)
+                .addProperty('number')
+                .addProperty('items', new View(Serialization_OrderItem.class).addProperty('name'))
+
+        when:
+
+        def writer = new StringWriter()
+        entitySerializationAPI.toJson(orders, view, writer, EntitySerializationOption.PRETTY_PRINT)
+
+        then:
+
+        writer.toString() == entitySerializationAPI.toJson(orders, view, EntitySerializationOption.PRETTY_PRINT)
+
+        def parsedObject = new JsonSlurper().parseText(writer.toString())
+        parsedObject.size() == 3
+        parsedObject[2].number == 'order-3'
+        parsedObject[2].items[0].name == 'item-3'
+        parsedObject[2].transientField == null
+
+        when:
+
+        def entities = entitySerializationAPI.entitiesCollectionFromJson(new StringReader(writer.toString()), null)
+
+        then:
+
+        entities*.number == ['order-1', 'order-2', 'order-3']
+        entities[0].items[0].name == 'item-1'
+    }
+
+    def "JSON is the same as produced by the tree-based serializer"() {
+        def order = cont.metadata().create(Serialization_Order.class)
+        order.id = UUID.fromString('6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b51')
+        order.number = 'order-1'
+        order.transientField = 'tf'
+
+        def orderItem1 = cont.metadata().create(Serialization_OrderItem.class)
+        orderItem1.id = UUID.fromString('6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b52')
+        orderItem1.name = 'item-1'
+        orderItem1.order = order
+
+        def orderItem2 = cont.metadata().create(Serialization_OrderItem.class)
+        orderItem2.id = UUID.fromString('6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b53')
+        orderItem2.name = 'item-2'
+        orderItem2.order = order
+        orderItem2.relatedItem = orderItem1
+
+        order.items = [orderItem1, orderItem2]
+
+        expect: "cyclic references are written as compact entities"
+
+        entitySerializationAPI.toJson(order) ==
+                '{"_entityName":"test$Serialization_Order","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b51",' +
+                '"number":"order-1","valueFromMetaPropertyMethod":"some value","items":[' +
+                '{"_entityName":"test$Serialization_OrderItem","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b52",' +
+                '"name":"item-1",' +
+                '"order":{"_entityName":"test$Serialization_Order","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b51"}},' +
+                '{"_entityName":"test$Serialization_OrderItem","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b53",' +
+                '"name":"item-2",' +
+                '"relatedItem":{"_entityName":"test$Serialization_OrderItem","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b52",' +
+                '"name":"item-1",' +
+                '"order":{"_entityName":"test$Serialization_Order","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b51"}},' +
+                '"order":{"_entityName":"test$Serialization_Order","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b51"}}],' +
+                '"transientField":"tf"}'
+
+        when: "a view, compact repeated entities and nulls are used"
+
+        order.transientField = null
+        orderItem2.name = null
+        def view = new View(Serialization_Order.class)
+                .addProperty('number')
+                .addProperty('transientField')
+                .addProperty('items', new View(Serialization_OrderItem.class)
+                    .addProperty('name')
+                    .addProperty('relatedItem', new View(Serialization_OrderItem.class).addProperty('name'))
+                    .addProperty('order', new View(Serialization_Order.class).addProperty('number')))
+
+        def json = entitySerializationAPI.toJson(order, view,
+                EntitySerializationOption.COMPACT_REPEATED_ENTITIES, EntitySerializationOption.SERIALIZE_NULLS)
+
+        then: "repeated entities are written once and properties outside of the view are skipped"
+
+        json == '{"_entityName":"test$Serialization_Order","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b51",' +
+                '"number":"order-1","items":[' +
+                '{"_entityName":"test$Serialization_OrderItem","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b52",' +
+                '"name":"item-1","relatedItem":null,' +
+                '"order":{"_entityName":"test$Serialization_Order","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b51"}},' +
+                '{"_entityName":"test$Serialization_OrderItem","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b53",' +
+                '"name":null,' +
+                '"relatedItem":{"_entityName":"test$Serialization_OrderItem","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b52"},' +
+                '"order":{"_entityName":"test$Serialization_Order","id":"6a4a7d0c-8a11-4a7e-9a55-0e1f2c3d4b51"}}],' +
+                '"transientField":null}'
+    }
+
+    def "entities are read by Gson created for serialization"() {
+        def order = cont.metadata().create(Serialization_Order.class)
+        order.number = 'order-1'
+
+        def entitySerialization = AppBeans.get(EntitySerializationAPI.NAME) as EntitySerialization
+        def gson = entitySerialization.createGsonForSerialization(null)
+
+        when:
+
+        def json = gson.toJson([order])
+        def entities = gson.fromJson(json, new TypeToken<List<Entity>>() {}.getType()) as List<Entity>
+
+        then:
+
+        json == entitySerializationAPI.toJson([order])
+        entities.size() == 1
+        entities[0] instanceof Serialization_Order
+        entities[0].id == order.id
+        entities[0].number == 'order-1'
+    }
 }
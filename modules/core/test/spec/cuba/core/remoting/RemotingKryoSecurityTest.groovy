@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.remoting
+
+import com.haulmont.cuba.core.app.ServerInfoService
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.core.sys.remoting.HttpServiceExporter
+import com.haulmont.cuba.core.sys.remoting.RemotingKryoSerialization
+import com.haulmont.cuba.core.sys.remoting.RemotingWireFormat
+import com.haulmont.cuba.core.sys.serialization.SerializationException
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.testsupport.TestContainer
+import org.apache.commons.lang3.tuple.MutablePair
+import org.junit.ClassRule
+import org.springframework.remoting.support.RemoteInvocationResult
+import spock.lang.Shared
+import spock.lang.Specification
+
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+class RemotingKryoSecurityTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    void cleanup() {
+        AppContext.setProperty('cuba.remoting.kryoEnabled', null)
+        AppContext.setProperty('cuba.remoting.kryoAllowedPackages', null)
+    }
+
+    def "Kryo request is rejected if Kryo is not enabled"() {
+        def exporter = new HttpServiceExporter()
+        exporter.setServiceInterface(ServerInfoService)
+        exporter.setService(AppBeans.get(ServerInfoService.NAME))
+
+        def request = Mock(HttpServletRequest) {
+            getHeader(RemotingWireFormat.FORMAT_HEADER) >> RemotingWireFormat.KRYO
+        }
+        def response = Mock(HttpServletResponse)
+
+        when:
+        exporter.handleRequest(request, response)
+
+        then:
+        1 * response.sendError(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE)
+        0 * request.getInputStream()
+    }
+
+    def "classes outside of the allow-list are not deserialized"() {
+        def bytes = RemotingWireFormat.serializeWithKryo(new RemoteInvocationResult(MutablePair.of('a', 'b')))
+
+        when:
+        RemotingWireFormat.deserializeWithKryo(new ByteArrayInputStream(bytes))
+
+        then:
+        def e = thrown(SerializationException)
+        e.cause.message.contains(MutablePair.name)
+    }
+
+    def "entities and allowed packages are deserialized"() {
+        def user = cont.metadata().create(User)
+        user.login = 'remoting_test'
+        def bytes = RemotingWireFormat.serializeWithKryo(new RemoteInvocationResult([user, 10L, 'text']))
+
+        when:
+        def result = RemotingWireFormat.deserializeWithKryo(new ByteArrayInputStream(bytes)) as RemoteInvocationResult
+
+        then:
+        result.value == [user, 10L, 'text']
+        result.value[0].login == 'remoting_test'
+
+        when:
+        AppContext.setProperty('cuba.remoting.kryoAllowedPackages', 'org.apache.commons.lang3.tuple')
+        def serialization = new RemotingKryoSerialization()
+
+        then:
+        serialization.isAllowed(MutablePair)
+        serialization.isAllowed(User[])
+        !serialization.isAllowed(java.lang.reflect.Proxy)
+
+        cleanup:
+        serialization?.shutdown()
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.core.user_sessions
+
+import com.haulmont.cuba.core.global.AppBeans
+import com.haulmont.cuba.core.global.UserSessionSource
+import com.haulmont.cuba.core.sys.AppContext
+import com.haulmont.cuba.security.app.UserSessions
+import com.haulmont.cuba.security.global.UserSession
+import com.haulmont.cuba.testsupport.TestContainer
+import org.junit.ClassRule
+import spock.lang.Shared
+import spock.lang.Specification
+
+class UserSessionsClusterStateTest extends Specification {
+
+    @Shared @ClassRule
+    public TestContainer cont = TestContainer.Common.INSTANCE
+
+    private UserSessions userSessions
+    private List<UserSession> sessions
+
+    void setup() {
+        userSessions = AppBeans.get(UserSessions)
+
+        def user = AppBeans.get(UserSessionSource).userSession.user
+        sessions = (1..5).collect {
+            def session = new UserSession(UUID.randomUUID(), user, Collections.emptyList(), Locale.ENGLISH, false)
+            session.setAttribute('number', it)
+            userSessions.add(session)
+            session
+        }
+    }
+
+    void cleanup() {
+        AppContext.setProperty('cuba.userSessionStateChunkSize', null)
+        sessions.each { userSessions.remove(it) }
+    }
+
+    def "state is transferred in chunks"() {
+        AppContext.setProperty('cuba.userSessionStateChunkSize', '2')
+
+        def lastUsedTs = sessions.collectEntries { [(it.id): userSessions.getSessionInfo(it.id).lastUsedTs] }
+
+        when:
+
+        byte[] state = userSessions.sendClusterState()
+        sessions.each { userSessions.removeSessionInfo(it.id) }
+        userSessions.receiveClusterState(state)
+
+        then:
+
+        sessions.every {
+            def info = userSessions.getSessionInfo(it.id)
+            info != null && info.lastUsedTs == lastUsedTs[it.id] && info.session.getAttribute('number') == it.getAttribute('number')
+        }
+        userSessions.lastSentStateBytes == state.length
+    }
+
+    def "received touches update last used timestamp"() {
+        def session = sessions[0]
+        def lastUsedTs = userSessions.getSessionInfo(session.id).lastUsedTs
+
+        when:
+
+        userSessions.receiveClusterTouches(new UserSessions.UserSessionTouches(
+                [session.id, UUID.randomUUID()] as UUID[], [lastUsedTs + 1000, lastUsedTs + 1000] as long[]))
+
+        then:
+
+        userSessions.getSessionInfo(session.id).lastUsedTs == lastUsedTs + 1000
+    }
+}
@@ -109,7 +109,10 @@ public abstract class AbstractInstance implements Instance {
     }
 
     protected MethodsCache getMethodsCache() {
-        Class cls = getClass();
+        return getMethodsCache(getClass());
+    }
+
+    static MethodsCache getMethodsCache(Class cls) {
         MethodsCache cache = methodCacheMap.get(cls);
         if (cache == null) {
             cache = new MethodsCache(cls);
@@ -19,11 +19,13 @@ package com.haulmont.chile.core.model.impl;
 
 import com.haulmont.chile.core.model.*;
 
+import javax.annotation.Nullable;
 import java.io.InvalidObjectException;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.function.Function;
 
 @SuppressWarnings({"TransientFieldNotInitialized"})
 public class MetaPropertyImpl extends MetadataObjectImpl implements MetaProperty {
@@ -42,6 +44,9 @@ public class MetaPropertyImpl extends MetadataObjectImpl implements MetaProperty
     private transient Class<?> javaType;
     private transient Class<?> declaringClass;
 
+    private transient volatile Function getter;
+    private transient volatile boolean getterResolved;
+
     private static final long serialVersionUID = -2827471157045502206L;
 
     public MetaPropertyImpl(MetaClass domain, String name) {
@@ -118,6 +123,31 @@ public class MetaPropertyImpl extends MetadataObjectImpl implements MetaProperty
 
     public void setDeclaringClass(Class<?> declaringClass) {
         this.declaringClass = declaringClass;
+        this.getterResolved = false;
+    }
+
+    /**
+     * Returns the getter of this property that can be applied to instances of the {@link #getDeclaringClass()}
+     * and its subclasses. The getter is resolved once and cached, so reading the value by the getter does not
+     * require a lookup by the property name.
+     *
+     * @return getter or null if the property is not backed by a getter method of an {@link AbstractInstance}
+     */
+    @Nullable
+    public Function getGetter() {
+        if (!getterResolved) {
+            Function resolved = null;
+            if (declaringClass != null && AbstractInstance.class.isAssignableFrom(declaringClass)) {
+                try {
+                    resolved = AbstractInstance.getMethodsCache(declaringClass).getGetter(name);
+                } catch (RuntimeException e) {
+                    // the declaring class is not accessible, values are read by the property name
+                }
+            }
+            getter = resolved;
+            getterResolved = true;
+        }
+        return getter;
     }
 
     public void setRange(Range range) {
@@ -17,7 +17,10 @@
 package com.haulmont.chile.core.model.utils;
 
 import com.haulmont.chile.core.model.Instance;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.chile.core.model.impl.AbstractInstance;
+import com.haulmont.chile.core.model.impl.MetaPropertyImpl;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.MetadataTools;
 import org.apache.commons.lang3.ArrayUtils;
@@ -26,6 +29,7 @@ import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Utility class to work with {@link Instance}s.
@@ -128,6 +132,10 @@ public final class InstanceUtils {
      * @return attribute value
      */
     public static <T> T getValueEx(Instance instance, Instance.BeanPropertyPath propertyPath) {
+        if (propertyPath instanceof MetaPropertyPath) {
+            return getValueEx(instance, ((MetaPropertyPath) propertyPath).getMetaProperties());
+        }
+
         if (propertyPath.isDirectProperty()) {
             return instance.getValue(propertyPath.getFirstPropertyName());
         }
@@ -136,6 +144,53 @@ public final class InstanceUtils {
         return getValueEx(instance, properties);
     }
 
+    /**
+     * Get value of an attribute according to the rules described in {@link Instance#getValueEx(String)}.
+     *
+     * @param instance   instance
+     * @param properties path to the attribute
+     * @return attribute value
+     */
+    public static <T> T getValueEx(Instance instance, MetaProperty[] properties) {
+        Object currentValue = null;
+        Instance currentInstance = instance;
+        for (MetaProperty property : properties) {
+            if (currentInstance == null)
+                break;
+
+            currentValue = getValue(currentInstance, property);
+            if (currentValue == null)
+                break;
+
+            currentInstance = currentValue instanceof Instance ? (Instance) currentValue : null;
+        }
+        //noinspection unchecked
+        return (T) currentValue;
+    }
+
+    /**
+     * Get value of an attribute. If the instance is an {@link AbstractInstance} of the class declaring the property,
+     * the getter cached in the property metadata is used instead of a lookup by the property name.
+     *
+     * @param instance instance
+     * @param property attribute
+     * @return attribute value
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T getValue(Instance instance, MetaProperty property) {
+        if (property instanceof MetaPropertyImpl) {
+            MetaPropertyImpl propertyImpl = (MetaPropertyImpl) property;
+            Class<?> declaringClass = propertyImpl.getDeclaringClass();
+            if (declaringClass != null && declaringClass.isInstance(instance)) {
+                Function getter = propertyImpl.getGetter();
+                if (getter != null) {
+                    return (T) getter.apply(instance);
+                }
+            }
+        }
+        return instance.getValue(property.getName());
+    }
+
     /**
      * Get value of an attribute according to the rules described in {@link Instance#getValueEx(String)}.
      * @param instance      instance
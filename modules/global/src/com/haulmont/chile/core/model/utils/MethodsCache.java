@@ -20,6 +20,8 @@ import com.google.common.collect.ImmutableMap;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.util.ReflectionUtils;
 
+import javax.annotation.Nullable;
+
 import java.lang.invoke.*;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -128,6 +130,15 @@ public class MethodsCache {
         getSetterNN(property).accept(object, value);
     }
 
+    /**
+     * @param property name of property associated with getter
+     * @return lambda {@link Function} which represents getter or null if getter for property not found
+     */
+    @Nullable
+    public Function getGetter(String property) {
+        return getters.get(property);
+    }
+
     /**
      * @param property name of property associated with getter
      * @return lambda {@link Function} which represents getter
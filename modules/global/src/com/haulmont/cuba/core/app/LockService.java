@@ -79,5 +79,11 @@ public interface LockService {
      */
     List<LockInfo> getCurrentLocks();
 
+    /**
+     * List of current locks of a particular object type
+     * @param name locking object name, e.g. entity name
+     */
+    List<LockInfo> getCurrentLocks(String name);
+
     void reloadConfiguration();
 }
\ No newline at end of file
@@ -22,6 +22,9 @@ import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.model.MetaClass;
@@ -41,13 +44,18 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
-import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
 
 import static com.haulmont.cuba.core.entity.BaseEntityInternalAccess.*;
@@ -72,6 +80,10 @@ public class EntitySerialization implements EntitySerializationAPI {
     protected ThreadLocal<EntitySerializationContext> context =
             ThreadLocal.withInitial(EntitySerializationContext::new);
 
+    protected ConcurrentMap<MetaClass, MetaClassAdapter> metaClassAdapters = new ConcurrentHashMap<>();
+
+    protected ConcurrentMap<String, Gson> deserializationGsons = new ConcurrentHashMap<>();
+
     /**
      * Class is used for storing a collection of entities already processed during the serialization.
      */
@@ -92,8 +104,24 @@ public class EntitySerialization implements EntitySerializationAPI {
     public String toJson(Entity entity,
                          @Nullable View view,
                          EntitySerializationOption... options) {
+        StringWriter writer = new StringWriter();
+        toJson(entity, view, writer, options);
+        return writer.toString();
+    }
+
+    @Override
+    public void toJson(Entity entity,
+                       @Nullable View view,
+                       Writer writer,
+                       EntitySerializationOption... options) {
         context.remove();
-        return createGsonForSerialization(view, options).toJson(entity);
+        try {
+            JsonWriter jsonWriter = createJsonWriter(writer, options);
+            new EntitySerializer(view, options).nullSafe().write(jsonWriter, entity);
+            jsonWriter.flush();
+        } catch (IOException e) {
+            throw new EntitySerializationException("Unable to write entity JSON", e);
+        }
     }
 
     @Override
@@ -105,8 +133,33 @@ public class EntitySerialization implements EntitySerializationAPI {
     public String toJson(Collection<? extends Entity> entities,
                          @Nullable View view,
                          EntitySerializationOption... options) {
+        StringWriter writer = new StringWriter();
+        toJson(entities, view, writer, options);
+        return writer.toString();
+    }
+
+    @Override
+    public void toJson(Collection<? extends Entity> entities,
+                       @Nullable View view,
+                       Writer writer,
+                       EntitySerializationOption... options) {
         context.remove();
-        return createGsonForSerialization(view, options).toJson(entities);
+        try {
+            JsonWriter jsonWriter = createJsonWriter(writer, options);
+            if (entities == null) {
+                jsonWriter.nullValue();
+            } else {
+                TypeAdapter<Entity> serializer = new EntitySerializer(view, options).nullSafe();
+                jsonWriter.beginArray();
+                for (Entity entity : entities) {
+                    serializer.write(jsonWriter, entity);
+                }
+                jsonWriter.endArray();
+            }
+            jsonWriter.flush();
+        } catch (IOException e) {
+            throw new EntitySerializationException("Unable to write entities JSON", e);
+        }
     }
 
     @Override
@@ -121,7 +174,16 @@ public class EntitySerialization implements EntitySerializationAPI {
                                                @Nullable MetaClass metaClass,
                                                EntitySerializationOption... options) {
         context.remove();
-        return (T) createGsonForDeserialization(metaClass, options).fromJson(json, Entity.class);
+        return (T) getGsonForDeserialization(metaClass).fromJson(json, Entity.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends Entity> T entityFromJson(Reader reader,
+                                               @Nullable MetaClass metaClass,
+                                               EntitySerializationOption... options) {
+        context.remove();
+        return (T) getGsonForDeserialization(metaClass).fromJson(reader, Entity.class);
     }
 
     @Override
@@ -131,19 +193,60 @@ public class EntitySerialization implements EntitySerializationAPI {
         context.remove();
         Type collectionType = new TypeToken<Collection<Entity>>() {
         }.getType();
-        return createGsonForDeserialization(metaClass, options).fromJson(json, collectionType);
+        return getGsonForDeserialization(metaClass).fromJson(json, collectionType);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T extends Entity> Collection<T> entitiesCollectionFromJson(Reader reader,
+                                                                       @Nullable MetaClass metaClass,
+                                                                       EntitySerializationOption... options) {
+        context.remove();
+        Gson gson = getGsonForDeserialization(metaClass);
+        JsonReader jsonReader = new JsonReader(reader);
+        try {
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+                return null;
+            }
+            // read array elements one by one to avoid building the tree of the whole array
+            List<T> entities = new ArrayList<>();
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                entities.add((T) gson.fromJson(jsonReader, Entity.class));
+            }
+            jsonReader.endArray();
+            return entities;
+        } catch (IOException | IllegalStateException e) {
+            throw new EntitySerializationException("Unable to read entities JSON", e);
+        }
     }
 
     @Override
     public <T> T objectFromJson(String json, Class<T> clazz, EntitySerializationOption... options) {
         context.remove();
-        return createGsonForDeserialization(null, options).fromJson(json, clazz);
+        return getGsonForDeserialization(null).fromJson(json, clazz);
     }
 
     @Override
     public <T> T objectFromJson(String json, Type type, EntitySerializationOption... options) {
         context.remove();
-        return createGsonForDeserialization(null, options).fromJson(json, type);
+        return getGsonForDeserialization(null).fromJson(json, type);
+    }
+
+    /**
+     * Creates a writer producing the same output as {@link Gson} configured by
+     * {@link #createGsonForSerialization(View, EntitySerializationOption...)}.
+     */
+    protected JsonWriter createJsonWriter(Writer writer, EntitySerializationOption... options) {
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        if (ArrayUtils.contains(options, EntitySerializationOption.PRETTY_PRINT)) {
+            jsonWriter.setIndent("  ");
+        }
+        jsonWriter.setHtmlSafe(true);
+        jsonWriter.setLenient(true);
+        jsonWriter.setSerializeNulls(ArrayUtils.contains(options, EntitySerializationOption.SERIALIZE_NULLS));
+        return jsonWriter;
     }
 
     protected Gson createGsonForSerialization(@Nullable View view, EntitySerializationOption... options) {
@@ -152,7 +255,7 @@ public class EntitySerialization implements EntitySerializationAPI {
             gsonBuilder.setPrettyPrinting();
         }
         gsonBuilder
-                .registerTypeHierarchyAdapter(Entity.class, new EntitySerializer(view, options))
+                .registerTypeHierarchyAdapter(Entity.class, new EntitySerializer(view, options).nullSafe())
                 .registerTypeHierarchyAdapter(Date.class, new DateSerializer())
                 .create();
         if (ArrayUtils.contains(options, EntitySerializationOption.SERIALIZE_NULLS)) {
@@ -161,6 +264,15 @@ public class EntitySerialization implements EntitySerializationAPI {
         return gsonBuilder.create();
     }
 
+    /**
+     * Returns a shared {@link Gson} instance for deserialization of entities of the given metaClass. Deserialization
+     * doesn't depend on options, so instances are created once per metaClass.
+     */
+    protected Gson getGsonForDeserialization(@Nullable MetaClass metaClass) {
+        return deserializationGsons.computeIfAbsent(metaClass != null ? metaClass.getName() : "",
+                name -> createGsonForDeserialization(metaClass));
+    }
+
     protected Gson createGsonForDeserialization(@Nullable MetaClass metaClass, EntitySerializationOption... options) {
         return new GsonBuilder()
                 .registerTypeHierarchyAdapter(Entity.class, new EntityDeserializer(metaClass, options))
@@ -168,6 +280,10 @@ public class EntitySerialization implements EntitySerializationAPI {
                 .create();
     }
 
+    protected MetaClassAdapter getMetaClassAdapter(MetaClass metaClass) {
+        return metaClassAdapters.computeIfAbsent(metaClass, MetaClassAdapter::new);
+    }
+
     @Nullable
     protected Field getField(@Nullable Class clazz, String fieldName) {
         try {
@@ -186,13 +302,77 @@ public class EntitySerialization implements EntitySerializationAPI {
         }
     }
 
-    protected class EntitySerializer implements JsonSerializer<Entity> {
+    /**
+     * Serialization-related information of a metaClass which is calculated once and reused by all serializers.
+     */
+    protected class MetaClassAdapter {
+
+        protected final boolean embeddable;
+        protected final MetaProperty primaryKeyProperty;
+        protected final boolean compositePrimaryKey;
+        protected final Datatype idDatatype;
+        protected final List<PropertyAdapter> properties;
+
+        public MetaClassAdapter(MetaClass metaClass) {
+            embeddable = metadataTools.isEmbeddable(metaClass);
+
+            MetaProperty primaryKeyProperty = metadataTools.getPrimaryKeyProperty(metaClass);
+            if (primaryKeyProperty == null) {
+                primaryKeyProperty = metaClass.getProperty("id");
+            }
+            this.primaryKeyProperty = primaryKeyProperty;
+            compositePrimaryKey = primaryKeyProperty != null && metadataTools.hasCompositePrimaryKey(metaClass);
+            idDatatype = primaryKeyProperty != null && !compositePrimaryKey ?
+                    Datatypes.getNN(primaryKeyProperty.getJavaType()) : null;
+
+            properties = metaClass.getProperties().stream()
+                    .filter(metaProperty -> !"id".equals(metaProperty.getName()))
+                    .map(PropertyAdapter::new)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    protected class PropertyAdapter {
+
+        protected final MetaProperty metaProperty;
+        protected final String name;
+        protected final boolean dynamic;
+        protected final boolean persistent;
+        protected final boolean readOnly;
+        protected final Datatype datatype;
+        protected final boolean collectionDynamicAttribute;
+        protected final boolean enumeration;
+        protected final boolean reference;
+
+        public PropertyAdapter(MetaProperty metaProperty) {
+            this.metaProperty = metaProperty;
+            name = metaProperty.getName();
+            dynamic = DynamicAttributesUtils.isDynamicAttribute(metaProperty);
+            persistent = metadataTools.isPersistent(metaProperty);
+            readOnly = metaProperty.isReadOnly();
+
+            Range range = metaProperty.getRange();
+            datatype = range.isDatatype() ? range.asDatatype() : null;
+            collectionDynamicAttribute = isCollectionDynamicAttribute(metaProperty);
+            enumeration = range.isEnum();
+            reference = range.isClass();
+        }
+    }
+
+    /**
+     * Writes entities directly to {@link JsonWriter} without building an intermediate JSON tree.
+     * <p>
+     * Lists of view properties are calculated once per serializer for each view and metaClass.
+     */
+    protected class EntitySerializer extends TypeAdapter<Entity> {
 
         protected boolean compactRepeatedEntities = false;
         protected boolean serializeInstanceName;
         protected boolean doNotSerializeReadOnlyProperties = false;
         protected View view;
 
+        protected Map<View, Map<MetaClass, List<PropertyAdapter>>> viewProperties = new IdentityHashMap<>();
+
         public EntitySerializer(@Nullable View view, EntitySerializationOption... options) {
             this.view = view;
             if (options != null) {
@@ -208,15 +388,27 @@ public class EntitySerialization implements EntitySerializationAPI {
         }
 
         @Override
-        public JsonElement serialize(Entity entity, Type typeOfSrc, JsonSerializationContext context) {
-            return serializeEntity(entity, view, new HashSet<>());
+        public void write(JsonWriter out, Entity entity) throws IOException {
+            writeEntity(out, entity, view, new HashSet<>());
         }
 
-        protected JsonObject serializeEntity(Entity entity, @Nullable View view, Set<Entity> cyclicReferences) {
-            JsonObject jsonObject = new JsonObject();
+        /**
+         * Reads an entity the same way as {@link EntityDeserializer}, so that a {@link Gson} created by
+         * {@link #createGsonForSerialization(View, EntitySerializationOption...)} can also parse JSON.
+         */
+        @Override
+        public Entity read(JsonReader in) {
+            return getGsonForDeserialization(null).fromJson(in, Entity.class);
+        }
+
+        protected void writeEntity(JsonWriter out, Entity entity, @Nullable View view, Set<Entity> cyclicReferences)
+                throws IOException {
             MetaClass metaClass = entity.getMetaClass();
-            if (!metadataTools.isEmbeddable(metaClass)) {
-                jsonObject.addProperty(ENTITY_NAME_PROP, metaClass.getName());
+            MetaClassAdapter metaClassAdapter = getMetaClassAdapter(metaClass);
+
+            out.beginObject();
+            if (!metaClassAdapter.embeddable) {
+                out.name(ENTITY_NAME_PROP).value(metaClass.getName());
                 if (serializeInstanceName) {
                     String instanceName = null;
                     try {
@@ -224,23 +416,23 @@ public class EntitySerialization implements EntitySerializationAPI {
                     } catch (Exception ignored) {
                         // todo trace logging
                     }
-                    jsonObject.addProperty(INSTANCE_NAME_PROP, instanceName);
+                    out.name(INSTANCE_NAME_PROP).value(instanceName);
                 }
-                writeIdField(entity, jsonObject);
+                writeIdField(out, entity, metaClassAdapter);
                 if (compactRepeatedEntities) {
                     Table<Object, MetaClass, Entity> processedObjects = context.get().getProcessedEntities();
                     if (processedObjects.get(entity.getId(), metaClass) == null) {
                         processedObjects.put(entity.getId(), metaClass, entity);
-                        writeFields(entity, jsonObject, view, cyclicReferences);
+                        writeFields(out, entity, view, cyclicReferences);
                     }
                 } else {
                     if (!cyclicReferences.contains(entity)) {
                         cyclicReferences.add(entity);
-                        writeFields(entity, jsonObject, view, cyclicReferences);
+                        writeFields(out, entity, view, cyclicReferences);
                     }
                 }
             } else {
-                writeFields(entity, jsonObject, view, cyclicReferences);
+                writeFields(out, entity, view, cyclicReferences);
             }
 
             if (globalConfig.getRestRequiresSecurityToken()) {
@@ -249,136 +441,130 @@ public class EntitySerialization implements EntitySerializationAPI {
                     if (securityState != null) {
                         byte[] securityToken = getSecurityToken(securityState);
                         if (securityToken != null) {
-                            jsonObject.addProperty("__securityToken", Base64.getEncoder().encodeToString(securityToken));
+                            out.name("__securityToken").value(Base64.getEncoder().encodeToString(securityToken));
                         }
                     }
                 }
             }
-
-            return jsonObject;
+            out.endObject();
         }
 
-        protected void writeIdField(Entity entity, JsonObject jsonObject) {
-            MetaProperty primaryKeyProperty = metadataTools.getPrimaryKeyProperty(entity.getMetaClass());
-            if (primaryKeyProperty == null) {
-                primaryKeyProperty = entity.getMetaClass().getProperty("id");
-            }
-            if (primaryKeyProperty == null)
+        protected void writeIdField(JsonWriter out, Entity entity, MetaClassAdapter metaClassAdapter) throws IOException {
+            if (metaClassAdapter.primaryKeyProperty == null)
                 throw new EntitySerializationException("Primary key property not found for entity " + entity.getMetaClass());
-            if (metadataTools.hasCompositePrimaryKey(entity.getMetaClass())) {
-                JsonObject serializedIdEntity = serializeEntity((Entity) entity.getId(), null, Collections.emptySet());
-                jsonObject.add("id", serializedIdEntity);
+            if (metaClassAdapter.compositePrimaryKey) {
+                out.name("id");
+                writeEntity(out, (Entity) entity.getId(), null, Collections.emptySet());
             } else {
-                Datatype idDatatype = Datatypes.getNN(primaryKeyProperty.getJavaType());
-                jsonObject.addProperty("id", idDatatype.format(entity.getId()));
+                //noinspection unchecked
+                out.name("id").value(metaClassAdapter.idDatatype.format(entity.getId()));
             }
         }
 
-        protected boolean propertyWritingAllowed(MetaProperty metaProperty, Entity entity) {
-            return !"id".equals(metaProperty.getName()) &&
-                    (DynamicAttributesUtils.isDynamicAttribute(metaProperty) ||
-                            (entity instanceof AbstractNotPersistentEntity) ||
-                            (!metadataTools.isPersistent(metaProperty) &&
-                                    (metaProperty.isReadOnly() && !doNotSerializeReadOnlyProperties || !metaProperty.isReadOnly())) ||
-                            (metadataTools.isPersistent(metaProperty) && PersistenceHelper.isLoaded(entity, metaProperty.getName())));
+        protected List<PropertyAdapter> getProperties(MetaClass metaClass, @Nullable View view) {
+            return viewProperties
+                    .computeIfAbsent(view, v -> new HashMap<>())
+                    .computeIfAbsent(metaClass, mc -> {
+                        List<PropertyAdapter> properties = getMetaClassAdapter(mc).properties;
+                        if (view == null) {
+                            return properties;
+                        }
+                        return properties.stream()
+                                .filter(property -> view.getProperty(property.name) != null)
+                                .collect(Collectors.toList());
+                    });
+        }
+
+        protected boolean propertyWritingAllowed(PropertyAdapter property, Entity entity) {
+            return property.dynamic ||
+                    (entity instanceof AbstractNotPersistentEntity) ||
+                    (!property.persistent &&
+                            (property.readOnly && !doNotSerializeReadOnlyProperties || !property.readOnly)) ||
+                    (property.persistent && PersistenceHelper.isLoaded(entity, property.name));
         }
 
-        protected void writeFields(Entity entity, JsonObject jsonObject, @Nullable View view, Set<Entity> cyclicReferences) {
-            Collection<MetaProperty> properties = new ArrayList<>(entity.getMetaClass().getProperties());
-            if (entity instanceof BaseGenericIdEntity && ((BaseGenericIdEntity) entity).getDynamicAttributes() != null) {
-                List<MetaProperty> dynamicProperties = dynamicAttributes.getAttributesForMetaClass(entity.getMetaClass()).stream()
-                        .map(categoryAttribute -> DynamicAttributesUtils.getMetaPropertyPath(entity.getMetaClass(), categoryAttribute).getMetaProperty())
-                        .collect(Collectors.toList());
-                properties.addAll(dynamicProperties);
+        protected void writeFields(JsonWriter out, Entity entity, @Nullable View view, Set<Entity> cyclicReferences)
+                throws IOException {
+            for (PropertyAdapter property : getProperties(entity.getMetaClass(), view)) {
+                if (propertyWritingAllowed(property, entity)
+                        && (PersistenceHelper.isNew(entity) || PersistenceHelper.isLoaded(entity, property.name))) {
+                    ViewProperty viewProperty = view != null ? view.getProperty(property.name) : null;
+                    writeProperty(out, entity, property, viewProperty, cyclicReferences);
+                }
             }
-            for (MetaProperty metaProperty : properties) {
-                if (propertyWritingAllowed(metaProperty, entity)) {
-                    ViewProperty viewProperty = null;
-                    if (!DynamicAttributesUtils.isDynamicAttribute(metaProperty)) {
-                        if (view != null) {
-                            viewProperty = view.getProperty(metaProperty.getName());
-                            if (viewProperty == null) continue;
-                        }
 
-                        if (!PersistenceHelper.isNew(entity)
-                                && !PersistenceHelper.isLoaded(entity, metaProperty.getName())) {
-                            continue;
-                        }
+            if (entity instanceof BaseGenericIdEntity && ((BaseGenericIdEntity) entity).getDynamicAttributes() != null) {
+                for (CategoryAttribute categoryAttribute : dynamicAttributes.getAttributesForMetaClass(entity.getMetaClass())) {
+                    MetaProperty metaProperty = DynamicAttributesUtils.getMetaPropertyPath(entity.getMetaClass(), categoryAttribute)
+                            .getMetaProperty();
+                    PropertyAdapter property = new PropertyAdapter(metaProperty);
+                    if (propertyWritingAllowed(property, entity)) {
+                        writeProperty(out, entity, property, null, cyclicReferences);
                     }
+                }
+            }
+        }
 
-                    Object fieldValue = entity.getValue(metaProperty.getName());
+        protected void writeProperty(JsonWriter out, Entity entity, PropertyAdapter property,
+                                     @Nullable ViewProperty viewProperty, Set<Entity> cyclicReferences) throws IOException {
+            Object fieldValue = entity.getValue(property.name);
 
-                    //always write nulls here. GSON will not serialize them to the result if
-                    //EntitySerializationOptions.SERIALIZE_NULLS was not set.
-                    if (fieldValue == null) {
-                        jsonObject.add(metaProperty.getName(), null);
-                        continue;
-                    }
+            //always write nulls here. JsonWriter will skip them if
+            //EntitySerializationOptions.SERIALIZE_NULLS was not set.
+            if (fieldValue == null) {
+                out.name(property.name).nullValue();
+                return;
+            }
 
-                    Range propertyRange = metaProperty.getRange();
-                    if (propertyRange.isDatatype()) {
-                        if (isCollectionDynamicAttribute(metaProperty) && fieldValue instanceof Collection) {
-                            jsonObject.add(metaProperty.getName(),
-                                    serializeSimpleCollection((Collection) fieldValue, metaProperty));
-                        } else {
-                            writeSimpleProperty(jsonObject, fieldValue, metaProperty);
-                        }
-                    } else if (propertyRange.isEnum()) {
-                        jsonObject.addProperty(metaProperty.getName(), fieldValue.toString());
-                    } else if (propertyRange.isClass()) {
-                        if (fieldValue instanceof Entity) {
-                            JsonObject propertyJsonObject = serializeEntity((Entity) fieldValue,
-                                    viewProperty != null ? viewProperty.getView() : null,
-                                    new HashSet<>(cyclicReferences));
-                            jsonObject.add(metaProperty.getName(), propertyJsonObject);
-                        } else if (fieldValue instanceof Collection) {
-                            JsonArray jsonArray = serializeCollection((Collection) fieldValue,
-                                    viewProperty != null ? viewProperty.getView() : null,
-                                    new HashSet<>(cyclicReferences));
-                            jsonObject.add(metaProperty.getName(), jsonArray);
-                        }
-                    }
+            if (property.datatype != null) {
+                out.name(property.name);
+                if (property.collectionDynamicAttribute && fieldValue instanceof Collection) {
+                    writeSimpleCollection(out, (Collection) fieldValue, property.datatype);
+                } else {
+                    writeSimpleValue(out, fieldValue, property.datatype);
+                }
+            } else if (property.enumeration) {
+                out.name(property.name).value(fieldValue.toString());
+            } else if (property.reference) {
+                View propertyView = viewProperty != null ? viewProperty.getView() : null;
+                if (fieldValue instanceof Entity) {
+                    out.name(property.name);
+                    writeEntity(out, (Entity) fieldValue, propertyView, new HashSet<>(cyclicReferences));
+                } else if (fieldValue instanceof Collection) {
+                    out.name(property.name);
+                    writeCollection(out, (Collection) fieldValue, propertyView, cyclicReferences);
                 }
             }
         }
 
-        protected void writeSimpleProperty(JsonObject jsonObject, @NotNull Object fieldValue, MetaProperty property) {
-            String propertyName = property.getName();
-            if (fieldValue instanceof Number) {
-                jsonObject.addProperty(propertyName, (Number) fieldValue);
-            } else if (fieldValue instanceof Boolean) {
-                jsonObject.addProperty(propertyName, (Boolean) fieldValue);
+        @SuppressWarnings("unchecked")
+        protected void writeSimpleValue(JsonWriter out, Object value, Datatype datatype) throws IOException {
+            if (value instanceof Number) {
+                out.value((Number) value);
+            } else if (value instanceof Boolean) {
+                out.value((Boolean) value);
             } else {
-                Datatype datatype = property.getRange().asDatatype();
-                jsonObject.addProperty(propertyName, datatype.format(fieldValue));
+                out.value(datatype.format(value));
             }
         }
 
-        protected JsonArray serializeCollection(Collection value, @Nullable View view, Set<Entity> cyclicReferences) {
-            JsonArray jsonArray = new JsonArray();
-            value.stream()
-                    .filter(e -> e instanceof Entity)
-                    .forEach(e -> {
-                        JsonObject jsonObject = serializeEntity((Entity) e, view, new HashSet<>(cyclicReferences));
-                        jsonArray.add(jsonObject);
-                    });
-            return jsonArray;
+        protected void writeCollection(JsonWriter out, Collection<?> value, @Nullable View view,
+                                       Set<Entity> cyclicReferences) throws IOException {
+            out.beginArray();
+            for (Object item : value) {
+                if (item instanceof Entity) {
+                    writeEntity(out, (Entity) item, view, new HashSet<>(cyclicReferences));
+                }
+            }
+            out.endArray();
         }
 
-        protected JsonArray serializeSimpleCollection(Collection fieldValue, MetaProperty property) {
-            JsonArray jsonArray = new JsonArray();
-            fieldValue.stream()
-                    .forEach(item -> {
-                        if (item instanceof Number) {
-                            jsonArray.add((Number) item);
-                        } else if (item instanceof Boolean) {
-                            jsonArray.add((Boolean) item);
-                        } else {
-                            Datatype datatype = property.getRange().asDatatype();
-                            jsonArray.add(datatype.format(item));
-                        }
-                    });
-            return jsonArray;
+        protected void writeSimpleCollection(JsonWriter out, Collection<?> value, Datatype datatype) throws IOException {
+            out.beginArray();
+            for (Object item : value) {
+                writeSimpleValue(out, item, datatype);
+            }
+            out.endArray();
         }
     }
 
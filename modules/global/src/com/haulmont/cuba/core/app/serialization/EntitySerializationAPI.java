@@ -20,8 +20,12 @@ package com.haulmont.cuba.core.app.serialization;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.View;
+import org.apache.commons.io.IOUtils;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.util.Collection;
 
@@ -69,6 +73,49 @@ public interface EntitySerializationAPI {
                   @Nullable View view,
                   EntitySerializationOption... options);
 
+    /**
+     * Serializes a single entity like the {@link #toJson(Entity, View, EntitySerializationOption...)} method, but
+     * writes the result directly to the given writer. The writer is flushed but not closed.
+     *
+     * @param entity  an entity to be serialized
+     * @param view    a view that defines which entity properties should be added to the result JSON object
+     * @param writer  a writer to which the JSON object is written
+     * @param options options specifying how an entity should be serialized
+     */
+    default void toJson(Entity entity,
+                        @Nullable View view,
+                        Writer writer,
+                        EntitySerializationOption... options) {
+        try {
+            writer.write(toJson(entity, view, options));
+            writer.flush();
+        } catch (IOException e) {
+            throw new EntitySerializationException("Unable to write entity JSON", e);
+        }
+    }
+
+    /**
+     * Serializes a collection of entities like the {@link #toJson(Collection, View, EntitySerializationOption...)}
+     * method, but writes entities one by one directly to the given writer, so the whole JSON array is never kept in
+     * memory. The writer is flushed but not closed.
+     *
+     * @param entities a collection of entities to be serialized
+     * @param view     a view that defines which entity properties should be added to the result JSON object
+     * @param writer   a writer to which the JSON array is written
+     * @param options  options specifying how an entity should be serialized
+     */
+    default void toJson(Collection<? extends Entity> entities,
+                        @Nullable View view,
+                        Writer writer,
+                        EntitySerializationOption... options) {
+        try {
+            writer.write(toJson(entities, view, options));
+            writer.flush();
+        } catch (IOException e) {
+            throw new EntitySerializationException("Unable to write entities JSON", e);
+        }
+    }
+
     /**
      * An overloaded version of the {@link #toJson(Entity, View, EntitySerializationOption...)} method with a null
      * {@code view} parameter and with no serialization options.
@@ -128,6 +175,44 @@ public interface EntitySerializationAPI {
                                                                 @Nullable MetaClass metaClass,
                                                                 EntitySerializationOption... options);
 
+    /**
+     * Deserializes a JSON object read from the given reader to the entity. Works like the {@link
+     * #entityFromJson(String, MetaClass, EntitySerializationOption...)} method.
+     *
+     * @param reader    a reader of a JSON object
+     * @param metaClass a metaClass of the entity that will be created
+     * @param options   options specifying how a JSON object graph was serialized
+     * @return an entity
+     */
+    default <T extends Entity> T entityFromJson(Reader reader,
+                                                @Nullable MetaClass metaClass,
+                                                EntitySerializationOption... options) {
+        try {
+            return entityFromJson(IOUtils.toString(reader), metaClass, options);
+        } catch (IOException e) {
+            throw new EntitySerializationException("Unable to read entity JSON", e);
+        }
+    }
+
+    /**
+     * Deserializes a JSON array of objects read from the given reader to entities collection. Array elements are
+     * parsed one by one, so the JSON tree of the whole array is never kept in memory.
+     *
+     * @param reader    a reader of a JSON array of objects
+     * @param metaClass a metaClass of the entities that will be created
+     * @param options   options specifying how a JSON object graph was serialized
+     * @return an entities collection
+     */
+    default <T extends Entity> Collection<T> entitiesCollectionFromJson(Reader reader,
+                                                                        @Nullable MetaClass metaClass,
+                                                                        EntitySerializationOption... options) {
+        try {
+            return entitiesCollectionFromJson(IOUtils.toString(reader), metaClass, options);
+        } catch (IOException e) {
+            throw new EntitySerializationException("Unable to read entities JSON", e);
+        }
+    }
+
     /**
      * Deserializes an object of any class from JSON. Date fields are deserialized according to the {@link
      * com.haulmont.chile.core.datatypes.impl.DateTimeDatatype} format, entities object and fields of Entity type are
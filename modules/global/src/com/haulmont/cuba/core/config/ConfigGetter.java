@@ -38,6 +38,8 @@ public class ConfigGetter extends ConfigAccessorMethod {
 
     private TypeFactory factory;
 
+    private final boolean cacheable;
+
     /**
      * Create a new ConfigGetter instance.
      *
@@ -51,6 +53,7 @@ public class ConfigGetter extends ConfigAccessorMethod {
         sourceType = ConfigUtil.getSourceType(configInterface, method);
 //        if (!String.class.equals(method.getReturnType()))
         factory = TypeFactory.getInstance(configInterface, method);
+        cacheable = ConfigValueCache.isCacheableType(method.getReturnType());
     }
 
     /**
@@ -64,6 +67,9 @@ public class ConfigGetter extends ConfigAccessorMethod {
         ConfigPersister configuration = handler.getPersister();
         String str;
         if ((args == null) || (args.length == 0)) {
+            if (cacheable && configuration.isCacheable(sourceType)) {
+                return handler.getCachedValue(this, () -> build(getProperty(configuration)));
+            }
             str = getProperty(configuration);
         }
         else {
@@ -79,6 +85,10 @@ public class ConfigGetter extends ConfigAccessorMethod {
             }
             str = getProperty(configuration, defValue);
         }
+        return build(str);
+    }
+
+    private Object build(String str) {
         if (factory == null)
             return str;
         else
@@ -21,6 +21,9 @@ package com.haulmont.cuba.core.config;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Configuration interface method handler.
@@ -35,6 +38,14 @@ public class ConfigHandler implements InvocationHandler {
      * The configuration interface.
      */
     private final Class<?> configInterface;
+    /**
+     * Method implementations resolved for this interface.
+     */
+    private final Map<Method, ConfigMethod> methods = new ConcurrentHashMap<>();
+    /**
+     * Cached getter values, see {@link ConfigValueCache}.
+     */
+    private final Map<ConfigGetter, ConfigValueCache.Entry> values = new ConcurrentHashMap<>();
 
     /**
      * Create a new ConfigHandler instance.
@@ -75,7 +86,29 @@ public class ConfigHandler implements InvocationHandler {
      */
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        ConfigMethod configMethod = ConfigMethods.getInstance(configInterface, method);
+        ConfigMethod configMethod = methods.get(method);
+        if (configMethod == null) {
+            configMethod = ConfigMethods.getInstance(configInterface, method);
+            methods.put(method, configMethod);
+        }
         return configMethod.invoke(this, args, proxy);
-  }
+    }
+
+    /**
+     * Get the cached value of a getter, reading it by the supplied function if the cached value is obsolete.
+     *
+     * @param getter The getter.
+     * @param reader The function reading the value from the configuration source.
+     * @return The getter value.
+     */
+    public Object getCachedValue(ConfigGetter getter, Supplier<Object> reader) {
+        long version = ConfigValueCache.getVersion();
+        ConfigValueCache.Entry entry = values.get(getter);
+        if (entry != null && entry.version == version) {
+            return entry.value;
+        }
+        Object value = reader.get();
+        values.put(getter, new ConfigValueCache.Entry(version, value));
+        return value;
+    }
 }
\ No newline at end of file
@@ -20,4 +20,12 @@ public interface ConfigPersister {
     String getProperty(SourceType sourceType, String name);
 
     void setProperty(SourceType sourceType, String name, String value);
+
+    /**
+     * @return true if values of the given source type returned by this persister change only together with
+     * invalidation of {@link ConfigValueCache}, so config proxies may cache them
+     */
+    default boolean isCacheable(SourceType sourceType) {
+        return false;
+    }
 }
\ No newline at end of file
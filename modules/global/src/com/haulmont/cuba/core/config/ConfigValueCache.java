@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.config;
+
+import com.google.common.collect.ImmutableSet;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of property values cached by config interface proxies.
+ * <p>
+ * A {@link ConfigHandler} caches converted values of getters together with the version current at the moment of
+ * reading. A cached value is returned while the version is unchanged, so the cache is invalidated as a whole by
+ * {@link #invalidate()}. It is called when app properties are set at runtime and when DB-stored properties are
+ * changed or reloaded, including changes received from other cluster members.
+ * <p>
+ * Values of {@link SourceType#SYSTEM} properties are not cached, as system properties can be changed by
+ * {@link System#setProperty(String, String)} without notice.
+ */
+public final class ConfigValueCache {
+
+    private static final AtomicLong version = new AtomicLong();
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = ImmutableSet.of(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigDecimal.class, BigInteger.class, UUID.class, Class.class);
+
+    private ConfigValueCache() {
+    }
+
+    /**
+     * @return current version of cached values
+     */
+    public static long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Makes all cached values obsolete. Values are read from their sources on the next invocation of getters.
+     */
+    public static void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return true if a value of the given type can be cached and shared between invocations of a getter
+     */
+    public static boolean isCacheableType(Class<?> type) {
+        return type.isPrimitive() || type.isEnum() || IMMUTABLE_TYPES.contains(type);
+    }
+
+    /**
+     * Value of a getter with the version it has been read at.
+     */
+    static class Entry {
+        final long version;
+        final Object value;
+
+        Entry(long version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
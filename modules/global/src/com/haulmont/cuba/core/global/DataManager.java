@@ -27,6 +27,7 @@ import com.haulmont.cuba.core.entity.contracts.Id;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Central interface to provide CRUD functionality. Can be used on both middle and client tiers.
@@ -63,6 +64,25 @@ public interface DataManager {
     @CheckReturnValue
     <E extends Entity> List<E> loadList(LoadContext<E> context);
 
+    /**
+     * Loads entity instances lazily by chunks of the given size. Intended for processing large result sets
+     * with constant memory consumption.
+     * <p>The query is ordered by the primary key and each chunk is selected by the primary key values greater than
+     * the last loaded one (keyset pagination), so loading of each chunk takes the same time regardless of the position
+     * in the result set. The {@code order by} clause of the query string is replaced by the primary key.</p>
+     * <p>Each chunk is loaded by {@link #loadList(LoadContext)} in its own transaction (unless
+     * {@link LoadContext#setJoinTransaction(boolean)} is set), so instances are returned detached and constraints
+     * are applied to each chunk separately.</p>
+     * @param context   {@link LoadContext} object containing a query; the entity must have a simple primary key
+     * @param chunkSize number of instances loaded by one query
+     * @return          sequential stream of detached instances
+     * @throws IllegalArgumentException if the query has sort, {@code firstResult} or {@code maxResults} set
+     */
+    @CheckReturnValue
+    default <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int chunkSize) {
+        return new KeysetLoadIterator<>(this, context, chunkSize).stream();
+    }
+
     /**
      * Returns the number of entity instances for the given query passed in the {@link LoadContext}.
      * @param context   defines the query
@@ -17,8 +17,10 @@
 package com.haulmont.cuba.core.global;
 
 import com.haulmont.cuba.core.entity.FileDescriptor;
+import org.apache.commons.io.IOUtils;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.function.Supplier;
 
@@ -65,6 +67,28 @@ public interface FileLoader {
      */
     InputStream openStream(FileDescriptor fd) throws FileStorageException;
 
+    /**
+     * Return an input stream to load a file contents from middleware starting from the given position.
+     * <p>
+     * The default implementation skips the leading bytes of the stream returned by {@link #openStream(FileDescriptor)}.
+     *
+     * @param fd       file descriptor
+     * @param position number of bytes to skip from the beginning of the file
+     * @return input stream, must be closed after use
+     * @throws IllegalArgumentException if arguments are incorrect
+     * @throws FileStorageException     if something goes wrong
+     */
+    default InputStream openStream(FileDescriptor fd, long position) throws FileStorageException {
+        InputStream inputStream = openStream(fd);
+        try {
+            IOUtils.skipFully(inputStream, position);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(inputStream);
+            throw new FileStorageException(FileStorageException.Type.IO_EXCEPTION, fd.getName(), e);
+        }
+        return inputStream;
+    }
+
     /**
      * Remove a file from the file storage.
      *
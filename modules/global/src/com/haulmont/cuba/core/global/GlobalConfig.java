@@ -298,4 +298,12 @@ public interface GlobalConfig extends Config {
     @Default("MIXED")
     @Factory(factory = SecurityStorageModeFactory.class)
     SecurityStorageMode getAccessGroupsStorageMode();
+
+    /**
+     * @return maximum number of parsed JPQL query trees kept in the cache of {@link QueryTransformerFactory}.
+     * Zero disables the cache.
+     */
+    @Property("cuba.queryTreeCacheSize")
+    @DefaultInt(1000)
+    int getQueryTreeCacheSize();
 }
\ No newline at end of file
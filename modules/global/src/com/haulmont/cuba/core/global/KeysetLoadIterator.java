@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2008-2018 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.global;
+
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the results of a {@link LoadContext} query loading them by chunks with keyset pagination:
+ * the query is ordered by the primary key and each chunk is loaded with the condition
+ * {@code pk > :lastLoadedPk} instead of an offset. Each chunk is loaded by a separate
+ * {@link DataManager#loadList(LoadContext)} call, so loaded instances are detached and in-memory constraints
+ * are applied chunk by chunk.
+ * <p>
+ * The {@code order by} clause of the query is replaced by the primary key. Sort, {@code firstResult} and
+ * {@code maxResults} of the context are not supported.
+ *
+ * @see DataManager#loadStream(LoadContext, int)
+ */
+class KeysetLoadIterator<E extends Entity> implements Iterator<E> {
+
+    static final String LAST_KEY_PARAM = "keysetLastKey";
+
+    private final DataManager dataManager;
+    private final LoadContext<E> context;
+    private final int chunkSize;
+
+    private final String firstChunkQuery;
+    private final String nextChunkQuery;
+
+    private Iterator<E> chunk = Collections.emptyIterator();
+    private Object lastKey;
+    private boolean lastChunk;
+
+    KeysetLoadIterator(DataManager dataManager, LoadContext<E> context, int chunkSize) {
+        Preconditions.checkNotNullArgument(dataManager, "dataManager is null");
+        Preconditions.checkNotNullArgument(context, "context is null");
+        Preconditions.checkNotNullArgument(context.getQuery(), "context must contain a query");
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        LoadContext.Query contextQuery = context.getQuery();
+        if (contextQuery.getSort() != null && !contextQuery.getSort().getOrders().isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Keyset pagination orders results by the primary key, sort is not supported");
+        }
+        if (contextQuery.getFirstResult() != 0 || contextQuery.getMaxResults() != 0) {
+            throw new IllegalArgumentException("Keyset pagination does not support firstResult and maxResults");
+        }
+
+        this.dataManager = dataManager;
+        this.context = context;
+        this.chunkSize = chunkSize;
+
+        Metadata metadata = AppBeans.get(Metadata.NAME);
+        MetaClass metaClass = metadata.getClassNN(context.getEntityMetaClass());
+        MetaProperty primaryKeyProperty = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        if (primaryKeyProperty == null || primaryKeyProperty.getRange().isClass()) {
+            throw new IllegalArgumentException(String.format(
+                    "Keyset pagination requires a simple primary key, %s has none", metaClass.getName()));
+        }
+        String primaryKeyPath = QueryTransformer.ALIAS_PLACEHOLDER + "." + primaryKeyProperty.getName();
+
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(context.getQuery().getQueryString());
+        transformer.replaceOrderByExpressions(false, primaryKeyPath);
+        firstChunkQuery = transformer.getResult();
+
+        transformer.addWhere(primaryKeyPath + " > :" + LAST_KEY_PARAM);
+        nextChunkQuery = transformer.getResult();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!chunk.hasNext()) {
+            if (lastChunk) {
+                return false;
+            }
+            loadChunk();
+        }
+        return true;
+    }
+
+    @Override
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return chunk.next();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void loadChunk() {
+        LoadContext<E> chunkContext = (LoadContext<E>) context.copy();
+        LoadContext.Query query = chunkContext.getQuery();
+        query.setMaxResults(chunkSize);
+        if (lastKey == null) {
+            query.setQueryString(firstChunkQuery);
+        } else {
+            query.setQueryString(nextChunkQuery);
+            query.setParameter(LAST_KEY_PARAM, lastKey);
+        }
+
+        List<E> list = dataManager.loadList(chunkContext);
+        if (list.size() < chunkSize) {
+            lastChunk = true;
+        }
+        if (!list.isEmpty()) {
+            Object id = list.get(list.size() - 1).getId();
+            lastKey = id instanceof IdProxy ? ((IdProxy) id).getNN() : id;
+        }
+        chunk = list.iterator();
+    }
+
+    Stream<E> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
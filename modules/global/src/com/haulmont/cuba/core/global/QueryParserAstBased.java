@@ -40,6 +40,7 @@ public class QueryParserAstBased implements QueryParser {
     protected DomainModel model;
     protected String query;
     protected QueryTree queryTree;
+    protected QueryTreeCache queryTreeCache;
     protected QueryTreeAnalyzer queryAnalyzer;
 
     protected static class EntityNameAndPath {
@@ -63,10 +64,15 @@ public class QueryParserAstBased implements QueryParser {
         this.query = query;
     }
 
+    public QueryParserAstBased(DomainModel model, String query, QueryTreeCache queryTreeCache) {
+        this(model, query);
+        this.queryTreeCache = queryTreeCache;
+    }
+
     protected QueryTree getTree() {
         if (queryTree == null) {
             try {
-                queryTree = new QueryTree(model, query);
+                queryTree = queryTreeCache != null ? queryTreeCache.get(query) : new QueryTree(model, query);
             } catch (JPA2RecognitionException e) {
                 throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]\n%s", StringUtils.strip(query), e.getMessage()));
             }
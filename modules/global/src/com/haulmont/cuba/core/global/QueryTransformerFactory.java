@@ -18,23 +18,45 @@ package com.haulmont.cuba.core.global;
 
 import com.haulmont.cuba.core.sys.jpql.DomainModel;
 import com.haulmont.cuba.core.sys.jpql.DomainModelBuilder;
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Factory to get {@link QueryParser} and {@link QueryTransformer} instances.
+ * <p>
+ * Parsed query trees are kept in a bounded {@link QueryTreeCache}, so the same query string is parsed only once
+ * for the current domain model.
+ * <p>
+ * {@link QueryTransformer} and {@link QueryParser} beans are created with the domain model, the query string and
+ * the cache. Overridden beans having only constructors without the cache parameter are still supported: they are
+ * created with the domain model and the query string, and their queries are not cached.
  */
 @Component(QueryTransformerFactory.NAME)
 public class QueryTransformerFactory {
 
     public static final String NAME = "cuba_QueryTransformerFactory";
 
+    private static final Logger log = LoggerFactory.getLogger(QueryTransformerFactory.class);
+
     protected volatile DomainModel domainModel;
 
+    protected volatile QueryTreeCache queryTreeCache;
+
     @Inject
     protected BeanLocator beanLocator;
 
+    @Inject
+    protected Configuration configuration;
+
+    protected Set<String> beansWithoutCache = ConcurrentHashMap.newKeySet();
+
     public static QueryTransformer createTransformer(String query) {
         return AppBeans.get(NAME, QueryTransformerFactory.class).transformer(query);
     }
@@ -44,18 +66,57 @@ public class QueryTransformerFactory {
     }
 
     public QueryTransformer transformer(String query) {
-        if (domainModel == null) {
-            DomainModelBuilder builder = beanLocator.get(DomainModelBuilder.NAME);
-            domainModel = builder.produce();
-        }
-        return beanLocator.getPrototype(QueryTransformer.NAME, domainModel, query);
+        return createPrototype(QueryTransformer.NAME, query);
     }
 
     public QueryParser parser(String query) {
-        if (domainModel == null) {
-            DomainModelBuilder builder = AppBeans.get(DomainModelBuilder.NAME);
+        return createPrototype(QueryParser.NAME, query);
+    }
+
+    /**
+     * Creates a transformer or parser bean passing the query tree cache to its constructor. Falls back to the
+     * constructor without the cache for beans overridden in projects.
+     */
+    protected <T> T createPrototype(String name, String query) {
+        QueryTreeCache cache = getQueryTreeCache();
+        if (beansWithoutCache.contains(name)) {
+            return beanLocator.getPrototype(name, cache.getModel(), query);
+        }
+        try {
+            return beanLocator.getPrototype(name, cache.getModel(), query, cache);
+        } catch (BeanCreationException e) {
+            T bean;
+            try {
+                bean = beanLocator.getPrototype(name, cache.getModel(), query);
+            } catch (RuntimeException fallbackException) {
+                e.addSuppressed(fallbackException);
+                throw e;
+            }
+            log.warn("{} bean has no constructor accepting QueryTreeCache, its queries will not be cached", name);
+            beansWithoutCache.add(name);
+            return bean;
+        }
+    }
+
+    /**
+     * @return cache of parsed query trees for the current domain model
+     */
+    public QueryTreeCache getQueryTreeCache() {
+        QueryTreeCache cache = queryTreeCache;
+        if (cache == null) {
+            DomainModelBuilder builder = beanLocator.get(DomainModelBuilder.NAME);
             domainModel = builder.produce();
+            cache = new QueryTreeCache(domainModel, configuration.getConfig(GlobalConfig.class).getQueryTreeCacheSize());
+            queryTreeCache = cache;
         }
-        return beanLocator.getPrototype(QueryParser.NAME, domainModel, query);
+        return cache;
+    }
+
+    /**
+     * Discards the domain model and all parsed query trees. The domain model is rebuilt on the next request.
+     */
+    public void reset() {
+        queryTreeCache = null;
+        domainModel = null;
     }
 }
\ No newline at end of file
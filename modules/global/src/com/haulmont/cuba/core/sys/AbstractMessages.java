@@ -42,6 +42,7 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -82,6 +83,10 @@ public abstract class AbstractMessages implements Messages {
 
     protected final static Properties PROPERTIES_NOT_FOUND = new Properties();
 
+    protected final static String MESSAGE_NOT_FOUND = new String();
+
+    protected volatile MessageIndex messageIndex = new MessageIndex();
+
     protected abstract Locale getUserLocale();
 
     protected abstract String searchRemotely(String pack, String key, Locale locale);
@@ -229,7 +234,14 @@ public abstract class AbstractMessages implements Messages {
     @Override
     public String getMainMessage(String key, Locale locale) {
         checkNotNullArgument(key, "Message key is null");
-        return internalGetMessage(mainMessagePack, key, locale, key, false);
+
+        LocaleIndex localeIndex = getLocaleIndex(locale);
+        String msg = localeIndex.mainMessages.get(key);
+        if (msg == null) {
+            msg = internalGetMessage(mainMessagePack, key, localeIndex.locale, key, false);
+            localeIndex.mainMessages.putIfAbsent(key, msg);
+        }
+        return msg;
     }
 
     @Override
@@ -255,6 +267,17 @@ public abstract class AbstractMessages implements Messages {
         checkNotNullArgument(packs, "Messages pack name is null");
         checkNotNullArgument(key, "Message key is null");
 
+        LocaleIndex localeIndex = getLocaleIndex(locale);
+        ConcurrentMap<String, String> packMessages = getPackMessages(localeIndex.messages, packs);
+        String msg = packMessages.get(key);
+        if (msg == null) {
+            msg = resolveMessage(packs, key, localeIndex.locale);
+            packMessages.putIfAbsent(key, msg);
+        }
+        return msg;
+    }
+
+    protected String resolveMessage(String packs, String key, Locale locale) {
         String compositeKey = packs + "/" + key;
         String msg = internalGetMessage(mainMessagePack, compositeKey, locale, null, false);
         if (msg != null)
@@ -272,6 +295,19 @@ public abstract class AbstractMessages implements Messages {
         if (locale == null)
             locale = getUserLocale();
 
+        LocaleIndex localeIndex = getLocaleIndex(locale);
+        ConcurrentMap<String, String> packMessages = getPackMessages(localeIndex.foundMessages, packs);
+        String msg = packMessages.get(key);
+        if (msg == null) {
+            msg = findMessageInPacks(packs, key, localeIndex.locale);
+            packMessages.putIfAbsent(key, msg != null ? msg : MESSAGE_NOT_FOUND);
+        }
+        //noinspection StringEquality
+        return msg != MESSAGE_NOT_FOUND ? msg : null;
+    }
+
+    @Nullable
+    protected String findMessageInPacks(String packs, String key, Locale locale) {
         String compositeKey = packs + "/" + key;
         String[] split = mainMessagePack.split(" ");
         String lastMainMessagePack = split[split.length - 1];
@@ -302,6 +338,35 @@ public abstract class AbstractMessages implements Messages {
         resourcePropertiesCache.invalidateAll();
         strCache.clear();
         notFoundCache.clear();
+        messageIndex = new MessageIndex();
+    }
+
+    protected LocaleIndex getLocaleIndex(Locale locale) {
+        checkNotNullArgument(locale, "Locale is null");
+
+        MessageIndex index = messageIndex;
+        LocaleIndex localeIndex = index.locales.get(locale);
+        if (localeIndex == null) {
+            localeIndex = new LocaleIndex(messageTools.trimLocale(locale));
+            LocaleIndex existing = index.locales.putIfAbsent(locale, localeIndex);
+            if (existing != null) {
+                localeIndex = existing;
+            }
+        }
+        return localeIndex;
+    }
+
+    protected ConcurrentMap<String, String> getPackMessages(ConcurrentMap<String, ConcurrentMap<String, String>> packs,
+                                                            String pack) {
+        ConcurrentMap<String, String> packMessages = packs.get(pack);
+        if (packMessages == null) {
+            packMessages = new ConcurrentHashMap<>();
+            ConcurrentMap<String, String> existing = packs.putIfAbsent(pack, packMessages);
+            if (existing != null) {
+                packMessages = existing;
+            }
+        }
+        return packMessages;
     }
 
     protected String internalGetMessage(String packs, String key, Locale locale, String defaultValue,
@@ -562,6 +627,30 @@ public abstract class AbstractMessages implements Messages {
         return pack + "/" + (locale == null ? "default" :  LocaleResolver.localeToString(locale)) + "/" + key;
     }
 
+    /**
+     * Resolved messages by requested locale. Replaced as a whole by {@link #clearCache()}, so a lookup never
+     * sees a partially cleared state.
+     */
+    protected static class MessageIndex {
+        protected final ConcurrentMap<Locale, LocaleIndex> locales = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Resolved messages of one locale: results of {@link #getMessage(String, String, Locale)} and
+     * {@link #findMessage(String, String, Locale)} by pack and key, and results of {@link #getMainMessage(String, Locale)}
+     * by key. A lookup of a resolved message does not build strings or trim the locale.
+     */
+    protected static class LocaleIndex {
+        protected final Locale locale;
+        protected final ConcurrentMap<String, ConcurrentMap<String, String>> messages = new ConcurrentHashMap<>();
+        protected final ConcurrentMap<String, ConcurrentMap<String, String>> foundMessages = new ConcurrentHashMap<>();
+        protected final ConcurrentMap<String, String> mainMessages = new ConcurrentHashMap<>();
+
+        public LocaleIndex(Locale locale) {
+            this.locale = locale;
+        }
+    }
+
     protected String getPackName(Class c) {
         String className = c.getName();
         int pos = className.lastIndexOf(".");
@@ -43,6 +43,7 @@ import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -72,6 +73,8 @@ public class AbstractViewRepository implements ViewRepository {
 
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    protected final AtomicLong version = new AtomicLong();
+
     protected void checkInitialized() {
         if (!initialized) {
             lock.readLock().unlock();
@@ -153,6 +156,15 @@ public class AbstractViewRepository implements ViewRepository {
 
     public void reset() {
         initialized = false;
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return number that is changed each time the repository is reset or views are deployed at runtime.
+     * Can be used to invalidate data calculated from views obtained from the repository.
+     */
+    public long getVersion() {
+        return version.get();
     }
 
     /**
@@ -356,6 +368,7 @@ public class AbstractViewRepository implements ViewRepository {
                 deployView(rootElem, viewElem, new HashSet<>());
             }
         } finally {
+            version.incrementAndGet();
             lock.writeLock().unlock();
         }
     }
@@ -406,6 +419,7 @@ public class AbstractViewRepository implements ViewRepository {
         try {
             return deployView(rootElem, viewElem, new HashSet<>());
         } finally {
+            version.incrementAndGet();
             lock.writeLock().unlock();
         }
     }
@@ -19,6 +19,7 @@ package com.haulmont.cuba.core.sys;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.haulmont.bali.datastruct.Pair;
+import com.haulmont.cuba.core.config.ConfigValueCache;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringSubstitutor;
 
@@ -73,6 +74,7 @@ public class AppProperties {
         for (String name : System.getProperties().stringPropertyNames()) {
             systemProperties.put(name, System.getProperty(name));
         }
+        ConfigValueCache.invalidate();
     }
 
     /**
@@ -238,5 +240,6 @@ public class AppProperties {
             properties.remove(key);
         else
             properties.put(key, value);
+        ConfigValueCache.invalidate();
     }
 }
\ No newline at end of file
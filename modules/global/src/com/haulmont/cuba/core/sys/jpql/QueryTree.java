@@ -57,6 +57,23 @@ public class QueryTree {
         new TreeVisitor().visit(tree, idVarSelector);
     }
 
+    protected QueryTree(DomainModel model, String queryString, CommonTree tree) {
+        this.model = model;
+        this.queryString = queryString;
+        this.tree = tree;
+
+        this.idVarSelector = new IdVarSelector(model);
+        new TreeVisitor().visit(tree, idVarSelector);
+    }
+
+    /**
+     * Creates an independent copy of this query tree without parsing the query string again.
+     * The copy can be transformed without affecting this instance.
+     */
+    public QueryTree copy() {
+        return new QueryTree(model, queryString, copyTree(tree));
+    }
+
     public DomainModel getModel() {
         return model;
     }
@@ -155,6 +172,18 @@ public class QueryTree {
         return visitor;
     }
 
+    protected static CommonTree copyTree(CommonTree node) {
+        CommonTree copy = (CommonTree) node.dupNode();
+        // custom nodes duplicate their children only partially, so the subtree is rebuilt here
+        if (copy.getChildCount() > 0) {
+            copy.getChildren().clear();
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            copy.addChild(copyTree((CommonTree) node.getChild(i)));
+        }
+        return copy;
+    }
+
     @SuppressWarnings("unchecked")
     protected <T> Stream<T> generateChildrenByClass(CommonTree commonTree, Class<T> clazz) {
         return commonTree.getChildren().stream()
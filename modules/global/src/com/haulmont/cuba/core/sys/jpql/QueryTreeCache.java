@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.jpql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Bounded cache of parsed JPQL query trees built for a particular {@link DomainModel}.
+ * <p>
+ * Cached trees are never exposed: {@link #get(String)} returns a copy which can be freely transformed.
+ */
+public class QueryTreeCache {
+
+    protected final DomainModel model;
+    protected final Cache<String, QueryTree> cache;
+
+    public QueryTreeCache(DomainModel model, int maxSize) {
+        this.model = model;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(maxSize, 0))
+                .recordStats()
+                .build();
+    }
+
+    public DomainModel getModel() {
+        return model;
+    }
+
+    /**
+     * Returns a copy of the parsed tree for the given query. The query is parsed if it is not in the cache yet.
+     *
+     * @throws JPA2RecognitionException if the query cannot be parsed
+     */
+    public QueryTree get(String query) {
+        QueryTree queryTree = cache.getIfPresent(query);
+        if (queryTree == null) {
+            queryTree = new QueryTree(model, query);
+            cache.put(query, queryTree);
+        }
+        return queryTree.copy();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public String toString() {
+        CacheStats stats = cache.stats();
+        return "size=" + cache.size() +
+                ", hits=" + stats.hitCount() +
+                ", misses=" + stats.missCount() +
+                ", hitRatio=" + (stats.requestCount() == 0 ? 0 : Math.round(stats.hitRate() * 100)) + "%" +
+                ", evictions=" + stats.evictionCount();
+    }
+}
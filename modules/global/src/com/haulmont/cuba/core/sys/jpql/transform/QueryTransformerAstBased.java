@@ -42,6 +42,7 @@ public class QueryTransformerAstBased implements QueryTransformer {
     protected DomainModel model;
     protected String query;
     protected QueryTree queryTree;
+    protected QueryTreeCache queryTreeCache;
     protected QueryTreeTransformer queryTransformer;
     protected QueryTreeAnalyzer queryAnalyzer;
     protected Set<String> addedParams = new HashSet<>();
@@ -51,6 +52,11 @@ public class QueryTransformerAstBased implements QueryTransformer {
         this.query = query;
     }
 
+    public QueryTransformerAstBased(DomainModel model, String query, QueryTreeCache queryTreeCache) {
+        this(model, query);
+        this.queryTreeCache = queryTreeCache;
+    }
+
     protected QueryTreeTransformer getTransformer() {
         if (queryTransformer == null) {
             queryTransformer = new QueryTreeTransformer(getTree());
@@ -68,7 +74,7 @@ public class QueryTransformerAstBased implements QueryTransformer {
     protected QueryTree getTree() {
         if (queryTree == null) {
             try {
-                queryTree = new QueryTree(model, query);
+                queryTree = queryTreeCache != null ? queryTreeCache.get(query) : new QueryTree(model, query);
             } catch (JPA2RecognitionException e) {
                 throw new JpqlSyntaxException(format("Errors found for input JPQL:[%s]\n%s", StringUtils.strip(query), e.getMessage()));
             }
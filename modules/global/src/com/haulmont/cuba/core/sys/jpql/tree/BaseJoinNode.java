@@ -26,6 +26,7 @@ import org.antlr.runtime.CommonToken;
 import org.antlr.runtime.Token;
 import org.antlr.runtime.tree.CommonErrorNode;
 import org.antlr.runtime.tree.CommonTree;
+import org.antlr.runtime.tree.Tree;
 
 import java.util.Deque;
 import java.util.List;
@@ -42,6 +43,13 @@ public class BaseJoinNode extends BaseCustomNode {
         this(new CommonToken(type, ""), variableName);
     }
 
+    @Override
+    public Tree dupNode() {
+        BaseJoinNode result = new BaseJoinNode(token, variableName);
+        dupChildren(result);
+        return result;
+    }
+
     public String getVariableName() {
         return variableName;
     }
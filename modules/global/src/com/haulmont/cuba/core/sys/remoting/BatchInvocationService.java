@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.sys.remoting;
+
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import java.util.List;
+
+/**
+ * Executes several invocations of middleware services sent by a client in one request.
+ * Use {@link ServiceInvocationBatch} instead of invoking the service directly.
+ */
+public interface BatchInvocationService {
+    String NAME = "cuba_BatchInvocationService";
+
+    /**
+     * Executes invocations one by one, each in the security context of the session passed with the invocation.
+     *
+     * @param invocations invocations of exported services
+     * @return results in the order of invocations; an exception thrown by a service method is returned
+     * in its result and does not affect other invocations
+     */
+    List<RemoteInvocationResult> invoke(List<BatchedInvocation> invocations);
+}
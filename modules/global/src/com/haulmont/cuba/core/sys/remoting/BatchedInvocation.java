@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.sys.remoting;
+
+import java.io.Serializable;
+
+/**
+ * Invocation of a middleware service passed in a batch to {@link BatchInvocationService}.
+ */
+public class BatchedInvocation implements Serializable {
+
+    private static final long serialVersionUID = -2710954836620516148L;
+
+    private final String serviceName;
+    private final CubaRemoteInvocation invocation;
+
+    public BatchedInvocation(String serviceName, CubaRemoteInvocation invocation) {
+        this.serviceName = serviceName;
+        this.invocation = invocation;
+    }
+
+    /**
+     * @return name of the service bean, e.g. {@code cuba_DataService}
+     */
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    public CubaRemoteInvocation getInvocation() {
+        return invocation;
+    }
+
+    @Override
+    public String toString() {
+        return serviceName + "." + invocation.getMethodName();
+    }
+}
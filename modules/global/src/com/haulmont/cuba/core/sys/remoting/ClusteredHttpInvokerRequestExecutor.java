@@ -30,22 +30,29 @@ import org.springframework.remoting.support.RemoteInvocationResult;
 import org.springframework.util.StopWatch;
 
 import javax.annotation.Nullable;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.zip.GZIPInputStream;
 
 /**
  * HttpInvokerRequestExecutor that executes a request on a server which is selected according to the current cluster
  * topology, provided by {@link ServerSelector}.
+ * <p>
+ * Requests and responses are transferred in the wire format negotiated with the server, see
+ * {@link RemotingWireFormat}.
  */
 public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerRequestExecutor {
 
     private ServerSelector serverSelector;
 
+    // the last response was serialized with Kryo, so the server is able to read Kryo requests
+    protected volatile boolean kryoNegotiated;
+
+    // the last response listed gzip in Accept-Encoding, so the server is able to read compressed requests
+    protected volatile boolean gzipNegotiated;
+
     private static final Logger log = LoggerFactory.getLogger(ClusteredHttpInvokerRequestExecutor.class);
 
     public ClusteredHttpInvokerRequestExecutor(ServerSelector serverSelector) {
@@ -72,21 +79,36 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
         while (true) {
             HttpURLConnection con = openConnection(url);
             try {
+                long startTime = System.nanoTime();
                 StopWatch sw = new StopWatch();
                 prepareConnection(con, baos.size());
+                prepareWireFormat(con, baos);
                 writeRequestBody(config, con, baos);
                 sw.start("waiting time");
                 validateResponse(config, con);
-                CountingInputStream responseInputStream = new CountingInputStream(readResponseBody(config, con));
+                // count bytes as they are transferred, before decompression
+                CountingInputStream responseInputStream = new CountingInputStream(con.getInputStream());
+                InputStream responseBody = isGzipResponse(con) ? new GZIPInputStream(responseInputStream) : responseInputStream;
                 sw.stop();
 
                 serverSelector.success(context);
 
                 sw.start("reading time");
-                try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseInputStream), config.getCodebaseUrl())) {
-                    result = doReadRemoteInvocationResult(ois);
+                String responseFormat = con.getHeaderField(RemotingWireFormat.FORMAT_HEADER);
+                kryoNegotiated = RemotingWireFormat.KRYO.equals(responseFormat);
+                gzipNegotiated = RemotingWireFormat.contains(
+                        con.getHeaderField(RemotingWireFormat.ACCEPT_ENCODING_HEADER), RemotingWireFormat.GZIP);
+                if (kryoNegotiated) {
+                    result = (RemoteInvocationResult) RemotingWireFormat.deserializeWithKryo(responseBody);
+                } else {
+                    try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseBody), config.getCodebaseUrl())) {
+                        result = doReadRemoteInvocationResult(ois);
+                    }
                 }
                 sw.stop();
+
+                RemotingStatistics.getInstance().record(config.getServiceUrl(), responseFormat,
+                        baos.size(), responseInputStream.getCount(), System.nanoTime() - startTime);
                 if (log.isDebugEnabled()) {
                     log.debug(String.format("Receiving HTTP invoker response for service at [%s], with size %s, %s", config.getServiceUrl(),
                             responseInputStream.getCount(), printStopWatch(sw)));
@@ -94,6 +116,9 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
                 break;
             } catch (IOException e) {
                 log.info(String.format("Invocation of %s failed: %s", url, e));
+                // the next server can be of a previous version
+                kryoNegotiated = false;
+                gzipNegotiated = false;
 
                 serverSelector.fail(context);
                 url = currentServiceUrl(serverSelector.getUrl(context), config);
@@ -121,6 +146,41 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
         return (HttpURLConnection) con;
     }
 
+    @Override
+    protected ByteArrayOutputStream getByteArrayOutputStream(RemoteInvocation invocation) throws IOException {
+        byte[] kryoBytes = kryoNegotiated && RemotingWireFormat.isKryoEnabled()
+                ? RemotingWireFormat.serializeWithKryo(invocation) : null;
+
+        RequestBody body;
+        if (kryoBytes != null) {
+            body = new RequestBody(RemotingWireFormat.KRYO, false);
+            body.write(kryoBytes);
+        } else {
+            body = new RequestBody(RemotingWireFormat.JAVA, false);
+            writeRemoteInvocation(invocation, body);
+        }
+
+        if (gzipNegotiated && RemotingWireFormat.isCompressionRequired(body.size())) {
+            RequestBody compressed = new RequestBody(body.format, true);
+            compressed.write(RemotingWireFormat.compress(body.toByteArray()));
+            return compressed;
+        }
+        return body;
+    }
+
+    protected void prepareWireFormat(HttpURLConnection con, ByteArrayOutputStream baos) {
+        if (RemotingWireFormat.isKryoEnabled()) {
+            con.setRequestProperty(RemotingWireFormat.ACCEPT_HEADER, RemotingWireFormat.KRYO + ", " + RemotingWireFormat.JAVA);
+        }
+        if (baos instanceof RequestBody) {
+            RequestBody body = (RequestBody) baos;
+            con.setRequestProperty(RemotingWireFormat.FORMAT_HEADER, body.format);
+            if (body.compressed) {
+                con.setRequestProperty(RemotingWireFormat.CONTENT_ENCODING_HEADER, RemotingWireFormat.GZIP);
+            }
+        }
+    }
+
     @Override
     protected void doWriteRemoteInvocation(RemoteInvocation invocation, ObjectOutputStream oos) throws IOException {
         SerializationSupport.serialize(invocation, oos);
@@ -143,4 +203,19 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
         }
         return sb.toString();
     }
+
+    /**
+     * Serialized invocation with the description of its wire format.
+     */
+    protected static class RequestBody extends ByteArrayOutputStream {
+
+        protected final String format;
+        protected final boolean compressed;
+
+        public RequestBody(String format, boolean compressed) {
+            super(1024);
+            this.format = format;
+            this.compressed = compressed;
+        }
+    }
 }
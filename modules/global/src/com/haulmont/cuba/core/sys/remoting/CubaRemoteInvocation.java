@@ -41,6 +41,11 @@ public class CubaRemoteInvocation extends RemoteInvocation {
         this.sessionId = sessionId;
     }
 
+    public CubaRemoteInvocation(String methodName, Class<?>[] parameterTypes, Object[] arguments, UUID sessionId) {
+        super(methodName, parameterTypes, arguments);
+        this.sessionId = sessionId;
+    }
+
     public UUID getSessionId() {
         return sessionId;
     }
@@ -24,6 +24,9 @@ import org.aopalliance.intercept.MethodInvocation;
 import org.springframework.remoting.support.RemoteInvocation;
 import org.springframework.remoting.support.RemoteInvocationFactory;
 
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+
 public class CubaRemoteInvocationFactory implements RemoteInvocationFactory {
 
     @Override
@@ -32,7 +35,26 @@ public class CubaRemoteInvocationFactory implements RemoteInvocationFactory {
 
         CubaRemoteInvocation remoteInvocation = new CubaRemoteInvocation(methodInvocation,
                 securityContext == null ? null : securityContext.getSessionId());
+        setRequestScopeInfo(remoteInvocation, securityContext);
+
+        return remoteInvocation;
+    }
+
+    /**
+     * Creates an invocation of the given method for the current security context without an AOP method invocation,
+     * e.g. for {@link ServiceInvocationBatch}.
+     */
+    public CubaRemoteInvocation createRemoteInvocation(Method method, Object[] arguments) {
+        SecurityContext securityContext = AppContext.getSecurityContext();
 
+        CubaRemoteInvocation remoteInvocation = new CubaRemoteInvocation(method.getName(), method.getParameterTypes(),
+                arguments, securityContext == null ? null : securityContext.getSessionId());
+        setRequestScopeInfo(remoteInvocation, securityContext);
+
+        return remoteInvocation;
+    }
+
+    protected void setRequestScopeInfo(CubaRemoteInvocation remoteInvocation, @Nullable SecurityContext securityContext) {
         if (securityContext != null) {
             UserSession session = securityContext.getSession();
 
@@ -43,7 +65,5 @@ public class CubaRemoteInvocationFactory implements RemoteInvocationFactory {
                 remoteInvocation.setClientInfo(session.getClientInfo());
             }
         }
-
-        return remoteInvocation;
     }
-}
\ No newline at end of file
+}
@@ -37,6 +37,13 @@ public class HttpServiceProxy extends HttpInvokerProxyFactoryBean {
 
     @Override
     protected Object recreateRemoteInvocationResult(RemoteInvocationResult result) throws Throwable {
+        return recreateResult(result);
+    }
+
+    /**
+     * Returns the result value or throws the exception thrown by the service method.
+     */
+    public static Object recreateResult(RemoteInvocationResult result) throws Throwable {
         Throwable throwable = result.getException();
         if (throwable != null) {
             if (throwable instanceof InvocationTargetException)
@@ -51,6 +58,6 @@ public class HttpServiceProxy extends HttpInvokerProxyFactoryBean {
                 }
             }
         }
-        return super.recreateRemoteInvocationResult(result);
+        return result.recreate();
     }
 }
\ No newline at end of file
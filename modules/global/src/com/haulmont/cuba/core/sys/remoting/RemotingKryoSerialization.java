@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.esotericsoftware.kryo.ClassResolver;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Registration;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.util.DefaultClassResolver;
+import com.google.common.collect.ImmutableList;
+import com.haulmont.chile.core.datatypes.impl.EnumClass;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.serialization.KryoSerialization;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kryo serialization of HTTP service invocations. Unlike {@link KryoSerialization} used inside an application
+ * block, it reads only classes from the allow-list, because the data comes from the network:
+ * <ul>
+ *     <li>primitives, entities, enumerations and exceptions,</li>
+ *     <li>classes of the packages listed in {@link #DEFAULT_ALLOWED_PACKAGES},</li>
+ *     <li>classes of the packages listed in the {@code cuba.remoting.kryoAllowedPackages} application property
+ *     separated by commas, e.g. DTOs passed to application services.</li>
+ * </ul>
+ */
+public class RemotingKryoSerialization extends KryoSerialization {
+
+    public static final List<String> DEFAULT_ALLOWED_PACKAGES = ImmutableList.of(
+            "java.lang.", "java.util.", "java.math.", "java.time.", "java.sql.",
+            "com.haulmont.",
+            "com.google.common.collect.",
+            "org.springframework.remoting.support.",
+            "org.eclipse.persistence.indirection.",
+            "org.eclipse.persistence.internal.indirection.");
+
+    public static final List<String> DENIED_PACKAGES = ImmutableList.of(
+            "java.lang.reflect.", "java.lang.invoke.");
+
+    protected List<String> allowedPackages;
+
+    public RemotingKryoSerialization() {
+        allowedPackages = new ArrayList<>(DEFAULT_ALLOWED_PACKAGES);
+        String packages = AppContext.getProperty("cuba.remoting.kryoAllowedPackages");
+        if (StringUtils.isNotBlank(packages)) {
+            for (String name : packages.split(",")) {
+                if (StringUtils.isNotBlank(name)) {
+                    allowedPackages.add(StringUtils.appendIfMissing(name.trim(), "."));
+                }
+            }
+        }
+    }
+
+    @Override
+    protected ClassResolver createClassResolver() {
+        return new AllowListClassResolver();
+    }
+
+    public boolean isAllowed(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()
+                || Entity.class.isAssignableFrom(type)
+                || EnumClass.class.isAssignableFrom(type)
+                || Throwable.class.isAssignableFrom(type)) {
+            return true;
+        }
+        String name = type.getName();
+        for (String prefix : DENIED_PACKAGES) {
+            if (name.startsWith(prefix)) {
+                return false;
+            }
+        }
+        for (String prefix : allowedPackages) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks classes written by name before Kryo instantiates them. Classes are loaded without initialization.
+     */
+    protected class AllowListClassResolver extends DefaultClassResolver {
+
+        @Override
+        protected Registration readName(Input input) {
+            Registration registration = super.readName(input);
+            if (registration != null && !isAllowed(registration.getType())) {
+                throw new KryoException("Class is not allowed for remote invocations: "
+                        + registration.getType().getName()
+                        + ". Add its package to cuba.remoting.kryoAllowedPackages if it must be passed to services");
+            }
+            return registration;
+        }
+    }
+}
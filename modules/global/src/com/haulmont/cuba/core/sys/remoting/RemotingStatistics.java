@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Static holder of HTTP service invocation counters grouped by service name. Counters are collected by
+ * {@link ClusteredHttpInvokerRequestExecutor} on the client side and by {@code HttpServiceExporter} on the
+ * middleware. Byte counters contain sizes of bodies as they are transferred, i.e. after compression.
+ */
+public class RemotingStatistics {
+
+    private static final RemotingStatistics instance = new RemotingStatistics();
+
+    private final ConcurrentMap<String, ServiceStat> stats = new ConcurrentHashMap<>();
+
+    public static RemotingStatistics getInstance() {
+        return instance;
+    }
+
+    public void record(String service, String format, long requestBytes, long responseBytes, long timeNanos) {
+        ServiceStat stat = stats.computeIfAbsent(service, s -> new ServiceStat());
+        stat.invocations.increment();
+        if (RemotingWireFormat.KRYO.equals(format)) {
+            stat.kryoInvocations.increment();
+        }
+        stat.requestBytes.add(requestBytes);
+        stat.responseBytes.add(responseBytes);
+        stat.timeNanos.add(timeNanos);
+    }
+
+    public String print() {
+        if (stats.isEmpty()) {
+            return "No invocations";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, ServiceStat> entry : new TreeMap<>(stats).entrySet()) {
+            ServiceStat stat = entry.getValue();
+            long invocations = stat.invocations.sum();
+            sb.append(entry.getKey())
+                    .append(": invocations=").append(invocations)
+                    .append(", kryo=").append(stat.kryoInvocations.sum())
+                    .append(", requestBytes=").append(stat.requestBytes.sum())
+                    .append(", responseBytes=").append(stat.responseBytes.sum())
+                    .append(", totalTimeMs=").append(TimeUnit.NANOSECONDS.toMillis(stat.timeNanos.sum()))
+                    .append(", avgTimeMs=").append(invocations == 0 ? 0 :
+                            TimeUnit.NANOSECONDS.toMillis(stat.timeNanos.sum() / invocations))
+                    .append("\n");
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    protected static class ServiceStat {
+        protected final LongAdder invocations = new LongAdder();
+        protected final LongAdder kryoInvocations = new LongAdder();
+        protected final LongAdder requestBytes = new LongAdder();
+        protected final LongAdder responseBytes = new LongAdder();
+        protected final LongAdder timeNanos = new LongAdder();
+    }
+}
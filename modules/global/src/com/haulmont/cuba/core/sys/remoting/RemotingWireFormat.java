@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.sys.AppContext;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Wire format of HTTP service invocations negotiated between {@link ClusteredHttpInvokerRequestExecutor}
+ * and {@code HttpServiceExporter}.
+ * <p>
+ * The client lists formats it can read in the {@link #ACCEPT_HEADER} header and marks the format of the request
+ * body in the {@link #FORMAT_HEADER} header. The server answers in Kryo if the client accepts it and
+ * {@code cuba.remoting.kryoEnabled} is set, and marks the format of the response in the same way. The client sends
+ * requests in Kryo only after the server has answered in Kryo, so Java serialization is still used with servers
+ * of previous versions and for objects that Kryo fails to serialize.
+ * <p>
+ * Kryo requests are rejected by the server unless {@code cuba.remoting.kryoEnabled} is set, and Kryo reads only
+ * classes allowed by {@link RemotingKryoSerialization}.
+ * <p>
+ * Bodies larger than {@code cuba.remoting.compressionThreshold} bytes are compressed with gzip. The server lists
+ * content codings it can read in the {@link #ACCEPT_ENCODING_HEADER} header of every response as described in
+ * RFC 7694, and the client compresses requests only after such a response, so servers of previous versions
+ * receive uncompressed requests.
+ */
+public final class RemotingWireFormat {
+
+    public static final String FORMAT_HEADER = "X-Cuba-Remoting-Format";
+    public static final String ACCEPT_HEADER = "X-Cuba-Remoting-Accept";
+
+    public static final String JAVA = "java";
+    public static final String KRYO = "kryo";
+
+    public static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    public static final String GZIP = "gzip";
+
+    private static final Logger log = LoggerFactory.getLogger(RemotingWireFormat.class);
+
+    private static volatile RemotingKryoSerialization kryoSerialization;
+
+    private RemotingWireFormat() {
+    }
+
+    /**
+     * @return true if Kryo is allowed for invocations sent or answered by this application block
+     */
+    public static boolean isKryoEnabled() {
+        return Boolean.parseBoolean(AppContext.getProperty("cuba.remoting.kryoEnabled"));
+    }
+
+    /**
+     * @return true if bodies larger than {@code cuba.remoting.compressionThreshold} are compressed
+     */
+    public static boolean isCompressionEnabled() {
+        return getCompressionThreshold() > 0;
+    }
+
+    /**
+     * @return true if a body of the given size should be compressed
+     */
+    public static boolean isCompressionRequired(int size) {
+        int threshold = getCompressionThreshold();
+        return threshold > 0 && size >= threshold;
+    }
+
+    private static int getCompressionThreshold() {
+        String threshold = AppContext.getProperty("cuba.remoting.compressionThreshold");
+        return StringUtils.isNotBlank(threshold) ? Integer.parseInt(threshold) : 0;
+    }
+
+    /**
+     * @return true if the comma-separated header value contains the given token
+     */
+    public static boolean contains(@Nullable String headerValue, String token) {
+        if (headerValue == null) {
+            return false;
+        }
+        for (String value : headerValue.split(",")) {
+            if (value.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return serialized object or null if Kryo cannot serialize it
+     */
+    @Nullable
+    public static byte[] serializeWithKryo(Object object) {
+        try {
+            return getKryoSerialization().serialize(object);
+        } catch (RuntimeException e) {
+            log.warn("Unable to serialize {} with Kryo, using Java serialization: {}", object.getClass().getName(), e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Deserializes an object accepting only classes allowed by {@link RemotingKryoSerialization}.
+     */
+    public static Object deserializeWithKryo(InputStream is) {
+        return getKryoSerialization().deserialize(is);
+    }
+
+    public static RemotingKryoSerialization getKryoSerialization() {
+        RemotingKryoSerialization serialization = kryoSerialization;
+        if (serialization == null) {
+            synchronized (RemotingWireFormat.class) {
+                serialization = kryoSerialization;
+                if (serialization == null) {
+                    serialization = new RemotingKryoSerialization();
+                    kryoSerialization = serialization;
+                }
+            }
+        }
+        return serialization;
+    }
+
+    public static byte[] compress(byte[] bytes) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(baos)) {
+            gzip.write(bytes);
+        }
+        return baos.toByteArray();
+    }
+}
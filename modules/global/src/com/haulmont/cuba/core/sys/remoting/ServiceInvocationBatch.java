@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.google.common.base.Defaults;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Collects independent invocations of middleware services and sends them to the middleware in one request
+ * when {@link #execute()} is called:
+ * <pre>
+ * CompletableFuture&lt;String&gt; setting;
+ * CompletableFuture&lt;Long&gt; count;
+ * try (ServiceInvocationBatch batch = new ServiceInvocationBatch()) {
+ *     setting = batch.submit(UserSettingService.class, service -&gt; service.loadSetting("my-screen"));
+ *     count = batch.submit(DataService.class, service -&gt; service.getCount(loadContext));
+ * }
+ * </pre>
+ * A submitted function must invoke exactly one method of the service. The invocation is executed in the security
+ * context which is current when it is submitted. An exception thrown by a service method completes exceptionally
+ * only the future of its invocation.
+ * <p>
+ * If services are invoked locally ({@code cuba.useLocalServiceInvocation = true}) or the batch contains a single
+ * invocation, invocations are executed one by one without the batch request.
+ * <p>
+ * Futures are completed by {@link #execute()} in the calling thread, so do not wait for them before.
+ * The class is not thread-safe.
+ */
+public class ServiceInvocationBatch implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ServiceInvocationBatch.class);
+
+    protected final List<Call<?>> calls = new ArrayList<>();
+
+    protected final CubaRemoteInvocationFactory invocationFactory = new CubaRemoteInvocationFactory();
+
+    /**
+     * Adds an invocation of the service registered under the name declared in the {@code NAME} constant
+     * of the service interface.
+     *
+     * @param serviceInterface service interface
+     * @param invocation       function invoking one method of the service
+     * @return future completed with the method result when the batch is executed
+     */
+    public <S, R> CompletableFuture<R> submit(Class<S> serviceInterface, Function<S, R> invocation) {
+        return submit(getServiceName(serviceInterface), serviceInterface, invocation);
+    }
+
+    /**
+     * Adds an invocation of the service.
+     *
+     * @param serviceName      name of the service bean
+     * @param serviceInterface service interface
+     * @param invocation       function invoking one method of the service
+     * @return future completed with the method result when the batch is executed
+     */
+    public <S, R> CompletableFuture<R> submit(String serviceName, Class<S> serviceInterface, Function<S, R> invocation) {
+        MethodRecorder recorder = new MethodRecorder();
+        Object recordingProxy = Proxy.newProxyInstance(serviceInterface.getClassLoader(),
+                new Class<?>[]{serviceInterface}, recorder);
+        invocation.apply(serviceInterface.cast(recordingProxy));
+        if (recorder.method == null) {
+            throw new IllegalArgumentException("Batched invocation of " + serviceName + " does not invoke a service method");
+        }
+
+        Call<R> call = new Call<>(serviceName, recorder.method, recorder.arguments, AppContext.getSecurityContext(),
+                invocationFactory.createRemoteInvocation(recorder.method, recorder.arguments));
+        calls.add(call);
+        return call.future;
+    }
+
+    /**
+     * @return number of invocations waiting for execution
+     */
+    public int size() {
+        return calls.size();
+    }
+
+    /**
+     * Executes all submitted invocations and completes their futures.
+     */
+    public void execute() {
+        if (calls.isEmpty()) {
+            return;
+        }
+        List<Call<?>> executed = new ArrayList<>(calls);
+        calls.clear();
+
+        SecurityContext batchSecurityContext = getBatchSecurityContext(executed);
+        if (executed.size() > 1 && batchSecurityContext != null && isBatchRequestSupported()) {
+            executeInBatch(executed, batchSecurityContext);
+        } else {
+            for (Call<?> call : executed) {
+                executeDirectly(call);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        execute();
+    }
+
+    protected boolean isBatchRequestSupported() {
+        return !Boolean.parseBoolean(AppContext.getProperty("cuba.useLocalServiceInvocation"))
+                && AppContext.getProperty("cuba.connectionUrlList") != null
+                && AppContext.getApplicationContext().containsBean(BatchInvocationService.NAME);
+    }
+
+    /**
+     * The batch request is a service invocation itself, so it is sent in the current security context
+     * or in the context of one of the batched invocations.
+     */
+    @Nullable
+    protected SecurityContext getBatchSecurityContext(List<Call<?>> calls) {
+        SecurityContext securityContext = AppContext.getSecurityContext();
+        if (securityContext != null) {
+            return securityContext;
+        }
+        for (Call<?> call : calls) {
+            if (call.securityContext != null) {
+                return call.securityContext;
+            }
+        }
+        return null;
+    }
+
+    protected void executeInBatch(List<Call<?>> calls, SecurityContext batchSecurityContext) {
+        List<BatchedInvocation> invocations = new ArrayList<>(calls.size());
+        for (Call<?> call : calls) {
+            invocations.add(new BatchedInvocation(call.serviceName, call.invocation));
+        }
+
+        log.debug("Executing batch of {} invocations: {}", invocations.size(), invocations);
+
+        List<RemoteInvocationResult> results;
+        SecurityContext previousSecurityContext = AppContext.getSecurityContext();
+        AppContext.setSecurityContext(batchSecurityContext);
+        try {
+            BatchInvocationService batchInvocationService = AppBeans.get(BatchInvocationService.NAME);
+            results = batchInvocationService.invoke(invocations);
+        } catch (RuntimeException e) {
+            for (Call<?> call : calls) {
+                call.future.completeExceptionally(e);
+            }
+            return;
+        } finally {
+            AppContext.setSecurityContext(previousSecurityContext);
+        }
+
+        for (int i = 0; i < calls.size(); i++) {
+            calls.get(i).completeWithResult(results.get(i));
+        }
+    }
+
+    protected void executeDirectly(Call<?> call) {
+        SecurityContext previousSecurityContext = AppContext.getSecurityContext();
+        AppContext.setSecurityContext(call.securityContext);
+        try {
+            Object service = AppBeans.get(call.serviceName);
+            call.completeWithValue(call.method.invoke(service, call.arguments));
+        } catch (InvocationTargetException e) {
+            call.future.completeExceptionally(e.getTargetException());
+        } catch (Throwable e) {
+            call.future.completeExceptionally(e);
+        } finally {
+            AppContext.setSecurityContext(previousSecurityContext);
+        }
+    }
+
+    protected String getServiceName(Class<?> serviceInterface) {
+        try {
+            return (String) serviceInterface.getField("NAME").get(null);
+        } catch (NoSuchFieldException | IllegalAccessException | ClassCastException e) {
+            throw new IllegalArgumentException("Service interface " + serviceInterface.getName()
+                    + " does not declare NAME constant, specify the service name explicitly");
+        }
+    }
+
+    protected static class Call<R> {
+
+        protected final String serviceName;
+        protected final Method method;
+        protected final Object[] arguments;
+        protected final SecurityContext securityContext;
+        protected final CubaRemoteInvocation invocation;
+        protected final CompletableFuture<R> future = new CompletableFuture<>();
+
+        protected Call(String serviceName, Method method, Object[] arguments,
+                       @Nullable SecurityContext securityContext, CubaRemoteInvocation invocation) {
+            this.serviceName = serviceName;
+            this.method = method;
+            this.arguments = arguments;
+            this.securityContext = securityContext;
+            this.invocation = invocation;
+        }
+
+        @SuppressWarnings("unchecked")
+        protected void completeWithValue(Object value) {
+            future.complete((R) value);
+        }
+
+        protected void completeWithResult(RemoteInvocationResult result) {
+            try {
+                completeWithValue(HttpServiceProxy.recreateResult(result));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Remembers the service method invoked by a submitted function instead of executing it.
+     */
+    protected static class MethodRecorder implements InvocationHandler {
+
+        protected Method method;
+        protected Object[] arguments;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getDeclaringClass() == Object.class) {
+                throw new IllegalArgumentException("Method " + method.getName() + " cannot be invoked in a batch");
+            }
+            if (this.method != null) {
+                throw new IllegalArgumentException("Batched invocation must invoke exactly one service method");
+            }
+            this.method = method;
+            this.arguments = args;
+            return Defaults.defaultValue(method.getReturnType());
+        }
+    }
+}
@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.sys.serialization;
 
+import com.esotericsoftware.kryo.ClassResolver;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.io.Input;
@@ -115,7 +116,7 @@ public class KryoSerialization implements Serialization {
     }
 
     protected Kryo newKryoInstance() {
-        Kryo kryo = new Kryo(new DefaultClassResolver(), new CubaMapReferenceResolver());
+        Kryo kryo = new Kryo(createClassResolver(), new CubaMapReferenceResolver());
         kryo.setInstantiatorStrategy(new CubaInstantiatorStrategy());
         if (onlySerializable) {
             kryo.setDefaultSerializer(CubaFieldSerializer.class);
@@ -169,6 +170,10 @@ public class KryoSerialization implements Serialization {
         return kryo;
     }
 
+    protected ClassResolver createClassResolver() {
+        return new DefaultClassResolver();
+    }
+
     @Override
     public void serialize(Object object, OutputStream os) {
         withKryoFromPool(kryo -> {
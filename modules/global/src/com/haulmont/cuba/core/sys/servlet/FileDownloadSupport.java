@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.servlet;
+
+import com.haulmont.cuba.core.entity.FileDescriptor;
+
+import javax.annotation.Nullable;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Conditional and range requests support for controllers that serve files.
+ */
+public final class FileDownloadSupport {
+
+    /**
+     * Maximum number of ranges in a request. Requests with more ranges are served with the whole content.
+     */
+    public static final int MAX_RANGES = 100;
+
+    private static final String BYTES_UNIT = "bytes";
+
+    private FileDownloadSupport() {
+    }
+
+    /**
+     * Writes a part of the content to the response output stream.
+     */
+    public interface RangeWriter {
+        void write(long start, long length) throws IOException;
+    }
+
+    /**
+     * Byte range with inclusive bounds.
+     */
+    public static final class Range {
+        private final long start;
+        private final long end;
+
+        public Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start + 1;
+        }
+
+        public String toContentRange(long contentLength) {
+            return BYTES_UNIT + " " + start + "-" + end + "/" + contentLength;
+        }
+
+        @Override
+        public String toString() {
+            return start + "-" + end;
+        }
+    }
+
+    /**
+     * Returns a strong entity tag of the file. Files are never changed in the file storage, so the descriptor id and
+     * creation date identify the contents.
+     */
+    public static String getETag(FileDescriptor fd) {
+        return getETag(fd.getId().toString(), fd.getCreateDate() != null ? fd.getCreateDate().getTime() : 0);
+    }
+
+    public static String getETag(String id, long lastModified) {
+        return "\"" + id + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    /**
+     * Sets {@code ETag} and {@code Last-Modified} headers and evaluates {@code If-None-Match} and
+     * {@code If-Modified-Since} request headers.
+     *
+     * @param lastModified last modification time or a negative value if unknown
+     * @return true if the client has the current version of the file and the response status is set to 304
+     */
+    public static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response,
+                                           String eTag, long lastModified) {
+        response.setHeader("ETag", eTag);
+        if (lastModified > 0) {
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+
+        boolean notModified;
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            notModified = matchesETag(ifNoneMatch, eTag);
+        } else {
+            long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+            notModified = ifModifiedSince >= 0 && lastModified > 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+        if (notModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    /**
+     * Returns byte ranges requested by the {@code Range} header if they are still valid according to the
+     * {@code If-Range} header. Sets {@code Accept-Ranges} header of the response.
+     *
+     * @param contentLength length of the whole content
+     * @return ranges to send, empty list if the whole content must be sent or null if the requested ranges
+     * cannot be satisfied
+     */
+    @Nullable
+    public static List<Range> getRanges(HttpServletRequest request, HttpServletResponse response,
+                                        String eTag, long lastModified, long contentLength) {
+        response.setHeader("Accept-Ranges", BYTES_UNIT);
+
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader == null || !isIfRangeSatisfied(request, eTag, lastModified)) {
+            return Collections.emptyList();
+        }
+        return parseRanges(rangeHeader, contentLength);
+    }
+
+    /**
+     * Parses a value of the {@code Range} header. Malformed headers are ignored as required by RFC 7233.
+     *
+     * @return requested ranges, empty list if the whole content must be sent or null if the requested ranges
+     * cannot be satisfied
+     */
+    @Nullable
+    public static List<Range> parseRanges(String rangeHeader, long contentLength) {
+        String prefix = BYTES_UNIT + "=";
+        if (!rangeHeader.startsWith(prefix)) {
+            return Collections.emptyList();
+        }
+
+        String[] specs = rangeHeader.substring(prefix.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return Collections.emptyList();
+        }
+
+        List<Range> ranges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dashIdx = spec.indexOf('-');
+            if (dashIdx < 0) {
+                return Collections.emptyList();
+            }
+            try {
+                long start;
+                long end;
+                if (dashIdx == 0) {
+                    long suffixLength = Long.parseLong(spec.substring(1));
+                    start = Math.max(contentLength - suffixLength, 0);
+                    end = contentLength - 1;
+                    if (suffixLength <= 0 || end < start) {
+                        continue;
+                    }
+                } else {
+                    start = Long.parseLong(spec.substring(0, dashIdx));
+                    String endValue = spec.substring(dashIdx + 1);
+                    end = endValue.isEmpty() ? contentLength - 1 : Long.parseLong(endValue);
+                    if (end < start && !endValue.isEmpty()) {
+                        return Collections.emptyList();
+                    }
+                    if (start >= contentLength) {
+                        continue;
+                    }
+                    end = Math.min(end, contentLength - 1);
+                }
+                ranges.add(new Range(start, end));
+            } catch (NumberFormatException e) {
+                return Collections.emptyList();
+            }
+        }
+        return ranges.isEmpty() ? null : ranges;
+    }
+
+    /**
+     * Sets the response status and headers according to the ranges and writes the requested parts of the content.
+     * Several ranges are sent as {@code multipart/byteranges}.
+     *
+     * @param ranges        ranges returned by {@link #getRanges(HttpServletRequest, HttpServletResponse, String, long, long)}
+     * @param contentLength length of the whole content
+     * @param contentType   MIME type of the content
+     * @param writer        writes parts of the content to the response output stream
+     */
+    public static void writeRanges(HttpServletResponse response, @Nullable List<Range> ranges,
+                                   long contentLength, String contentType, RangeWriter writer) throws IOException {
+        if (ranges == null) {
+            response.setHeader("Content-Range", BYTES_UNIT + " */" + contentLength);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        } else if (ranges.isEmpty()) {
+            response.setContentLengthLong(contentLength);
+            writer.write(0, contentLength);
+        } else if (ranges.size() == 1) {
+            Range range = ranges.get(0);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", range.toContentRange(contentLength));
+            response.setContentLengthLong(range.getLength());
+            writer.write(range.getStart(), range.getLength());
+        } else {
+            String boundary = UUID.randomUUID().toString().replace("-", "");
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType("multipart/byteranges; boundary=" + boundary);
+
+            ServletOutputStream os = response.getOutputStream();
+            for (Range range : ranges) {
+                os.print("\r\n--" + boundary + "\r\n");
+                os.print("Content-Type: " + contentType + "\r\n");
+                os.print("Content-Range: " + range.toContentRange(contentLength) + "\r\n\r\n");
+                writer.write(range.getStart(), range.getLength());
+            }
+            os.print("\r\n--" + boundary + "--\r\n");
+        }
+    }
+
+    private static boolean isIfRangeSatisfied(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // weak entity tags are never used for range requests
+            return ifRange.equals(eTag);
+        }
+        long date = getDateHeader(request, "If-Range");
+        return date >= 0 && lastModified > 0 && lastModified / 1000 == date / 1000;
+    }
+
+    private static boolean matchesETag(String header, String eTag) {
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || tag.equals(eTag) || tag.equals("W/" + eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
@@ -17,6 +17,12 @@
 
 package com.haulmont.cuba.security.entity;
 
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.chile.core.model.impl.MetaClassImpl;
+import com.haulmont.chile.core.model.impl.MetaModelImpl;
+import com.haulmont.chile.core.model.impl.MetaPropertyImpl;
+import com.haulmont.chile.core.model.impl.SessionImpl;
+import com.haulmont.chile.core.model.utils.InstanceUtils;
 import junit.framework.TestCase;
 
 public class InstanceUtilsTest extends TestCase {
@@ -49,4 +55,31 @@ public class InstanceUtilsTest extends TestCase {
         userSubst.setValueEx("user.group.name", "newName");
         assertEquals("newName", userSubst.getValueEx("user.group.name"));
     }
+
+    public void testMetaPropertyPath() {
+        MetaModelImpl model = new MetaModelImpl(new SessionImpl(), "test");
+        MetaClassImpl userSubstClass = new MetaClassImpl(model, "sec$UserSubstitution");
+        MetaClassImpl userClass = new MetaClassImpl(model, "sec$User");
+        MetaClassImpl groupClass = new MetaClassImpl(model, "sec$Group");
+
+        MetaPropertyImpl userProperty = createProperty(userSubstClass, "user", UserSubstitution.class);
+        MetaPropertyImpl groupProperty = createProperty(userClass, "group", User.class);
+        MetaPropertyImpl groupNameProperty = createProperty(groupClass, "name", Group.class);
+
+        MetaPropertyPath path = new MetaPropertyPath(userSubstClass, userProperty, groupProperty, groupNameProperty);
+        assertEquals("testGroup", InstanceUtils.getValueEx(userSubst, path));
+        assertEquals(group, InstanceUtils.getValue(user, groupProperty));
+
+        // the property is declared by another class, the value is read by name
+        assertEquals("testName", InstanceUtils.getValue(user, groupNameProperty));
+
+        user.setGroup(null);
+        assertNull(InstanceUtils.getValueEx(userSubst, path));
+    }
+
+    private MetaPropertyImpl createProperty(MetaClassImpl metaClass, String name, Class<?> declaringClass) {
+        MetaPropertyImpl property = new MetaPropertyImpl(metaClass, name);
+        property.setDeclaringClass(declaringClass);
+        return property;
+    }
 }
\ No newline at end of file
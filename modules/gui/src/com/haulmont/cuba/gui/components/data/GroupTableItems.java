@@ -98,4 +98,14 @@ public interface GroupTableItems<I> extends TableItems.Sortable<I> {
      * Indicates that a group is contained in the groups tree
      */
     boolean containsGroup(GroupInfo groupId);
-}
\ No newline at end of file
+
+    /**
+     * Group table items which load items of groups on demand.
+     */
+    interface LazyGroupItems {
+        /**
+         * Loads all items of the group that are not loaded yet. Invoked when the group is expanded.
+         */
+        void ensureGroupItemsLoaded(GroupInfo groupId);
+    }
+}
@@ -21,6 +21,7 @@ import com.haulmont.bali.events.Subscription;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.global.Sort;
 import com.haulmont.cuba.gui.components.AggregationInfo;
 import com.haulmont.cuba.gui.components.data.AggregatableDataGridItems;
@@ -53,6 +54,7 @@ public class ContainerDataGridItems<E extends Entity>
     protected boolean suppressSorting;
 
     protected AggregatableDelegate aggregatableDelegate;
+    protected boolean databaseAggregation;
 
     protected EventHub events = new EventHub();
 
@@ -243,6 +245,29 @@ public class ContainerDataGridItems<E extends Entity>
             public Object getItemValue(MetaPropertyPath property, Object itemId) {
                 return container.getItem(itemId).getValueEx(property);
             }
+
+            @Override
+            protected LoadContext<?> getDatabaseAggregationContext(Collection itemIds) {
+                return databaseAggregation ? createContainerAggregationContext(container, itemIds) : null;
+            }
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * @return true if aggregations are calculated by the database
+     * @see #setDatabaseAggregation(boolean)
+     */
+    public boolean isDatabaseAggregation() {
+        return databaseAggregation;
+    }
+
+    /**
+     * Sets whether footer aggregations are calculated by a single value query built from the loader query,
+     * so they reflect all matching instances rather than the loaded page.
+     *
+     * @see com.haulmont.cuba.gui.components.data.table.ContainerTableItems#setDatabaseAggregation(boolean)
+     */
+    public void setDatabaseAggregation(boolean databaseAggregation) {
+        this.databaseAggregation = databaseAggregation;
+    }
+}
@@ -21,6 +21,7 @@ import com.haulmont.bali.events.Subscription;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.global.Sort;
 import com.haulmont.cuba.gui.components.AggregationInfo;
 import com.haulmont.cuba.gui.components.data.AggregatableTableItems;
@@ -53,6 +54,7 @@ public class ContainerTableItems<E extends Entity> implements EntityTableItems<E
     protected CollectionContainer<E> container;
 
     protected AggregatableDelegate aggregatableDelegate;
+    protected boolean databaseAggregation;
 
     protected boolean suppressSorting;
 
@@ -78,6 +80,11 @@ public class ContainerTableItems<E extends Entity> implements EntityTableItems<E
             public Object getItemValue(MetaPropertyPath property, Object itemId) {
                 return ContainerTableItems.this.getItemValue(itemId, property);
             }
+
+            @Override
+            protected LoadContext<?> getDatabaseAggregationContext(Collection itemIds) {
+                return databaseAggregation ? createContainerAggregationContext(container, itemIds) : null;
+            }
         };
     }
 
@@ -303,4 +310,22 @@ public class ContainerTableItems<E extends Entity> implements EntityTableItems<E
     public void enableSorting() {
         suppressSorting = false;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return true if aggregations of all items are calculated by the database for the whole result of
+     * the container loader query
+     */
+    public boolean isDatabaseAggregation() {
+        return databaseAggregation;
+    }
+
+    /**
+     * Sets whether aggregations of all items are calculated by the database for the whole result of
+     * the container loader query instead of loaded items. Custom aggregations, aggregations with strategies and
+     * aggregations of non-persistent attributes are always calculated in memory, as well as all aggregations
+     * while the container has new, modified or removed instances.
+     */
+    public void setDatabaseAggregation(boolean databaseAggregation) {
+        this.databaseAggregation = databaseAggregation;
+    }
+}
@@ -28,7 +28,7 @@ import java.util.List;
 
 public class DatasourceGroupTableItems<E extends Entity<K>, K>
         extends SortableDatasourceTableItems<E, K>
-        implements GroupTableItems<E> {
+        implements GroupTableItems<E>, GroupTableItems.LazyGroupItems {
 
     public DatasourceGroupTableItems(GroupDatasource<E, K> datasource) {
         super((CollectionDatasource.Sortable<E, K>) datasource);
@@ -43,6 +43,20 @@ public class DatasourceGroupTableItems<E extends Entity<K>, K>
         getGroupDatasource().groupBy(properties);
     }
 
+    @Override
+    public void ensureGroupItemsLoaded(GroupInfo groupId) {
+        if (datasource instanceof GroupDatasource.SupportsServerSideGrouping) {
+            GroupDatasource.SupportsServerSideGrouping serverSideGrouping =
+                    (GroupDatasource.SupportsServerSideGrouping) datasource;
+            // the table shows all items of an expanded group, so the rest of pages are loaded as well
+            while (serverSideGrouping.hasNotLoadedGroupItems(groupId)) {
+                if (!serverSideGrouping.loadGroupItems(groupId)) {
+                    break;
+                }
+            }
+        }
+    }
+
     @Override
     public List<GroupInfo> rootGroups() {
         return getGroupDatasource().rootGroups();
@@ -119,4 +119,38 @@ public interface GroupDatasource<T extends Entity<K>, K> extends CollectionDatas
     interface SupportsGroupSortDelegate {
         void setGroupSortDelegate(GroupSortDelegate sortDelegate);
     }
+
+    /**
+     * GroupDatasource which can build the groups tree on the database side.
+     * <p>
+     * In the server-side grouping mode the datasource does not load all items on refresh. Groups and their item
+     * counts are calculated by a {@code GROUP BY} query, and items of a group are loaded by pages on demand,
+     * e.g. all pages of a group are loaded when the group is expanded in a GroupTable. If grouping properties cannot be expressed in JPQL
+     * (non-persistent or collection attributes), items are loaded and grouped in memory as usual.
+     */
+    interface SupportsServerSideGrouping {
+
+        boolean isServerSideGrouping();
+
+        void setServerSideGrouping(boolean serverSideGrouping);
+
+        /**
+         * @return number of items loaded by one {@link #loadGroupItems(GroupInfo)} invocation
+         */
+        int getGroupItemsPageSize();
+
+        void setGroupItemsPageSize(int groupItemsPageSize);
+
+        /**
+         * Loads the next page of items of a group which has no nested groups. Does not fire events.
+         *
+         * @return true if some items have been loaded
+         */
+        boolean loadGroupItems(GroupInfo groupId);
+
+        /**
+         * @return true if the group contains items that are not loaded yet
+         */
+        boolean hasNotLoadedGroupItems(GroupInfo groupId);
+    }
 }
\ No newline at end of file
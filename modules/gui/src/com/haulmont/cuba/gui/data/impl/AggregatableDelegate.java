@@ -17,19 +17,35 @@
 package com.haulmont.cuba.gui.data.impl;
 
 import com.haulmont.chile.core.datatypes.Datatypes;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.chile.core.model.Range;
-import com.haulmont.cuba.core.global.AppBeans;
-import com.haulmont.cuba.core.global.UserSessionSource;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.global.queryconditions.Condition;
+import com.haulmont.cuba.core.global.queryconditions.ConditionJpqlGenerator;
 import com.haulmont.cuba.gui.components.AggregationInfo;
 import com.haulmont.cuba.gui.data.aggregation.Aggregation;
 import com.haulmont.cuba.gui.data.aggregation.AggregationStrategy;
 import com.haulmont.cuba.gui.data.aggregation.Aggregations;
+import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.DataContext;
+import com.haulmont.cuba.gui.model.HasLoader;
+import org.apache.commons.lang3.ArrayUtils;
 
+import javax.annotation.Nullable;
+import java.math.BigDecimal;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public abstract class AggregatableDelegate<K> {
+
+    protected static final String AGGREGATED_ENTITY_ALIAS = "aggregatedEntity";
+    protected static final String AGGREGATED_VALUE_PREFIX = "aggregatedValue";
+
     public Map<AggregationInfo, String> aggregate(AggregationInfo[] aggregationInfos, Collection<K> itemIds) {
         if (aggregationInfos == null || aggregationInfos.length == 0) {
             throw new NullPointerException("Aggregation must be executed at least by one field");
@@ -39,9 +55,13 @@ public abstract class AggregatableDelegate<K> {
     }
 
     protected Map<AggregationInfo, String> doAggregation(Collection<K> itemIds, AggregationInfo[] aggregationInfos) {
+        Map<AggregationInfo, Object> databaseResults = aggregateInDatabase(aggregationInfos, itemIds);
+
         Map<AggregationInfo, String> aggregationResults = new HashMap<>();
         for (AggregationInfo aggregationInfo : aggregationInfos) {
-            final Object value = doPropertyAggregation(aggregationInfo, itemIds);
+            final Object value = databaseResults.containsKey(aggregationInfo)
+                    ? databaseResults.get(aggregationInfo)
+                    : doPropertyAggregation(aggregationInfo, itemIds);
 
             String formattedValue;
             if (aggregationInfo.getFormatter() != null) {
@@ -91,10 +111,14 @@ public abstract class AggregatableDelegate<K> {
             throw new NullPointerException("Aggregation must be executed at least by one field");
         }
 
+        Map<AggregationInfo, Object> databaseResults = aggregateInDatabase(aggregationInfos, itemIds);
+
         Map<AggregationInfo, Object> aggregationResults = new HashMap<>();
 
         for (AggregationInfo aggregationInfo : aggregationInfos) {
-            Object value = doPropertyAggregation(aggregationInfo, itemIds);
+            Object value = databaseResults.containsKey(aggregationInfo)
+                    ? databaseResults.get(aggregationInfo)
+                    : doPropertyAggregation(aggregationInfo, itemIds);
             aggregationResults.put(aggregationInfo, value);
         }
 
@@ -151,6 +175,183 @@ public abstract class AggregatableDelegate<K> {
         return values;
     }
 
+    /**
+     * Returns the load context of the items if aggregation can be performed by the database. In this case
+     * standard aggregations of persistent attributes are calculated for the whole query result by a single
+     * value query, and the rest of aggregations use loaded items.
+     *
+     * @param itemIds ids of aggregated items
+     * @return load context or null to aggregate loaded items in memory
+     */
+    @Nullable
+    protected LoadContext<?> getDatabaseAggregationContext(Collection<K> itemIds) {
+        return null;
+    }
+
+    /**
+     * Creates the load context of the container loader for database aggregation. Database aggregation is possible
+     * only if all container items are aggregated and the container has no unsaved changes, because the database
+     * does not know about new, modified and removed instances.
+     *
+     * @param container container of the aggregated items
+     * @param itemIds   ids of aggregated items
+     * @return load context or null to aggregate loaded items in memory
+     */
+    @Nullable
+    protected static LoadContext<?> createContainerAggregationContext(CollectionContainer<?> container,
+                                                                      Collection<?> itemIds) {
+        if (itemIds.size() != container.getItems().size()
+                || !(container instanceof HasLoader)
+                || !(((HasLoader) container).getLoader() instanceof CollectionLoader)) {
+            return null;
+        }
+        CollectionLoader<?> loader = (CollectionLoader<?>) ((HasLoader) container).getLoader();
+
+        DataContext dataContext = loader.getDataContext();
+        if (dataContext != null) {
+            MetaClass metaClass = container.getEntityMetaClass();
+            for (Entity removed : dataContext.getRemoved()) {
+                if (metaClass.equals(removed.getMetaClass())) {
+                    return null;
+                }
+            }
+        }
+        EntityStates entityStates = AppBeans.get(EntityStates.NAME);
+        for (Entity item : container.getItems()) {
+            if (entityStates.isNew(item) || (dataContext != null && dataContext.isModified(item))) {
+                return null;
+            }
+        }
+        return loader.createLoadContext();
+    }
+
+    protected Map<AggregationInfo, Object> aggregateInDatabase(AggregationInfo[] aggregationInfos,
+                                                               Collection<K> itemIds) {
+        LoadContext<?> loadContext = getDatabaseAggregationContext(itemIds);
+        if (loadContext == null || loadContext.getQuery() == null) {
+            return Collections.emptyMap();
+        }
+
+        Metadata metadata = AppBeans.get(Metadata.NAME);
+        MetaClass metaClass = metadata.getClassNN(loadContext.getEntityMetaClass());
+        MetaProperty primaryKey = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        if (primaryKey == null || primaryKey.getRange().isClass()) {
+            return Collections.emptyMap();
+        }
+
+        List<AggregationInfo> aggregated = new ArrayList<>();
+        List<String> expressions = new ArrayList<>();
+        for (AggregationInfo aggregationInfo : aggregationInfos) {
+            String expression = createAggregateExpression(aggregationInfo, metadata.getTools());
+            if (expression != null) {
+                aggregated.add(aggregationInfo);
+                expressions.add(expression);
+            }
+        }
+        if (aggregated.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        LoadContext.Query itemsQuery = loadContext.getQuery();
+        String itemsQueryString = itemsQuery.getQueryString();
+        Condition condition = itemsQuery.getCondition();
+        if (condition != null) {
+            Set<String> nonNullParamNames = itemsQuery.getParameters().entrySet().stream()
+                    .filter(e -> e.getValue() != null)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+            ConditionJpqlGenerator conditionJpqlGenerator = AppBeans.get(ConditionJpqlGenerator.NAME);
+            itemsQueryString = conditionJpqlGenerator.processQuery(itemsQueryString, condition.actualize(nonNullParamNames));
+        }
+
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(itemsQueryString);
+        transformer.replaceWithSelectId(primaryKey.getName());
+        transformer.removeOrderBy();
+
+        String queryString = "select " + String.join(", ", expressions)
+                + " from " + metaClass.getName() + " " + AGGREGATED_ENTITY_ALIAS
+                + " where " + AGGREGATED_ENTITY_ALIAS + "." + primaryKey.getName() + " in (" + transformer.getResult() + ")";
+
+        ValueLoadContext context = ValueLoadContext.create()
+                .setStoreName(metadata.getTools().getStoreName(metaClass))
+                .setSoftDeletion(loadContext.isSoftDeletion());
+        ValueLoadContext.Query query = context.setQueryString(queryString);
+        List<String> noConversionParams = Arrays.asList(ArrayUtils.nullToEmpty(itemsQuery.getNoConversionParams()));
+        for (Map.Entry<String, Object> entry : itemsQuery.getParameters().entrySet()) {
+            query.setParameter(entry.getKey(), entry.getValue(), !noConversionParams.contains(entry.getKey()));
+        }
+        for (int i = 0; i < aggregated.size(); i++) {
+            context.addProperty(AGGREGATED_VALUE_PREFIX + i);
+        }
+
+        DataManager dataManager = AppBeans.get(DataManager.NAME);
+        List<KeyValueEntity> rows = dataManager.loadValues(context);
+        KeyValueEntity row = rows.isEmpty() ? null : rows.get(0);
+
+        Map<AggregationInfo, Object> results = new HashMap<>();
+        for (int i = 0; i < aggregated.size(); i++) {
+            Object value = row != null ? row.getValue(AGGREGATED_VALUE_PREFIX + i) : null;
+            results.put(aggregated.get(i), convertAggregatedValue(aggregated.get(i), value));
+        }
+        return results;
+    }
+
+    /**
+     * @return JPQL aggregate function for the standard aggregation of a persistent attribute,
+     * or null if the aggregation must be performed in memory
+     */
+    @Nullable
+    protected String createAggregateExpression(AggregationInfo aggregationInfo, MetadataTools metadataTools) {
+        MetaPropertyPath propertyPath = aggregationInfo.getPropertyPath();
+        if (aggregationInfo.getStrategy() != null
+                || aggregationInfo.getType() == AggregationInfo.Type.CUSTOM
+                || propertyPath == null
+                || !propertyPath.getRange().isDatatype()) {
+            return null;
+        }
+
+        Aggregation aggregation = Aggregations.get(propertyPath.getRangeJavaClass());
+        if (aggregation == null || !aggregation.getSupportedAggregationTypes().contains(aggregationInfo.getType())) {
+            return null;
+        }
+
+        StringBuilder expression = new StringBuilder(AGGREGATED_ENTITY_ALIAS);
+        for (MetaProperty metaProperty : propertyPath.getMetaProperties()) {
+            if (!metadataTools.isPersistent(metaProperty) || metaProperty.getRange().getCardinality().isMany()) {
+                return null;
+            }
+            expression.append(".").append(metaProperty.getName());
+        }
+
+        return aggregationInfo.getType().name().toLowerCase() + "(" + expression + ")";
+    }
+
+    /**
+     * Converts a value returned by the database to the result class of in-memory aggregation.
+     */
+    @Nullable
+    protected Object convertAggregatedValue(AggregationInfo aggregationInfo, @Nullable Object value) {
+        if (aggregationInfo.getType() == AggregationInfo.Type.COUNT) {
+            return value == null ? 0 : ((Number) value).intValue();
+        }
+        if (!(value instanceof Number)) {
+            return value;
+        }
+
+        Class resultClass = Aggregations.get(aggregationInfo.getPropertyPath().getRangeJavaClass()).getResultClass();
+        Number number = (Number) value;
+        if (resultClass.isInstance(value)) {
+            return value;
+        } else if (Long.class.equals(resultClass)) {
+            return number.longValue();
+        } else if (Double.class.equals(resultClass)) {
+            return number.doubleValue();
+        } else if (BigDecimal.class.equals(resultClass)) {
+            return new BigDecimal(number.toString());
+        }
+        return value;
+    }
+
     public abstract Object getItem(K itemId);
 
     public abstract Object getItemValue(MetaPropertyPath property, K itemId);
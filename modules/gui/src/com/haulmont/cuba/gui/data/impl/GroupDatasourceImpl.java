@@ -16,21 +16,36 @@
  */
 package com.haulmont.cuba.gui.data.impl;
 
+import com.haulmont.chile.core.datatypes.impl.EnumClass;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.chile.core.model.Range;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.gui.data.CollectionDatasource;
 import com.haulmont.cuba.gui.data.GroupDatasource;
 import com.haulmont.cuba.gui.data.GroupInfo;
 import com.haulmont.cuba.gui.model.impl.EntityValuesComparator;
+import org.apache.commons.lang3.ArrayUtils;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import javax.annotation.Nullable;
+import java.util.*;
 
 public class GroupDatasourceImpl<T extends Entity<K>, K>
         extends CollectionDatasourceImpl<T, K>
-        implements GroupDatasource<T, K>, GroupDatasource.SupportsGroupSortDelegate {
+        implements GroupDatasource<T, K>, GroupDatasource.SupportsGroupSortDelegate,
+                   GroupDatasource.SupportsServerSideGrouping {
+
+    protected static final String GROUPED_ENTITY_ALIAS = "groupedEntity";
+    protected static final String GROUP_JOIN_ALIAS_PREFIX = "groupRef";
+    protected static final String GROUP_VALUE_PARAM_PREFIX = "groupValue";
+    protected static final String GROUP_COUNT_PROPERTY = "groupCount";
+
+    protected boolean serverSideGrouping;
+    protected int groupItemsPageSize = 100;
 
     protected GroupSortDelegate groupSortDelegate = (groups, sortInfo) -> {
         boolean asc = CollectionDatasource.Sortable.Order.ASC.equals(sortInfo[0].getOrder());
@@ -39,6 +54,16 @@ public class GroupDatasourceImpl<T extends Entity<K>, K>
 
     protected GroupDelegate<T,K> groupDelegate = new GroupDelegate<T, K>(this,
             sortDelegate, groupSortDelegate) {
+        @Override
+        protected void doGroup() {
+            List<Object[]> groupRows = loadGroupRows(groupProperties);
+            if (groupRows != null) {
+                doGroup(groupRows);
+            } else {
+                super.doGroup();
+            }
+        }
+
         @Override
         protected void doSort(SortInfo<MetaPropertyPath>[] sortInfo) {
             GroupDatasourceImpl.super.doSort();
@@ -47,7 +72,298 @@ public class GroupDatasourceImpl<T extends Entity<K>, K>
 
     @Override
     public void groupBy(Object[] properties) {
+        // only items of expanded groups are loaded, so all items must be reloaded when grouping is removed
+        boolean reloadRequired = isGroupedOnServer() && properties != null && properties.length == 0;
+
         groupDelegate.groupBy(properties, sortInfos);
+
+        if (reloadRequired) {
+            refresh();
+        }
+    }
+
+    @Override
+    public boolean isServerSideGrouping() {
+        return serverSideGrouping;
+    }
+
+    @Override
+    public void setServerSideGrouping(boolean serverSideGrouping) {
+        this.serverSideGrouping = serverSideGrouping;
+    }
+
+    @Override
+    public int getGroupItemsPageSize() {
+        return groupItemsPageSize;
+    }
+
+    @Override
+    public void setGroupItemsPageSize(int groupItemsPageSize) {
+        this.groupItemsPageSize = groupItemsPageSize;
+    }
+
+    @Override
+    public boolean hasNotLoadedGroupItems(GroupInfo groupId) {
+        return isGroupedOnServer() && containsGroup(groupId) && !hasChildren(groupId)
+                && groupDelegate.getLoadedGroupItemsCount(groupId) < getGroupItemsCount(groupId);
+    }
+
+    @Override
+    public boolean loadGroupItems(GroupInfo groupId) {
+        if (!hasNotLoadedGroupItems(groupId)) {
+            return false;
+        }
+
+        GroupingExpressions grouping = createGroupingExpressions(groupDelegate.groupProperties, QueryTransformer.ALIAS_PLACEHOLDER);
+        LoadContext<T> context = createGroupItemsLoadContext(groupId, grouping);
+        if (context == null) {
+            return false;
+        }
+
+        List<T> entities = dataSupplier.loadList(context);
+
+        boolean loaded = false;
+        for (T entity : entities) {
+            if (!data.containsKey(entity.getId())) {
+                data.put(entity.getId(), entity);
+                attachListener(entity);
+                groupDelegate.addItemToGroup(entity.getId());
+                loaded = true;
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    protected void loadData(Map<String, Object> params) {
+        if (isGroupedOnServer()) {
+            // items are loaded by groups on demand
+            dataLoadError = null;
+            detachListener(data.values());
+            data.clear();
+            return;
+        }
+        super.loadData(params);
+    }
+
+    protected boolean isGroupedOnServer() {
+        return serverSideGrouping
+                && createGroupingExpressions(groupDelegate.groupProperties, GROUPED_ENTITY_ALIAS) != null;
+    }
+
+    /**
+     * Loads values of grouping properties and the number of items for each combination of values.
+     *
+     * @return rows of grouping values followed by the number of items, or null if the grouping cannot be
+     * performed by the database
+     */
+    @Nullable
+    protected List<Object[]> loadGroupRows(Object[] properties) {
+        if (!serverSideGrouping) {
+            return null;
+        }
+        GroupingExpressions grouping = createGroupingExpressions(properties, GROUPED_ENTITY_ALIAS);
+        if (grouping == null) {
+            return null;
+        }
+
+        LoadContext.Query itemsQuery = getCompiledLoadContext().getQuery();
+        if (itemsQuery == null) {
+            return null;
+        }
+        MetaProperty primaryKey = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        if (primaryKey == null || primaryKey.getRange().isClass()) {
+            return null;
+        }
+
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(itemsQuery.getQueryString());
+        transformer.replaceWithSelectId(primaryKey.getName());
+        transformer.removeOrderBy();
+
+        String expressions = String.join(", ", grouping.expressions);
+        String queryString = "select " + expressions + ", count(" + GROUPED_ENTITY_ALIAS + ")"
+                + " from " + metaClass.getName() + " " + GROUPED_ENTITY_ALIAS + grouping.joins
+                + " where " + GROUPED_ENTITY_ALIAS + "." + primaryKey.getName() + " in (" + transformer.getResult() + ")"
+                + " group by " + expressions
+                + " order by " + expressions;
+
+        ValueLoadContext context = ValueLoadContext.create()
+                .setStoreName(metadata.getTools().getStoreName(metaClass))
+                .setSoftDeletion(isSoftDeletion());
+        ValueLoadContext.Query valuesQuery = context.setQueryString(queryString);
+        List<String> noConversionParams = Arrays.asList(ArrayUtils.nullToEmpty(itemsQuery.getNoConversionParams()));
+        for (Map.Entry<String, Object> entry : itemsQuery.getParameters().entrySet()) {
+            valuesQuery.setParameter(entry.getKey(), entry.getValue(), !noConversionParams.contains(entry.getKey()));
+        }
+        for (int i = 0; i < properties.length; i++) {
+            context.addProperty(GROUP_VALUE_PARAM_PREFIX + i);
+        }
+        context.addProperty(GROUP_COUNT_PROPERTY);
+
+        List<KeyValueEntity> values = dataSupplier.loadValues(context);
+
+        List<Object[]> rows = new ArrayList<>(values.size());
+        for (KeyValueEntity value : values) {
+            Object[] row = new Object[properties.length + 1];
+            for (int i = 0; i < properties.length; i++) {
+                row[i] = value.getValue(GROUP_VALUE_PARAM_PREFIX + i);
+            }
+            row[properties.length] = value.getValue(GROUP_COUNT_PROPERTY);
+            rows.add(row);
+        }
+        for (int i = 0; i < properties.length; i++) {
+            convertGroupValues(rows, i, ((MetaPropertyPath) properties[i]).getMetaProperty());
+        }
+        return rows;
+    }
+
+    /**
+     * Converts values returned by the database to the values of the item attribute, so that loaded items can be
+     * matched with groups: enum ids are replaced with enum constants and reference ids with entities.
+     */
+    @SuppressWarnings("unchecked")
+    protected void convertGroupValues(List<Object[]> rows, int index, MetaProperty metaProperty) {
+        Range range = metaProperty.getRange();
+        if (range.isEnum()) {
+            Map<Object, Object> enumValues = new HashMap<>();
+            for (Enum enumValue : range.asEnumeration().getValues()) {
+                enumValues.put(((EnumClass) enumValue).getId(), enumValue);
+            }
+            for (Object[] row : rows) {
+                if (row[index] != null && !(row[index] instanceof Enum)) {
+                    row[index] = enumValues.get(row[index]);
+                }
+            }
+        } else if (range.isClass()) {
+            Set<Object> ids = new HashSet<>();
+            for (Object[] row : rows) {
+                if (row[index] != null) {
+                    ids.add(row[index]);
+                }
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+
+            MetaClass referenceClass = range.asClass();
+            LoadContext<Entity> context = new LoadContext<>(referenceClass);
+            context.setIds(ids);
+            context.setView(View.MINIMAL);
+
+            Map<Object, Entity> entities = new HashMap<>();
+            for (Entity entity : dataSupplier.loadList(context)) {
+                Object id = entity.getId();
+                entities.put(id instanceof IdProxy ? ((IdProxy) id).getNN() : id, entity);
+            }
+            for (Object[] row : rows) {
+                if (row[index] != null) {
+                    row[index] = entities.get(row[index]);
+                }
+            }
+        }
+    }
+
+    @Nullable
+    protected LoadContext<T> createGroupItemsLoadContext(GroupInfo<MetaPropertyPath> groupId,
+                                                         @Nullable GroupingExpressions grouping) {
+        if (grouping == null) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        LoadContext<T> context = getCompiledLoadContext();
+        LoadContext.Query query = context.getQuery();
+        if (query == null) {
+            return null;
+        }
+
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> groupValues = new HashMap<>();
+        Object[] properties = groupDelegate.groupProperties;
+        for (int i = 0; i < properties.length; i++) {
+            Object value = groupId.getPropertyValue((MetaPropertyPath) properties[i]);
+            if (value == null) {
+                conditions.add(grouping.expressions.get(i) + " is null");
+            } else {
+                conditions.add(grouping.expressions.get(i) + " = :" + GROUP_VALUE_PARAM_PREFIX + i);
+                groupValues.put(GROUP_VALUE_PARAM_PREFIX + i, value);
+            }
+        }
+
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(query.getQueryString());
+        transformer.addJoinAndWhere(grouping.joins.trim(), String.join(" and ", conditions));
+        MetaProperty primaryKey = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        if (primaryKey != null) {
+            // stable order is required for paging
+            transformer.addOrderByIdIfNotExists(primaryKey.getName());
+        }
+        query.setQueryString(transformer.getResult());
+        groupValues.forEach(query::setParameter);
+
+        query.setFirstResult(groupDelegate.getLoadedGroupItemsCount(groupId));
+        query.setMaxResults(groupItemsPageSize);
+        return context;
+    }
+
+    /**
+     * Creates JPQL expressions for grouping properties.
+     *
+     * @param properties grouping properties
+     * @param rootAlias  alias of the grouped entity
+     * @return expressions or null if some property cannot be used for grouping on the database side
+     */
+    @Nullable
+    protected GroupingExpressions createGroupingExpressions(Object[] properties, String rootAlias) {
+        if (ArrayUtils.isEmpty(properties) || query == null) {
+            return null;
+        }
+
+        MetadataTools metadataTools = metadata.getTools();
+        GroupingExpressions grouping = new GroupingExpressions();
+        for (Object property : properties) {
+            if (!(property instanceof MetaPropertyPath)) {
+                return null;
+            }
+
+            MetaProperty[] metaProperties = ((MetaPropertyPath) property).getMetaProperties();
+            String expression = rootAlias;
+            for (int i = 0; i < metaProperties.length; i++) {
+                MetaProperty metaProperty = metaProperties[i];
+                boolean last = i == metaProperties.length - 1;
+                if (!metadataTools.isPersistent(metaProperty)) {
+                    return null;
+                }
+
+                Range range = metaProperty.getRange();
+                if (!range.isClass()) {
+                    expression = expression + "." + metaProperty.getName();
+                } else if (range.getCardinality().isMany()) {
+                    return null;
+                } else if (metadataTools.isEmbedded(metaProperty)) {
+                    if (last) {
+                        return null;
+                    }
+                    expression = expression + "." + metaProperty.getName();
+                } else {
+                    // left join keeps items having null references in the group with null value
+                    String alias = GROUP_JOIN_ALIAS_PREFIX + grouping.joinsCount++;
+                    grouping.joins.append(" left join ")
+                            .append(expression).append(".").append(metaProperty.getName())
+                            .append(" ").append(alias);
+                    expression = alias;
+
+                    if (last) {
+                        MetaProperty primaryKey = metadataTools.getPrimaryKeyProperty(range.asClass());
+                        if (primaryKey == null || primaryKey.getRange().isClass()) {
+                            return null;
+                        }
+                        expression = alias + "." + primaryKey.getName();
+                    }
+                }
+            }
+            grouping.expressions.add(expression);
+        }
+        return grouping;
     }
 
     @Override
@@ -209,4 +525,10 @@ public class GroupDatasourceImpl<T extends Entity<K>, K>
         this.groupSortDelegate = sortDelegate;
         groupDelegate.setGroupSortDelegate(sortDelegate);
     }
-}
\ No newline at end of file
+
+    protected static class GroupingExpressions {
+        protected final StringBuilder joins = new StringBuilder();
+        protected final List<String> expressions = new ArrayList<>();
+        protected int joinsCount;
+    }
+}
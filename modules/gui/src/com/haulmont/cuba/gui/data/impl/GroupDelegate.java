@@ -41,6 +41,8 @@ public abstract class GroupDelegate<T extends Entity<K>, K> {
     protected Map<GroupInfo, List<K>> groupItems;
     // reversed relations from groupItems
     protected Map<K, GroupInfo> itemGroups;
+    // item counts calculated by the database, null if groups are built from loaded items
+    protected Map<GroupInfo, Integer> groupCounts;
 
     protected boolean isGrouping;
 
@@ -63,10 +65,10 @@ public abstract class GroupDelegate<T extends Entity<K>, K> {
         isGrouping = true;
         try {
             if (properties != null) {
-                CollectionDsHelper.autoRefreshInvalid(datasource, true);
-
                 groupProperties = properties;
 
+                CollectionDsHelper.autoRefreshInvalid(datasource, true);
+
                 if (!ArrayUtils.isEmpty(groupProperties)) {
                     if (datasource.getState() == Datasource.State.VALID) {
                         doGroup();
@@ -87,6 +89,7 @@ public abstract class GroupDelegate<T extends Entity<K>, K> {
                     children = null;
                     groupItems = null;
                     itemGroups = null;
+                    groupCounts = null;
                 }
             }
         } finally {
@@ -108,6 +111,7 @@ public abstract class GroupDelegate<T extends Entity<K>, K> {
         children = new HashMap<>();
         groupItems = new HashMap<>();
         itemGroups = new HashMap<>();
+        groupCounts = null;
 
         Collection<K> itemIds = datasource.getItemIds();
         for (K id : itemIds) {
@@ -150,6 +154,68 @@ public abstract class GroupDelegate<T extends Entity<K>, K> {
         return groupInfo;
     }
 
+    /**
+     * Builds the groups tree from grouping values calculated by the database. Loaded items are placed into
+     * the groups they belong to, the rest of items can be added later by {@link #addItemToGroup(Object)}.
+     *
+     * @param groupRows values of all grouping properties followed by the number of items having these values
+     */
+    protected void doGroup(List<Object[]> groupRows) {
+        roots = new LinkedList<>();
+        parents = new LinkedHashMap<>();
+        children = new HashMap<>();
+        groupItems = new HashMap<>();
+        itemGroups = new HashMap<>();
+        groupCounts = new HashMap<>();
+
+        for (Object[] row : groupRows) {
+            int count = ((Number) row[groupProperties.length]).intValue();
+
+            LinkedMap<MetaPropertyPath, Object> groupValues = new LinkedMap<>();
+            GroupInfo parent = null;
+            List<GroupInfo> siblings = roots;
+            for (int i = 0; i < groupProperties.length; i++) {
+                groupValues.put((MetaPropertyPath) groupProperties[i], row[i]);
+
+                GroupInfo<MetaPropertyPath> groupInfo = new GroupInfo<>(groupValues);
+                if (!parents.containsKey(groupInfo)) {
+                    parents.put(groupInfo, parent);
+                    siblings.add(groupInfo);
+                }
+                groupCounts.merge(groupInfo, count, Integer::sum);
+
+                siblings = children.computeIfAbsent(groupInfo, k -> new ArrayList<>());
+                parent = groupInfo;
+            }
+        }
+
+        for (K id : datasource.getItemIds()) {
+            addItemToGroup(id);
+        }
+    }
+
+    /**
+     * Places the datasource item into an existing group by its values of grouping properties.
+     *
+     * @return the group or null if there is no group for the item
+     */
+    protected GroupInfo addItemToGroup(K itemId) {
+        T item = datasource.getItem(itemId);
+
+        LinkedMap<MetaPropertyPath, Object> groupValues = new LinkedMap<>();
+        for (Object property : groupProperties) {
+            groupValues.put((MetaPropertyPath) property, getValueByProperty(item, (MetaPropertyPath) property));
+        }
+        GroupInfo<MetaPropertyPath> groupInfo = new GroupInfo<>(groupValues);
+        if (!parents.containsKey(groupInfo)) {
+            return null;
+        }
+
+        groupItems.computeIfAbsent(groupInfo, k -> new ArrayList<>()).add(itemId);
+        itemGroups.put(itemId, groupInfo);
+        return groupInfo;
+    }
+
     protected abstract void doSort(CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfo);
 
     protected void doGroupSort(CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfo) {
@@ -249,6 +315,10 @@ public abstract class GroupDelegate<T extends Entity<K>, K> {
 
     public int getGroupItemsCount(GroupInfo groupId) {
         if (containsGroup(groupId)) {
+            if (groupCounts != null) {
+                return groupCounts.getOrDefault(groupId, 0);
+            }
+
             List<K> itemIds;
             if ((itemIds = groupItems.get(groupId)) == null) {
                 int count = 0;
@@ -268,6 +338,17 @@ public abstract class GroupDelegate<T extends Entity<K>, K> {
         return roots != null;
     }
 
+    /**
+     * @return number of loaded items of the group excluding items of nested groups
+     */
+    public int getLoadedGroupItemsCount(GroupInfo groupId) {
+        if (groupItems == null) {
+            return 0;
+        }
+        List<K> itemIds = groupItems.get(groupId);
+        return itemIds == null ? 0 : itemIds.size();
+    }
+
     public Collection<?> getGroupProperties() {
         if (groupProperties == null) {
             return Collections.emptyList();
@@ -21,32 +21,50 @@ import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.datatypes.impl.EnumClass;
 import com.haulmont.chile.core.model.*;
 import com.haulmont.chile.core.model.utils.InstanceUtils;
+import com.haulmont.cuba.client.ClientConfig;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.IdProxy;
 import com.haulmont.cuba.core.entity.annotation.IgnoreUserTimeZone;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.gui.components.*;
 import com.haulmont.cuba.gui.components.data.*;
+import com.haulmont.cuba.gui.components.data.meta.ContainerDataUnit;
+import com.haulmont.cuba.gui.components.data.meta.DatasourceDataUnit;
 import com.haulmont.cuba.gui.components.data.meta.EntityDataGridItems;
 import com.haulmont.cuba.gui.components.data.meta.EntityTableItems;
+import com.haulmont.cuba.gui.data.CollectionDatasource;
 import com.haulmont.cuba.gui.data.GroupInfo;
+import com.haulmont.cuba.gui.data.impl.CollectionDatasourceImpl;
+import com.haulmont.cuba.gui.data.impl.GroupDatasourceImpl;
+import com.haulmont.cuba.gui.data.impl.HierarchicalDatasourceImpl;
+import com.haulmont.cuba.gui.model.CollectionContainer;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.HasLoader;
 import com.haulmont.cuba.gui.model.InstanceContainer;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.hssf.usermodel.*;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
 import org.apache.poi.util.LocaleUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.dom4j.Element;
 
 import javax.annotation.Nullable;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -83,6 +101,7 @@ public class ExcelExporter {
     protected final Messages messages;
     protected final UserSessionSource userSessionSource;
     protected final MetadataTools metadataTools;
+    protected final Configuration configuration;
 
     protected boolean isRowNumberExceeded = false;
 
@@ -95,6 +114,7 @@ public class ExcelExporter {
         messages = AppBeans.get(Messages.NAME);
         userSessionSource = AppBeans.get(UserSessionSource.NAME);
         metadataTools = AppBeans.get(MetadataTools.NAME);
+        configuration = AppBeans.get(Configuration.NAME);
 
         trueStr = messages.getMessage(ExcelExporter.class, "excelExporter.true");
         falseStr = messages.getMessage(ExcelExporter.class, "excelExporter.false");
@@ -408,6 +428,255 @@ public class ExcelExporter {
         display.show(new ByteArrayDataProvider(out.toByteArray()), fileName + ".xls", ExportFormat.XLS);
     }
 
+    /**
+     * Exports all rows of the table in the streaming mode: the document is written to a temporary file row by row,
+     * so memory consumption does not depend on the number of exported rows.
+     * <p>
+     * If the table is bound to a {@link CollectionLoader} or a {@link CollectionDatasource}, the rows are loaded
+     * from the database page by page using the loader query, so the rows that are not loaded into the table
+     * are exported too. Otherwise, the rows currently shown by the table are exported.
+     * <p>
+     * Groups, tree hierarchy and aggregation results are not exported in this mode.
+     *
+     * @param format {@link ExportFormat#XLSX} or {@link ExportFormat#CSV}
+     */
+    public void exportTableStreaming(Table<Entity> table, List<Table.Column> columns, ExportDisplay display,
+                                     @Nullable String fileName, ExportFormat format) {
+        if (display == null) {
+            throw new IllegalArgumentException("ExportDisplay is null");
+        }
+
+        TableItems<Entity> tableItems = table.getItems();
+        if (tableItems == null) {
+            throw new IllegalStateException("Table is not bound to data");
+        }
+
+        List<String> captions = columns.stream()
+                .map(Table.Column::getCaption)
+                .collect(Collectors.toList());
+        List<MetaPropertyPath> propertyPaths = columns.stream()
+                .map(column -> column.getId() instanceof MetaPropertyPath ? (MetaPropertyPath) column.getId() : null)
+                .collect(Collectors.toList());
+
+        if (fileName == null) {
+            fileName = messages.getTools().getEntityCaption(((EntityTableItems) tableItems).getEntityMetaClass());
+        }
+
+        exportStreaming(tableItems, captions, propertyPaths,
+                item -> columns.stream()
+                        .map(column -> getTableCellValue(table, column, item))
+                        .collect(Collectors.toList()),
+                () -> tableItems.getItemIds().stream()
+                        .map(tableItems::getItem)
+                        .iterator(),
+                display, fileName, format);
+    }
+
+    /**
+     * Exports all rows of the data grid in the streaming mode.
+     *
+     * @param format {@link ExportFormat#XLSX} or {@link ExportFormat#CSV}
+     * @see #exportTableStreaming(Table, List, ExportDisplay, String, ExportFormat)
+     */
+    public void exportDataGridStreaming(DataGrid<Entity> dataGrid, List<DataGrid.Column> columns,
+                                        ExportDisplay display, @Nullable String fileName, ExportFormat format) {
+        if (display == null) {
+            throw new IllegalArgumentException("ExportDisplay is null");
+        }
+
+        EntityDataGridItems<Entity> dataGridItems = (EntityDataGridItems) dataGrid.getItems();
+        if (dataGridItems == null) {
+            throw new IllegalStateException("DataGrid is not bound to data");
+        }
+
+        List<String> captions = columns.stream()
+                .map(DataGrid.Column::getCaption)
+                .collect(Collectors.toList());
+        List<MetaPropertyPath> propertyPaths = columns.stream()
+                .map(DataGrid.Column::getPropertyPath)
+                .collect(Collectors.toList());
+
+        if (fileName == null) {
+            fileName = messages.getTools().getEntityCaption(dataGridItems.getEntityMetaClass());
+        }
+
+        exportStreaming(dataGridItems, captions, propertyPaths,
+                item -> columns.stream()
+                        .map(column -> getDataGridCellValue(dataGrid, column, item))
+                        .collect(Collectors.toList()),
+                () -> dataGridItems.getItems().iterator(),
+                display, fileName, format);
+    }
+
+    protected void exportStreaming(Object items, List<String> captions, List<MetaPropertyPath> propertyPaths,
+                                   Function<Entity, List<Object>> rowValuesProvider,
+                                   Supplier<Iterator<Entity>> loadedItemsProvider,
+                                   ExportDisplay display, String fileName, ExportFormat format) {
+        if (!ExportFormat.XLSX.getFileExt().equals(format.getFileExt())
+                && !ExportFormat.CSV.getFileExt().equals(format.getFileExt())) {
+            throw new IllegalArgumentException("Unsupported format of streaming export: " + format.getFileExt());
+        }
+
+        isRowNumberExceeded = false;
+
+        File file = createStreamingTempFile(format);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+             StreamingRowWriter writer = createStreamingRowWriter(out, format)) {
+            writer.writeHeader(captions);
+
+            LoadContext<Entity> loadContext = createStreamingLoadContext(items);
+            if (loadContext != null) {
+                DataManager dataManager = AppBeans.get(DataManager.NAME);
+                int pageSize = configuration.getConfig(ClientConfig.class).getExcelExporterStreamingPageSize();
+
+                LoadContext.Query query = loadContext.getQuery();
+                query.setCacheable(false);
+                addStreamingOrderById(loadContext);
+                int firstResult = 0;
+                while (true) {
+                    query.setFirstResult(firstResult);
+                    query.setMaxResults(pageSize);
+
+                    List<Entity> page = dataManager.loadList(loadContext);
+                    if (!writeStreamingRows(writer, page.iterator(), rowValuesProvider, propertyPaths)
+                            || page.size() < pageSize) {
+                        break;
+                    }
+                    firstResult += pageSize;
+                }
+            } else {
+                writeStreamingRows(writer, loadedItemsProvider.get(), rowValuesProvider, propertyPaths);
+            }
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(file);
+            throw new RuntimeException("Unable to write document", e);
+        } catch (RuntimeException | Error e) {
+            FileUtils.deleteQuietly(file);
+            throw e;
+        }
+
+        try {
+            // the file is deleted by the data provider when the document is downloaded
+            display.show(new TempFileDataProvider(file), fileName + "." + format.getFileExt(), format);
+        } catch (RuntimeException | Error e) {
+            FileUtils.deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Pages are loaded with offsets, so rows must have a stable order. If neither the query nor the loader
+     * sorts the rows, they are ordered by the primary key.
+     */
+    protected void addStreamingOrderById(LoadContext<Entity> loadContext) {
+        LoadContext.Query query = loadContext.getQuery();
+        if (query.getSort() != null) {
+            return;
+        }
+        Metadata metadata = AppBeans.get(Metadata.NAME);
+        MetaClass metaClass = metadata.getClassNN(loadContext.getMetaClass());
+        MetaProperty primaryKey = metadataTools.getPrimaryKeyProperty(metaClass);
+        if (primaryKey == null || primaryKey.getRange().isClass()) {
+            return;
+        }
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(query.getQueryString());
+        transformer.addOrderByIdIfNotExists(primaryKey.getName());
+        query.setQueryString(transformer.getResult());
+    }
+
+    /**
+     * @return false if the rows limit of the document is reached
+     */
+    protected boolean writeStreamingRows(StreamingRowWriter writer, Iterator<Entity> items,
+                                         Function<Entity, List<Object>> rowValuesProvider,
+                                         List<MetaPropertyPath> propertyPaths) throws IOException {
+        while (items.hasNext()) {
+            if (!writer.writeRow(rowValuesProvider.apply(items.next()), propertyPaths)) {
+                isRowNumberExceeded = true;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a load context that loads the same rows as the data source of the component, or returns null if the
+     * rows cannot be reloaded by a query and the rows loaded into the component should be exported.
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    protected LoadContext<Entity> createStreamingLoadContext(Object items) {
+        LoadContext<Entity> loadContext = null;
+        if (items instanceof ContainerDataUnit) {
+            CollectionContainer container = ((ContainerDataUnit) items).getContainer();
+            if (container instanceof HasLoader
+                    && ((HasLoader) container).getLoader() instanceof CollectionLoader) {
+                CollectionLoader loader = (CollectionLoader) ((HasLoader) container).getLoader();
+                if (loader.getLoadDelegate() == null) {
+                    loadContext = loader.createLoadContext();
+                }
+            }
+        } else if (items instanceof DatasourceDataUnit) {
+            CollectionDatasource datasource = ((DatasourceDataUnit) items).getDatasource();
+            // custom datasources override data loading, so their query cannot be used
+            Class<?> datasourceClass = datasource.getClass();
+            if (datasourceClass == CollectionDatasourceImpl.class
+                    || datasourceClass == GroupDatasourceImpl.class
+                    || datasourceClass == HierarchicalDatasourceImpl.class) {
+                loadContext = datasource.getCompiledLoadContext();
+            }
+        }
+        return loadContext != null && loadContext.getQuery() != null ? loadContext : null;
+    }
+
+    protected File createStreamingTempFile(ExportFormat format) {
+        String tempDir = configuration.getConfig(GlobalConfig.class).getTempDir();
+        return new File(tempDir, UuidProvider.createUuid() + "." + format.getFileExt());
+    }
+
+    protected StreamingRowWriter createStreamingRowWriter(OutputStream out, ExportFormat format) {
+        if (ExportFormat.CSV.getFileExt().equals(format.getFileExt())) {
+            return new CsvStreamingRowWriter(out);
+        }
+        int windowSize = configuration.getConfig(ClientConfig.class).getExcelExporterStreamingRowAccessWindowSize();
+        return new XlsxStreamingRowWriter(out, windowSize);
+    }
+
+    /**
+     * Formats a cell value of the streaming export as a string.
+     */
+    protected String formatStreamingValue(@Nullable Object cellValue, @Nullable MetaPropertyPath metaPropertyPath) {
+        if (cellValue == null) {
+            if (metaPropertyPath != null
+                    && metaPropertyPath.getRange().isDatatype()
+                    && Boolean.class.equals(metaPropertyPath.getRange().asDatatype().getJavaClass())) {
+                return falseStr;
+            }
+            return "";
+        }
+
+        if (cellValue instanceof IdProxy) {
+            cellValue = ((IdProxy) cellValue).get();
+        }
+
+        if (cellValue instanceof Boolean) {
+            return ((Boolean) cellValue) ? trueStr : falseStr;
+        } else if (cellValue instanceof EnumClass) {
+            String nameKey = cellValue.getClass().getSimpleName() + "." + cellValue.toString();
+            return messages.getMessage(cellValue.getClass(), nameKey);
+        } else if (cellValue instanceof Entity) {
+            return metadataTools.getInstanceName((Entity) cellValue);
+        } else if (cellValue instanceof Collection) {
+            return "";
+        } else if (metaPropertyPath != null
+                && metaPropertyPath.getRange().isDatatype()
+                && metaPropertyPath.getRange().asDatatype().getJavaClass().isInstance(cellValue)) {
+            return metadataTools.format(cellValue, metaPropertyPath.getMetaProperty());
+        } else {
+            return metadataTools.format(cellValue);
+        }
+    }
+
     protected void createFormats() {
         timeFormatCellStyle = wb.createCellStyle();
         String timeFormat = messages.getMainMessage("excelExporter.timeFormat");
@@ -592,37 +861,45 @@ public class ExcelExporter {
             HSSFCell cell = row.createCell(c);
 
             Table.Column column = columns.get(c);
-            Object cellValue = null;
+            MetaPropertyPath propertyPath = column.getId() instanceof MetaPropertyPath
+                    ? (MetaPropertyPath) column.getId()
+                    : null;
+            Object cellValue = getTableCellValue(table, column, instance);
 
-            MetaPropertyPath propertyPath = null;
-            if (column.getId() instanceof MetaPropertyPath) {
-                propertyPath = (MetaPropertyPath) column.getId();
+            formatValueCell(cell, cellValue, propertyPath, c, rowNumber, level, null);
+        }
+    }
 
-                Table.Printable printable = table.getPrintable(column);
-                if (printable != null) {
-                    cellValue = printable.getValue(instance);
-                } else {
-                    Element xmlDescriptor = column.getXmlDescriptor();
-                    if (xmlDescriptor != null && StringUtils.isNotEmpty(xmlDescriptor.attributeValue("captionProperty"))) {
-                        String captionProperty = xmlDescriptor.attributeValue("captionProperty");
-                        cellValue = InstanceUtils.getValueEx(instance, captionProperty);
-                    } else {
-                        cellValue = InstanceUtils.getValueEx(instance, propertyPath.getPath());
-                    }
-                    if (column.getFormatter() != null)
-                        cellValue = column.getFormatter().apply(cellValue);
-                }
+    @Nullable
+    protected Object getTableCellValue(Table table, Table.Column column, Entity instance) {
+        Object cellValue = null;
+
+        if (column.getId() instanceof MetaPropertyPath) {
+            MetaPropertyPath propertyPath = (MetaPropertyPath) column.getId();
+
+            Table.Printable printable = table.getPrintable(column);
+            if (printable != null) {
+                cellValue = printable.getValue(instance);
             } else {
-                Table.Printable printable = table.getPrintable(column);
-                if (printable != null) {
-                    cellValue = printable.getValue(instance);
-                } else if (column.getValueProvider() != null) {
-                    cellValue = column.getValueProvider().apply(instance);
+                Element xmlDescriptor = column.getXmlDescriptor();
+                if (xmlDescriptor != null && StringUtils.isNotEmpty(xmlDescriptor.attributeValue("captionProperty"))) {
+                    String captionProperty = xmlDescriptor.attributeValue("captionProperty");
+                    cellValue = InstanceUtils.getValueEx(instance, captionProperty);
+                } else {
+                    cellValue = InstanceUtils.getValueEx(instance, propertyPath);
                 }
+                if (column.getFormatter() != null)
+                    cellValue = column.getFormatter().apply(cellValue);
+            }
+        } else {
+            Table.Printable printable = table.getPrintable(column);
+            if (printable != null) {
+                cellValue = printable.getValue(instance);
+            } else if (column.getValueProvider() != null) {
+                cellValue = column.getValueProvider().apply(instance);
             }
-
-            formatValueCell(cell, cellValue, propertyPath, c, rowNumber, level, null);
         }
+        return cellValue;
     }
 
     protected int createDataGridHierarchicalRow(TreeDataGrid dataGrid, TreeDataGridItems<Entity> treeDataGridItems,
@@ -656,30 +933,33 @@ public class ExcelExporter {
             HSSFCell cell = row.createCell(c);
 
             DataGrid.Column column = columns.get(c);
-            Object cellValue = null;
+            Object cellValue = getDataGridCellValue(dataGrid, column, item);
 
-            MetaPropertyPath propertyPath = null;
-            DataGrid.ColumnGenerator generator;
-            if (column.getPropertyPath() != null) {
-                propertyPath = column.getPropertyPath();
+            formatValueCell(cell, cellValue, column.getPropertyPath(), c, rowNumber, level, null);
+        }
+    }
 
-                cellValue = InstanceUtils.getValueEx(item, propertyPath.getPath());
+    @Nullable
+    protected Object getDataGridCellValue(DataGrid dataGrid, DataGrid.Column column, Entity item) {
+        Object cellValue = null;
 
-                if (column.getFormatter() != null) {
-                    cellValue = column.getFormatter().apply(cellValue);
-                }
-            } else if ((generator = dataGrid.getColumnGenerator(column.getId())) != null) {
-                DataGrid.ColumnGeneratorEvent<Entity> event = new DataGrid.ColumnGeneratorEvent<>(dataGrid, item,
-                        column.getId(), createInstanceContainerProvider(dataGrid, item));
-                cellValue = generator.getValue(event);
+        DataGrid.ColumnGenerator generator;
+        if (column.getPropertyPath() != null) {
+            cellValue = InstanceUtils.getValueEx(item, column.getPropertyPath());
 
-                if (cellValue == null && Boolean.class.equals(generator.getType())) {
-                    cellValue = false;
-                }
+            if (column.getFormatter() != null) {
+                cellValue = column.getFormatter().apply(cellValue);
             }
+        } else if ((generator = dataGrid.getColumnGenerator(column.getId())) != null) {
+            DataGrid.ColumnGeneratorEvent<Entity> event = new DataGrid.ColumnGeneratorEvent<>(dataGrid, item,
+                    column.getId(), createInstanceContainerProvider(dataGrid, item));
+            cellValue = generator.getValue(event);
 
-            formatValueCell(cell, cellValue, propertyPath, c, rowNumber, level, null);
+            if (cellValue == null && Boolean.class.equals(generator.getType())) {
+                cellValue = false;
+            }
         }
+        return cellValue;
     }
 
     protected Function<Entity, InstanceContainer<Entity>> createInstanceContainerProvider(DataGrid dataGrid, Entity item) {
@@ -777,21 +1057,7 @@ public class ExcelExporter {
                         && !Boolean.TRUE.equals(ignoreUserTimeZone);
             }
             Date date = (Date) cellValue;
-            if (supportTimezones) {
-                TimeZone currentTimeZone = LocaleUtil.getUserTimeZone();
-                try {
-                    LocaleUtil.setUserTimeZone(timeZone);
-                    cell.setCellValue(date);
-                } finally {
-                    if (Objects.equals(currentTimeZone, TimeZone.getDefault())) {
-                        LocaleUtil.resetUserTimeZone();
-                    } else {
-                        LocaleUtil.setUserTimeZone(currentTimeZone);
-                    }
-                }
-            } else {
-                cell.setCellValue(date);
-            }
+            setDateCellValue(cell, date, supportTimezones ? timeZone : null);
 
             if (Objects.equals(java.sql.Time.class, javaClass)) {
                 cell.setCellStyle(timeFormatCellStyle);
@@ -849,12 +1115,31 @@ public class ExcelExporter {
         }
     }
 
+    protected void setDateCellValue(Cell cell, Date date, @Nullable TimeZone timeZone) {
+        if (timeZone != null) {
+            TimeZone currentTimeZone = LocaleUtil.getUserTimeZone();
+            try {
+                LocaleUtil.setUserTimeZone(timeZone);
+                cell.setCellValue(date);
+            } finally {
+                if (Objects.equals(currentTimeZone, TimeZone.getDefault())) {
+                    LocaleUtil.resetUserTimeZone();
+                } else {
+                    LocaleUtil.setUserTimeZone(currentTimeZone);
+                }
+            }
+        } else {
+            cell.setCellValue(date);
+        }
+    }
+
     protected boolean checkIsRowNumberExceed(int r) {
         return isRowNumberExceeded = r >= MAX_ROW_COUNT;
     }
 
     /**
-     * @return true if exported table contains more than 65536 records
+     * @return true if exported table contains more than 65536 records, or more than 1048576 records
+     * in case of the streaming XLSX export
      */
     public boolean isXlsMaxRowNumberExceeded() {
         return isRowNumberExceeded;
@@ -883,4 +1168,205 @@ public class ExcelExporter {
         }
         return false;
     }
+
+    /**
+     * Writes rows of the streaming export.
+     */
+    protected interface StreamingRowWriter extends Closeable {
+
+        void writeHeader(List<String> captions) throws IOException;
+
+        /**
+         * @return false if the row is not written because the rows limit of the document is reached
+         */
+        boolean writeRow(List<Object> values, List<MetaPropertyPath> propertyPaths) throws IOException;
+    }
+
+    /**
+     * Writes XLSX document keeping only a window of the last rows in memory.
+     */
+    protected class XlsxStreamingRowWriter implements StreamingRowWriter {
+
+        protected final OutputStream out;
+        protected final SXSSFWorkbook workbook;
+        protected final Sheet sheet;
+
+        protected final CellStyle timeCellStyle;
+        protected final CellStyle dateCellStyle;
+        protected final CellStyle dateTimeCellStyle;
+        protected final CellStyle integerCellStyle;
+        protected final CellStyle doubleCellStyle;
+
+        protected final TimeZone timeZone;
+
+        protected int rowNumber = 0;
+
+        public XlsxStreamingRowWriter(OutputStream out, int rowAccessWindowSize) {
+            this.out = out;
+
+            workbook = new SXSSFWorkbook(rowAccessWindowSize);
+            workbook.setCompressTempFiles(true);
+            sheet = workbook.createSheet("Export");
+
+            DataFormat format = workbook.createDataFormat();
+            timeCellStyle = createFormatCellStyle(format, "excelExporter.timeFormat");
+            dateCellStyle = createFormatCellStyle(format, "excelExporter.dateFormat");
+            dateTimeCellStyle = createFormatCellStyle(format, "excelExporter.dateTimeFormat");
+            integerCellStyle = createFormatCellStyle(format, "excelExporter.integerFormat");
+            doubleCellStyle = createFormatCellStyle(format, "excelExporter.doubleFormat");
+
+            timeZone = userSessionSource.getUserSession().getTimeZone();
+        }
+
+        protected CellStyle createFormatCellStyle(DataFormat format, String formatKey) {
+            CellStyle cellStyle = workbook.createCellStyle();
+            cellStyle.setDataFormat(format.getFormat(messages.getMainMessage(formatKey)));
+            return cellStyle;
+        }
+
+        @Override
+        public void writeHeader(List<String> captions) {
+            Font font = workbook.createFont();
+            font.setBold(true);
+            CellStyle headerCellStyle = workbook.createCellStyle();
+            headerCellStyle.setFont(font);
+            headerCellStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+
+            Row row = sheet.createRow(rowNumber++);
+            for (int c = 0; c < captions.size(); c++) {
+                String caption = StringUtils.defaultString(captions.get(c));
+
+                Cell cell = row.createCell(c);
+                cell.setCellValue(caption);
+                cell.setCellStyle(headerCellStyle);
+
+                int width = Math.min(Math.max(caption.length() + 2, 10), 100);
+                sheet.setColumnWidth(c, width * 256);
+            }
+            sheet.createFreezePane(0, 1);
+        }
+
+        @Override
+        public boolean writeRow(List<Object> values, List<MetaPropertyPath> propertyPaths) {
+            if (rowNumber > SpreadsheetVersion.EXCEL2007.getLastRowIndex()) {
+                return false;
+            }
+
+            Row row = sheet.createRow(rowNumber++);
+            for (int c = 0; c < values.size(); c++) {
+                writeCell(row.createCell(c), values.get(c), propertyPaths.get(c));
+            }
+            return true;
+        }
+
+        protected void writeCell(Cell cell, @Nullable Object cellValue, @Nullable MetaPropertyPath metaPropertyPath) {
+            if (cellValue instanceof IdProxy) {
+                cellValue = ((IdProxy) cellValue).get();
+            }
+
+            if (cellValue instanceof Number) {
+                Number n = (Number) cellValue;
+                if (n instanceof Integer || n instanceof Long || n instanceof Byte || n instanceof Short) {
+                    cell.setCellValue(n.longValue());
+                    cell.setCellStyle(integerCellStyle);
+                } else {
+                    cell.setCellValue(n.doubleValue());
+                    cell.setCellStyle(doubleCellStyle);
+                }
+            } else if (cellValue instanceof Date) {
+                Class javaClass = null;
+                boolean supportTimezones = false;
+                if (metaPropertyPath != null) {
+                    MetaProperty metaProperty = metaPropertyPath.getMetaProperty();
+                    if (metaProperty.getRange().isDatatype()) {
+                        javaClass = metaProperty.getRange().asDatatype().getJavaClass();
+                    }
+                    Boolean ignoreUserTimeZone = metadataTools.getMetaAnnotationValue(metaProperty, IgnoreUserTimeZone.class);
+                    supportTimezones = timeZone != null
+                            && Objects.equals(Date.class, javaClass)
+                            && !Boolean.TRUE.equals(ignoreUserTimeZone);
+                }
+                setDateCellValue(cell, (Date) cellValue, supportTimezones ? timeZone : null);
+
+                if (Objects.equals(java.sql.Time.class, javaClass)) {
+                    cell.setCellStyle(timeCellStyle);
+                } else if (Objects.equals(java.sql.Date.class, javaClass)) {
+                    cell.setCellStyle(dateCellStyle);
+                } else {
+                    cell.setCellStyle(dateTimeCellStyle);
+                }
+            } else {
+                String str = formatStreamingValue(cellValue, metaPropertyPath);
+                if (!str.isEmpty()) {
+                    cell.setCellValue(str);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                workbook.write(out);
+            } finally {
+                workbook.dispose();
+                workbook.close();
+            }
+        }
+    }
+
+    /**
+     * Writes CSV document in UTF-8 with the byte order mark, so it is recognized by spreadsheet applications.
+     */
+    protected class CsvStreamingRowWriter implements StreamingRowWriter {
+
+        protected static final char SEPARATOR = ',';
+        protected static final String LINE_SEPARATOR = "\r\n";
+
+        protected final Writer writer;
+
+        public CsvStreamingRowWriter(OutputStream out) {
+            writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void writeHeader(List<String> captions) throws IOException {
+            writer.write('\uFEFF');
+            writeLine(captions);
+        }
+
+        @Override
+        public boolean writeRow(List<Object> values, List<MetaPropertyPath> propertyPaths) throws IOException {
+            List<String> line = new ArrayList<>(values.size());
+            for (int c = 0; c < values.size(); c++) {
+                line.add(formatStreamingValue(values.get(c), propertyPaths.get(c)));
+            }
+            writeLine(line);
+            return true;
+        }
+
+        protected void writeLine(List<String> values) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(SEPARATOR);
+                }
+                writer.write(escape(values.get(i)));
+            }
+            writer.write(LINE_SEPARATOR);
+        }
+
+        protected String escape(@Nullable String value) {
+            if (value == null) {
+                return "";
+            }
+            if (StringUtils.containsAny(value, SEPARATOR, '"', '\n', '\r')) {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+            return value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
 }
\ No newline at end of file
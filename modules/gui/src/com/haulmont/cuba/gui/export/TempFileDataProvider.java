@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.gui.export;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.haulmont.bali.util.Preconditions.checkNotNullArgument;
+
+/**
+ * Data provider for a file located in the temporary directory of the client tier.
+ * <p>
+ * The file is deleted when the stream returned by {@link #provide()} is closed, so the data can be read only once.
+ */
+public class TempFileDataProvider implements ExportDataProvider {
+
+    protected File file;
+
+    public TempFileDataProvider(File file) {
+        checkNotNullArgument(file, "Null file");
+
+        this.file = file;
+    }
+
+    @Override
+    public InputStream provide() {
+        try {
+            return new FileInputStream(file) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        FileUtils.deleteQuietly(file);
+                    }
+                }
+            };
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("Unable to read temp file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+}
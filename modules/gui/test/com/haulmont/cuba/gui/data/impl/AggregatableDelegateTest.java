@@ -0,0 +1,341 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.data.impl;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.client.testsupport.CubaClientTestCase;
+import com.haulmont.cuba.core.entity.AppFolder;
+import com.haulmont.cuba.core.entity.BaseEntityInternalAccess;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.jpql.DomainModel;
+import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder;
+import com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased;
+import com.haulmont.cuba.gui.components.AggregationInfo;
+import com.haulmont.cuba.gui.data.aggregation.AggregationStrategy;
+import com.haulmont.cuba.gui.model.CollectionLoader;
+import com.haulmont.cuba.gui.model.DataContext;
+import com.haulmont.cuba.gui.model.impl.CollectionContainerImpl;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AggregatableDelegateTest extends CubaClientTestCase {
+
+    @Mocked
+    protected CollectionLoader<AppFolder> loader;
+
+    @Mocked
+    protected DataContext dataContext;
+
+    protected MetaClass folderMetaClass;
+
+    protected TestAggregatableDelegate delegate;
+
+    protected List<ValueLoadContext> valueContexts = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        addEntityPackage("com.haulmont.cuba");
+        setupInfrastructure();
+
+        EntityBuilder builder = new EntityBuilder();
+        builder.startNewEntity("sys$AppFolder");
+        builder.addSingleValueAttribute(UUID.class, "id");
+        builder.addStringAttribute("name");
+        builder.addSingleValueAttribute(Integer.class, "sortOrder");
+        DomainModel domainModel = new DomainModel(builder.produce());
+
+        QueryTransformerFactory queryTransformerFactory = new QueryTransformerFactory() {
+            @Override
+            public QueryTransformer transformer(String query) {
+                return new QueryTransformerAstBased(domainModel, query);
+            }
+        };
+
+        TestDataSupplier dataSupplier = new TestDataSupplier() {
+            @Override
+            public List<KeyValueEntity> loadValues(ValueLoadContext context) {
+                valueContexts.add(context);
+                KeyValueEntity row = new KeyValueEntity();
+                row.setValue("aggregatedValue0", 60L);
+                row.setValue("aggregatedValue1", 12.5);
+                row.setValue("aggregatedValue2", 3L);
+                return Collections.singletonList(row);
+            }
+        };
+
+        new Expectations() {
+            {
+                AppBeans.get(DataManager.NAME); result = dataSupplier; minTimes = 0;
+                AppBeans.get(QueryTransformerFactory.NAME, QueryTransformerFactory.class);
+                result = queryTransformerFactory; minTimes = 0;
+            }
+        };
+
+        folderMetaClass = metadata.getClassNN(AppFolder.class);
+        delegate = new TestAggregatableDelegate();
+        delegate.addItem(createFolder("folder1", 10, 1));
+        delegate.addItem(createFolder("folder2", 20, 2));
+    }
+
+    @Test
+    public void testAggregateExpressions() {
+        MetadataTools tools = metadata.getTools();
+
+        assertEquals("sum(aggregatedEntity.sortOrder)",
+                delegate.createAggregateExpression(aggregation("sortOrder", AggregationInfo.Type.SUM), tools));
+        assertEquals("avg(aggregatedEntity.sortOrder)",
+                delegate.createAggregateExpression(aggregation("sortOrder", AggregationInfo.Type.AVG), tools));
+        assertEquals("max(aggregatedEntity.parent.sortOrder)",
+                delegate.createAggregateExpression(aggregation("parent.sortOrder", AggregationInfo.Type.MAX), tools));
+        assertEquals("count(aggregatedEntity.name)",
+                delegate.createAggregateExpression(aggregation("name", AggregationInfo.Type.COUNT), tools));
+
+        // not persistent
+        assertNull(delegate.createAggregateExpression(aggregation("quantity", AggregationInfo.Type.SUM), tools));
+        // not supported by the datatype
+        assertNull(delegate.createAggregateExpression(aggregation("name", AggregationInfo.Type.SUM), tools));
+        // reference
+        assertNull(delegate.createAggregateExpression(aggregation("parent", AggregationInfo.Type.COUNT), tools));
+
+        AggregationInfo withStrategy = aggregation("sortOrder", AggregationInfo.Type.SUM);
+        withStrategy.setStrategy(new ItemsCountStrategy());
+        assertNull(delegate.createAggregateExpression(withStrategy, tools));
+
+        AggregationInfo custom = new AggregationInfo();
+        custom.setType(AggregationInfo.Type.CUSTOM);
+        custom.setStrategy(new ItemsCountStrategy());
+        assertNull(delegate.createAggregateExpression(custom, tools));
+    }
+
+    @Test
+    public void testAggregatedValueConversion() {
+        AggregationInfo sum = aggregation("sortOrder", AggregationInfo.Type.SUM);
+        assertEquals(30L, delegate.convertAggregatedValue(sum, 30));
+        assertEquals(30L, delegate.convertAggregatedValue(sum, 30L));
+        assertNull(delegate.convertAggregatedValue(sum, null));
+
+        AggregationInfo avg = aggregation("sortOrder", AggregationInfo.Type.AVG);
+        assertEquals(12L, delegate.convertAggregatedValue(avg, 12.5));
+
+        AggregationInfo count = aggregation("name", AggregationInfo.Type.COUNT);
+        assertEquals(3, delegate.convertAggregatedValue(count, 3L));
+        assertEquals(0, delegate.convertAggregatedValue(count, null));
+    }
+
+    @Test
+    public void testAggregateInDatabase() {
+        delegate.loadContext = new LoadContext<>(folderMetaClass)
+                .setQuery(LoadContext.createQuery("select f from sys$AppFolder f where f.name like :name order by f.name")
+                        .setParameter("name", "folder%"));
+
+        AggregationInfo sum = aggregation("sortOrder", AggregationInfo.Type.SUM);
+        AggregationInfo avg = aggregation("sortOrder", AggregationInfo.Type.AVG);
+        AggregationInfo count = aggregation("name", AggregationInfo.Type.COUNT);
+        AggregationInfo quantity = aggregation("quantity", AggregationInfo.Type.SUM);
+
+        Map<AggregationInfo, Object> results = delegate.aggregateValues(
+                new AggregationInfo[]{sum, quantity, avg, count}, delegate.items.keySet());
+
+        assertEquals(60L, results.get(sum));
+        assertEquals(12L, results.get(avg));
+        assertEquals(3, results.get(count));
+        // calculated in memory from loaded items
+        assertEquals(3L, results.get(quantity));
+
+        assertEquals(1, valueContexts.size());
+        ValueLoadContext.Query query = valueContexts.get(0).getQuery();
+        String queryString = query.getQueryString();
+        assertTrue(queryString.startsWith("select sum(aggregatedEntity.sortOrder), avg(aggregatedEntity.sortOrder), "
+                + "count(aggregatedEntity.name) from sys$AppFolder aggregatedEntity where aggregatedEntity.id in ("),
+                queryString);
+        assertTrue(queryString.contains("select f.id from sys$AppFolder f where f.name like :name"), queryString);
+        assertFalse(queryString.contains("order by"), queryString);
+        assertEquals("folder%", query.getParameters().get("name"));
+        assertEquals(Arrays.asList("aggregatedValue0", "aggregatedValue1", "aggregatedValue2"),
+                valueContexts.get(0).getProperties());
+    }
+
+    @Test
+    public void testInMemoryAggregationWithoutLoadContext() {
+        AggregationInfo sum = aggregation("sortOrder", AggregationInfo.Type.SUM);
+
+        Map<AggregationInfo, Object> results = delegate.aggregateValues(new AggregationInfo[]{sum},
+                delegate.items.keySet());
+
+        assertEquals(30L, results.get(sum));
+        assertTrue(valueContexts.isEmpty());
+    }
+
+    @Test
+    public void testContainerAggregationContext() {
+        LoadContext<AppFolder> loadContext = new LoadContext<>(AppFolder.class);
+        List<AppFolder> folders = new ArrayList<>(delegate.items.values());
+        CollectionContainerImpl<AppFolder> container = new CollectionContainerImpl<>(folderMetaClass);
+        container.setItems(folders);
+        container.setLoader(loader);
+
+        new Expectations() {
+            {
+                loader.getDataContext(); result = dataContext; minTimes = 0;
+                loader.createLoadContext(); result = loadContext; minTimes = 0;
+                dataContext.getRemoved(); result = Collections.emptySet(); minTimes = 0;
+                dataContext.isModified(folders.get(0)); result = false; minTimes = 0;
+                dataContext.isModified(folders.get(1)); result = false; minTimes = 0;
+            }
+        };
+
+        Set<UUID> allIds = delegate.items.keySet();
+        assertSame(loadContext, AggregatableDelegate.createContainerAggregationContext(container, allIds));
+        // aggregation of a part of items, e.g. of a group
+        assertNull(AggregatableDelegate.createContainerAggregationContext(container,
+                Collections.singletonList(folders.get(0).getId())));
+    }
+
+    @Test
+    public void testModifiedContainerAggregatedInMemory() {
+        LoadContext<AppFolder> loadContext = new LoadContext<>(AppFolder.class);
+        List<AppFolder> folders = new ArrayList<>(delegate.items.values());
+        CollectionContainerImpl<AppFolder> container = new CollectionContainerImpl<>(folderMetaClass);
+        container.setItems(folders);
+        container.setLoader(loader);
+
+        new Expectations() {
+            {
+                loader.getDataContext(); result = dataContext; minTimes = 0;
+                loader.createLoadContext(); result = loadContext; minTimes = 0;
+                dataContext.getRemoved(); result = Collections.emptySet(); minTimes = 0;
+                dataContext.isModified(folders.get(0)); result = false; minTimes = 0;
+                dataContext.isModified(folders.get(1)); result = true; minTimes = 0;
+            }
+        };
+
+        assertNull(AggregatableDelegate.createContainerAggregationContext(container, delegate.items.keySet()));
+    }
+
+    @Test
+    public void testContainerWithRemovedItemsAggregatedInMemory() {
+        LoadContext<AppFolder> loadContext = new LoadContext<>(AppFolder.class);
+        AppFolder removed = createFolder("removed", 30, 3);
+        List<AppFolder> folders = new ArrayList<>(delegate.items.values());
+        CollectionContainerImpl<AppFolder> container = new CollectionContainerImpl<>(folderMetaClass);
+        container.setItems(folders);
+        container.setLoader(loader);
+
+        new Expectations() {
+            {
+                loader.getDataContext(); result = dataContext; minTimes = 0;
+                loader.createLoadContext(); result = loadContext; minTimes = 0;
+                dataContext.getRemoved(); result = Collections.singleton(removed); minTimes = 0;
+                dataContext.isModified((Entity) any); result = false; minTimes = 0;
+            }
+        };
+
+        assertNull(AggregatableDelegate.createContainerAggregationContext(container, delegate.items.keySet()));
+    }
+
+    @Test
+    public void testContainerWithNewItemsAggregatedInMemory() {
+        LoadContext<AppFolder> loadContext = new LoadContext<>(AppFolder.class);
+        AppFolder created = new AppFolder();
+        List<AppFolder> folders = new ArrayList<>(delegate.items.values());
+        folders.add(created);
+        CollectionContainerImpl<AppFolder> container = new CollectionContainerImpl<>(folderMetaClass);
+        container.setItems(folders);
+        container.setLoader(loader);
+
+        new Expectations() {
+            {
+                loader.getDataContext(); result = dataContext; minTimes = 0;
+                loader.createLoadContext(); result = loadContext; minTimes = 0;
+                dataContext.getRemoved(); result = Collections.emptySet(); minTimes = 0;
+                dataContext.isModified((Entity) any); result = false; minTimes = 0;
+            }
+        };
+
+        List<Object> ids = new ArrayList<>(delegate.items.keySet());
+        ids.add(created.getId());
+
+        assertNull(AggregatableDelegate.createContainerAggregationContext(container, ids));
+    }
+
+    protected AppFolder createFolder(String name, int sortOrder, int quantity) {
+        AppFolder folder = new AppFolder();
+        folder.setName(name);
+        folder.setSortOrder(sortOrder);
+        folder.setQuantity(quantity);
+        BaseEntityInternalAccess.setNew(folder, false);
+        BaseEntityInternalAccess.setDetached(folder, true);
+        return folder;
+    }
+
+    protected AggregationInfo aggregation(String property, AggregationInfo.Type type) {
+        AggregationInfo info = new AggregationInfo();
+        info.setPropertyPath(folderMetaClass.getPropertyPath(property));
+        info.setType(type);
+        return info;
+    }
+
+    protected static class TestAggregatableDelegate extends AggregatableDelegate<UUID> {
+
+        protected Map<UUID, AppFolder> items = new LinkedHashMap<>();
+
+        protected LoadContext<?> loadContext;
+
+        protected void addItem(AppFolder folder) {
+            items.put(folder.getId(), folder);
+        }
+
+        @Override
+        public Object getItem(UUID itemId) {
+            return items.get(itemId);
+        }
+
+        @Override
+        public Object getItemValue(MetaPropertyPath property, UUID itemId) {
+            return items.get(itemId).getValueEx(property.toPathString());
+        }
+
+        @Nullable
+        @Override
+        protected LoadContext<?> getDatabaseAggregationContext(Collection<UUID> itemIds) {
+            return loadContext;
+        }
+    }
+
+    protected static class ItemsCountStrategy implements AggregationStrategy<Object, Integer> {
+
+        @Override
+        public Integer aggregate(Collection<Object> propertyValues) {
+            return propertyValues.size();
+        }
+
+        @Override
+        public Class<Integer> getResultClass() {
+            return Integer.class;
+        }
+    }
+}
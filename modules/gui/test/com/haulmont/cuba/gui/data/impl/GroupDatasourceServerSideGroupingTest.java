@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.data.impl;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.client.testsupport.CubaClientTestCase;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.KeyValueEntity;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.jpql.DomainModel;
+import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder;
+import com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased;
+import com.haulmont.cuba.gui.components.data.table.DatasourceGroupTableItems;
+import com.haulmont.cuba.gui.data.CollectionDatasource;
+import com.haulmont.cuba.gui.data.GroupInfo;
+import com.haulmont.cuba.gui.data.impl.testmodel1.TestDetailEntity;
+import com.haulmont.cuba.gui.data.impl.testmodel1.TestMasterEntity;
+import com.haulmont.cuba.gui.executors.BackgroundWorker;
+import mockit.Expectations;
+import mockit.Mocked;
+import org.apache.commons.collections4.map.LinkedMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupDatasourceServerSideGroupingTest extends CubaClientTestCase {
+
+    @Mocked
+    protected BackgroundWorker backgroundWorker;
+
+    protected DomainModel domainModel;
+
+    protected GroupingDataSupplier dataSupplier;
+
+    protected MetaClass masterMetaClass;
+
+    protected MetaPropertyPath masterNamePath;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        addEntityPackage("com.haulmont.cuba");
+        setupInfrastructure();
+
+        EntityBuilder builder = new EntityBuilder();
+        builder.startNewEntity("test$MasterEntity");
+        builder.addSingleValueAttribute(UUID.class, "id");
+        builder.addStringAttribute("masterName");
+        domainModel = new DomainModel(builder.produce());
+
+        QueryTransformerFactory queryTransformerFactory = new QueryTransformerFactory() {
+            @Override
+            public QueryTransformer transformer(String query) {
+                return new QueryTransformerAstBased(domainModel, query);
+            }
+
+            @Override
+            public QueryParser parser(String query) {
+                return new QueryParserAstBased(domainModel, query);
+            }
+        };
+
+        new Expectations() {
+            {
+                backgroundWorker.checkUIAccess(); result = null; minTimes = 0;
+                AppBeans.get(BackgroundWorker.NAME); result = backgroundWorker; minTimes = 0;
+                AppBeans.get(BackgroundWorker.class); result = backgroundWorker; minTimes = 0;
+                AppBeans.get(BackgroundWorker.NAME, BackgroundWorker.class); result = backgroundWorker; minTimes = 0;
+
+                AppBeans.get(QueryTransformerFactory.NAME, QueryTransformerFactory.class);
+                result = queryTransformerFactory; minTimes = 0;
+            }
+        };
+
+        masterMetaClass = metadata.getClassNN(TestMasterEntity.class);
+        masterNamePath = masterMetaClass.getPropertyPath("masterName");
+
+        dataSupplier = new GroupingDataSupplier();
+        dataSupplier.addItems("A", 250);
+        dataSupplier.addItems("B", 1);
+        dataSupplier.addItems(null, 2);
+    }
+
+    @Test
+    public void testGroupRowsBuildGroupTree() {
+        CollectionDatasourceImpl<TestMasterEntity, UUID> ds = new CollectionDatasourceImpl<>();
+        ds.setMetaClass(masterMetaClass);
+        ds.setRefreshMode(CollectionDatasource.RefreshMode.NEVER);
+
+        TestDetailEntity detail = new TestDetailEntity();
+        TestMasterEntity loadedWithDetail = createMaster("A");
+        loadedWithDetail.setDetail(detail);
+        TestMasterEntity loadedWithoutDetail = createMaster("B");
+        TestMasterEntity notMatchingAnyGroup = createMaster("C");
+        ds.data.put(loadedWithDetail.getId(), loadedWithDetail);
+        ds.data.put(loadedWithoutDetail.getId(), loadedWithoutDetail);
+        ds.data.put(notMatchingAnyGroup.getId(), notMatchingAnyGroup);
+
+        MetaPropertyPath detailPath = masterMetaClass.getPropertyPath("detail");
+        GroupDelegate<TestMasterEntity, UUID> delegate = new GroupDelegate<TestMasterEntity, UUID>(ds, null, null) {
+            @Override
+            protected void doSort(CollectionDatasource.Sortable.SortInfo<MetaPropertyPath>[] sortInfo) {
+            }
+        };
+        delegate.groupProperties = new Object[]{masterNamePath, detailPath};
+        delegate.doGroup(Arrays.asList(
+                new Object[]{"A", detail, 2L},
+                new Object[]{"A", null, 1L},
+                new Object[]{"B", null, 3L}));
+
+        GroupInfo groupA = group(masterNamePath, "A");
+        GroupInfo groupB = group(masterNamePath, "B");
+        GroupInfo groupAWithDetail = group(masterNamePath, "A", detailPath, detail);
+        GroupInfo groupAWithoutDetail = group(masterNamePath, "A", detailPath, null);
+        GroupInfo groupBWithoutDetail = group(masterNamePath, "B", detailPath, null);
+
+        assertEquals(Arrays.asList(groupA, groupB), delegate.rootGroups());
+        assertEquals(Arrays.asList(groupAWithDetail, groupAWithoutDetail), delegate.getChildren(groupA));
+        assertEquals(Collections.singletonList(groupBWithoutDetail), delegate.getChildren(groupB));
+        assertEquals(groupAWithDetail, delegate.getParentGroup(loadedWithDetail));
+
+        assertEquals(3, delegate.getGroupItemsCount(groupA));
+        assertEquals(2, delegate.getGroupItemsCount(groupAWithDetail));
+        assertEquals(3, delegate.getGroupItemsCount(groupBWithoutDetail));
+
+        assertEquals(Collections.singletonList(loadedWithDetail.getId()), delegate.getGroupItemIds(groupAWithDetail));
+        assertEquals(1, delegate.getLoadedGroupItemsCount(groupAWithDetail));
+        assertEquals(0, delegate.getLoadedGroupItemsCount(groupAWithoutDetail));
+        assertEquals(Collections.singletonList(loadedWithoutDetail.getId()), delegate.getGroupItemIds(groupB));
+
+        assertNull(delegate.addItemToGroup(notMatchingAnyGroup.getId()));
+    }
+
+    @Test
+    public void testServerSideGrouping() {
+        GroupDatasourceImpl<TestMasterEntity, UUID> ds = createDatasource();
+
+        ds.groupBy(new Object[]{masterNamePath});
+
+        assertEquals(1, dataSupplier.valueContexts.size());
+        String groupQuery = dataSupplier.valueContexts.get(0).getQuery().getQueryString();
+        assertTrue(groupQuery.contains("group by groupedEntity.masterName"), groupQuery);
+        assertTrue(dataSupplier.loadContexts.isEmpty());
+        assertEquals(0, ds.size());
+
+        GroupInfo groupA = group(masterNamePath, "A");
+        GroupInfo groupB = group(masterNamePath, "B");
+        GroupInfo nullGroup = group(masterNamePath, null);
+        assertEquals(Arrays.asList(groupA, groupB, nullGroup), ds.rootGroups());
+        assertEquals(250, ds.getGroupItemsCount(groupA));
+        assertEquals(1, ds.getGroupItemsCount(groupB));
+        assertEquals(2, ds.getGroupItemsCount(nullGroup));
+        assertTrue(ds.hasNotLoadedGroupItems(groupA));
+    }
+
+    @Test
+    public void testLoadGroupItemsByPages() {
+        GroupDatasourceImpl<TestMasterEntity, UUID> ds = createDatasource();
+        ds.groupBy(new Object[]{masterNamePath});
+        GroupInfo groupA = group(masterNamePath, "A");
+
+        assertTrue(ds.loadGroupItems(groupA));
+
+        assertEquals(100, ds.getGroupItemIds(groupA).size());
+        assertTrue(ds.hasNotLoadedGroupItems(groupA));
+        LoadContext.Query query = dataSupplier.loadContexts.get(0).getQuery();
+        assertTrue(query.getQueryString().contains("e.masterName = :groupValue0"), query.getQueryString());
+        assertTrue(query.getQueryString().contains("order by e.id"), query.getQueryString());
+        assertEquals("A", query.getParameters().get("groupValue0"));
+        assertEquals(0, query.getFirstResult());
+        assertEquals(100, query.getMaxResults());
+
+        assertTrue(ds.loadGroupItems(groupA));
+
+        assertEquals(200, ds.getGroupItemIds(groupA).size());
+        assertEquals(100, dataSupplier.loadContexts.get(1).getQuery().getFirstResult());
+    }
+
+    @Test
+    public void testExpandedGroupLoadsAllPages() {
+        GroupDatasourceImpl<TestMasterEntity, UUID> ds = createDatasource();
+        ds.groupBy(new Object[]{masterNamePath});
+        DatasourceGroupTableItems<TestMasterEntity> tableItems = new DatasourceGroupTableItems<>(ds);
+
+        GroupInfo groupA = group(masterNamePath, "A");
+        tableItems.ensureGroupItemsLoaded(groupA);
+
+        assertEquals(3, dataSupplier.loadContexts.size());
+        assertEquals(250, ds.getGroupItemIds(groupA).size());
+        assertEquals(250, ds.size());
+        assertFalse(ds.hasNotLoadedGroupItems(groupA));
+
+        tableItems.ensureGroupItemsLoaded(groupA);
+        assertEquals(3, dataSupplier.loadContexts.size());
+
+        GroupInfo nullGroup = group(masterNamePath, null);
+        tableItems.ensureGroupItemsLoaded(nullGroup);
+
+        assertEquals(2, ds.getGroupItemIds(nullGroup).size());
+        String nullGroupQuery = dataSupplier.loadContexts.get(3).getQuery().getQueryString();
+        assertTrue(nullGroupQuery.contains("e.masterName is null"), nullGroupQuery);
+    }
+
+    protected GroupDatasourceImpl<TestMasterEntity, UUID> createDatasource() {
+        GroupDatasourceImpl<TestMasterEntity, UUID> ds = new GroupDatasourceImpl<>();
+        ds.setup(null, dataSupplier, "mastersDs", masterMetaClass, null);
+        ds.setQuery("select e from test$MasterEntity e");
+        ds.setServerSideGrouping(true);
+        ds.setGroupItemsPageSize(100);
+        ds.initialized();
+        return ds;
+    }
+
+    protected TestMasterEntity createMaster(String name) {
+        TestMasterEntity entity = new TestMasterEntity();
+        entity.setMasterName(name);
+        return entity;
+    }
+
+    protected GroupInfo group(Object... propertiesAndValues) {
+        LinkedMap<Object, Object> groupValues = new LinkedMap<>();
+        for (int i = 0; i < propertiesAndValues.length; i += 2) {
+            groupValues.put(propertiesAndValues[i], propertiesAndValues[i + 1]);
+        }
+        return new GroupInfo(groupValues);
+    }
+
+    /**
+     * Emulates the database: counts items by names and returns pages of items of a group.
+     */
+    protected class GroupingDataSupplier extends TestDataSupplier {
+
+        protected Map<String, List<TestMasterEntity>> items = new LinkedHashMap<>();
+
+        protected List<LoadContext> loadContexts = new ArrayList<>();
+
+        protected List<ValueLoadContext> valueContexts = new ArrayList<>();
+
+        protected void addItems(String name, int count) {
+            List<TestMasterEntity> groupItems = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                groupItems.add(createMaster(name));
+            }
+            items.put(name, groupItems);
+        }
+
+        @Override
+        public List<KeyValueEntity> loadValues(ValueLoadContext context) {
+            valueContexts.add(context);
+            return items.entrySet().stream()
+                    .map(entry -> {
+                        KeyValueEntity row = new KeyValueEntity();
+                        row.setValue("groupValue0", entry.getKey());
+                        row.setValue("groupCount", (long) entry.getValue().size());
+                        return row;
+                    })
+                    .collect(Collectors.toList());
+        }
+
+        @Nonnull
+        @Override
+        @SuppressWarnings("unchecked")
+        public <E extends Entity> List<E> loadList(LoadContext<E> context) {
+            loadContexts.add(context);
+
+            LoadContext.Query query = context.getQuery();
+            List<TestMasterEntity> groupItems = items.get((String) query.getParameters().get("groupValue0"));
+            int first = Math.min(query.getFirstResult(), groupItems.size());
+            int last = Math.min(first + query.getMaxResults(), groupItems.size());
+            return (List<E>) new ArrayList<>(groupItems.subList(first, last));
+        }
+    }
+}
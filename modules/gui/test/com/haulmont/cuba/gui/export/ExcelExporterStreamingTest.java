@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.export;
+
+import com.haulmont.cuba.client.ClientConfig;
+import com.haulmont.cuba.client.testsupport.CubaClientTestCase;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.FileDescriptor;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.jpql.DomainModel;
+import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder;
+import com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased;
+import com.haulmont.cuba.gui.components.Frame;
+import com.haulmont.cuba.gui.data.impl.TestDataSupplier;
+import com.haulmont.cuba.gui.data.impl.testmodel1.TestMasterEntity;
+import mockit.Expectations;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExcelExporterStreamingTest extends CubaClientTestCase {
+
+    protected File tempDir;
+
+    protected PagingDataSupplier dataSupplier;
+
+    protected CapturingExportDisplay display;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        addEntityPackage("com.haulmont.cuba");
+        setupInfrastructure();
+
+        tempDir = Files.createTempDirectory("excelExporterTest").toFile();
+
+        EntityBuilder builder = new EntityBuilder();
+        builder.startNewEntity("test$MasterEntity");
+        builder.addSingleValueAttribute(UUID.class, "id");
+        builder.addStringAttribute("masterName");
+        DomainModel domainModel = new DomainModel(builder.produce());
+
+        QueryTransformerFactory queryTransformerFactory = new QueryTransformerFactory() {
+            @Override
+            public QueryTransformer transformer(String query) {
+                return new QueryTransformerAstBased(domainModel, query);
+            }
+        };
+
+        dataSupplier = new PagingDataSupplier();
+        for (int i = 0; i < 25; i++) {
+            TestMasterEntity entity = new TestMasterEntity();
+            entity.setMasterName("master" + i);
+            dataSupplier.items.add(entity);
+        }
+
+        new Expectations() {
+            {
+                clientConfig.getExcelExporterStreamingPageSize(); result = 10; minTimes = 0;
+                globalConfig.getTempDir(); result = tempDir.getAbsolutePath(); minTimes = 0;
+
+                AppBeans.get(DataManager.NAME); result = dataSupplier; minTimes = 0;
+                AppBeans.get(QueryTransformerFactory.NAME, QueryTransformerFactory.class);
+                result = queryTransformerFactory; minTimes = 0;
+            }
+        };
+
+        display = new CapturingExportDisplay();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        FileUtils.deleteQuietly(tempDir);
+    }
+
+    @Test
+    public void testRowsExportedFromAllPages() throws IOException {
+        createExporter().exportStreaming(null, Collections.singletonList("Name"), Collections.singletonList(null),
+                item -> Collections.singletonList(((TestMasterEntity) item).getMasterName()),
+                Collections::emptyIterator, display, "masters", ExportFormat.CSV);
+
+        assertEquals(3, dataSupplier.queries.size());
+        assertEquals(Arrays.asList(0, 10, 20), dataSupplier.firstResults);
+        for (String query : dataSupplier.queries) {
+            assertTrue(query.contains("order by e.id"), query);
+        }
+
+        assertEquals("masters.csv", display.resourceName);
+        File file = ((TempFileDataProvider) display.dataProvider).getFile();
+        assertTrue(file.exists());
+
+        List<String> lines;
+        try (InputStream stream = display.dataProvider.provide()) {
+            lines = IOUtils.readLines(stream, StandardCharsets.UTF_8);
+        }
+        assertEquals(26, lines.size());
+        assertEquals("master24", lines.get(25));
+
+        assertFalse(file.exists());
+        assertEquals(0, tempDir.list().length);
+    }
+
+    @Test
+    public void testTempFileDeletedOnFailure() {
+        dataSupplier.failOnPage = 2;
+
+        assertThrows(IllegalStateException.class, () ->
+                createExporter().exportStreaming(null, Collections.singletonList("Name"),
+                        Collections.singletonList(null),
+                        item -> Collections.singletonList(((TestMasterEntity) item).getMasterName()),
+                        Collections::emptyIterator, display, "masters", ExportFormat.XLSX));
+
+        assertNull(display.dataProvider);
+        assertEquals(0, tempDir.list().length);
+    }
+
+    protected ExcelExporter createExporter() {
+        return new ExcelExporter() {
+            @Override
+            protected LoadContext<Entity> createStreamingLoadContext(Object items) {
+                LoadContext<Entity> context = new LoadContext<>(metadata.getClassNN(TestMasterEntity.class));
+                context.setQueryString("select e from test$MasterEntity e");
+                return context;
+            }
+        };
+    }
+
+    protected static class PagingDataSupplier extends TestDataSupplier {
+
+        protected List<TestMasterEntity> items = new ArrayList<>();
+
+        protected List<String> queries = new ArrayList<>();
+
+        protected List<Integer> firstResults = new ArrayList<>();
+
+        protected int failOnPage = -1;
+
+        @Nonnull
+        @Override
+        @SuppressWarnings("unchecked")
+        public <E extends Entity> List<E> loadList(LoadContext<E> context) {
+            LoadContext.Query query = context.getQuery();
+            queries.add(query.getQueryString());
+            firstResults.add(query.getFirstResult());
+            if (firstResults.size() == failOnPage) {
+                throw new IllegalStateException("Connection lost");
+            }
+
+            int first = Math.min(query.getFirstResult(), items.size());
+            int last = Math.min(first + query.getMaxResults(), items.size());
+            return (List<E>) new ArrayList<>(items.subList(first, last));
+        }
+    }
+
+    protected static class CapturingExportDisplay implements ExportDisplay {
+
+        protected ExportDataProvider dataProvider;
+
+        protected String resourceName;
+
+        @Override
+        public void show(ExportDataProvider dataProvider, String resourceName, @Nullable ExportFormat format) {
+            this.dataProvider = dataProvider;
+            this.resourceName = resourceName;
+        }
+
+        @Override
+        public void show(ExportDataProvider dataProvider, String resourceName) {
+            show(dataProvider, resourceName, null);
+        }
+
+        @Override
+        public void show(FileDescriptor fileDescriptor, @Nullable ExportFormat format) {
+        }
+
+        @Override
+        public void show(FileDescriptor fileDescriptor) {
+        }
+
+        @Override
+        public boolean isShowNewWindow() {
+            return false;
+        }
+
+        @Override
+        public void setShowNewWindow(boolean showNewWindow) {
+        }
+
+        @Override
+        public void setFrame(Frame frame) {
+        }
+    }
+}
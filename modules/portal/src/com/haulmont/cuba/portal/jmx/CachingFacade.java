@@ -31,4 +31,14 @@ public class CachingFacade implements CachingFacadeMBean {
     public void clearConfigCache() {
         clientCacheManager.clearCache();
     }
+
+    @Override
+    public String printClientCacheStatistics() {
+        return clientCacheManager.printStatistics();
+    }
+
+    @Override
+    public void resetClientCacheStatistics() {
+        clientCacheManager.resetStatistics();
+    }
 }
\ No newline at end of file
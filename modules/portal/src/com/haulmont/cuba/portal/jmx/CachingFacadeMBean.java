@@ -19,4 +19,8 @@ package com.haulmont.cuba.portal.jmx;
 
 public interface CachingFacadeMBean {
     void clearConfigCache();
+
+    String printClientCacheStatistics();
+
+    void resetClientCacheStatistics();
 }
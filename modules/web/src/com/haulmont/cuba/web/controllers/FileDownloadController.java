@@ -25,6 +25,7 @@ import com.haulmont.cuba.core.global.FileTypesHelper;
 import com.haulmont.cuba.core.global.LoadContext;
 import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.core.sys.servlet.FileDownloadSupport;
 import com.haulmont.cuba.security.app.UserSessionService;
 import com.haulmont.cuba.security.global.NoUserSessionException;
 import com.haulmont.cuba.security.global.UserSession;
@@ -38,12 +39,17 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.servlet.ModelAndView;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -102,7 +108,22 @@ public class FileDownloadController {
             response.setHeader("Content-Disposition", (attach ? "attachment" : "inline")
                     + "; filename=" + fileName);
 
-            downloadFromMiddlewareAndWriteResponse(fd, response);
+            String eTag = FileDownloadSupport.getETag(fd);
+            long lastModified = fd.getCreateDate() != null ? fd.getCreateDate().getTime() : -1;
+            if (FileDownloadSupport.checkNotModified(request, response, eTag, lastModified)) {
+                return null;
+            }
+
+            List<FileDownloadSupport.Range> ranges = Collections.emptyList();
+            if (fd.getSize() != null) {
+                ranges = FileDownloadSupport.getRanges(request, response, eTag, lastModified, fd.getSize());
+            }
+
+            if (ranges != null && ranges.isEmpty()) {
+                downloadFromMiddlewareAndWriteResponse(fd, response);
+            } else {
+                downloadRangesFromMiddlewareAndWriteResponse(fd, ranges, response);
+            }
         } finally {
             AppContext.setSecurityContext(null);
         }
@@ -120,6 +141,25 @@ public class FileDownloadController {
         }
     }
 
+    /**
+     * Writes the requested ranges of the file. Bytes before a range are not transferred from middleware if it
+     * supports range requests.
+     */
+    protected void downloadRangesFromMiddlewareAndWriteResponse(FileDescriptor fd,
+                                                                @Nullable List<FileDownloadSupport.Range> ranges,
+                                                                HttpServletResponse response) throws IOException {
+        RangeStreamWriter writer = new RangeStreamWriter(fd, response.getOutputStream());
+        try {
+            FileDownloadSupport.writeRanges(response, ranges, fd.getSize(), getContentType(fd), writer);
+            response.flushBuffer();
+        } catch (RangeDownloadException e) {
+            log.error("Unable to load file from middleware", e.getCause());
+            error(response);
+        } finally {
+            writer.close();
+        }
+    }
+
     protected UserSession getSession(HttpServletRequest request, HttpServletResponse response) throws IOException {
         UUID sessionId;
         try {
@@ -151,4 +191,53 @@ public class FileDownloadController {
         if (!response.isCommitted())
             response.sendError(HttpServletResponse.SC_NOT_FOUND);
     }
+
+    /**
+     * Copies ranges from a middleware stream. The stream is reused while ranges go forward and reopened otherwise.
+     */
+    protected class RangeStreamWriter implements FileDownloadSupport.RangeWriter {
+
+        protected final FileDescriptor fd;
+        protected final OutputStream outputStream;
+
+        protected InputStream inputStream;
+        protected long position;
+
+        public RangeStreamWriter(FileDescriptor fd, OutputStream outputStream) {
+            this.fd = fd;
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public void write(long start, long length) throws IOException {
+            if (inputStream == null || start < position) {
+                close();
+                try {
+                    inputStream = fileLoader.openStream(fd, start);
+                } catch (FileStorageException e) {
+                    throw new RangeDownloadException(e);
+                }
+            } else {
+                IOUtils.skipFully(inputStream, start - position);
+            }
+            if (IOUtils.copyLarge(inputStream, outputStream, 0, length) < length) {
+                throw new EOFException("Unexpected end of file " + fd.getId());
+            }
+            position = start + length;
+        }
+
+        public void close() {
+            IOUtils.closeQuietly(inputStream);
+            inputStream = null;
+        }
+    }
+
+    protected static class RangeDownloadException extends IOException {
+
+        private static final long serialVersionUID = -2376214958376216428L;
+
+        public RangeDownloadException(FileStorageException cause) {
+            super(cause);
+        }
+    }
 }
\ No newline at end of file
@@ -169,6 +169,8 @@ public class GroupTableDataContainer<I> extends SortableDataContainer<I> impleme
             expandedGroups.add((GroupInfo) groupId);
             if (hasChildren(groupId)) {
                 expand(getChildren(groupId));
+            } else {
+                ensureGroupItemsLoaded((GroupInfo) groupId);
             }
         }
     }
@@ -177,10 +179,19 @@ public class GroupTableDataContainer<I> extends SortableDataContainer<I> impleme
     public void expand(Object id) {
         if (isGroup(id)) {
             expandedGroups.add((GroupInfo) id);
+            if (!hasChildren(id)) {
+                ensureGroupItemsLoaded((GroupInfo) id);
+            }
             resetGroupCachedItems();
         }
     }
 
+    protected void ensureGroupItemsLoaded(GroupInfo groupId) {
+        if (tableItems instanceof GroupTableItems.LazyGroupItems) {
+            ((GroupTableItems.LazyGroupItems) tableItems).ensureGroupItemsLoaded(groupId);
+        }
+    }
+
     @Override
     public void collapseAll() {
         if (hasGroups()) {
@@ -21,6 +21,7 @@ import com.haulmont.cuba.client.sys.PersistenceManagerClient;
 import com.haulmont.cuba.client.sys.cache.ClientCacheManager;
 import com.haulmont.cuba.client.sys.cache.DynamicAttributesCacheStrategy;
 import com.haulmont.cuba.core.global.Messages;
+import com.haulmont.cuba.core.global.QueryTransformerFactory;
 import com.haulmont.cuba.core.global.Scripting;
 import com.haulmont.cuba.core.global.ViewRepository;
 import com.haulmont.cuba.core.sys.AbstractViewRepository;
@@ -77,6 +78,9 @@ public class CachingFacade implements CachingFacadeMBean {
     @Inject
     private UiControllerReflectionInspector uiControllerReflectionInspector;
 
+    @Inject
+    private QueryTransformerFactory queryTransformerFactory;
+
     @Override
     public int getMessagesCacheSize() {
         return messages.getCacheSize();
@@ -142,4 +146,25 @@ public class CachingFacade implements CachingFacadeMBean {
     public void clearScreenReflectionCache() {
         uiControllerReflectionInspector.clearCache();
     }
+
+    @Override
+    public String printQueryTreeCacheStatistics() {
+        return queryTransformerFactory.getQueryTreeCache().toString();
+    }
+
+    @Override
+    public void clearQueryTreeCache() {
+        queryTransformerFactory.reset();
+        log.info("Query tree cache has been cleared");
+    }
+
+    @Override
+    public String printClientCacheStatistics() {
+        return clientCacheManager.printStatistics();
+    }
+
+    @Override
+    public void resetClientCacheStatistics() {
+        clientCacheManager.resetStatistics();
+    }
 }
\ No newline at end of file
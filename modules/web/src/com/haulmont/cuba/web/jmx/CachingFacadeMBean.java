@@ -43,4 +43,16 @@ public interface CachingFacadeMBean {
 
     @ManagedOperation(description = "Clears reflection caches for screens")
     void clearScreenReflectionCache();
+
+    @ManagedOperation(description = "Prints size and hit/miss statistics of the parsed JPQL query cache")
+    String printQueryTreeCacheStatistics();
+
+    @ManagedOperation(description = "Clears parsed JPQL query cache and rebuilds the JPQL domain model")
+    void clearQueryTreeCache();
+
+    @ManagedOperation(description = "Prints reload times and stale hit counts of client caches")
+    String printClientCacheStatistics();
+
+    @ManagedOperation(description = "Resets statistics of client caches")
+    void resetClientCacheStatistics();
 }
\ No newline at end of file
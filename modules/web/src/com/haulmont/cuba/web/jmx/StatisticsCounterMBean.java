@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.web.jmx;
 
+import org.springframework.jmx.export.annotation.ManagedOperation;
 import org.springframework.jmx.export.annotation.ManagedResource;
 
 @SuppressWarnings("unused")
@@ -44,4 +45,10 @@ public interface StatisticsCounterMBean {
     double getAvgProcessCpuLoad();
 
     double getAvgThreadCount();
-}
\ No newline at end of file
+
+    @ManagedOperation(description = "Print HTTP service invocation counters by service")
+    String printRemotingStatistics();
+
+    @ManagedOperation(description = "Reset HTTP service invocation counters")
+    void resetRemotingStatistics();
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.sys
+
+import com.haulmont.cuba.client.sys.cache.CachingStrategy
+import com.haulmont.cuba.client.sys.cache.ClientCacheManager
+import com.haulmont.cuba.security.entity.User
+import com.haulmont.cuba.security.global.UserSession
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.locks.ReadWriteLock
+import java.util.concurrent.locks.ReentrantReadWriteLock
+
+class ClientCacheManagerTest extends Specification {
+
+    ClientCacheManager cacheManager
+    RefreshAheadStrategy strategy
+
+    void setup() {
+        def user = new User()
+        user.login = 'cache'
+
+        cacheManager = new ClientCacheManager()
+        cacheManager.cacheUserSessionProvider = {
+            new UserSession(UUID.randomUUID(), user, Collections.emptyList(), Locale.ENGLISH, false)
+        }
+
+        strategy = new RefreshAheadStrategy()
+        cacheManager.addCachedObject('test', strategy)
+    }
+
+    void cleanup() {
+        strategy.loadAllowed.countDown()
+        cacheManager.destroy()
+    }
+
+    def "stale object is returned while it is reloaded in background"() {
+        strategy.loadAllowed.countDown()
+
+        expect: 'first access loads object synchronously'
+        cacheManager.getCached('test') == 1
+
+        when: 'object expires and background reload is blocked'
+        strategy.loadAllowed = new CountDownLatch(1)
+        strategy.expired = true
+
+        then: 'stale object is returned without waiting and only one reload is started'
+        cacheManager.getCached('test') == 1
+        cacheManager.getCached('test') == 1
+        cacheManager.getCached('test') == 1
+
+        when: 'reload completes'
+        strategy.loadAllowed.countDown()
+        waitForLoads(2)
+
+        then: 'new object is returned'
+        cacheManager.getCached('test') == 2
+        strategy.loadCount.get() == 2
+        cacheManager.printStatistics().contains('staleServed=3')
+    }
+
+    def "object is loaded synchronously when max staleness is exceeded"() {
+        strategy.loadAllowed.countDown()
+        cacheManager.getCached('test')
+
+        strategy.maxStalenessMs = 50
+        strategy.expired = true
+
+        when: 'background reload is not possible'
+        cacheManager.cacheUserSessionProvider = { null }
+
+        then: 'stale object is returned within the staleness bound'
+        cacheManager.getCached('test') == 1
+
+        when: 'staleness bound is exceeded'
+        Thread.sleep(100)
+
+        then: 'object is loaded by the calling thread'
+        cacheManager.getCached('test') == 2
+    }
+
+    protected void waitForLoads(int count) {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10)
+        while ((strategy.loadCount.get() < count || strategy.expired) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+    }
+
+    static class RefreshAheadStrategy implements CachingStrategy {
+
+        ReadWriteLock lock = new ReentrantReadWriteLock()
+        AtomicInteger loadCount = new AtomicInteger()
+        volatile CountDownLatch loadAllowed = new CountDownLatch(1)
+        volatile Object object
+        volatile boolean expired
+        long maxStalenessMs
+
+        @Override
+        Object getObject() {
+            return object
+        }
+
+        @Override
+        Object loadObject() {
+            loadAllowed.await(10, TimeUnit.SECONDS)
+            object = loadCount.incrementAndGet()
+            expired = false
+            return object
+        }
+
+        @Override
+        ReadWriteLock lock() {
+            return lock
+        }
+
+        @Override
+        boolean needToReload() {
+            return object == null || expired
+        }
+
+        @Override
+        boolean isRefreshAhead() {
+            return true
+        }
+
+        @Override
+        long getMaxStalenessMs() {
+            return maxStalenessMs
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2008-2019 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package spec.cuba.web.sys
+
+import com.haulmont.cuba.core.sys.servlet.FileDownloadSupport
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+
+class FileDownloadSupportTest extends Specification {
+
+    @Unroll
+    def "range header '#header' of 1000 bytes content is parsed to #expected"() {
+        when:
+        def ranges = FileDownloadSupport.parseRanges(header, 1000)
+
+        then:
+        ranges?.collect { it.toString() } == expected
+
+        where:
+        header                 | expected
+        'bytes=0-499'          | ['0-499']
+        'bytes=500-'           | ['500-999']
+        'bytes=-200'           | ['800-999']
+        'bytes=900-2000'       | ['900-999']
+        'bytes=0-9, 100-199'   | ['0-9', '100-199']
+        'bytes=0-9,1000-1100'  | ['0-9']
+        'bytes=1000-1100'      | null
+        'bytes=-0'             | null
+        'bytes=10-5'           | []
+        'bytes=abc'            | []
+        'items=0-10'           | []
+    }
+
+    def "not modified when entity tag or modification date matches"() {
+        def response = Mock(HttpServletResponse)
+        def request = Stub(HttpServletRequest) {
+            getHeader('If-None-Match') >> ifNoneMatch
+            getDateHeader('If-Modified-Since') >> ifModifiedSince
+        }
+
+        expect:
+        FileDownloadSupport.checkNotModified(request, response, '"tag"', 10_000) == notModified
+
+        where:
+        ifNoneMatch       | ifModifiedSince | notModified
+        '"tag"'           | -1              | true
+        '"other", "tag"'  | -1              | true
+        '*'               | -1              | true
+        '"other"'         | 20_000          | false
+        null              | 10_500          | true
+        null              | 9_000           | false
+        null              | -1              | false
+    }
+
+    def "range is ignored when If-Range doesn't match"() {
+        def response = Mock(HttpServletResponse)
+        def request = Stub(HttpServletRequest) {
+            getHeader('Range') >> 'bytes=0-9'
+            getHeader('If-Range') >> ifRange
+        }
+
+        expect:
+        FileDownloadSupport.getRanges(request, response, '"tag"', 10_000, 100).size() == size
+
+        where:
+        ifRange   | size
+        null      | 1
+        '"tag"'   | 1
+        '"other"' | 0
+    }
+
+    def "single range is sent as partial content"() {
+        def response = Mock(HttpServletResponse)
+        def written = []
+
+        when:
+        FileDownloadSupport.writeRanges(response, FileDownloadSupport.parseRanges('bytes=10-19', 100), 100,
+                'text/plain', { start, length -> written << [start, length] })
+
+        then:
+        1 * response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT)
+        1 * response.setHeader('Content-Range', 'bytes 10-19/100')
+        1 * response.setContentLengthLong(10)
+        written == [[10L, 10L]]
+    }
+
+    def "unsatisfiable ranges are rejected"() {
+        def response = Mock(HttpServletResponse)
+
+        when:
+        FileDownloadSupport.writeRanges(response, null, 100, 'text/plain', { start, length -> assert false })
+
+        then:
+        1 * response.setHeader('Content-Range', 'bytes */100')
+        1 * response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE)
+    }
+}